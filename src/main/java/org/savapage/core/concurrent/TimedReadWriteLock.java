@@ -24,11 +24,12 @@
  */
 package org.savapage.core.concurrent;
 
-import java.util.Stack;
+import java.util.Iterator;
+import java.util.Queue;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.StampedLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +44,13 @@ import org.slf4j.LoggerFactory;
  * "https://today.java.net/pub/a/today/2007/06/28/extending-reentrantreadwritelock.html"
  * >this link</a>.
  * </p>
+ * <p>
+ * The lock is a {@link StampedLock} made reentrant by per-thread hold counts.
+ * Only the outermost acquire of a thread touches the {@link StampedLock}.
+ * Instead of scheduling a timer task for each acquire, a single low-frequency
+ * watchdog periodically scans the (reused) per-thread holder records and
+ * reports holds that exceed the max wait time.
+ * </p>
  *
  * @author Ran Kornfeld (original author)
  * @author Rijk Ravestein (minor changes)
@@ -51,20 +59,14 @@ import org.slf4j.LoggerFactory;
 public final class TimedReadWriteLock {
 
     /**
-     * Fair policy implies:
-     * <ul>
-     * <li>Read Lock acquire: blocks if either the write lock is held, or there
-     * is a waiting writer thread.</li>
-     * <li>Write Lock acquire: blocks unless both the read lock and write lock
-     * are free.</li>
-     * </ul>
+     * .
      */
-    private static final boolean LOCK_POLICY_FAIR = true;
+    private static final String STACK_TRACE_CLASSNAME_FILTER = "org.savapage.";
 
     /**
-     * .
+     * Milliseconds between two watchdog scans.
      */
-    private static final String STACK_TRACE_CLASSNAME_FILTER = "org.savapage.";
+    private static final long WATCHDOG_TICK_MSEC = 1000L;
 
     /**
      * The logger.
@@ -72,11 +74,22 @@ public final class TimedReadWriteLock {
     private static final Logger LOGGER =
             LoggerFactory.getLogger(TimedReadWriteLock.class);
 
+    /**
+     * The lock mode a thread actually holds on the {@link StampedLock}.
+     */
+    private enum HoldMode {
+        /** */
+        NONE,
+        /** */
+        READ,
+        /** */
+        WRITE
+    }
+
     /**
      *
      */
-    private final ReadWriteLock rwLock =
-            new ReentrantReadWriteLock(LOCK_POLICY_FAIR);
+    private final StampedLock rwLock = new StampedLock();
 
     /**
      * How long to wait to unlock.
@@ -90,119 +103,209 @@ public final class TimedReadWriteLock {
 
     /**
      * A static {@link Timer} so all the locks will use the same thread for the
-     * wait timer.
+     * watchdog.
      */
     private static Timer waitTimer = new Timer(true);
 
     /**
-     * Timer task for reporting lock timeout error.
+     * Lock administration of a thread. An instance is created once per thread
+     * and reused for all its acquires.
      */
-    private class WaitTimerTask extends TimerTask {
+    private static final class LockHolder {
 
+        /** */
         private final Thread locker;
-        private final boolean readLock;
-        private final String contextId;
-        private final StackTraceElement[] stackElements;
 
         /**
-         *
-         * @param locker
-         * @param readLock
+         * Number of (nested) read holds.
+         */
+        private int readHolds;
+
+        /**
+         * Number of (nested) write holds.
+         */
+        private int writeHolds;
+
+        /** */
+        private HoldMode mode = HoldMode.NONE;
+
+        /**
+         * The stamp of the {@link StampedLock}.
+         */
+        private long stamp;
+
+        /**
+         * Time in milliseconds when the outermost lock was acquired, or
+         * {@code 0} when not locked.
+         */
+        private volatile long lockedSince;
+
+        /**
+         * The {@link #lockedSince} value that was reported by the watchdog.
+         */
+        private long reportedSince;
+
+        /** */
+        private volatile boolean readLock;
+
+        /** */
+        private volatile String contextId;
+
+        /**
+         * @param thread
+         *            The locking thread.
          */
-        WaitTimerTask(final Thread locker, final boolean readLock,
-                final String contextId) {
-            this.locker = locker;
-            this.readLock = readLock;
-            this.stackElements = locker.getStackTrace();
-            this.contextId = contextId;
+        LockHolder(final Thread thread) {
+            this.locker = thread;
         }
+    }
 
-        @Override
-        public void run() {
+    /**
+     * All holders of this lock.
+     */
+    private final Queue<LockHolder> lockHolders =
+            new ConcurrentLinkedQueue<>();
 
-            if (!LOGGER.isWarnEnabled()) {
-                return;
-            }
+    /**
+     * .
+     */
+    private final ThreadLocal<LockHolder> lockHolder =
+            ThreadLocal.withInitial(() -> {
+                final LockHolder holder =
+                        new LockHolder(Thread.currentThread());
+                this.lockHolders.add(holder);
+                return holder;
+            });
 
-            final String lockType;
+    /**
+     * Watchdog task for reporting lock timeout errors.
+     */
+    private final class WatchdogTask extends TimerTask {
 
-            if (this.readLock) {
-                lockType = "read";
-            } else {
-                lockType = "write";
-            }
+        @Override
+        public void run() {
 
-            final String thisPackageName =
-                    this.getClass().getPackage().getName();
+            final long now = System.currentTimeMillis();
 
-            final StringBuilder msg = new StringBuilder();
+            final Iterator<LockHolder> iter = lockHolders.iterator();
 
-            msg.append(this.locker).append(" holds [").append(lockType)
-                    .append("] lock [").append(name).append("]");
+            while (iter.hasNext()) {
 
-            if (this.contextId != null) {
-                msg.append(" [").append(this.contextId).append("]");
-            }
+                final LockHolder holder = iter.next();
 
-            msg.append(" for more than ").append(maxWait)
-                    .append(" ms. Stack trace snippet:\n");
+                if (!holder.locker.isAlive()) {
+                    iter.remove();
+                    continue;
+                }
 
-            int nElement = 0;
+                final long since = holder.lockedSince;
 
-            for (StackTraceElement element : this.stackElements) {
-                if (element.getClassName().startsWith(thisPackageName)) {
+                if (since == 0 || since == holder.reportedSince
+                        || now - since <= maxWait) {
                     continue;
                 }
-                if (element.getClassName()
-                        .startsWith(STACK_TRACE_CLASSNAME_FILTER)) {
-                    msg.append("\t").append(element).append("\n");
-                    nElement++;
-                } else if (nElement > 0) {
-                    break;
+
+                holder.reportedSince = since;
+
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn(createTimeoutMessage(holder));
                 }
             }
-            LOGGER.warn(msg.toString());
-        }
-
-        /**
-         *
-         * @return {@code true} when a read lock.
-         */
-        public boolean isReadLock() {
-            return readLock;
         }
+    }
 
+    /**
+     * Constructor.
+     *
+     * @param name
+     *            The unique name for the lock (used for reporting).
+     * @param maxWait
+     *            Max wait milliseconds after which an error is reported if a
+     *            thread is still locked.
+     */
+    public TimedReadWriteLock(final String name, final long maxWait) {
+        this.maxWait = maxWait;
+        this.name = name;
+        waitTimer.schedule(new WatchdogTask(), WATCHDOG_TICK_MSEC,
+                WATCHDOG_TICK_MSEC);
     }
 
     /**
-     * .
+     * Creates the message for a lock held longer than max wait time.
+     *
+     * @param holder
+     *            The lock holder.
+     * @return The message.
      */
-    private class LockTaskStack extends ThreadLocal<Stack<WaitTimerTask>> {
+    private String createTimeoutMessage(final LockHolder holder) {
 
-        @Override
-        protected Stack<WaitTimerTask> initialValue() {
-            return new Stack<WaitTimerTask>();
+        final String lockType;
+
+        if (holder.readLock) {
+            lockType = "read";
+        } else {
+            lockType = "write";
         }
 
+        final String thisPackageName = this.getClass().getPackage().getName();
+
+        final StringBuilder msg = new StringBuilder();
+
+        msg.append(holder.locker).append(" holds [").append(lockType)
+                .append("] lock [").append(this.name).append("]");
+
+        final String contextId = holder.contextId;
+
+        if (contextId != null) {
+            msg.append(" [").append(contextId).append("]");
+        }
+
+        msg.append(" for more than ").append(this.maxWait)
+                .append(" ms. Stack trace snippet:\n");
+
+        int nElement = 0;
+
+        for (StackTraceElement element : holder.locker.getStackTrace()) {
+            if (element.getClassName().startsWith(thisPackageName)) {
+                continue;
+            }
+            if (element.getClassName()
+                    .startsWith(STACK_TRACE_CLASSNAME_FILTER)) {
+                msg.append("\t").append(element).append("\n");
+                nElement++;
+            } else if (nElement > 0) {
+                break;
+            }
+        }
+        return msg.toString();
     }
 
     /**
+     * Starts the watchdog administration of an outermost acquire.
      *
+     * @param holder
+     *            The lock holder.
+     * @param readLock
+     *            {@code true} when read lock.
+     * @param contextId
+     *            ID used for logging.
      */
-    private final LockTaskStack lockTaskStack = new LockTaskStack();
+    private static void onLocked(final LockHolder holder,
+            final boolean readLock, final String contextId) {
+        holder.readLock = readLock;
+        holder.contextId = contextId;
+        holder.lockedSince = System.currentTimeMillis();
+    }
 
     /**
-     * Constructor.
+     * Ends the watchdog administration of an outermost release.
      *
-     * @param name
-     *            The unique name for the lock (used for reporting).
-     * @param maxWait
-     *            Max wait milliseconds after which an error is reported if a
-     *            thread is still locked.
+     * @param holder
+     *            The lock holder.
      */
-    public TimedReadWriteLock(final String name, final long maxWait) {
-        this.maxWait = maxWait;
-        this.name = name;
+    private static void onUnlocked(final LockHolder holder) {
+        holder.lockedSince = 0;
+        holder.contextId = null;
     }
 
     /**
@@ -224,26 +327,22 @@ public final class TimedReadWriteLock {
             LOGGER.trace("Try Read lock [" + Thread.currentThread().getName()
                     + "]: " + Thread.currentThread().getStackTrace()[3]);
         }
-        if (!rwLock.readLock().tryLock()) {
-            return false;
+
+        final LockHolder holder = this.lockHolder.get();
+
+        if (holder.mode == HoldMode.NONE) {
+            final long stamp = this.rwLock.tryReadLock();
+            if (stamp == 0L) {
+                return false;
+            }
+            holder.stamp = stamp;
+            holder.mode = HoldMode.READ;
+            onLocked(holder, true, contextId);
         }
-        this.pushTimerTask(true, contextId);
+        holder.readHolds++;
         return true;
     }
 
-    /**
-     *
-     * @param readLock
-     * @param contextId
-     *            ID used for logging.
-     */
-    private void pushTimerTask(final boolean readLock, final String contextId) {
-        final WaitTimerTask job =
-                new WaitTimerTask(Thread.currentThread(), readLock, contextId);
-        lockTaskStack.get().push(job);
-        waitTimer.schedule(job, maxWait);
-    }
-
     /**
      * Locks or unlocks a read lock.
      *
@@ -254,6 +353,8 @@ public final class TimedReadWriteLock {
      */
     public void setReadLock(final boolean lock, final String contextId) {
 
+        final LockHolder holder = this.lockHolder.get();
+
         if (lock) {
 
             if (LOGGER.isTraceEnabled()) {
@@ -261,8 +362,12 @@ public final class TimedReadWriteLock {
                         + "]: " + Thread.currentThread().getStackTrace()[3]);
             }
 
-            rwLock.readLock().lock();
-            this.pushTimerTask(true, contextId);
+            if (holder.mode == HoldMode.NONE) {
+                holder.stamp = this.rwLock.readLock();
+                holder.mode = HoldMode.READ;
+                onLocked(holder, true, contextId);
+            }
+            holder.readHolds++;
 
         } else {
 
@@ -271,11 +376,19 @@ public final class TimedReadWriteLock {
                         + "]: " + Thread.currentThread().getStackTrace()[3]);
             }
 
-            rwLock.readLock().unlock();
+            if (holder.readHolds == 0) {
+                throw new IllegalMonitorStateException(String.format(
+                        "Thread [%s] does not hold read lock [%s]",
+                        Thread.currentThread().getName(), this.name));
+            }
 
-            final WaitTimerTask job = lockTaskStack.get().pop();
+            holder.readHolds--;
 
-            job.cancel();
+            if (holder.readHolds == 0 && holder.mode == HoldMode.READ) {
+                this.rwLock.unlockRead(holder.stamp);
+                holder.mode = HoldMode.NONE;
+                onUnlocked(holder);
+            }
         }
     }
 
@@ -290,43 +403,31 @@ public final class TimedReadWriteLock {
      */
     public void setWriteLock(final boolean lock, final String contextId) {
 
+        final LockHolder holder = this.lockHolder.get();
+
         if (lock) {
             /*
              * Check if the same thread is already holding a read lock If so,
              * the write lock will block forever.
-             *
-             * @see java.util.concurrent.ReentrantReadWriteLock javadocs for
-             * details
              */
-            final Stack<WaitTimerTask> taskStack = lockTaskStack.get();
-
-            if (!taskStack.isEmpty()) {
-
-                final WaitTimerTask job = taskStack.peek();
-
-                if (job != null && job.isReadLock()) {
+            if (holder.mode == HoldMode.READ) {
 
-                    LOGGER.error("The same thread [" + Thread.currentThread()
-                            + "] is already holding a read lock '" + name
-                            + "'. Cannot lock for write!");
+                LOGGER.error("The same thread [" + Thread.currentThread()
+                        + "] is already holding a read lock '" + name
+                        + "'. Cannot lock for write!");
 
-                    if (LOGGER.isDebugEnabled()) {
-
-                        final StringBuilder msg = new StringBuilder();
-                        msg.append(Thread.currentThread())
-                                .append(" stack trace:\n");
-                        for (StackTraceElement element : Thread.currentThread()
-                                .getStackTrace()) {
-                            msg.append("\t").append(element).append("\n");
-                        }
-
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug(msg.toString());
-                        }
+                if (LOGGER.isDebugEnabled()) {
 
+                    final StringBuilder msg = new StringBuilder();
+                    msg.append(Thread.currentThread())
+                            .append(" stack trace:\n");
+                    for (StackTraceElement element : Thread.currentThread()
+                            .getStackTrace()) {
+                        msg.append("\t").append(element).append("\n");
                     }
-                    return;
+                    LOGGER.debug(msg.toString());
                 }
+                return;
             }
 
             if (LOGGER.isTraceEnabled()) {
@@ -334,8 +435,12 @@ public final class TimedReadWriteLock {
                         + "]: " + Thread.currentThread().getStackTrace()[3]);
             }
 
-            rwLock.writeLock().lock();
-            this.pushTimerTask(false, contextId);
+            if (holder.mode == HoldMode.NONE) {
+                holder.stamp = this.rwLock.writeLock();
+                holder.mode = HoldMode.WRITE;
+                onLocked(holder, false, contextId);
+            }
+            holder.writeHolds++;
 
         } else {
 
@@ -344,10 +449,30 @@ public final class TimedReadWriteLock {
                         + "]: " + Thread.currentThread().getStackTrace()[3]);
             }
 
-            rwLock.writeLock().unlock();
+            if (holder.writeHolds == 0) {
+                throw new IllegalMonitorStateException(String.format(
+                        "Thread [%s] does not hold write lock [%s]",
+                        Thread.currentThread().getName(), this.name));
+            }
+
+            holder.writeHolds--;
 
-            final WaitTimerTask job = lockTaskStack.get().pop();
-            job.cancel();
+            if (holder.writeHolds > 0) {
+                return;
+            }
+
+            if (holder.readHolds > 0) {
+                /*
+                 * Downgrade: read locks were nested in the write lock.
+                 */
+                holder.stamp = this.rwLock.tryConvertToReadLock(holder.stamp);
+                holder.mode = HoldMode.READ;
+                onLocked(holder, true, holder.contextId);
+            } else {
+                this.rwLock.unlockWrite(holder.stamp);
+                holder.mode = HoldMode.NONE;
+                onUnlocked(holder);
+            }
         }
     }
 
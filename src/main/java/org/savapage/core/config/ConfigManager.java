@@ -119,18 +119,22 @@ import org.savapage.core.jpa.tools.DbConnectionPoolEnum;
 import org.savapage.core.jpa.tools.DbTools;
 import org.savapage.core.jpa.tools.DbUpgManager;
 import org.savapage.core.jpa.tools.DbVersionInfo;
+import org.savapage.core.msg.UserMsgIndicator;
 import org.savapage.core.pdf.PdfDocumentFonts;
 import org.savapage.core.print.proxy.ProxyPrintJobStatusMonitor;
 import org.savapage.core.services.PrinterService;
 import org.savapage.core.services.ProxyPrintService;
 import org.savapage.core.services.ServiceContext;
 import org.savapage.core.services.ServiceFactory;
+import org.savapage.core.services.helpers.DocStatsAccumulator;
+import org.savapage.core.services.helpers.InboxInfoCache;
 import org.savapage.core.services.helpers.SOfficeConfigProps;
 import org.savapage.core.system.SystemInfo;
 import org.savapage.core.users.ActiveDirectoryUserSource;
 import org.savapage.core.users.CustomUserSource;
 import org.savapage.core.users.IExternalUserAuthenticator;
 import org.savapage.core.users.IUserSource;
+import org.savapage.core.users.LdapContextPool;
 import org.savapage.core.users.LdapUserSource;
 import org.savapage.core.users.NoUserSource;
 import org.savapage.core.users.UnixUserSource;
@@ -1225,6 +1229,18 @@ public final class ConfigManager {
         return myConfigProp.calcRunnable();
     }
 
+    /**
+     * Gets the number of configuration value updates since start. Use this
+     * number to detect configuration changes, e.g. to invalidate cached values
+     * derived from configuration. Statistics and application state updates
+     * are not counted.
+     *
+     * @return The modification count.
+     */
+    public long getConfigModCount() {
+        return myConfigProp.getModCount();
+    }
+
     /**
      * @param props
      *            Server properties.
@@ -2753,6 +2769,10 @@ public final class ConfigManager {
 
                 ProxyPrintJobStatusMonitor.exit();
 
+                UserMsgIndicator.exit();
+
+                DocStatsAccumulator.instance().exit();
+
             } finally {
                 ReadWriteLockEnum.DATABASE_READONLY.setWriteLock(false);
             }
@@ -2760,6 +2780,10 @@ public final class ConfigManager {
 
         exitScheduler();
 
+        LdapContextPool.instance().close();
+
+        InboxInfoCache.instance().exit();
+
         /*
          * Wait till last, since Hibernate is needed when shutting down
          * (scheduled) services.
@@ -2790,6 +2814,7 @@ public final class ConfigManager {
     public static void removeUserHomeDir(final String user) throws IOException {
         final Path path =
                 FileSystems.getDefault().getPath(getUserHomeDir(user));
+        InboxInfoCache.instance().remove(user);
         if (path.toFile().exists()) {
             FileSystemHelper.removeDir(path);
         }
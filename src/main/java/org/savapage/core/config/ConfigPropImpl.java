@@ -26,6 +26,7 @@ package org.savapage.core.config;
 
 import java.math.BigDecimal;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -33,6 +34,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 import org.savapage.core.SpException;
@@ -76,6 +78,31 @@ public final class ConfigPropImpl implements IConfigProp {
      */
     private boolean myIsRunnable = false;
 
+    /**
+     * Property name prefix of statistics keys.
+     */
+    private static final String STATS_PROP_PFX = "stats.";
+
+    /**
+     * Keys that hold state written by the application all the time, rather
+     * than configuration.
+     */
+    private static final EnumSet<Key> STATE_KEYS = EnumSet.of(
+            Key.DELETE_HISTORY_CHECKPOINTS,
+            Key.PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK);
+
+    /**
+     * Number of configuration value updates since start: updates of
+     * statistics and {@link #STATE_KEYS} are not counted.
+     */
+    private final AtomicLong myModCount = new AtomicLong();
+
+    /**
+     * Typed snapshot of the cached DB values, republished on each change.
+     * Getters read this snapshot without locking or parsing.
+     */
+    private volatile ConfigSnapshot mySnapshot = ConfigSnapshot.EMPTY;
+
     /**
      *
      */
@@ -336,6 +363,7 @@ public final class ConfigPropImpl implements IConfigProp {
          * the right value.
          */
         myPropByName.get(name).setValue(value);
+        onValueUpdated(key, name);
     }
 
     /**
@@ -404,6 +432,7 @@ public final class ConfigPropImpl implements IConfigProp {
          * the right value.
          */
         myPropByName.get(name).setValue(value);
+        onValueUpdated(key, name);
 
     }
 
@@ -459,6 +488,7 @@ public final class ConfigPropImpl implements IConfigProp {
          * the right value.
          */
         myPropByName.get(name).setValue(value);
+        onValueUpdated(key, name);
 
     }
 
@@ -497,53 +527,93 @@ public final class ConfigPropImpl implements IConfigProp {
          * Retrieves the value from the cached DB values. If the key is not
          * present in the cache an empty string is returned.
          */
-        final String keyName = myPropNameByKey.get(key);
-        final ConfigProperty configProp;
-
-        if (keyName == null) {
-            configProp = null;
-        } else {
-            configProp = myDbCache.get(keyName);
-        }
-        if (configProp == null) {
-            return "";
-        }
-        // Mantis #1105
-        return StringUtils.defaultString(configProp.getValue());
+        return mySnapshot.get(key).getString();
     }
 
     @Override
     public double getDouble(final Key key) {
-        return Double.parseDouble(getString(key));
+        return mySnapshot.get(key).getDouble();
     }
 
     @Override
     public BigDecimal getBigDecimal(final Key key) {
-        return new BigDecimal(getString(key));
+        return mySnapshot.get(key).getBigDecimal();
     }
 
     @Override
     public long getLong(final Key key) {
-        return Long.parseLong(getString(key));
+        return mySnapshot.get(key).getLong();
     }
 
     @Override
     public int getInt(final Key key) {
-        return Integer.parseInt(getString(key));
+        return mySnapshot.get(key).getInt();
     }
 
     @Override
     public Integer getInteger(final Key key) {
-        final String val = getString(key);
-        if (StringUtils.isBlank(val)) {
-            return null;
-        }
-        return Integer.valueOf(val);
+        return mySnapshot.get(key).getInteger();
     }
 
     @Override
     public boolean getBoolean(final Key key) {
-        return getString(key).equals(V_YES);
+        return mySnapshot.get(key).getBoolean();
+    }
+
+    /**
+     * Increments the {@link #myModCount} when a configuration value is
+     * updated, and publishes a new snapshot.
+     *
+     * @param key
+     *            The updated key.
+     * @param name
+     *            The property name of the key.
+     */
+    private void onValueUpdated(final Key key, final String name) {
+        if (!STATE_KEYS.contains(key) && !name.startsWith(STATS_PROP_PFX)) {
+            myModCount.incrementAndGet();
+        }
+        publishSnapshot(key);
+    }
+
+    /**
+     * Publishes a new snapshot with the cached DB value of a key.
+     *
+     * @param key
+     *            The key as enum.
+     */
+    private synchronized void publishSnapshot(final Key key) {
+
+        final String keyName = myPropNameByKey.get(key);
+
+        if (keyName == null) {
+            return;
+        }
+
+        final ConfigProperty configProp = myDbCache.get(keyName);
+
+        if (configProp != null) {
+            mySnapshot = mySnapshot.with(key, configProp.getValue());
+        }
+    }
+
+    /**
+     * Publishes a new snapshot with all cached DB values.
+     */
+    private synchronized void publishSnapshot() {
+
+        final Map<Key, String> values = new HashMap<>();
+
+        for (final Map.Entry<Key, String> entry : myPropNameByKey
+                .entrySet()) {
+
+            final ConfigProperty configProp = myDbCache.get(entry.getValue());
+
+            if (configProp != null) {
+                values.put(entry.getKey(), configProp.getValue());
+            }
+        }
+        mySnapshot = ConfigSnapshot.create(values);
     }
 
     @Override
@@ -682,6 +752,8 @@ public final class ConfigPropImpl implements IConfigProp {
                 }
             }
         }
+
+        publishSnapshot();
     }
 
     /**
@@ -773,9 +845,16 @@ public final class ConfigPropImpl implements IConfigProp {
 
         myIsRunnable = isValid;
 
+        publishSnapshot();
+
         return myIsRunnable;
     }
 
+    @Override
+    public long getModCount() {
+        return myModCount.get();
+    }
+
     @Override
     public boolean isRunnable() {
         return myIsRunnable;
@@ -0,0 +1,259 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.config;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.savapage.core.config.IConfigProp.Key;
+
+/**
+ * Immutable snapshot of configuration values, with values parsed once to
+ * their typed representation.
+ * <p>
+ * A new snapshot is created for each change, and published by
+ * {@link ConfigPropImpl}, so readers never lock or parse.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+final class ConfigSnapshot {
+
+    /**
+     * A configuration value with its pre-parsed typed representations. A
+     * typed representation is {@code null} when the value can not be parsed
+     * to that type.
+     */
+    static final class TypedValue {
+
+        /** */
+        private final String string;
+        /** */
+        private final Integer intValue;
+        /** */
+        private final Long longValue;
+        /** */
+        private final Double doubleValue;
+        /** */
+        private final BigDecimal bigDecimalValue;
+        /** */
+        private final boolean booleanValue;
+
+        /**
+         * @param value
+         *            The string value (not {@code null}).
+         */
+        TypedValue(final String value) {
+
+            this.string = value;
+            this.booleanValue = value.equals(IConfigProp.V_YES);
+
+            Integer intWlk = null;
+            Long longWlk = null;
+            Double doubleWlk = null;
+            BigDecimal bigDecimalWlk = null;
+
+            if (!value.isEmpty()) {
+                try {
+                    intWlk = Integer.valueOf(value);
+                } catch (NumberFormatException e) {
+                    // noop
+                }
+                try {
+                    longWlk = Long.valueOf(value);
+                } catch (NumberFormatException e) {
+                    // noop
+                }
+                try {
+                    doubleWlk = Double.valueOf(value);
+                } catch (NumberFormatException e) {
+                    // noop
+                }
+                try {
+                    bigDecimalWlk = new BigDecimal(value);
+                } catch (NumberFormatException e) {
+                    // noop
+                }
+            }
+
+            this.intValue = intWlk;
+            this.longValue = longWlk;
+            this.doubleValue = doubleWlk;
+            this.bigDecimalValue = bigDecimalWlk;
+        }
+
+        /**
+         * @return The string value.
+         */
+        String getString() {
+            return this.string;
+        }
+
+        /**
+         * @return The int value.
+         * @throws NumberFormatException
+         *             When value is not an int.
+         */
+        int getInt() {
+            if (this.intValue == null) {
+                return Integer.parseInt(this.string);
+            }
+            return this.intValue.intValue();
+        }
+
+        /**
+         * @return The Integer value, or {@code null} when value is blank.
+         * @throws NumberFormatException
+         *             When value is not an int.
+         */
+        Integer getInteger() {
+            if (this.intValue == null) {
+                if (StringUtils.isBlank(this.string)) {
+                    return null;
+                }
+                return Integer.valueOf(this.string);
+            }
+            return this.intValue;
+        }
+
+        /**
+         * @return The long value.
+         * @throws NumberFormatException
+         *             When value is not a long.
+         */
+        long getLong() {
+            if (this.longValue == null) {
+                return Long.parseLong(this.string);
+            }
+            return this.longValue.longValue();
+        }
+
+        /**
+         * @return The double value.
+         * @throws NumberFormatException
+         *             When value is not a double.
+         */
+        double getDouble() {
+            if (this.doubleValue == null) {
+                return Double.parseDouble(this.string);
+            }
+            return this.doubleValue.doubleValue();
+        }
+
+        /**
+         * @return The BigDecimal value.
+         * @throws NumberFormatException
+         *             When value is not a decimal.
+         */
+        BigDecimal getBigDecimal() {
+            if (this.bigDecimalValue == null) {
+                return new BigDecimal(this.string);
+            }
+            return this.bigDecimalValue;
+        }
+
+        /**
+         * @return {@code true} if value is {@link IConfigProp#V_YES}.
+         */
+        boolean getBoolean() {
+            return this.booleanValue;
+        }
+    }
+
+    /**
+     * Value of a key that is not present.
+     */
+    private static final TypedValue VALUE_NOT_PRESENT = new TypedValue("");
+
+    /**
+     * Empty snapshot.
+     */
+    static final ConfigSnapshot EMPTY =
+            new ConfigSnapshot(new EnumMap<Key, TypedValue>(Key.class));
+
+    /** */
+    private final Map<Key, TypedValue> values;
+
+    /**
+     * @param map
+     *            The values (not copied).
+     */
+    private ConfigSnapshot(final EnumMap<Key, TypedValue> map) {
+        this.values = map;
+    }
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param map
+     *            The string values by key.
+     * @return The snapshot.
+     */
+    static ConfigSnapshot create(final Map<Key, String> map) {
+
+        final EnumMap<Key, TypedValue> typed = new EnumMap<>(Key.class);
+
+        for (final Map.Entry<Key, String> entry : map.entrySet()) {
+            typed.put(entry.getKey(), new TypedValue(
+                    StringUtils.defaultString(entry.getValue())));
+        }
+        return new ConfigSnapshot(typed);
+    }
+
+    /**
+     * Creates a copy of this snapshot with one changed value.
+     *
+     * @param key
+     *            The key.
+     * @param value
+     *            The string value.
+     * @return The new snapshot.
+     */
+    ConfigSnapshot with(final Key key, final String value) {
+
+        final EnumMap<Key, TypedValue> typed = new EnumMap<>(Key.class);
+
+        typed.putAll(this.values);
+        typed.put(key, new TypedValue(StringUtils.defaultString(value)));
+
+        return new ConfigSnapshot(typed);
+    }
+
+    /**
+     * @param key
+     *            The key.
+     * @return The value, or an empty value when key is not present.
+     */
+    TypedValue get(final Key key) {
+        final TypedValue value = this.values.get(key);
+        if (value == null) {
+            return VALUE_NOT_PRESENT;
+        }
+        return value;
+    }
+}
@@ -124,6 +124,16 @@ public interface IConfigProp {
      */
     String DEFAULT_EXPORT_QUERY_MAX_RESULTS = "1000";
 
+    /**
+     * Default number of tables exported in parallel for database backup.
+     */
+    String DEFAULT_EXPORT_PARALLELISM = "4";
+
+    /**
+     * Default zip compression level of a database backup.
+     */
+    String DEFAULT_EXPORT_ZIP_LEVEL = "6";
+
     /**
      *
      */
@@ -284,6 +294,20 @@ public interface IConfigProp {
                 "db.export.query-max-results", NUMBER_VALIDATOR,
                 DEFAULT_EXPORT_QUERY_MAX_RESULTS),
 
+        /**
+         * The number of tables exported in parallel to a database backup.
+         */
+        DB_EXPORT_PARALLELISM(//
+                "db.export.parallelism", NUMBER_VALIDATOR,
+                DEFAULT_EXPORT_PARALLELISM),
+
+        /**
+         * The zip compression level (0-9) of a database backup.
+         */
+        DB_EXPORT_ZIP_LEVEL(//
+                "db.export.zip-level", NUMBER_VALIDATOR,
+                DEFAULT_EXPORT_ZIP_LEVEL),
+
         /**
          *
          */
@@ -776,6 +800,15 @@ public interface IConfigProp {
                 "cups.ipp.max-connections", NUMBER_VALIDATOR, "10",
                 API_UPDATABLE_ON),
 
+        /**
+         * Max number of concurrent IPP requests to retrieve printer details
+         * when the CUPS printer cache is refreshed. The value is capped by
+         * {@link #CUPS_IPP_MAX_CONNECTIONS}.
+         */
+        CUPS_IPP_PRINTER_CACHE_PARALLELISM(//
+                "cups.ipp.printer-cache.parallelism", NUMBER_VALIDATOR, "4",
+                API_UPDATABLE_ON),
+
         /**
          * Timeout in milliseconds until a IPP connection with local CUPS server
          * is established.
@@ -894,6 +927,27 @@ public interface IConfigProp {
          */
         DELETE_DOC_LOG_DAYS("delete.doc-log.days", NUMBER_VALIDATOR, "365"),
 
+        /**
+         * Max number of driving rows deleted and committed per chunk when
+         * cleaning document and transaction history.
+         */
+        DELETE_HISTORY_CHUNK_SIZE(//
+                "delete.history.chunk-size", NUMBER_VALIDATOR, "1000"),
+
+        /**
+         * Milliseconds to pause after each committed history clean chunk, to
+         * throttle database load. A value of {@code 0} means no pause.
+         */
+        DELETE_HISTORY_CHUNK_PAUSE_MSEC(//
+                "delete.history.chunk-pause-msec", NUMBER_VALIDATOR, "0"),
+
+        /**
+         * Checkpoints of interrupted history clean steps, to resume from
+         * (internal use).
+         */
+        DELETE_HISTORY_CHECKPOINTS("delete.history.checkpoints",
+                API_UPDATABLE_OFF),
+
         /**
          * The default port for {@link DeviceTypeEnum#CARD_READER}.
          */
@@ -1063,6 +1117,21 @@ public interface IConfigProp {
         INFRA_INTERNET_CONNECTED(//
                 "infra.internet-connected", BOOLEAN_VALIDATOR, V_YES),
 
+        /**
+         * Max number of user inboxes (SafePages) with in-memory cached inbox
+         * info.
+         */
+        INBOX_CACHE_MAX_USERS(//
+                "inbox.cache.max-users", NUMBER_VALIDATOR, "1000"),
+
+        /**
+         * Milliseconds between writes of changed in-memory inbox info to the
+         * user's SafePages. If {@code 0} (zero), inbox info is written with
+         * each change.
+         */
+        INBOX_CACHE_FLUSH_MSEC(//
+                "inbox.cache.flush-msec", NUMBER_VALIDATOR, "2000"),
+
         /**
          *
          */
@@ -1128,6 +1197,32 @@ public interface IConfigProp {
          */
         LDAP_BATCH_SIZE("ldap.batchsize", NUMBER_VALIDATOR, "500"),
 
+        /**
+         * Max number of pooled LDAP connections bound with the Admin DN. Zero
+         * disables pooling.
+         */
+        LDAP_POOL_MAX_SIZE("ldap.pool.max-size", NUMBER_VALIDATOR, "8"),
+
+        /**
+         * Idle time (milliseconds) after which a pooled LDAP connection is
+         * closed.
+         */
+        LDAP_POOL_IDLE_TIMEOUT_MSEC(//
+                "ldap.pool.idle-timeout-msec", NUMBER_VALIDATOR, "60000"),
+
+        /**
+         * Time-to-live (milliseconds) of cached LDAP user and group membership
+         * lookups. Zero disables caching.
+         */
+        LDAP_CACHE_TTL_MSEC("ldap.cache.ttl-msec", NUMBER_VALIDATOR, "300000"),
+
+        /**
+         * Time-to-live (milliseconds) of cached LDAP lookups that found
+         * nothing. Zero disables negative caching.
+         */
+        LDAP_CACHE_NEGATIVE_TTL_MSEC(//
+                "ldap.cache.negative-ttl-msec", NUMBER_VALIDATOR, "30000"),
+
         /**
          * The LDAP field that contains the group members.
          */
@@ -1643,6 +1738,13 @@ public interface IConfigProp {
                 "printer.snmp.read.timeout-msec", NUMBER_VALIDATOR, "1500",
                 API_UPDATABLE_ON),
 
+        /**
+         * Max number of printer hosts read concurrently.
+         */
+        PRINTER_SNMP_READ_PARALLELISM(//
+                "printer.snmp.read.parallelism", NUMBER_VALIDATOR, "16",
+                API_UPDATABLE_ON),
+
         /**
          *
          */
@@ -2313,6 +2415,41 @@ public interface IConfigProp {
                 "proxy-print.papercut.print-log.max-mins", NUMBER_VALIDATOR,
                 "7200", API_UPDATABLE_ON),
 
+        /**
+         * Enable incremental PaperCut print log reconciliation: only print log
+         * entries after the
+         * {@link #PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK} are read
+         * (boolean).
+         */
+        PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK_ENABLE(//
+                "proxy-print.papercut.print-log.watermark.enable",
+                BOOLEAN_VALIDATOR, V_NO, API_UPDATABLE_ON),
+
+        /**
+         * Primary key of the last PaperCut print log entry reconciled. Blank
+         * when not set.
+         */
+        PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK(//
+                "proxy-print.papercut.print-log.watermark",
+                NUMBER_VALIDATOR_OPT),
+
+        /**
+         * Number of minutes a PaperCut print log entry is re-read by
+         * incremental reconciliation, to cover pending print jobs that were
+         * not committed yet when the entry was first read.
+         */
+        PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK_LAG_MINS(//
+                "proxy-print.papercut.print-log.watermark.lag-mins",
+                NUMBER_VALIDATOR, "10", API_UPDATABLE_ON),
+
+        /**
+         * Max number of PaperCut print log entries read in one incremental
+         * reconciliation run.
+         */
+        PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK_MAX_ROWS(//
+                "proxy-print.papercut.print-log.watermark.max-rows",
+                NUMBER_VALIDATOR, "10000", API_UPDATABLE_ON),
+
         /**
          * Enable Personal Print integration with PaperCut (boolean).
          */
@@ -2748,6 +2885,13 @@ public interface IConfigProp {
                 "stats.total.reset-date.print-in",
                 String.valueOf(System.currentTimeMillis()), API_UPDATABLE_OFF),
 
+        /**
+         * Milliseconds between flushes of in-memory DocIn/DocOut statistics to
+         * the {@code stats.*} keys. If {@code 0} (zero), statistics are
+         * written with each document.
+         */
+        STATS_FLUSH_MSEC("stats.flush-msec", NUMBER_VALIDATOR, "10000"),
+
         /**
          *
          */
@@ -2915,6 +3059,34 @@ public interface IConfigProp {
                 new EnumValidator<>(Pdf2ImgCairoCmd.Strategy.class),
                 Pdf2ImgCairoCmd.Strategy.AUTO.toString(), API_UPDATABLE_ON),
 
+        /**
+         * Max size (MB) of the page image disk cache. A value of {@code 0}
+         * disables the cache.
+         */
+        SYS_PAGE_IMAGE_CACHE_MAX_MB(//
+                "system.page-image.cache.max-mb", NUMBER_VALIDATOR, "256"),
+
+        /**
+         * Max size (KB) of the page images also held in memory.
+         */
+        SYS_PAGE_IMAGE_CACHE_MEMORY_MAX_KB(//
+                "system.page-image.cache.memory.max-kb", NUMBER_VALIDATOR,
+                "16384"),
+
+        /**
+         * Number of subsequent thumbnail pages rendered in one
+         * {@link SystemInfo.Command#PDFTOCAIRO} call on a cache miss.
+         */
+        SYS_PAGE_IMAGE_CACHE_RANGE_PAGES(//
+                "system.page-image.cache.range-pages", NUMBER_VALIDATOR, "8"),
+
+        /**
+         * Max size (MB) of the disk cache of converted (e.g. grayscale) PDF
+         * files. A value of {@code 0} disables the cache.
+         */
+        SYS_PDF_CONVERT_CACHE_MAX_MB(//
+                "system.pdf-convert.cache.max-mb", NUMBER_VALIDATOR, "1024"),
+
         /**
          * Enable {@link SystemInfo.Command#WKHTMLTOPDF}.
          */
@@ -3080,6 +3252,13 @@ public interface IConfigProp {
         ECO_PRINT_RESOLUTION_DPI(//
                 "eco-print.resolution-dpi", NUMBER_VALIDATOR, "300"),
 
+        /**
+         * The number of pages of an EcoPrint PDF that are rendered and filtered
+         * in parallel.
+         */
+        ECO_PRINT_PAGE_PARALLELISM(//
+                "eco-print.page-parallelism", NUMBER_VALIDATOR, "2"),
+
         /**
          * Discount percentage for EcoPrint proxy printing.
          */
@@ -3294,6 +3473,15 @@ public interface IConfigProp {
                 "webapp.user.max-idle-secs", NUMBER_VALIDATOR,
                 WEBAPP_MAX_IDLE_SECS_V_NONE.toString()),
 
+        /**
+         * Milliseconds between write-behind persistence of user message
+         * indicators. If {@code 0} (zero), write-behind is off: each message
+         * is written immediately (and synced to disk).
+         */
+        WEBAPP_USER_MSG_INDICATOR_WRITE_BEHIND_MSEC(//
+                "webapp.user.msg-indicator.write-behind-msec",
+                NUMBER_VALIDATOR, "0"),
+
         /**
          * Delete all print-in jobs at User WebApp logout.
          */
@@ -4594,6 +4782,16 @@ public interface IConfigProp {
      */
     void updateValue(Key key, String value, String actor);
 
+    /**
+     * Gets the number of value updates since start. Consumers can compare
+     * this number to detect configuration changes. Updates of statistics and
+     * of keys holding application state, like checkpoints and watermarks, are
+     * not counted.
+     *
+     * @return The modification count.
+     */
+    long getModCount();
+
     /**
      * Saves the string value of a configuration key. The key is lazy created.
      *
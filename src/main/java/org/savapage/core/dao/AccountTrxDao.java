@@ -31,6 +31,7 @@ import javax.persistence.TypedQuery;
 
 import org.savapage.core.dao.enums.AccountTrxTypeEnum;
 import org.savapage.core.dao.helpers.DaoBatchCommitter;
+import org.savapage.core.dao.helpers.DaoPurgeProgress;
 import org.savapage.core.dao.helpers.UserPrintOutTotalsReq;
 import org.savapage.core.dto.UserPrintOutTotalDto;
 import org.savapage.core.jpa.Account.AccountTypeEnum;
@@ -197,16 +198,20 @@ public interface AccountTrxDao extends UserErasableDao<AccountTrx> {
      * {@link PosPurchaseItem} instances are deleted. Related
      * {@link AccountVoucher} and {@link PosPurchase} must be cleaned with
      * {@link #cleanOrphaned(DaoBatchCommitter)}</li>
-     * <li>All deletes are committed.</li>
+     * <li>Deletes are done and committed in keyset paged chunks of
+     * {@link AccountTrx} primary keys.</li>
      * </ul>
      *
      * @param dateBackInTime
      *            The transaction date criterion.
+     * @param progress
+     *            The {@link DaoPurgeProgress}.
      * @param batchCommitter
      *            The {@link DaoBatchCommitter}.
      * @return The number of deleted {@link AccountTrx} instances.
      */
-    int cleanHistory(Date dateBackInTime, DaoBatchCommitter batchCommitter);
+    int cleanHistory(Date dateBackInTime, DaoPurgeProgress progress,
+            DaoBatchCommitter batchCommitter);
 
     /**
      * Deletes {@link AccountVoucher} and {@link PosPurchase} instances that
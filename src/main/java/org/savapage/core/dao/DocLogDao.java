@@ -33,6 +33,7 @@ import org.savapage.core.dao.enums.DocLogProtocolEnum;
 import org.savapage.core.dao.enums.ExternalSupplierEnum;
 import org.savapage.core.dao.enums.ExternalSupplierStatusEnum;
 import org.savapage.core.dao.helpers.DaoBatchCommitter;
+import org.savapage.core.dao.helpers.DaoPurgeProgress;
 import org.savapage.core.jpa.AccountTrx;
 import org.savapage.core.jpa.AccountVoucher;
 import org.savapage.core.jpa.DocIn;
@@ -217,16 +218,19 @@ public interface DocLogDao extends UserErasableDao<DocLog> {
      * {@link PosPurchaseItem} instances are deleted.</li>
      * <li>Related {@link AccountVoucher} and {@link PosPurchase} are cleaned
      * with {@link AccountTrxDao#cleanOrphaned(DaoBatchCommitter)}.</li>
-     * <li>All deletes are committed.</li>
+     * <li>Deletes are done and committed in keyset paged chunks of primary
+     * keys.</li>
      * </ul>
      *
      * @param dateBackInTime
      *            The date criterion.
+     * @param progress
+     *            The {@link DaoPurgeProgress}.
      * @param batchCommitter
      *            The {@link DaoBatchCommitter}.
      * @return The number of deleted {@link AccountTrx} instances.
      */
-    int cleanAccountTrxHistory(Date dateBackInTime,
+    int cleanAccountTrxHistory(Date dateBackInTime, DaoPurgeProgress progress,
             DaoBatchCommitter batchCommitter);
 
     /**
@@ -235,16 +239,19 @@ public interface DocLogDao extends UserErasableDao<DocLog> {
      * <ul>
      * <li>Associated (orphaned) {@link DocOut} instances are deleted as
      * well.</li>
-     * <li>All deletes are committed.</li>
+     * <li>Deletes are done and committed in keyset paged chunks of primary
+     * keys.</li>
      * </ul>
      *
      * @param dateBackInTime
      *            The date criterion.
+     * @param progress
+     *            The {@link DaoPurgeProgress}.
      * @param batchCommitter
      *            The {@link DaoBatchCommitter}.
      * @return The number of deleted instances.
      */
-    int cleanDocOutHistory(Date dateBackInTime,
+    int cleanDocOutHistory(Date dateBackInTime, DaoPurgeProgress progress,
             DaoBatchCommitter batchCommitter);
 
     /**
@@ -253,16 +260,19 @@ public interface DocLogDao extends UserErasableDao<DocLog> {
      * <ul>
      * <li>Associated (orphaned) {@link DocIn} instances are deleted as
      * well.</li>
-     * <li>All deletes are committed.</li>
+     * <li>Deletes are done and committed in keyset paged chunks of primary
+     * keys.</li>
      * </ul>
      *
      * @param dateBackInTime
      *            The date criterion.
+     * @param progress
+     *            The {@link DaoPurgeProgress}.
      * @param batchCommitter
      *            The {@link DaoBatchCommitter}.
      * @return The number of deleted instances.
      */
-    int cleanDocInHistory(Date dateBackInTime,
+    int cleanDocInHistory(Date dateBackInTime, DaoPurgeProgress progress,
             DaoBatchCommitter batchCommitter);
 
     /**
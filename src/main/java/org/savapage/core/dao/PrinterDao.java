@@ -442,16 +442,6 @@ public interface PrinterDao extends GenericDao<Printer> {
      */
     Printer.ChargeType getChargeType(String chargeType);
 
-    /**
-     * Gets the media cost for this printer and media.
-     *
-     * @param printer
-     * @param ippMediaName
-     *            The PWG5101.1 IPP media name.
-     * @return {@code null} when no cost is found.
-     */
-    IppMediaCostDto getMediaCost(Printer printer, String ippMediaName);
-
     /**
      * Resets the totals to zero for all {@link Printer} instances.
      *
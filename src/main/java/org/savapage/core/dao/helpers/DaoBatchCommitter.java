@@ -116,4 +116,17 @@ public interface DaoBatchCommitter {
      */
     void resume();
 
+    /**
+     * Sets whether the persistence context is cleared after a commit
+     * triggered by {@link #increment()}, so entities of processed items are
+     * detached and can be garbage collected. Use this when processing a large
+     * number of items with one committer, and do not hold on to entities
+     * across an {@link #increment()}.
+     *
+     * @param clear
+     *            {@code true} to clear the persistence context (default
+     *            {@code false}).
+     */
+    void setClearAfterChunk(boolean clear);
+
 }
@@ -0,0 +1,402 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.dao.helpers;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.savapage.core.config.ConfigManager;
+import org.savapage.core.config.IConfigProp.Key;
+import org.savapage.core.jpa.Entity;
+import org.savapage.core.util.DateUtil;
+
+/**
+ * Progress and checkpoint of a keyset paged history purge step.
+ * <p>
+ * A purge step deletes rows in bounded, ascending primary key ranges. With
+ * each chunk the highest deleted key is recorded as checkpoint in
+ * {@link Key#DELETE_HISTORY_CHECKPOINTS}, in the same transaction, so an
+ * interrupted purge with the same history border date resumes after the last
+ * committed chunk, also after a restart.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class DaoPurgeProgress {
+
+    /**
+     * Listener of committed purge chunks.
+     */
+    public interface Listener {
+
+        /**
+         * Notifies a committed chunk.
+         *
+         * @param progress
+         *            The progress.
+         */
+        void onPurgeChunk(DaoPurgeProgress progress);
+    }
+
+    /**
+     * Checkpoint of a purge step.
+     */
+    private static final class Checkpoint {
+
+        /** */
+        private final Date dateBackInTime;
+        /** */
+        private final long lastId;
+
+        /**
+         * @param date
+         *            History border date.
+         * @param id
+         *            Highest key of last committed chunk.
+         */
+        Checkpoint(final Date date, final long id) {
+            this.dateBackInTime = date;
+            this.lastId = id;
+        }
+    }
+
+    /**
+     * Separator of checkpoints in the persisted value.
+     */
+    private static final char CHECKPOINT_SEPARATOR = ';';
+
+    /**
+     * Separator of checkpoint fields in the persisted value.
+     */
+    private static final char CHECKPOINT_FIELD_SEPARATOR = ',';
+
+    /**
+     * Lock for updating the persisted checkpoints.
+     */
+    private static final Object CHECKPOINTS_LOCK = new Object();
+
+    /** */
+    private final String step;
+
+    /** */
+    private final Date dateBackInTime;
+
+    /** */
+    private final int chunkSize;
+
+    /** */
+    private final long chunkPauseMsec;
+
+    /** */
+    private final Listener listener;
+
+    /** */
+    private final long startTime;
+
+    /**
+     * The parent step ({@code null} when this is not a sub step).
+     */
+    private final DaoPurgeProgress parent;
+
+    /**
+     * Highest key of last committed chunk.
+     */
+    private long lastId;
+
+    /** */
+    private long rowsDeleted;
+
+    /** */
+    private long chunks;
+
+    /** */
+    private volatile boolean interrupted;
+
+    /**
+     * Creates progress of a purge step, restoring the checkpoint of a previous
+     * interrupted purge with the same history border date.
+     *
+     * @param step
+     *            Unique name of the purge step.
+     * @param dateBackInTime
+     *            History border date.
+     * @param chunkSize
+     *            Max number of rows per chunk.
+     * @param chunkPauseMsec
+     *            Milliseconds to pause after each committed chunk.
+     * @param listener
+     *            The {@link Listener} (can be {@code null}).
+     */
+    public DaoPurgeProgress(final String step, final Date dateBackInTime,
+            final int chunkSize, final long chunkPauseMsec,
+            final Listener listener) {
+
+        this.step = step;
+        this.dateBackInTime = dateBackInTime;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.chunkPauseMsec = chunkPauseMsec;
+        this.listener = listener;
+        this.startTime = System.currentTimeMillis();
+        this.parent = null;
+
+        final Checkpoint checkpoint = loadCheckpoints().get(step);
+
+        if (checkpoint != null && dateBackInTime != null
+                && dateBackInTime.equals(checkpoint.dateBackInTime)) {
+            this.lastId = checkpoint.lastId;
+        } else {
+            this.lastId = 0L;
+        }
+    }
+
+    /**
+     * Creates a sub step without checkpoint.
+     *
+     * @param parent
+     *            The parent step.
+     * @param name
+     *            Name of the sub step.
+     */
+    private DaoPurgeProgress(final DaoPurgeProgress parent,
+            final String name) {
+
+        this.step = parent.step + "/" + name;
+        this.dateBackInTime = null;
+        this.chunkSize = parent.chunkSize;
+        this.chunkPauseMsec = parent.chunkPauseMsec;
+        this.listener = parent.listener;
+        this.startTime = System.currentTimeMillis();
+        this.parent = parent;
+        this.lastId = 0L;
+    }
+
+    /**
+     * Creates a sub step, e.g. for deleting rows orphaned by this step. The
+     * sub step has no checkpoint and is interrupted with this step.
+     *
+     * @param name
+     *            Name of the sub step.
+     * @return The sub step progress.
+     */
+    public DaoPurgeProgress createSubStep(final String name) {
+        return new DaoPurgeProgress(this, name);
+    }
+
+    /**
+     * @return The persisted checkpoints by step name.
+     */
+    private static Map<String, Checkpoint> loadCheckpoints() {
+
+        final Map<String, Checkpoint> checkpoints = new LinkedHashMap<>();
+
+        final String value = ConfigManager.instance()
+                .getConfigValue(Key.DELETE_HISTORY_CHECKPOINTS);
+
+        if (StringUtils.isBlank(value)) {
+            return checkpoints;
+        }
+
+        for (final String entry : StringUtils.split(value,
+                CHECKPOINT_SEPARATOR)) {
+
+            final String[] fields =
+                    StringUtils.split(entry, CHECKPOINT_FIELD_SEPARATOR);
+
+            if (fields.length != 3) {
+                continue;
+            }
+            try {
+                checkpoints.put(fields[0],
+                        new Checkpoint(new Date(Long.parseLong(fields[1])),
+                                Long.parseLong(fields[2])));
+            } catch (NumberFormatException e) {
+                // Be forgiving: the step starts from scratch.
+            }
+        }
+        return checkpoints;
+    }
+
+    /**
+     * Persists the checkpoints in the current database transaction.
+     *
+     * @param checkpoints
+     *            The checkpoints by step name.
+     */
+    private static void storeCheckpoints(
+            final Map<String, Checkpoint> checkpoints) {
+
+        final StringBuilder value = new StringBuilder();
+
+        for (final Map.Entry<String, Checkpoint> entry : checkpoints
+                .entrySet()) {
+            if (value.length() > 0) {
+                value.append(CHECKPOINT_SEPARATOR);
+            }
+            value.append(entry.getKey()).append(CHECKPOINT_FIELD_SEPARATOR)
+                    .append(entry.getValue().dateBackInTime.getTime())
+                    .append(CHECKPOINT_FIELD_SEPARATOR)
+                    .append(entry.getValue().lastId);
+        }
+
+        ConfigManager.instance().updateConfigKey(
+                Key.DELETE_HISTORY_CHECKPOINTS, value.toString(),
+                Entity.ACTOR_SYSTEM);
+    }
+
+    /**
+     * Records the highest key of a deleted chunk as checkpoint. Must be called
+     * in the database transaction of the chunk, before it is committed.
+     *
+     * @param id
+     *            Highest key of the deleted chunk.
+     */
+    public void onChunkDeleted(final long id) {
+
+        if (this.dateBackInTime == null) {
+            return;
+        }
+
+        synchronized (CHECKPOINTS_LOCK) {
+            final Map<String, Checkpoint> checkpoints = loadCheckpoints();
+            checkpoints.put(this.step,
+                    new Checkpoint(this.dateBackInTime, id));
+            storeCheckpoints(checkpoints);
+        }
+    }
+
+    /**
+     * Records a committed chunk, notifies the listener and pauses (throttles)
+     * when configured.
+     *
+     * @param id
+     *            Highest key of the committed chunk.
+     * @param nDeleted
+     *            Number of rows deleted in the chunk.
+     */
+    public void onChunkCommitted(final long id, final int nDeleted) {
+
+        this.lastId = id;
+        this.rowsDeleted += nDeleted;
+        this.chunks++;
+
+        if (this.listener != null) {
+            this.listener.onPurgeChunk(this);
+        }
+
+        if (this.chunkPauseMsec > 0 && !this.isInterrupted()) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(this.chunkPauseMsec);
+            } catch (InterruptedException e) {
+                this.interrupt();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Marks the step as completed, removing its checkpoint in the current
+     * database transaction.
+     */
+    public void onCompleted() {
+
+        if (this.dateBackInTime == null) {
+            return;
+        }
+
+        synchronized (CHECKPOINTS_LOCK) {
+            final Map<String, Checkpoint> checkpoints = loadCheckpoints();
+            if (checkpoints.remove(this.step) != null) {
+                storeCheckpoints(checkpoints);
+            }
+        }
+    }
+
+    /**
+     * Requests the purge to stop after the current chunk. A sub step
+     * interrupts its parent step as well.
+     */
+    public void interrupt() {
+        this.interrupted = true;
+        if (this.parent != null) {
+            this.parent.interrupt();
+        }
+    }
+
+    /**
+     * @return {@code true} if purge must stop.
+     */
+    public boolean isInterrupted() {
+        return this.interrupted
+                || (this.parent != null && this.parent.isInterrupted());
+    }
+
+    /**
+     * @return Unique name of the purge step.
+     */
+    public String getStep() {
+        return step;
+    }
+
+    /**
+     * @return Max number of rows per chunk.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return Highest key of last committed chunk, or the restored checkpoint.
+     */
+    public long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * @return Number of rows deleted since creation.
+     */
+    public long getRowsDeleted() {
+        return rowsDeleted;
+    }
+
+    /**
+     * @return Number of committed chunks since creation.
+     */
+    public long getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return Deleted rows per second since creation.
+     */
+    public long getRowsPerSecond() {
+        final long msec = Math.max(1L, System.currentTimeMillis() - startTime);
+        return this.rowsDeleted * DateUtil.DURATION_MSEC_SECOND / msec;
+    }
+
+}
@@ -27,6 +27,7 @@ package org.savapage.core.dao.impl;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -45,6 +46,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateUtils;
 import org.savapage.core.dao.AccountTrxDao;
 import org.savapage.core.dao.helpers.DaoBatchCommitter;
+import org.savapage.core.dao.helpers.DaoPurgeProgress;
 import org.savapage.core.dao.helpers.SQLHelper;
 import org.savapage.core.dao.helpers.UserPrintOutTotalsReq;
 import org.savapage.core.dto.UserPrintOutTotalDto;
@@ -279,11 +281,20 @@ public final class AccountTrxDaoImpl extends GenericDaoImpl<AccountTrx>
 
     @Override
     public int cleanHistory(final Date dateBackInTime,
+            final DaoPurgeProgress progress,
             final DaoBatchCommitter batchCommitter) {
 
         final String[] jpqlList = new String[2];
         final String psqlDateParm = "transactionDate";
 
+        final String idRange = " BETWEEN :" + PURGE_PARM_ID_FIRST + " AND :"
+                + PURGE_PARM_ID_LAST;
+
+        final String jpqlSelectIds = "SELECT A.id FROM "
+                + DbSimpleEntity.ACCOUNT_TRX + " A" //
+                + " WHERE A.transactionDate <= :" + psqlDateParm //
+                + " AND A.id > :" + PURGE_PARM_LAST_ID + " ORDER BY A.id";
+
         /*
          * Step 1: Delete PosPurchaseItem.
          */
@@ -295,7 +306,8 @@ public final class AccountTrxDaoImpl extends GenericDaoImpl<AccountTrx>
                 + " P ON P.id = PI.purchase" //
                 + " JOIN " + DbSimpleEntity.ACCOUNT_TRX
                 + " A ON A.posPurchase = P.id" //
-                + " WHERE A.transactionDate <= :" + psqlDateParm + ")";
+                + " WHERE A.id" + idRange //
+                + " AND A.transactionDate <= :" + psqlDateParm + ")";
 
         /*
          * Step 2: Delete AccountTrx.
@@ -304,32 +316,15 @@ public final class AccountTrxDaoImpl extends GenericDaoImpl<AccountTrx>
          */
         jpqlList[1] = "" //
                 + "DELETE FROM " + DbSimpleEntity.ACCOUNT_TRX + " A "
-                + " WHERE A.transactionDate <= :" + psqlDateParm;
-
-        int nDeleted = 0;
-
-        for (int i = 0; i < jpqlList.length; i++) {
-
-            final String jpql = jpqlList[i];
-
-            final Query query = getEntityManager().createQuery(jpql);
-            query.setParameter(psqlDateParm, dateBackInTime);
+                + " WHERE A.id" + idRange //
+                + " AND A.transactionDate <= :" + psqlDateParm;
 
-            final int count = query.executeUpdate();
-
-            if (i == 1) {
-                nDeleted = count;
-            }
-
-            LOGGER.trace("|          step {}: {} ...", i + 1, count);
-
-            batchCommitter.increment();
-            batchCommitter.commit();
-
-            LOGGER.trace("|               {}: {} committed.", i + 1, count);
-        }
+        final int nDeleted = this.purgeKeysetChunked(jpqlSelectIds, jpqlList,
+                1, Collections.<String, Object> singletonMap(psqlDateParm,
+                        dateBackInTime),
+                progress, batchCommitter);
 
-        if (nDeleted > 0) {
+        if (!progress.isInterrupted()) {
             this.cleanOrphaned(batchCommitter);
         }
 
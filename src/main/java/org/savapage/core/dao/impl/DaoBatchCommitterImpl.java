@@ -71,6 +71,12 @@ public final class DaoBatchCommitterImpl implements DaoBatchCommitter {
      */
     private boolean commitAtNextIncrement = false;
 
+    /**
+     * If {@code true}, the persistence context is cleared after a commit
+     * triggered by {@link #increment()}.
+     */
+    private boolean clearAfterChunk = false;
+
     /**
      * Time of last {@link #open()}.
      */
@@ -153,6 +159,9 @@ public final class DaoBatchCommitterImpl implements DaoBatchCommitter {
         if (!this.pause && (commitAtNextIncrement
                 || chunkItemCounter >= commitThreshold)) {
             this.commit();
+            if (this.clearAfterChunk) {
+                daoCtx.clear();
+            }
         }
         return chunkItemCounter;
     }
@@ -215,6 +224,11 @@ public final class DaoBatchCommitterImpl implements DaoBatchCommitter {
         commitAtNextIncrement = true;
     }
 
+    @Override
+    public void setClearAfterChunk(final boolean clear) {
+        this.clearAfterChunk = clear;
+    }
+
     @Override
     public void pause() {
         this.pause = true;
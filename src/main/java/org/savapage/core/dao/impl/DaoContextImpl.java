@@ -24,6 +24,8 @@
  */
 package org.savapage.core.dao.impl;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.persistence.EntityManager;
@@ -36,6 +38,7 @@ import org.savapage.core.dao.AppLogDao;
 import org.savapage.core.dao.ConfigPropertyDao;
 import org.savapage.core.dao.CostChangeDao;
 import org.savapage.core.dao.DaoContext;
+import org.savapage.core.dao.DaoTransactionListener;
 import org.savapage.core.dao.DeviceAttrDao;
 import org.savapage.core.dao.DeviceDao;
 import org.savapage.core.dao.DocInDao;
@@ -107,6 +110,33 @@ public final class DaoContextImpl implements DaoContext {
         OPEN_COUNT.decrementAndGet();
     }
 
+    /**
+     * Listeners to the end of a transaction.
+     */
+    private static final List<DaoTransactionListener> TRANSACTION_LISTENERS =
+            new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a listener to the end (commit or rollback) of each
+     * transaction.
+     *
+     * @param listener
+     *            The listener.
+     */
+    public static void
+            addTransactionListener(final DaoTransactionListener listener) {
+        TRANSACTION_LISTENERS.add(listener);
+    }
+
+    /**
+     * Notifies the listeners of the end of the transaction.
+     */
+    private static void notifyTransactionEnd() {
+        for (final DaoTransactionListener listener : TRANSACTION_LISTENERS) {
+            listener.onTransactionEnd();
+        }
+    }
+
     /**
      * The logger.
      */
@@ -488,6 +518,7 @@ public final class DaoContextImpl implements DaoContext {
         if (isTransactionActive()) {
             em.getTransaction().commit();
         }
+        notifyTransactionEnd();
     }
 
     @Override
@@ -503,6 +534,7 @@ public final class DaoContextImpl implements DaoContext {
         if (isTransactionActive()) {
             em.getTransaction().rollback();
         }
+        notifyTransactionEnd();
     }
 
     @Override
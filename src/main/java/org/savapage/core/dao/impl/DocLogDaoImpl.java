@@ -24,6 +24,7 @@
  */
 package org.savapage.core.dao.impl;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -40,6 +41,7 @@ import org.savapage.core.dao.DocLogDao;
 import org.savapage.core.dao.enums.ExternalSupplierEnum;
 import org.savapage.core.dao.enums.ExternalSupplierStatusEnum;
 import org.savapage.core.dao.helpers.DaoBatchCommitter;
+import org.savapage.core.dao.helpers.DaoPurgeProgress;
 import org.savapage.core.jpa.DocLog;
 import org.savapage.core.jpa.User;
 import org.savapage.core.jpa.tools.DbSimpleEntity;
@@ -109,11 +111,21 @@ public final class DocLogDaoImpl extends GenericDaoImpl<DocLog>
 
     @Override
     public int cleanAccountTrxHistory(final Date dateBackInTime,
+            final DaoPurgeProgress progress,
             final DaoBatchCommitter batchCommitter) {
 
         final String[] jpqlList = new String[2];
         final String psqlDateParm = "createdDay";
 
+        final String idRange = " BETWEEN :" + PURGE_PARM_ID_FIRST + " AND :"
+                + PURGE_PARM_ID_LAST;
+
+        final String jpqlSelectIds = "SELECT A.id FROM "
+                + DbSimpleEntity.ACCOUNT_TRX + " A" //
+                + " JOIN " + DbSimpleEntity.DOC_LOG + " L ON A.docLog = L.id"
+                + " WHERE L.createdDay <= :" + psqlDateParm //
+                + " AND A.id > :" + PURGE_PARM_LAST_ID + " ORDER BY A.id";
+
         /*
          * Step 1: Delete PosPurchaseItem.
          */
@@ -126,22 +138,26 @@ public final class DocLogDaoImpl extends GenericDaoImpl<DocLog>
                 + " JOIN " + DbSimpleEntity.ACCOUNT_TRX
                 + " A ON A.posPurchase = P.id" //
                 + " JOIN " + DbSimpleEntity.DOC_LOG + " L ON A.docLog = L.id"
-                + " WHERE L.createdDay <= :" + psqlDateParm + ")";
+                + " WHERE A.id" + idRange //
+                + " AND L.createdDay <= :" + psqlDateParm + ")";
 
         /*
          * Step 2: Delete AccountTrx.
          */
         jpqlList[1] = "" //
                 + "DELETE FROM " + DbSimpleEntity.ACCOUNT_TRX + " M"
-                + " WHERE M.id IN" + " (SELECT A.id FROM "
-                + DbSimpleEntity.ACCOUNT_TRX + " A" //
+                + " WHERE M.id" + idRange + " AND M.id IN" //
+                + " (SELECT A.id FROM " + DbSimpleEntity.ACCOUNT_TRX + " A" //
                 + " JOIN " + DbSimpleEntity.DOC_LOG + " L ON A.docLog = L.id"
-                + " WHERE L.createdDay <= :" + psqlDateParm + ")";
+                + " WHERE A.id" + idRange //
+                + " AND L.createdDay <= :" + psqlDateParm + ")";
 
-        final int nDeleted = this.cleanHistory(jpqlList, dateBackInTime,
-                psqlDateParm, 1, batchCommitter);
+        final int nDeleted = this.purgeKeysetChunked(jpqlSelectIds, jpqlList,
+                1, Collections.<String, Object> singletonMap(psqlDateParm,
+                        dateBackInTime),
+                progress, batchCommitter);
 
-        if (nDeleted > 0) {
+        if (!progress.isInterrupted()) {
             ServiceContext.getDaoContext().getAccountTrxDao()
                     .cleanOrphaned(batchCommitter);
         }
@@ -150,11 +166,21 @@ public final class DocLogDaoImpl extends GenericDaoImpl<DocLog>
 
     @Override
     public int cleanDocInHistory(final Date dateBackInTime,
+            final DaoPurgeProgress progress,
             final DaoBatchCommitter batchCommitter) {
 
-        String[] jpqlList = new String[3];
+        final String[] jpqlList = new String[3];
         final String psqlDateParm = "createdDay";
 
+        final String idRange = " BETWEEN :" + PURGE_PARM_ID_FIRST + " AND :"
+                + PURGE_PARM_ID_LAST;
+
+        final String jpqlSelectIds = "SELECT L.id FROM "
+                + DbSimpleEntity.DOC_LOG + " L" //
+                + " WHERE L.docIn IS NOT NULL AND L.createdDay <= :"
+                + psqlDateParm //
+                + " AND L.id > :" + PURGE_PARM_LAST_ID + " ORDER BY L.id";
+
         /*
          * Step 1: Delete DocInOut.
          */
@@ -164,7 +190,8 @@ public final class DocLogDaoImpl extends GenericDaoImpl<DocLog>
                 + DbSimpleEntity.DOC_IN_OUT + " IO" //
                 + " JOIN " + DbSimpleEntity.DOC_IN + " I ON I.id = IO.docIn" //
                 + " JOIN " + DbSimpleEntity.DOC_LOG + " L ON L.docIn = I.id" //
-                + " WHERE L.createdDay <= :" + psqlDateParm + ")";
+                + " WHERE L.id" + idRange //
+                + " AND L.createdDay <= :" + psqlDateParm + ")";
 
         /*
          * Step 2: CostChange.
@@ -175,6 +202,7 @@ public final class DocLogDaoImpl extends GenericDaoImpl<DocLog>
                 + DbSimpleEntity.COST_CHANGE + " C" //
                 + " JOIN " + DbSimpleEntity.DOC_LOG + " L ON L.id = C.docLog" //
                 + " WHERE C.docLog IS NOT NULL" //
+                + " AND L.id" + idRange //
                 + " AND L.docIn IS NOT NULL" //
                 + " AND L.createdDay <= :" + psqlDateParm + ")";
 
@@ -183,61 +211,55 @@ public final class DocLogDaoImpl extends GenericDaoImpl<DocLog>
          */
         jpqlList[2] = "" //
                 + "DELETE FROM " + DbSimpleEntity.DOC_LOG + " L "
-                + " WHERE L.docIn IS NOT NULL AND L.createdDay <= :"
+                + " WHERE L.id" + idRange //
+                + " AND L.docIn IS NOT NULL AND L.createdDay <= :"
                 + psqlDateParm;
 
-        final int nDeleted = this.cleanHistory(jpqlList, dateBackInTime,
-                psqlDateParm, 2, batchCommitter);
-
-        if (nDeleted > 0) {
-
-            jpqlList = new String[2];
+        final int nDeleted = this.purgeKeysetChunked(jpqlSelectIds, jpqlList,
+                2, Collections.<String, Object> singletonMap(psqlDateParm,
+                        dateBackInTime),
+                progress, batchCommitter);
 
+        if (!progress.isInterrupted()) {
             /*
              * Step 4: Delete orphaned: DocIn, PrintIn
              */
-            jpqlList[0] = "DELETE FROM " + DbSimpleEntity.DOC_IN + " M"
-                    + " WHERE M.id IN" + " (SELECT I.id FROM "
-                    + DbSimpleEntity.DOC_IN + " I" //
-                    + " LEFT JOIN " + DbSimpleEntity.DOC_LOG + " L"
-                    + " ON L.docIn = I.id" //
-                    + " WHERE L.docIn IS NULL)";
-
-            jpqlList[1] = "DELETE FROM " + DbSimpleEntity.PRINT_IN + " M"
-                    + " WHERE M.id IN" + " (SELECT P.id FROM "
-                    + DbSimpleEntity.PRINT_IN + " P" //
-                    + " LEFT JOIN " + DbSimpleEntity.DOC_IN + " I"
-                    + " ON I.printIn = P.id" //
-                    + " WHERE I.printIn IS NULL)";
-
-            int i = 0;
-
-            for (final String jpql : jpqlList) {
-
-                final int count =
-                        getEntityManager().createQuery(jpql).executeUpdate();
-
-                i++;
-
-                LOGGER.trace("|               step {}: {} ...", i, count);
-
-                batchCommitter.increment();
-                batchCommitter.commit();
-
-                LOGGER.trace("|                    {}: {} committed.", i,
-                        count);
-            }
+            this.purgeOrphansChunked(DbSimpleEntity.DOC_IN,
+                    "SELECT I.id FROM " + DbSimpleEntity.DOC_IN + " I" //
+                            + " LEFT JOIN " + DbSimpleEntity.DOC_LOG + " L"
+                            + " ON L.docIn = I.id" //
+                            + " WHERE L.docIn IS NULL",
+                    "I.id", progress.createSubStep(DbSimpleEntity.DOC_IN),
+                    batchCommitter);
+
+            this.purgeOrphansChunked(DbSimpleEntity.PRINT_IN,
+                    "SELECT P.id FROM " + DbSimpleEntity.PRINT_IN + " P" //
+                            + " LEFT JOIN " + DbSimpleEntity.DOC_IN + " I"
+                            + " ON I.printIn = P.id" //
+                            + " WHERE I.printIn IS NULL",
+                    "P.id", progress.createSubStep(DbSimpleEntity.PRINT_IN),
+                    batchCommitter);
         }
         return nDeleted;
     }
 
     @Override
     public int cleanDocOutHistory(final Date dateBackInTime,
+            final DaoPurgeProgress progress,
             final DaoBatchCommitter batchCommitter) {
 
         final String[] jpqlList = new String[3];
         final String psqlDateParm = "createdDay";
 
+        final String idRange = " BETWEEN :" + PURGE_PARM_ID_FIRST + " AND :"
+                + PURGE_PARM_ID_LAST;
+
+        final String jpqlSelectIds = "SELECT L.id FROM "
+                + DbSimpleEntity.DOC_LOG + " L" //
+                + " WHERE L.docOut IS NOT NULL AND L.createdDay <= :"
+                + psqlDateParm //
+                + " AND L.id > :" + PURGE_PARM_LAST_ID + " ORDER BY L.id";
+
         /*
          * Step 1: Delete DocInOut.
          */
@@ -247,7 +269,8 @@ public final class DocLogDaoImpl extends GenericDaoImpl<DocLog>
                 + DbSimpleEntity.DOC_IN_OUT + " IO" //
                 + " JOIN " + DbSimpleEntity.DOC_OUT + " O ON O.id = IO.docOut"
                 + " JOIN " + DbSimpleEntity.DOC_LOG + " L ON L.docOut = O.id"
-                + " WHERE L.createdDay <= :" + psqlDateParm + ")";
+                + " WHERE L.id" + idRange //
+                + " AND L.createdDay <= :" + psqlDateParm + ")";
 
         /*
          * Step 2: CostChange.
@@ -258,6 +281,7 @@ public final class DocLogDaoImpl extends GenericDaoImpl<DocLog>
                 + DbSimpleEntity.COST_CHANGE + " C" //
                 + " JOIN " + DbSimpleEntity.DOC_LOG + " L ON L.id = C.docLog" //
                 + " WHERE C.docLog IS NOT NULL" //
+                + " AND L.id" + idRange //
                 + " AND L.docOut IS NOT NULL" //
                 + " AND L.createdDay <= :" + psqlDateParm + ")";
 
@@ -266,98 +290,47 @@ public final class DocLogDaoImpl extends GenericDaoImpl<DocLog>
          */
         jpqlList[2] = "" //
                 + "DELETE FROM " + DbSimpleEntity.DOC_LOG + " L "
-                + " WHERE L.docOut IS NOT NULL AND L.createdDay <= :"
+                + " WHERE L.id" + idRange //
+                + " AND L.docOut IS NOT NULL AND L.createdDay <= :"
                 + psqlDateParm;
 
-        final int nDeleted = this.cleanHistory(jpqlList, dateBackInTime,
-                psqlDateParm, 2, batchCommitter);
+        final int nDeleted = this.purgeKeysetChunked(jpqlSelectIds, jpqlList,
+                2, Collections.<String, Object> singletonMap(psqlDateParm,
+                        dateBackInTime),
+                progress, batchCommitter);
 
-        if (nDeleted > 0) {
+        if (!progress.isInterrupted()) {
             /*
              * Step 4: Delete orphaned: DocOut, PrintOut, PdfOut
              */
-            final String[] jpqlListOrphan = new String[3];
-
-            jpqlListOrphan[0] = "DELETE FROM " + DbSimpleEntity.DOC_OUT + " M"
-                    + " WHERE M.id IN" + " (SELECT O.id FROM "
-                    + DbSimpleEntity.DOC_OUT + " O" //
-                    + " LEFT JOIN " + DbSimpleEntity.DOC_LOG + " L"
-                    + " ON L.docOut = O.id" //
-                    + " WHERE L.docOut IS NULL)";
-
-            jpqlListOrphan[1] = "DELETE FROM " + DbSimpleEntity.PRINT_OUT + " M"
-                    + " WHERE M.id IN" + " (SELECT P.id FROM "
-                    + DbSimpleEntity.PRINT_OUT + " P" //
-                    + " LEFT JOIN " + DbSimpleEntity.DOC_OUT + " O"
-                    + " ON O.printOut = P.id" //
-                    + " WHERE O.printOut IS NULL)";
-
-            jpqlListOrphan[2] = "DELETE FROM " + DbSimpleEntity.PDF_OUT + " M"
-                    + " WHERE M.id IN" + " (SELECT P.id FROM "
-                    + DbSimpleEntity.PDF_OUT + " P" //
-                    + " LEFT JOIN " + DbSimpleEntity.DOC_OUT + " O"
-                    + " ON O.pdfOut = P.id" //
-                    + " WHERE O.pdfOut IS NULL)";
-
-            int i = 0;
-
-            for (final String jpql : jpqlListOrphan) {
-
-                final int count =
-                        getEntityManager().createQuery(jpql).executeUpdate();
-
-                i++;
-
-                LOGGER.trace("|               step {}: {} ...", i, count);
-
-                batchCommitter.increment();
-                batchCommitter.commit();
-
-                LOGGER.trace("|                    {}: {} committed.", i,
-                        count);
-            }
+            this.purgeOrphansChunked(DbSimpleEntity.DOC_OUT,
+                    "SELECT O.id FROM " + DbSimpleEntity.DOC_OUT + " O" //
+                            + " LEFT JOIN " + DbSimpleEntity.DOC_LOG + " L"
+                            + " ON L.docOut = O.id" //
+                            + " WHERE L.docOut IS NULL",
+                    "O.id", progress.createSubStep(DbSimpleEntity.DOC_OUT),
+                    batchCommitter);
+
+            this.purgeOrphansChunked(DbSimpleEntity.PRINT_OUT,
+                    "SELECT P.id FROM " + DbSimpleEntity.PRINT_OUT + " P" //
+                            + " LEFT JOIN " + DbSimpleEntity.DOC_OUT + " O"
+                            + " ON O.printOut = P.id" //
+                            + " WHERE O.printOut IS NULL",
+                    "P.id", progress.createSubStep(DbSimpleEntity.PRINT_OUT),
+                    batchCommitter);
+
+            this.purgeOrphansChunked(DbSimpleEntity.PDF_OUT,
+                    "SELECT P.id FROM " + DbSimpleEntity.PDF_OUT + " P" //
+                            + " LEFT JOIN " + DbSimpleEntity.DOC_OUT + " O"
+                            + " ON O.pdfOut = P.id" //
+                            + " WHERE O.pdfOut IS NULL",
+                    "P.id", progress.createSubStep(DbSimpleEntity.PDF_OUT),
+                    batchCommitter);
         }
 
         return nDeleted;
     }
 
-    /**
-     *
-     * @param jpqlList
-     * @param dateBackInTime
-     * @param dateBackInTimeParm
-     * @param iDeleted
-     * @param batchCommitter
-     * @return
-     */
-    private int cleanHistory(final String[] jpqlList, final Date dateBackInTime,
-            final String dateBackInTimeParm, final int iDeleted,
-            final DaoBatchCommitter batchCommitter) {
-
-        int nDeleted = 0;
-
-        for (int i = 0; i < jpqlList.length; i++) {
-
-            final String jpql = jpqlList[i];
-
-            final Query query = getEntityManager().createQuery(jpql);
-            query.setParameter(dateBackInTimeParm, dateBackInTime);
-
-            final int count = query.executeUpdate();
-            if (i == iDeleted) {
-                nDeleted = count;
-            }
-
-            LOGGER.trace("|          step {}: {} ...", i + 1, count);
-
-            batchCommitter.increment();
-            batchCommitter.commit();
-
-            LOGGER.trace("|               {}: {} committed.", i + 1, count);
-        }
-        return nDeleted;
-    }
-
     @Override
     public long getListCount(final ListFilter filter) {
 
@@ -25,13 +25,19 @@
 package org.savapage.core.dao.impl;
 
 import java.lang.reflect.ParameterizedType;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.LockModeType;
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 
 import org.savapage.core.SpException;
 import org.savapage.core.dao.GenericDao;
+import org.savapage.core.dao.helpers.DaoBatchCommitter;
+import org.savapage.core.dao.helpers.DaoPurgeProgress;
 import org.savapage.core.jpa.Entity;
 
 /**
@@ -48,6 +54,21 @@ public abstract class GenericDaoImpl<T extends Entity>
      */
     protected static final int JPSQL_STRINGBUILDER_CAPACITY = 256;
 
+    /**
+     * Named parameter for the highest key of the previous purge chunk.
+     */
+    protected static final String PURGE_PARM_LAST_ID = "lastId";
+
+    /**
+     * Named parameter for the lowest key of a purge chunk.
+     */
+    protected static final String PURGE_PARM_ID_FIRST = "idFirst";
+
+    /**
+     * Named parameter for the highest key of a purge chunk.
+     */
+    protected static final String PURGE_PARM_ID_LAST = "idLast";
+
     /**
      * <p>
      * {@link LockModeType#PESSIMISTIC_WRITE} is used so entity can not be read
@@ -146,4 +167,148 @@ public abstract class GenericDaoImpl<T extends Entity>
         return nRows == 1;
     }
 
-}
\ No newline at end of file
+    /**
+     * Deletes rows in keyset paged chunks. Each chunk is a bounded, ascending
+     * primary key range, and is committed before the next chunk is selected.
+     *
+     * @param jpqlSelectIds
+     *            JPQL selecting the ascending keys of the driving entity, with
+     *            condition {@code id > :}{@link #PURGE_PARM_LAST_ID}.
+     * @param jpqlDeletes
+     *            JPQL delete statements executed in order for each chunk.
+     *            Each statement restricts the driving entity key with
+     *            {@code BETWEEN :}{@link #PURGE_PARM_ID_FIRST}
+     *            {@code AND :}{@link #PURGE_PARM_ID_LAST}.
+     * @param iDeleted
+     *            Index of the delete statement that counts as deleted rows.
+     * @param params
+     *            Named parameters, set on each statement that uses them.
+     * @param progress
+     *            The {@link DaoPurgeProgress}.
+     * @param batchCommitter
+     *            The {@link DaoBatchCommitter}.
+     * @return The number of deleted rows.
+     */
+    protected final int purgeKeysetChunked(final String jpqlSelectIds,
+            final String[] jpqlDeletes, final int iDeleted,
+            final Map<String, Object> params, final DaoPurgeProgress progress,
+            final DaoBatchCommitter batchCommitter) {
+
+        final int chunkSize = progress.getChunkSize();
+
+        long lastId = progress.getLastId();
+        int nDeleted = 0;
+
+        while (!progress.isInterrupted()) {
+
+            final TypedQuery<Long> querySelect =
+                    getEntityManager().createQuery(jpqlSelectIds, Long.class);
+
+            setPurgeParameters(querySelect, jpqlSelectIds, params);
+            querySelect.setParameter(PURGE_PARM_LAST_ID, lastId);
+            querySelect.setMaxResults(chunkSize);
+
+            final List<Long> ids = querySelect.getResultList();
+
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            final Long idFirst = ids.get(0);
+            final Long idLast = ids.get(ids.size() - 1);
+
+            int nChunkDeleted = 0;
+
+            for (int i = 0; i < jpqlDeletes.length; i++) {
+
+                final Query query =
+                        getEntityManager().createQuery(jpqlDeletes[i]);
+
+                setPurgeParameters(query, jpqlDeletes[i], params);
+                query.setParameter(PURGE_PARM_ID_FIRST, idFirst);
+                query.setParameter(PURGE_PARM_ID_LAST, idLast);
+
+                final int count = query.executeUpdate();
+
+                if (i == iDeleted) {
+                    nChunkDeleted = count;
+                }
+            }
+
+            progress.onChunkDeleted(idLast.longValue());
+
+            batchCommitter.increment();
+            batchCommitter.commit();
+
+            nDeleted += nChunkDeleted;
+            lastId = idLast.longValue();
+
+            progress.onChunkCommitted(lastId, nChunkDeleted);
+
+            if (ids.size() < chunkSize) {
+                break;
+            }
+        }
+
+        if (!progress.isInterrupted()) {
+            progress.onCompleted();
+        }
+        return nDeleted;
+    }
+
+    /**
+     * Deletes orphaned rows in keyset paged chunks.
+     *
+     * @param entity
+     *            The entity name of the orphaned rows.
+     * @param jpqlSelectOrphanIds
+     *            JPQL selecting the keys of orphaned rows, ending with a WHERE
+     *            condition.
+     * @param idPath
+     *            The path of the selected key, e.g. {@code "O.id"}.
+     * @param progress
+     *            The {@link DaoPurgeProgress}.
+     * @param batchCommitter
+     *            The {@link DaoBatchCommitter}.
+     * @return The number of deleted rows.
+     */
+    protected final int purgeOrphansChunked(final String entity,
+            final String jpqlSelectOrphanIds, final String idPath,
+            final DaoPurgeProgress progress,
+            final DaoBatchCommitter batchCommitter) {
+
+        final String jpqlSelectIds = jpqlSelectOrphanIds + " AND " + idPath
+                + " > :" + PURGE_PARM_LAST_ID + " ORDER BY " + idPath;
+
+        final String idRange = " BETWEEN :" + PURGE_PARM_ID_FIRST + " AND :"
+                + PURGE_PARM_ID_LAST;
+
+        final String[] jpqlDeletes = new String[] { "DELETE FROM " + entity
+                + " M WHERE M.id" + idRange + " AND M.id IN ("
+                + jpqlSelectOrphanIds + " AND " + idPath + idRange + ")" };
+
+        return this.purgeKeysetChunked(jpqlSelectIds, jpqlDeletes, 0,
+                Collections.<String, Object> emptyMap(), progress,
+                batchCommitter);
+    }
+
+    /**
+     * Sets the named parameters used by a purge statement.
+     *
+     * @param query
+     *            The query.
+     * @param jpql
+     *            The JPQL of the query.
+     * @param params
+     *            Named parameters.
+     */
+    private static void setPurgeParameters(final Query query,
+            final String jpql, final Map<String, Object> params) {
+        for (final Map.Entry<String, Object> entry : params.entrySet()) {
+            if (jpql.contains(":" + entry.getKey())) {
+                query.setParameter(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+}
@@ -31,19 +31,15 @@ import javax.persistence.NoResultException;
 import javax.persistence.Query;
 
 import org.apache.commons.lang3.mutable.MutableBoolean;
-import org.savapage.core.SpException;
 import org.savapage.core.dao.IAttrDao;
 import org.savapage.core.dao.PrinterDao;
 import org.savapage.core.dao.enums.PrinterAttrEnum;
 import org.savapage.core.dao.helpers.DaoBatchCommitter;
 import org.savapage.core.dao.helpers.ProxyPrinterName;
-import org.savapage.core.dto.IppMediaCostDto;
-import org.savapage.core.dto.MediaCostDto;
 import org.savapage.core.jpa.Entity;
 import org.savapage.core.jpa.Printer;
 import org.savapage.core.jpa.Printer.ChargeType;
 import org.savapage.core.jpa.PrinterAttr;
-import org.savapage.core.json.JsonAbstractBase;
 
 /**
  *
@@ -87,49 +83,6 @@ public final class PrinterDaoImpl extends GenericDaoImpl<Printer>
         return ChargeType.valueOf(chargeType);
     }
 
-    @Override
-    public IppMediaCostDto getMediaCost(final Printer printer,
-            final String ippMediaName) {
-
-        IppMediaCostDto dto = null;
-
-        MediaCostDto dtoPageCost = null;
-
-        final String defaultkey = getCostMediaAttr().getKey();
-        final String mediaKey = getCostMediaAttr(ippMediaName).getKey();
-
-        for (PrinterAttr attr : printer.getAttributes()) {
-
-            final boolean isDefault =
-                    attr.getName().equalsIgnoreCase(defaultkey);
-
-            if (attr.getName().equalsIgnoreCase(mediaKey)
-                    || (dtoPageCost == null && isDefault)) {
-
-                try {
-                    dtoPageCost = JsonAbstractBase.create(MediaCostDto.class,
-                            attr.getValue());
-                } catch (SpException e) {
-                    // Be forgiving :)
-                }
-
-                if (!isDefault) {
-                    break;
-                }
-
-            }
-        }
-
-        if (dtoPageCost != null) {
-            dto = new IppMediaCostDto();
-            dto.setMedia(ippMediaName);
-            dto.setActive(Boolean.TRUE);
-            dto.setPageCost(dtoPageCost);
-        }
-
-        return dto;
-    }
-
     @Override
     public void resetTotals(final Date resetDate, final String resetBy) {
 
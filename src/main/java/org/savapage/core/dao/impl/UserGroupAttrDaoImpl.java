@@ -31,6 +31,7 @@ import org.savapage.core.dao.UserGroupAttrDao;
 import org.savapage.core.dao.enums.UserGroupAttrEnum;
 import org.savapage.core.jpa.UserGroup;
 import org.savapage.core.jpa.UserGroupAttr;
+import org.savapage.core.services.helpers.AccessControlCache;
 
 /**
  *
@@ -76,6 +77,7 @@ public final class UserGroupAttrDaoImpl extends GenericDaoImpl<UserGroupAttr>
                 "DELETE UserGroupAttr A WHERE A.userGroup.id = :groupId";
         final Query query = getEntityManager().createQuery(jpql);
         query.setParameter("groupId", groupId);
+        AccessControlCache.instance().onChange();
         return query.executeUpdate();
     }
 
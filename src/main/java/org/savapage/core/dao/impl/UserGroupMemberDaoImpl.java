@@ -35,6 +35,8 @@ import org.savapage.core.dao.enums.UserAttrEnum;
 import org.savapage.core.jpa.User;
 import org.savapage.core.jpa.UserGroup;
 import org.savapage.core.jpa.UserGroupMember;
+import org.savapage.core.services.helpers.AccessControlCache;
+import org.savapage.core.services.helpers.PrinterAccessIndex;
 
 /**
  *
@@ -65,6 +67,8 @@ public final class UserGroupMemberDaoImpl
                 "DELETE UserGroupMember U WHERE U.group.id = :groupId";
         final Query query = getEntityManager().createQuery(jpql);
         query.setParameter("groupId", groupId);
+        AccessControlCache.instance().onChange();
+        PrinterAccessIndex.instance().onUserChange(null);
         return query.executeUpdate();
     }
 
@@ -70,7 +70,7 @@ public abstract class AbstractPdfConverter {
      *            The PDF input file.
      * @return The file.
      */
-    protected final File getOutputFile(final File fileIn) {
+    public final File getOutputFile(final File fileIn) {
 
         final String homeDir;
 
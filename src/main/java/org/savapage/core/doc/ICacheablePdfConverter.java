@@ -0,0 +1,56 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.doc;
+
+import java.io.File;
+
+/**
+ * A {@link IPdfConverter} whose output only depends on the content of the
+ * input PDF and the conversion parameters, so the output can be served from
+ * {@link PdfConvertCache}.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public interface ICacheablePdfConverter extends IPdfConverter {
+
+    /**
+     * Gets the key of the converter class and conversion parameters. The
+     * location of the output file is not part of the key.
+     *
+     * @return The key.
+     */
+    String getCacheKey();
+
+    /**
+     * Gets the output file of a conversion.
+     *
+     * @param fileIn
+     *            The PDF input file.
+     * @return The PDF output file.
+     */
+    File getOutputFile(File fileIn);
+
+}
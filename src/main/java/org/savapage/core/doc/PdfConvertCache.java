@@ -0,0 +1,313 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.doc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.savapage.core.config.ConfigManager;
+import org.savapage.core.config.IConfigProp.Key;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A disk LRU cache of converted PDF files, keyed by the content hash of the
+ * input PDF plus the {@link ICacheablePdfConverter#getCacheKey()}. E.g. a
+ * Job Ticket that is printed again is not converted to grayscale again.
+ * <p>
+ * Cached files are copied to the requester, since the requester releases
+ * (deletes) the file it is given. Entries live in the application temp
+ * directory, which is removed at application start.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class PdfConvertCache {
+
+    /** */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(PdfConvertCache.class);
+
+    /**
+     * Cache directory name in the application temp directory.
+     */
+    private static final String CACHE_DIR_NAME = "pdf-convert-cache";
+
+    /** */
+    private static final long BYTES_IN_MB = 1024L * 1024L;
+
+    /**
+     * Cache file sizes by key, in access order.
+     */
+    private final LinkedHashMap<String, Long> entries =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /** */
+    private long diskBytes;
+
+    /** */
+    private final LongAdder hits = new LongAdder();
+
+    /** */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     *
+     */
+    private PdfConvertCache() {
+    }
+
+    /**
+     * The SingletonHolder is loaded on the first execution of
+     * {@link PdfConvertCache#instance()} or the first access to
+     * {@link SingletonHolder#INSTANCE}, not before.
+     */
+    private static class SingletonHolder {
+        /**
+         * The singleton.
+         */
+        public static final PdfConvertCache INSTANCE = new PdfConvertCache();
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return The singleton.
+     */
+    public static PdfConvertCache instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * @return Max bytes on disk, {@code 0} when cache is disabled.
+     */
+    private static long getMaxDiskBytes() {
+        return ConfigManager.instance().getConfigLong(
+                Key.SYS_PDF_CONVERT_CACHE_MAX_MB) * BYTES_IN_MB;
+    }
+
+    /**
+     * @return The cache directory.
+     */
+    private static File getDirectory() {
+        return new File(ConfigManager.getAppTmpDir(), CACHE_DIR_NAME);
+    }
+
+    /**
+     * Creates a cache key.
+     *
+     * @param converter
+     *            The converter.
+     * @param pdfFile
+     *            The PDF input file.
+     * @return The key.
+     * @throws IOException
+     *             When IO error reading the file.
+     */
+    private static String createKey(final ICacheablePdfConverter converter,
+            final File pdfFile) throws IOException {
+
+        final String contentHash;
+
+        try (InputStream istr = Files.newInputStream(pdfFile.toPath())) {
+            contentHash = DigestUtils.sha256Hex(istr);
+        }
+        return DigestUtils.sha1Hex(String.format("%s|%s",
+                converter.getCacheKey(), contentHash));
+    }
+
+    /**
+     * Converts a PDF file, or copies the cached output of an earlier
+     * conversion of the same content with the same converter parameters.
+     *
+     * @param converter
+     *            The converter.
+     * @param pdfFile
+     *            The PDF input file.
+     * @return The PDF output file.
+     * @throws IOException
+     *             When IO error.
+     */
+    public File convert(final ICacheablePdfConverter converter,
+            final File pdfFile) throws IOException {
+
+        final long maxDiskBytes = getMaxDiskBytes();
+
+        if (maxDiskBytes <= 0) {
+            return converter.convert(pdfFile);
+        }
+
+        final String key = createKey(converter, pdfFile);
+        final File target = converter.getOutputFile(pdfFile);
+
+        if (this.copyTo(key, target)) {
+            return target;
+        }
+
+        final File converted = converter.convert(pdfFile);
+
+        if (converted.length() <= maxDiskBytes) {
+            try {
+                this.put(key, converted, maxDiskBytes);
+            } catch (IOException e) {
+                LOGGER.warn("{}: {}", converted.getName(), e.getMessage());
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * Copies a cached file to a target file.
+     *
+     * @param key
+     *            The cache key.
+     * @param target
+     *            The target file.
+     * @return {@code true} when cache hit and file copied, {@code false}
+     *         when cache miss.
+     */
+    private boolean copyTo(final String key, final File target) {
+
+        final boolean cached;
+
+        synchronized (this) {
+            cached = this.entries.get(key) != null;
+        }
+
+        if (cached) {
+            final File file = new File(getDirectory(), key);
+            try {
+                Files.copy(file.toPath(), target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+                this.hits.increment();
+                return true;
+            } catch (IOException e) {
+                // Evicted meanwhile.
+                LOGGER.debug("{}: {}", file.getName(), e.getMessage());
+            }
+        }
+
+        this.misses.increment();
+        return false;
+    }
+
+    /**
+     * Puts a copy of a converted file in the cache.
+     *
+     * @param key
+     *            The cache key.
+     * @param pdfFile
+     *            The converted file, which is copied to the cache.
+     * @param maxDiskBytes
+     *            Max bytes on disk.
+     * @throws IOException
+     *             When IO error.
+     */
+    private void put(final String key, final File pdfFile,
+            final long maxDiskBytes) throws IOException {
+
+        final File dir = getDirectory();
+        Files.createDirectories(dir.toPath());
+
+        final File cacheFile = new File(dir, key);
+
+        /*
+         * Write to a unique temp file and atomically move, so concurrent
+         * readers never see a partial file.
+         */
+        final File tempFile = File.createTempFile("_put_", null, dir);
+
+        Files.copy(pdfFile.toPath(), tempFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+
+        Files.move(tempFile.toPath(), cacheFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        final long size = cacheFile.length();
+
+        synchronized (this) {
+
+            final Long prevSize = this.entries.put(key, Long.valueOf(size));
+            if (prevSize != null) {
+                this.diskBytes -= prevSize.longValue();
+            }
+            this.diskBytes += size;
+
+            this.evict(maxDiskBytes);
+        }
+    }
+
+    /**
+     * Evicts least recently used entries till cache size is within limit.
+     *
+     * @param maxDiskBytes
+     *            Max bytes on disk.
+     */
+    private void evict(final long maxDiskBytes) {
+
+        final Iterator<Map.Entry<String, Long>> iter =
+                this.entries.entrySet().iterator();
+
+        final File dir = getDirectory();
+
+        while (this.diskBytes > maxDiskBytes && iter.hasNext()) {
+
+            final Map.Entry<String, Long> entry = iter.next();
+            final File file = new File(dir, entry.getKey());
+
+            this.diskBytes -= entry.getValue().longValue();
+
+            if (!file.delete()) {
+                LOGGER.debug("{} could not be deleted.", file.getName());
+            }
+            iter.remove();
+        }
+    }
+
+    /**
+     * @return Number of cache hits since start.
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return Number of cache misses since start.
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+}
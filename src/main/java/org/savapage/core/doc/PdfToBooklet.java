@@ -44,7 +44,7 @@ import com.itextpdf.text.pdf.PdfReader;
  *
  */
 public final class PdfToBooklet extends AbstractPdfConverter
-        implements IPdfConverter {
+        implements ICacheablePdfConverter {
 
     /**
      * A unique suffix to type the kind of PDF convert.
@@ -176,6 +176,11 @@ public final class PdfToBooklet extends AbstractPdfConverter
         return pdfOut;
     }
 
+    @Override
+    public String getCacheKey() {
+        return this.getClass().getSimpleName();
+    }
+
     @Override
     protected String getOutputFileSfx() {
         return OUTPUT_FILE_SFX;
@@ -39,7 +39,7 @@ import org.savapage.core.system.SystemInfo.ArgumentGS;
  *
  */
 public final class PdfToGrayscale extends AbstractFileConverter
-        implements IPdfConverter {
+        implements ICacheablePdfConverter {
 
     /**
      * The directory location of the created file (can be {@code null}).
@@ -70,7 +70,7 @@ public final class PdfToGrayscale extends AbstractFileConverter
     }
 
     @Override
-    protected File getOutputFile(final File fileIn) {
+    public File getOutputFile(final File fileIn) {
 
         final StringBuilder builder = new StringBuilder(128);
 
@@ -128,6 +128,11 @@ public final class PdfToGrayscale extends AbstractFileConverter
         }
     }
 
+    @Override
+    public String getCacheKey() {
+        return this.getClass().getSimpleName();
+    }
+
     @Override
     protected void onStdout(final String stdout) {
         // no code intended.
@@ -0,0 +1,201 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.doc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+
+import org.savapage.core.json.PdfProperties;
+import org.savapage.core.pdf.ITextHelperV5;
+import org.savapage.core.pdf.ITextPdfUrlAnnotator;
+import org.savapage.core.pdf.PdfPageRotateHelper;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfNumber;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStamper;
+
+/**
+ * Converts a PDF file in one {@link PdfStamper} pass that applies, in this
+ * order, page rotation alignment, URL annotation and PDF encryption. This is
+ * the single pass equivalent of {@link PdfToRotateAlignedPdf},
+ * {@link PdfToAnnotatedURL} and {@link PdfToEncryptedPdf} applied one after
+ * the other.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class PdfToStampedPdf extends AbstractPdfConverter
+        implements IPdfConverter {
+
+    /**
+     * A unique suffix to type the kind of PDF convert.
+     */
+    private static final String OUTPUT_FILE_SFX = "stamped";
+
+    /** */
+    private boolean alignLandscape;
+
+    /**
+     * One-based page numbers to rotate aligned (can be {@code null}).
+     */
+    private Set<Integer> alignPages;
+
+    /** */
+    private boolean annotateUrls;
+
+    /** */
+    private boolean pdfEncryption;
+
+    /** */
+    private PdfProperties.PdfAllow pdfAllow;
+    /** */
+    private String pdfOwnerPass;
+    /** */
+    private String pdfUserPass;
+
+    /**
+     *
+     */
+    public PdfToStampedPdf() {
+        super();
+    }
+
+    /**
+     * Rotates pages to the orientation of the first page.
+     *
+     * @param alignToLandscape
+     *            If {@code true}, first page is seen as landscape.
+     * @param pages
+     *            One-based page numbers to rotate.
+     * @return This instance.
+     */
+    public PdfToStampedPdf setRotateAligned(final boolean alignToLandscape,
+            final Set<Integer> pages) {
+        this.alignLandscape = alignToLandscape;
+        this.alignPages = pages;
+        return this;
+    }
+
+    /**
+     * Annotates URLs.
+     *
+     * @return This instance.
+     */
+    public PdfToStampedPdf setAnnotateUrls() {
+        this.annotateUrls = true;
+        return this;
+    }
+
+    /**
+     * Encrypts the PDF.
+     *
+     * @param allow
+     *            PDF permissions.
+     * @param ownerPass
+     *            PDF owner password.
+     * @param userPass
+     *            PDF user password.
+     * @return This instance.
+     */
+    public PdfToStampedPdf setEncryption(final PdfProperties.PdfAllow allow,
+            final String ownerPass, final String userPass) {
+        this.pdfEncryption = true;
+        this.pdfAllow = allow;
+        this.pdfOwnerPass = ownerPass;
+        this.pdfUserPass = userPass;
+        return this;
+    }
+
+    /**
+     * @return {@code true} when there is anything to stamp.
+     */
+    public boolean hasStamps() {
+        return this.pdfEncryption || this.annotateUrls
+                || (this.alignPages != null && !this.alignPages.isEmpty());
+    }
+
+    @Override
+    public File convert(final File pdfFile) throws IOException {
+
+        final File pdfOut = this.getOutputFile(pdfFile);
+
+        final PdfReader reader;
+        try (InputStream istr = new FileInputStream(pdfFile)) {
+            reader = new PdfReader(istr);
+        }
+
+        boolean exception = true;
+
+        try (OutputStream ostr = new FileOutputStream(pdfOut)) {
+
+            final PdfStamper stamper = new PdfStamper(reader, ostr);
+
+            if (this.pdfEncryption) {
+                stamper.setEncryption(true, this.pdfUserPass,
+                        this.pdfOwnerPass,
+                        ITextHelperV5.getPermissions(this.pdfAllow));
+            }
+
+            if (this.alignPages != null) {
+                for (final Integer entry : this.alignPages) {
+                    final int nPage = entry.intValue();
+                    reader.getPageN(nPage).put(PdfName.ROTATE,
+                            new PdfNumber(PdfPageRotateHelper
+                                    .getAlignedRotation(reader,
+                                            this.alignLandscape, nPage)));
+                }
+            }
+
+            if (this.annotateUrls) {
+                ITextPdfUrlAnnotator.annotate(reader, stamper);
+            }
+
+            stamper.close();
+            exception = false;
+
+        } catch (DocumentException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            reader.close();
+            if (exception) {
+                pdfOut.delete();
+            }
+        }
+        return pdfOut;
+    }
+
+    @Override
+    protected String getOutputFileSfx() {
+        return OUTPUT_FILE_SFX;
+    }
+
+}
@@ -24,8 +24,29 @@
  */
 package org.savapage.core.imaging;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.savapage.core.SpException;
+import org.savapage.core.config.ConfigManager;
+import org.savapage.core.config.IConfigProp.Key;
 
 /**
  * A filter for creating an Eco-friendly image for printing.
@@ -36,6 +57,19 @@ import java.awt.image.BufferedImage;
  * pixel as top-left corner. This square is colored white (less the border).
  * </p>
  * <p>
+ * Pixels are accessed directly in the backing raster arrays. Input pixels are
+ * copied in parallel horizontal bands, and rows are filtered in a parallel
+ * pipeline: a row is filtered up to the column where the row above is a
+ * filter square width ahead. Since filter squares only reach that far, the
+ * result is identical to filtering the rows sequentially. An instance must
+ * not be used by concurrent threads.
+ * </p>
+ * <p>
+ * The pipeline threads are shared by all instances: rows are claimed top
+ * down, so the row above a claimed row is always being filtered by a running
+ * thread, and a thread waiting for it is parked.
+ * </p>
+ * <p>
  * Since anti-aliasing may be part of the filter border we try to correct things
  * to make sure that sans-serif letters with vertical bars, like "i,l,r", have a
  * sharp contour.
@@ -47,11 +81,11 @@ import java.awt.image.BufferedImage;
 public final class EcoImageFilterSquare extends EcoImageFilterMixin {
 
     /**
-     * Shadow matrix to administer the image pixels that were handled in
-     * filtered squares. When a cell value is {@code true} the image pixel was
-     * processed in a filtered square.
+     * Shadow matrix (row-major) to administer the image pixels that were
+     * handled in filtered squares. When a cell value is {@code true} the image
+     * pixel was processed in a filtered square.
      */
-    private boolean[][] filterSquarePixels;
+    private boolean[] filterSquarePixels;
 
     /**
      * The image width in pixels.
@@ -66,17 +100,12 @@ public final class EcoImageFilterSquare extends EcoImageFilterMixin {
     /**
      * The total number of non-white pixels in the image.
      */
-    private int totPixelsNonWhite;
+    private final LongAdder totPixelsNonWhite = new LongAdder();
 
     /**
      * The total number of eco filtered pixels in the image.
      */
-    private int totPixelsFiltered;
-
-    /**
-     * The number of copy ahead max filter squares to imageOut.
-     */
-    private static final int INITIAL_COPY_AHEAD_MAX_FILTER_SQUARES = 5;
+    private final LongAdder totPixelsFiltered = new LongAdder();
 
     /**
      * No anti-aliasing check.
@@ -112,6 +141,16 @@ public final class EcoImageFilterSquare extends EcoImageFilterMixin {
      */
     private final Parms parms;
 
+    /**
+     * Max number of threads filtering rows in the pipeline.
+     */
+    private final int parallelism;
+
+    /**
+     * Executor of the pipeline threads, next to the calling thread.
+     */
+    private final ExecutorService pipelineExecutor;
+
     /**
      *
      * @author Rijk Ravestein
@@ -244,7 +283,7 @@ public final class EcoImageFilterSquare extends EcoImageFilterMixin {
      *
      */
     public EcoImageFilterSquare() {
-        this.parms = Parms.createDefault();
+        this(Parms.createDefault());
     }
 
     /**
@@ -253,22 +292,331 @@ public final class EcoImageFilterSquare extends EcoImageFilterMixin {
      *            The {@link Parms}.
      */
     public EcoImageFilterSquare(final Parms parms) {
+        this(parms, PipelineExecutorHolder.THREADS,
+                PipelineExecutorHolder.INSTANCE);
+    }
+
+    /**
+     * Package private constructor for unit testing.
+     *
+     * @param parms
+     *            The {@link Parms}.
+     * @param threads
+     *            Max number of threads filtering rows in the pipeline,
+     *            including the calling thread.
+     * @param executor
+     *            Executor of the pipeline threads.
+     */
+    EcoImageFilterSquare(final Parms parms, final int threads,
+            final ExecutorService executor) {
         this.parms = parms;
+        this.parallelism = Math.max(1, threads);
+        this.pipelineExecutor = executor;
+    }
+
+    /**
+     * Input pixels are copied in horizontal bands of at least this number of
+     * rows.
+     */
+    private static final int BAND_ROWS_MIN = 128;
+
+    /**
+     * Filtered columns of a row are published to the pipeline in chunks of
+     * this number of columns (a power of 2).
+     */
+    private static final int PROGRESS_CHUNK = 32;
+
+    /**
+     * A parked thread waits for this number of columns beyond the columns it
+     * needs, so it is not woken for each published chunk.
+     */
+    private static final int WAIT_AHEAD = 8 * PROGRESS_CHUNK;
+
+    /**
+     * The shared pipeline threads. Since {@link Key#ECO_PRINT_PAGE_PARALLELISM}
+     * pages are filtered concurrently, the available processors are divided
+     * by this number (read once).
+     */
+    private static final class PipelineExecutorHolder {
+
+        /** */
+        static final int THREADS = Math.max(1,
+                Runtime.getRuntime().availableProcessors() / Math.max(1,
+                        ConfigManager.instance()
+                                .getConfigInt(Key.ECO_PRINT_PAGE_PARALLELISM)));
+
+        /** */
+        static final ExecutorService INSTANCE =
+                Executors.newFixedThreadPool(THREADS, r -> {
+                    final Thread thread = new Thread(r,
+                            EcoImageFilterSquare.class.getSimpleName());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * RGB value of white in an {@link BufferedImage#TYPE_INT_RGB} raster.
+     */
+    private static final int RASTER_WHITE = RGB_WHITE & 0xFFFFFF;
+
+    /**
+     * RGB value of black in an {@link BufferedImage#TYPE_INT_RGB} raster.
+     */
+    private static final int RASTER_BLACK = RGB_BLACK & 0xFFFFFF;
+
+    /** */
+    private static final int SHIFT_RED = 16;
+
+    /** */
+    private static final int SHIFT_GREEN = 8;
+
+    /** */
+    private static final int MASK_BYTE = 0xFF;
+
+    /**
+     * The input image.
+     */
+    private BufferedImage imageIn;
+
+    /**
+     * The output pixels (RGB, no alpha) in row-major order.
+     */
+    private int[] pixels;
+
+    /**
+     * Number of filtered columns by row.
+     */
+    private AtomicIntegerArray rowProgress;
+
+    /**
+     * Number of columns a parked thread waits for by row, {@code 0} when no
+     * thread waits.
+     */
+    private AtomicIntegerArray rowAwaited;
+
+    /**
+     * The thread waiting for a row, by row.
+     */
+    private AtomicReferenceArray<Thread> rowWaiter;
+
+    /**
+     * The next row to be claimed by a pipeline thread.
+     */
+    private AtomicInteger nextRow;
+
+    /**
+     * {@code true} when a thread in the pipeline failed.
+     */
+    private volatile boolean pipelineAborted;
+
+    /**
+     * Copies a horizontal band of image rows: input pixels are copied (and
+     * optionally converted to grayscale) to the output pixels.
+     */
+    private final class BandTask extends RecursiveAction {
+
+        /** */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * First row (inclusive).
+         */
+        private final int yFirst;
+
+        /**
+         * Last row (exclusive).
+         */
+        private final int yLast;
+
+        /**
+         * @param first
+         *            First row (inclusive).
+         * @param last
+         *            Last row (exclusive).
+         */
+        BandTask(final int first, final int last) {
+            this.yFirst = first;
+            this.yLast = last;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (this.yLast - this.yFirst >= 2 * BAND_ROWS_MIN) {
+                final int yMid = (this.yFirst + this.yLast) >>> 1;
+                invokeAll(new BandTask(this.yFirst, yMid),
+                        new BandTask(yMid, this.yLast));
+                return;
+            }
+
+            copyPixels(this.yFirst, this.yLast);
+        }
+    }
+
+    /**
+     * Filters rows in the pipeline, claiming the next row till all rows are
+     * claimed.
+     */
+    private void filterRowsClaimed() {
+
+        int filtered = 0;
+
+        try {
+            int y;
+            while ((y = this.nextRow.getAndIncrement()) < this.imageHeight) {
+                filtered += this.filterRow(y);
+            }
+        } catch (RuntimeException | Error e) {
+            this.abortPipeline();
+            throw e;
+        }
+        this.totPixelsFiltered.add(filtered);
+    }
+
+    /**
+     * Filters a row. A pixel is processed when the row above is filtered up to
+     * the last column a filter square of the pixel can reach.
+     *
+     * @param y
+     *            The row.
+     * @return The number of filtered pixels.
+     */
+    private int filterRow(final int y) {
+
+        final int width = this.imageWidth;
+        final int lead = this.parms.getFilterSquareWidthMax() + 1;
+
+        int filtered = 0;
+
+        // Number of filtered columns in row above.
+        int ahead;
+
+        if (y == 0) {
+            ahead = width;
+        } else {
+            ahead = 0;
+        }
+
+        for (int x = 0; x < width; x++) {
+
+            final int needed = Math.min(width, x + lead);
+
+            if (ahead < needed) {
+                ahead = this.awaitProgress(y - 1, needed);
+            }
+
+            if (isFilterSquarePixel(x, y)) {
+                filtered += process(x, y);
+            }
+
+            if (((x + 1) & (PROGRESS_CHUNK - 1)) == 0) {
+                this.publishProgress(y, x + 1);
+            }
+        }
+        this.publishProgress(y, width);
+
+        return filtered;
+    }
+
+    /**
+     * Publishes the number of filtered columns of a row, and unparks the
+     * thread waiting for them.
+     *
+     * @param y
+     *            The row.
+     * @param columns
+     *            The number of filtered columns.
+     */
+    private void publishProgress(final int y, final int columns) {
+
+        this.rowProgress.set(y, columns);
+
+        final int awaited = this.rowAwaited.get(y);
+
+        if (awaited > 0 && columns >= awaited) {
+            LockSupport.unpark(this.rowWaiter.get(y));
+        }
+    }
+
+    /**
+     * Waits (parked) till a row is filtered up to a number of columns.
+     *
+     * @param y
+     *            The row.
+     * @param columns
+     *            The number of columns.
+     * @return The number of filtered columns.
+     */
+    private int awaitProgress(final int y, final int columns) {
+
+        int progress = this.rowProgress.get(y);
+
+        if (progress >= columns) {
+            return progress;
+        }
+
+        final int awaited = Math.min(this.imageWidth, columns + WAIT_AHEAD);
+
+        this.rowWaiter.set(y, Thread.currentThread());
+
+        try {
+            while (true) {
+                /*
+                 * Announce before checking progress, so either this thread
+                 * sees the progress, or the publisher sees the announcement.
+                 */
+                this.rowAwaited.set(y, awaited);
+
+                progress = this.rowProgress.get(y);
+
+                if (progress >= columns) {
+                    return progress;
+                }
+                if (this.pipelineAborted) {
+                    throw new SpException("Eco filter pipeline aborted.");
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new SpException("Eco filter pipeline interrupted.");
+                }
+                LockSupport.park(this);
+            }
+        } finally {
+            this.rowAwaited.set(y, 0);
+            this.rowWaiter.set(y, null);
+        }
+    }
+
+    /**
+     * Aborts the pipeline, and unparks all waiting threads.
+     */
+    private void abortPipeline() {
+
+        this.pipelineAborted = true;
+
+        for (int y = 0; y < this.imageHeight; y++) {
+            final Thread waiter = this.rowWaiter.get(y);
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
     }
 
     /**
      * Processes a pixel.
      *
-     * @param image
-     *            The {@link Buffered} to filter.
      * @param x
      *            X-coordinate of pixel.
      * @param y
      *            Y-coordinate of pixel.
-     * @return {@code true} when a filter square was applied.
+     * @return The number of filtered pixels, {@code 0} when no filter square
+     *         was applied.
      */
-    private boolean process(final BufferedImage image, final int x,
-            final int y) {
+    private int process(final int x, final int y) {
+
+        final int width = this.imageWidth;
+        final int height = this.imageHeight;
+        final int[] raster = this.pixels;
 
         int filterSquareWidth = 0;
 
@@ -280,24 +628,24 @@ public final class EcoImageFilterSquare extends EcoImageFilterMixin {
          */
         for (int iX = x, iY = y; search
                 && filterSquareWidth <= this.parms.getFilterSquareWidthMax()
-                && iX < this.imageWidth
-                && iY < this.imageHeight; iX++, iY++, filterSquareWidth++) {
+                && iX < width
+                && iY < height; iX++, iY++, filterSquareWidth++) {
 
             for (int i = 0; search && i <= filterSquareWidth; i++) {
 
-                if (!this.isFilterSquarePixel(image, x + i, iY)
-                        || !this.isFilterSquarePixel(image, iX, y + i)) {
+                if (!this.isFilterSquarePixel(x + i, iY)
+                        || !this.isFilterSquarePixel(iX, y + i)) {
                     filterSquareWidth--;
                     search = false;
                 }
             }
         }
 
-        int filterRightX = x + filterSquareWidth;
-        int filterBottomY = y + filterSquareWidth;
+        final int filterRightX = x + filterSquareWidth;
+        final int filterBottomY = y + filterSquareWidth;
 
         if (filterSquareWidth < this.parms.getFilterSquareWidthMin()) {
-            return false;
+            return 0;
         }
 
         int filterSquareBorder = Double
@@ -309,26 +657,29 @@ public final class EcoImageFilterSquare extends EcoImageFilterMixin {
             filterSquareBorder = this.parms.getFilterSquareBorderWidthMin();
             if (filterSquareWidth
                     - 2 * this.parms.getFilterSquareBorderWidthMin() < 1) {
-                return false;
+                return 0;
             }
         }
 
         final int filterSquareCenter = filterSquareWidth / 2;
 
-        final int filterSquareCenterX = x + filterSquareCenter;
-        final int filterSquareCenterY = y + filterSquareCenter;
+        final int rgbCenter = raster[(y + filterSquareCenter) * width + x
+                + filterSquareCenter];
 
-        final int rgbCenter =
-                image.getRGB(filterSquareCenterX, filterSquareCenterY);
+        int filtered = 0;
 
         for (int iY = y; iY < filterBottomY; iY++) {
 
             final boolean borderHorz = iY < y + filterSquareBorder
                     || iY >= filterBottomY - filterSquareBorder;
 
+            final int rowOffset = iY * width;
+
             for (int iX = x; iX < filterRightX; iX++) {
 
-                this.filterSquarePixels[iX][iY] = true;
+                final int i = rowOffset + iX;
+
+                this.filterSquarePixels[i] = true;
 
                 final boolean borderVert = iX < x + filterSquareBorder
                         || iX >= filterRightX - filterSquareBorder;
@@ -340,12 +691,10 @@ public final class EcoImageFilterSquare extends EcoImageFilterMixin {
                      * letters with vertical bars, like "i,l,r", have a sharp
                      * contour.
                      */
-                    final int rgbBorder = image.getRGB(iX, iY);
-
-                    if (rgbBorder != rgbCenter) {
+                    if (raster[i] != rgbCenter) {
 
                         if (filterSquareBorder == 1) {
-                            image.setRGB(iX, iY, rgbCenter);
+                            raster[i] = rgbCenter;
                         } else if (borderHorz && (iY == y
                                 || iY == y + filterSquareWidth - 1)) {
                             // outermost horizontal border pixels: noop.
@@ -353,50 +702,49 @@ public final class EcoImageFilterSquare extends EcoImageFilterMixin {
                                 || iX == x + filterSquareWidth - 1)) {
                             // outermost vertical border pixels: noop.
                         } else {
-                            image.setRGB(iX, iY, rgbCenter);
+                            raster[i] = rgbCenter;
                         }
                     }
 
                     continue;
                 }
 
-                image.setRGB(iX, iY, RGB_WHITE);
+                raster[i] = RASTER_WHITE;
 
-                this.totPixelsFiltered++;
+                filtered++;
             }
         }
 
-        return true;
+        return filtered;
     }
 
     /**
-     * Checks whether an image pixel is a candidate for a filter square.
+     * Checks whether an output pixel is a candidate for a filter square.
      *
-     * @param image
-     *            The image to check.
      * @param x
      *            X-coordinate of pixel.
      * @param y
      *            Y-coordinate of pixel.
      * @return {@code true} when pixel is a candidate for a filter square.
      */
-    private boolean isFilterSquarePixel(final BufferedImage image, final int x,
-            final int y) {
+    private boolean isFilterSquarePixel(final int x, final int y) {
+
+        final int i = y * this.imageWidth + x;
 
         // Already filtered?
-        if (this.filterSquarePixels[x][y]) {
+        if (this.filterSquarePixels[i]) {
             return false;
-
         }
-        final int rgb = image.getRGB(x, y);
+
+        final int rgb = this.pixels[i];
 
         // Definitely no.
-        if (rgb == RGB_WHITE) {
+        if (rgb == RASTER_WHITE) {
             return false;
         }
 
         // Definitely yes.
-        if (rgb == RGB_BLACK) {
+        if (rgb == RASTER_BLACK) {
             return true;
         }
 
@@ -405,130 +753,231 @@ public final class EcoImageFilterSquare extends EcoImageFilterMixin {
             return true;
         }
 
-        final Color color = new Color(rgb);
-        final int antiAliasingIndex =
-                color.getRed() * color.getGreen() * color.getBlue();
+        final int antiAliasingIndex = ((rgb >> SHIFT_RED) & MASK_BYTE)
+                * ((rgb >> SHIFT_GREEN) & MASK_BYTE) * (rgb & MASK_BYTE);
 
         return antiAliasingIndex <= this.antiAliasingRgbThreshold;
     }
 
     /**
-     * Copies and optionally converts a pixel to grayscale from input to output
-     * image.
+     * Copies and optionally converts rows of pixels to grayscale from input
+     * image to output pixels. Input pixels are read directly from the backing
+     * {@link DataBuffer} for the common {@link BufferedImage#TYPE_INT_RGB},
+     * {@link BufferedImage#TYPE_INT_ARGB} and
+     * {@link BufferedImage#TYPE_3BYTE_BGR} layouts.
      *
-     * @param imageIn
-     *            The input image.
-     * @param imageOut
-     *            The output image.
-     * @param x
-     *            Pixel x-coordinate.
-     * @param y
-     *            Pixel y-coordinate.
+     * @param yFirst
+     *            First row (inclusive).
+     * @param yLast
+     *            Last row (exclusive).
      */
-    private void copyPixel(final BufferedImage imageIn,
-            final BufferedImage imageOut, int x, int y) {
+    private void copyPixels(final int yFirst, final int yLast) {
 
-        Color color;
-        int r;
-        int g;
-        int b;
-        int grayPart;
+        final int width = this.imageWidth;
+        final int[] raster = this.pixels;
 
-        int rgb = imageIn.getRGB(x, y);
+        final WritableRaster rasterIn = this.imageIn.getRaster();
+        final DataBuffer bufferIn = rasterIn.getDataBuffer();
+        final int type = this.imageIn.getType();
 
-        if (rgb != RGB_WHITE) {
-            this.totPixelsNonWhite++;
-        }
+        final boolean isPlainLayout = rasterIn.getParent() == null
+                && rasterIn.getMinX() == 0 && rasterIn.getMinY() == 0
+                && bufferIn.getNumBanks() == 1 && bufferIn.getOffset() == 0;
+
+        if (isPlainLayout && bufferIn instanceof DataBufferInt
+                && (type == BufferedImage.TYPE_INT_RGB
+                        || type == BufferedImage.TYPE_INT_ARGB)) {
 
-        if (this.parms.isConvertToGrayscale()) {
+            final int[] data = ((DataBufferInt) bufferIn).getData();
 
-            color = new Color(rgb);
+            for (int i = yFirst * width; i < yLast * width; i++) {
+                raster[i] = data[i] & 0xFFFFFF;
+            }
 
-            r = color.getRed();
-            g = color.getGreen();
-            b = color.getBlue();
+        } else if (isPlainLayout && bufferIn instanceof DataBufferByte
+                && type == BufferedImage.TYPE_3BYTE_BGR) {
 
-            if (!(r == b && b == g)) {
-                grayPart = (r + g + b) / 3;
-                rgb = new Color(grayPart, grayPart, grayPart).getRGB();
+            final byte[] data = ((DataBufferByte) bufferIn).getData();
+
+            for (int i = yFirst * width, j = i * 3; i < yLast * width; i++) {
+                final int b = data[j++] & MASK_BYTE;
+                final int g = data[j++] & MASK_BYTE;
+                final int r = data[j++] & MASK_BYTE;
+                raster[i] = (r << SHIFT_RED) | (g << SHIFT_GREEN) | b;
+            }
+
+        } else {
+            for (int y = yFirst; y < yLast; y++) {
+                this.imageIn.getRGB(0, y, width, 1, raster, y * width, width);
+            }
+            for (int i = yFirst * width; i < yLast * width; i++) {
+                raster[i] &= 0xFFFFFF;
             }
         }
-        imageOut.setRGB(x, y, rgb);
-    }
 
-    @Override
-    protected void filter(final BufferedImage imageIn,
-            final BufferedImage imageOut) {
+        int nonWhite = 0;
 
-        this.totPixelsNonWhite = 0;
-        this.totPixelsFiltered = 0;
+        final boolean grayscale = this.parms.isConvertToGrayscale();
 
-        this.imageWidth = imageOut.getWidth();
-        this.imageHeight = imageOut.getHeight();
+        for (int i = yFirst * width; i < yLast * width; i++) {
 
-        this.filterSquarePixels =
-                new boolean[this.imageWidth][this.imageHeight];
+            final int rgb = raster[i];
 
-        /*
-         * Copy ahead a couple of max filter squares to imageOut.
-         */
-        int yCopy = 0;
-        int xCopy = 0;
+            if (rgb == RASTER_WHITE) {
+                continue;
+            }
 
-        for (yCopy = 0; yCopy < INITIAL_COPY_AHEAD_MAX_FILTER_SQUARES
-                * this.parms.getFilterSquareWidthMax()
-                && yCopy < this.imageHeight; yCopy++) {
+            nonWhite++;
 
-            for (xCopy = 0; xCopy < this.imageWidth; xCopy++) {
-                copyPixel(imageIn, imageOut, xCopy, yCopy);
+            if (grayscale) {
+                final int r = (rgb >> SHIFT_RED) & MASK_BYTE;
+                final int g = (rgb >> SHIFT_GREEN) & MASK_BYTE;
+                final int b = rgb & MASK_BYTE;
+
+                if (!(r == b && b == g)) {
+                    final int grayPart = (r + g + b) / 3;
+                    raster[i] = (grayPart << SHIFT_RED)
+                            | (grayPart << SHIFT_GREEN) | grayPart;
+                }
             }
         }
+        this.totPixelsNonWhite.add(nonWhite);
+    }
 
-        //
-        for (int y = 0; y < this.imageHeight; y++, yCopy++) {
+    /**
+     * Filters the rows in a pipeline of threads.
+     */
+    private void filterRows() {
 
-            xCopy = 0;
+        final int threads = Math.min(this.parallelism, this.imageHeight);
 
-            int x = 0;
+        if (threads <= 1) {
+            this.filterRowsClaimed();
+            return;
+        }
 
-            while (x < this.imageWidth) {
+        final List<Future<?>> futures = new ArrayList<>();
+        final List<AtomicBoolean> starts = new ArrayList<>();
 
-                /*
-                 * Advance to next filter square pixel and copy ahead on current
-                 * to imageOut ahead-line in one go.
-                 */
-                for (; x < this.imageWidth && !this
-                        .isFilterSquarePixel(imageOut, x, y); x++, xCopy++) {
+        Throwable failure = null;
 
-                    if (xCopy < this.imageWidth && yCopy < this.imageHeight
-                            && !this.filterSquarePixels[xCopy][yCopy]) {
-                        copyPixel(imageIn, imageOut, xCopy, yCopy);
+        try {
+            for (int i = 1; i < threads; i++) {
+                final AtomicBoolean start = new AtomicBoolean();
+                starts.add(start);
+                futures.add(this.pipelineExecutor.submit(() -> {
+                    if (start.compareAndSet(false, true)) {
+                        this.filterRowsClaimed();
                     }
-                }
+                }));
+            }
+            this.filterRowsClaimed();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
 
-                if (x == this.imageWidth) {
-                    continue;
+        /*
+         * All rows are claimed: threads that did not start yet are not
+         * needed. Wait for the others, since they use the image arrays.
+         */
+        for (int i = 0; i < futures.size(); i++) {
+
+            final Future<?> future = futures.get(i);
+
+            if (starts.get(i).compareAndSet(false, true)) {
+                future.cancel(false);
+                continue;
+            }
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                this.abortPipeline();
+                Thread.currentThread().interrupt();
+                throw new SpException(e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
                 }
+            }
+        }
 
-                this.process(imageOut, x, y);
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            throw new SpException(failure);
+        }
+    }
 
-                x++;
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Input pixels are copied in horizontal bands in parallel in the common
+     * {@link ForkJoinPool}, after which rows are filtered in a pipeline.
+     * </p>
+     */
+    @Override
+    protected void filter(final BufferedImage imageIn,
+            final BufferedImage imageOut) {
 
-                /*
-                 * Copy ahead on (rest of) current to imageOut ahead-line.
-                 */
-                if (xCopy < this.imageWidth && yCopy < this.imageHeight
-                        && !this.filterSquarePixels[xCopy][yCopy]) {
-                    copyPixel(imageIn, imageOut, xCopy, yCopy);
-                    xCopy++;
-                }
+        this.totPixelsNonWhite.reset();
+        this.totPixelsFiltered.reset();
+
+        this.imageIn = imageIn;
+        this.imageWidth = imageOut.getWidth();
+        this.imageHeight = imageOut.getHeight();
 
+        final DataBuffer bufferOut = imageOut.getRaster().getDataBuffer();
+
+        final boolean isDirectOut =
+                imageOut.getType() == BufferedImage.TYPE_INT_RGB
+                        && bufferOut instanceof DataBufferInt
+                        && imageOut.getRaster().getParent() == null;
+
+        if (isDirectOut) {
+            this.pixels = ((DataBufferInt) bufferOut).getData();
+        } else {
+            this.pixels = new int[this.imageWidth * this.imageHeight];
+        }
+
+        this.filterSquarePixels =
+                new boolean[this.imageWidth * this.imageHeight];
+        this.rowProgress = new AtomicIntegerArray(this.imageHeight);
+        this.rowAwaited = new AtomicIntegerArray(this.imageHeight);
+        this.rowWaiter = new AtomicReferenceArray<>(this.imageHeight);
+        this.nextRow = new AtomicInteger();
+        this.pipelineAborted = false;
+
+        try {
+            ForkJoinPool.commonPool()
+                    .invoke(new BandTask(0, this.imageHeight));
+
+            this.filterRows();
+
+            if (!isDirectOut) {
+                for (int i = 0; i < this.pixels.length; i++) {
+                    this.pixels[i] |= ~0xFFFFFF;
+                }
+                imageOut.setRGB(0, 0, this.imageWidth, this.imageHeight,
+                        this.pixels, 0, this.imageWidth);
             }
+        } finally {
+            this.imageIn = null;
+            this.pixels = null;
+            this.filterSquarePixels = null;
+            this.rowProgress = null;
+            this.rowAwaited = null;
+            this.rowWaiter = null;
+            this.nextRow = null;
         }
     }
 
     @Override
     public double getFractionFiltered() {
-        return (double) this.totPixelsFiltered / this.totPixelsNonWhite;
+        return (double) this.totPixelsFiltered.sum()
+                / this.totPixelsNonWhite.sum();
     }
 }
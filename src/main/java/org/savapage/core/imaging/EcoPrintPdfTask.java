@@ -32,10 +32,19 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.savapage.core.SpException;
+import org.savapage.core.config.ConfigManager;
+import org.savapage.core.config.IConfigProp.Key;
 import org.savapage.core.doc.ImageToPdf;
 import org.savapage.core.pdf.PdfPageRotateHelper;
 import org.savapage.core.pdf.facade.PdfDocumentAGPL;
@@ -76,7 +85,7 @@ public final class EcoPrintPdfTask
 
     private final EcoPrintPdfTaskInfo taskInfo;
 
-    private boolean stopRequest = false;
+    private volatile boolean stopRequest = false;
 
     /**
      *
@@ -158,7 +167,158 @@ public final class EcoPrintPdfTask
     }
 
     /**
-     * .
+     * The rendered and filtered image of a PDF page.
+     */
+    private static final class PageImage {
+
+        /** */
+        private final com.itextpdf.text.Image image;
+
+        /** */
+        private final double fractionFiltered;
+
+        /**
+         * @param img
+         *            The filtered page image.
+         * @param fraction
+         *            The fraction of filtered pixels.
+         */
+        PageImage(final com.itextpdf.text.Image img, final double fraction) {
+            this.image = img;
+            this.fractionFiltered = fraction;
+        }
+    }
+
+    /**
+     * Renders a PDF page to a JPEG image and applies the Eco filter. A fresh
+     * {@link EcoImageFilter} is used for each page, so pages can be processed
+     * concurrently.
+     */
+    private final class PageImageTask implements Callable<PageImage> {
+
+        /**
+         * Zero-based page ordinal.
+         */
+        private final int pageOrdinal;
+
+        /** */
+        private final int numberOfPages;
+
+        /** */
+        private final boolean pageLandscape;
+
+        /** */
+        private final int pageRotation;
+
+        /**
+         * @param ordinal
+         *            Zero-based page ordinal.
+         * @param nPages
+         *            Number of pages in the PDF.
+         * @param landscape
+         *            {@code true} when landscape page.
+         * @param rotation
+         *            The page rotation.
+         */
+        PageImageTask(final int ordinal, final int nPages,
+                final boolean landscape, final int rotation) {
+            this.pageOrdinal = ordinal;
+            this.numberOfPages = nPages;
+            this.pageLandscape = landscape;
+            this.pageRotation = rotation;
+        }
+
+        @Override
+        public PageImage call() throws Exception {
+
+            checkExecutorTerminating();
+
+            final File imageOut = new File(String.format("%s/%s.jpg",
+                    taskInfo.getPathTmpDir().toString(),
+                    UUID.randomUUID().toString()));
+
+            try {
+                final Pdf2ImgCommand cmd =
+                        new Pdf2ImgCairoCmd(Pdf2ImgCairoCmd.ImgType.JPEG);
+
+                final Pdf2ImgCommand.CreateParms parms =
+                        new Pdf2ImgCommand.CreateParms();
+
+                parms.setImgFile(imageOut);
+                parms.setLandscape(this.pageLandscape);
+                parms.setNumberOfPages(this.numberOfPages);
+                parms.setPageOrdinal(this.pageOrdinal);
+                parms.setPdfFile(taskInfo.getPdfIn());
+                parms.setResolution(taskInfo.getResolution());
+                parms.setRotate(0);
+                parms.setRotation(this.pageRotation);
+
+                final String command = cmd.createCommand(parms);
+
+                final ICommandExecutor exec =
+                        CommandExecutor.createSimple(command);
+
+                if (exec.executeCommand() != 0) {
+
+                    final StringBuilder msg = new StringBuilder();
+                    msg.append("image [").append(imageOut.getAbsolutePath())
+                            .append("] could not be created. Command [")
+                            .append(command).append("] Error [")
+                            .append(exec.getStandardError()).append("]");
+
+                    throw new SpException(msg.toString());
+                }
+
+                checkExecutorTerminating();
+
+                final EcoImageFilter filter = new EcoImageFilterSquare();
+
+                final com.itextpdf.text.Image image = com.itextpdf.text.Image
+                        .getInstance(createFilteredImage(filter, imageOut),
+                                Color.WHITE);
+
+                return new PageImage(image, filter.getFractionFiltered());
+
+            } finally {
+                imageOut.delete();
+            }
+        }
+    }
+
+    /**
+     * Waits for the {@link PageImage} of a {@link PageImageTask}.
+     *
+     * @param future
+     *            The future of the task.
+     * @return The page image.
+     * @throws IOException
+     *             When IO error.
+     * @throws InterruptedException
+     *             When interrupted or stopped.
+     */
+    private static PageImage getPageImage(final Future<PageImage> future)
+            throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof SpException) {
+                throw (SpException) cause;
+            }
+            throw new SpException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Creates the Eco PDF. Pages are rendered and filtered by a pool of
+     * {@link Key#ECO_PRINT_PAGE_PARALLELISM} threads, with a
+     * bounded look-ahead, and added to the target document in page order.
      */
     private void createEcoPdf() {
 
@@ -166,8 +326,6 @@ public final class EcoPrintPdfTask
 
         final long startTime = System.currentTimeMillis();
 
-        final EcoImageFilter filter = new EcoImageFilterSquare();
-
         final Path pathPdfOutTemp = FileSystems.getDefault().getPath(pathTmpDir,
                 String.format("%s.pdf.eco", UUID.randomUUID().toString()));
 
@@ -177,7 +335,13 @@ public final class EcoPrintPdfTask
          */
         final Document targetDocument = new Document();
 
-        File imageOut = null;
+        final int parallelism = Math.max(1, ConfigManager.instance()
+                .getConfigInt(Key.ECO_PRINT_PAGE_PARALLELISM));
+
+        final ExecutorService pageExecutor =
+                Executors.newFixedThreadPool(parallelism);
+
+        final Deque<Future<PageImage>> pageFutures = new ArrayDeque<>();
 
         boolean finished = false;
 
@@ -207,12 +371,29 @@ public final class EcoPrintPdfTask
             final PdfDocumentAGPL documentFacade =
                     new PdfDocumentAGPL(targetDocument);
 
+            int iSubmit = 0;
+
             for (int i = 0; i < nPagesMax; i++) {
 
                 final int nPage = i + 1;
 
                 this.checkExecutorTerminating();
 
+                /*
+                 * Keep the pool busy with a bounded number of pages ahead.
+                 */
+                for (; iSubmit < nPagesMax
+                        && iSubmit <= i + parallelism; iSubmit++) {
+
+                    final int nPageSubmit = iSubmit + 1;
+
+                    pageFutures.addLast(pageExecutor.submit(new PageImageTask(
+                            iSubmit, nPagesMax,
+                            PdfPageRotateHelper.isLandscapePage(
+                                    readerWlk.getPageSize(nPageSubmit)),
+                            readerWlk.getPageRotation(nPageSubmit))));
+                }
+
                 final Rectangle pageSize = readerWlk.getPageSize(nPage);
                 final int pageRotation = readerWlk.getPageRotation(nPage);
 
@@ -222,6 +403,11 @@ public final class EcoPrintPdfTask
                 final boolean seenAsLandscape = PdfPageRotateHelper
                         .isSeenAsLandscape(pageLandscape, pageRotation);
 
+                final PageImage pageImage =
+                        getPageImage(pageFutures.removeFirst());
+
+                this.checkExecutorTerminating();
+
                 /*
                  * Set page size and margins first.
                  */
@@ -239,56 +425,11 @@ public final class EcoPrintPdfTask
 
                 targetDocument.setMargins(0, 0, 0, 0);
 
-                imageOut = new File(String.format("%s/%s.jpg", pathTmpDir,
-                        UUID.randomUUID().toString()));
-
-                final Pdf2ImgCommand cmd =
-                        new Pdf2ImgCairoCmd(Pdf2ImgCairoCmd.ImgType.JPEG);
-
-                final Pdf2ImgCommand.CreateParms parms =
-                        new Pdf2ImgCommand.CreateParms();
-
-                parms.setImgFile(imageOut);
-                parms.setLandscape(pageLandscape);
-                parms.setNumberOfPages(nPagesMax);
-                parms.setPageOrdinal(i);
-                parms.setPdfFile(taskInfo.getPdfIn());
-                parms.setResolution(taskInfo.getResolution());
-                parms.setRotate(0);
-                parms.setRotation(pageRotation);
-
-                final String command = cmd.createCommand(parms);
-
-                final ICommandExecutor exec =
-                        CommandExecutor.createSimple(command);
-
-                if (exec.executeCommand() != 0) {
-
-                    final StringBuilder msg = new StringBuilder();
-                    msg.append("image [").append(imageOut.getAbsolutePath())
-                            .append("] could not be created. Command [")
-                            .append(command).append("] Error [")
-                            .append(exec.getStandardError()).append("]");
-
-                    throw new SpException(msg.toString());
-                }
-
-                this.checkExecutorTerminating();
-
-                final com.itextpdf.text.Image image = com.itextpdf.text.Image
-                        .getInstance(createFilteredImage(filter, imageOut),
-                                Color.WHITE);
-
-                this.checkExecutorTerminating();
-
                 ImageToPdf.addImagePage(documentFacade,
-                        documentFacade.create(image));
+                        documentFacade.create(pageImage.image));
 
                 nPagesTot++;
-                fractionFilteredTot += filter.getFractionFiltered();
-
-                imageOut.delete();
-                imageOut = null;
+                fractionFilteredTot += pageImage.fractionFiltered;
             }
 
             targetDocument.close();
@@ -323,9 +464,10 @@ public final class EcoPrintPdfTask
                 this.taskInfo.getPdfOut().delete();
             }
 
-            if (imageOut != null) {
-                imageOut.delete();
+            for (final Future<PageImage> future : pageFutures) {
+                future.cancel(true);
             }
+            pageExecutor.shutdownNow();
         }
 
         if (LOGGER.isInfoEnabled()) {
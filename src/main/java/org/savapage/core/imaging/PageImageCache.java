@@ -0,0 +1,396 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.imaging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.savapage.core.config.ConfigManager;
+import org.savapage.core.config.IConfigProp.Key;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A disk plus memory LRU cache of PDF page images, keyed by document file,
+ * page, resolution and rotation.
+ * <p>
+ * Cached images are copied to the requester, since the requester releases
+ * (deletes) the image file it is given. Disk entries live in the application
+ * temp directory, which is removed at application start.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class PageImageCache {
+
+    /** */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(PageImageCache.class);
+
+    /**
+     * Cache directory name in the application temp directory.
+     */
+    private static final String CACHE_DIR_NAME = "page-image-cache";
+
+    /** */
+    private static final long BYTES_IN_KB = 1024L;
+
+    /** */
+    private static final long BYTES_IN_MB = BYTES_IN_KB * BYTES_IN_KB;
+
+    /**
+     * Cache file sizes by key, in access order.
+     */
+    private final LinkedHashMap<String, Long> diskEntries =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Image bytes by key, in access order.
+     */
+    private final LinkedHashMap<String, byte[]> memoryEntries =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /** */
+    private long diskBytes;
+
+    /** */
+    private long memoryBytes;
+
+    /** */
+    private final LongAdder hits = new LongAdder();
+
+    /** */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     *
+     */
+    private PageImageCache() {
+    }
+
+    /**
+     * The SingletonHolder is loaded on the first execution of
+     * {@link PageImageCache#instance()} or the first access to
+     * {@link SingletonHolder#INSTANCE}, not before.
+     */
+    private static class SingletonHolder {
+        /**
+         * The singleton.
+         */
+        public static final PageImageCache INSTANCE = new PageImageCache();
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return The singleton.
+     */
+    public static PageImageCache instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * @return Max bytes on disk, {@code 0} when cache is disabled.
+     */
+    private static long getMaxDiskBytes() {
+        return ConfigManager.instance()
+                .getConfigLong(Key.SYS_PAGE_IMAGE_CACHE_MAX_MB) * BYTES_IN_MB;
+    }
+
+    /**
+     * @return Max bytes in memory.
+     */
+    private static long getMaxMemoryBytes() {
+        return ConfigManager.instance().getConfigLong(
+                Key.SYS_PAGE_IMAGE_CACHE_MEMORY_MAX_KB) * BYTES_IN_KB;
+    }
+
+    /**
+     * @return Number of subsequent pages rendered in one call on a miss.
+     */
+    public int getRangePages() {
+        return Math.max(1, ConfigManager.instance()
+                .getConfigInt(Key.SYS_PAGE_IMAGE_CACHE_RANGE_PAGES));
+    }
+
+    /**
+     * @return {@code true} if cache is enabled.
+     */
+    public boolean isEnabled() {
+        return getMaxDiskBytes() > 0;
+    }
+
+    /**
+     * @return The cache directory.
+     */
+    public File getDirectory() {
+        return new File(ConfigManager.getAppTmpDir(), CACHE_DIR_NAME);
+    }
+
+    /**
+     * Creates a cache key. The last modified time and size of the document
+     * file are part of the key, so a changed document is not served from
+     * cache.
+     *
+     * @param docFile
+     *            The PDF document file.
+     * @param page
+     *            The zero-based ordinal page number in the document.
+     * @param resolution
+     *            The resolution (density) in DPI.
+     * @param rotate
+     *            The rotation applied to the image.
+     * @return The key.
+     */
+    public static String createKey(final File docFile, final int page,
+            final int resolution, final int rotate) {
+        return DigestUtils.sha1Hex(String.format("%s|%d|%d|%d|%d|%d",
+                docFile.getAbsolutePath(), docFile.lastModified(),
+                docFile.length(), page, resolution, rotate));
+    }
+
+    /**
+     * Copies a cached image to a target file.
+     *
+     * @param key
+     *            The cache key.
+     * @param target
+     *            The target file.
+     * @return {@code true} when cache hit and image copied, {@code false}
+     *         when cache miss.
+     * @throws IOException
+     *             When IO error.
+     */
+    public boolean copyTo(final String key, final File target)
+            throws IOException {
+
+        final byte[] bytes;
+        final File file;
+
+        synchronized (this) {
+            bytes = this.memoryEntries.get(key);
+            if (this.diskEntries.get(key) == null) {
+                file = null;
+            } else {
+                file = new File(this.getDirectory(), key);
+            }
+        }
+
+        if (bytes != null) {
+            Files.write(target.toPath(), bytes);
+            this.hits.increment();
+            return true;
+        }
+
+        if (file != null) {
+            try {
+                Files.copy(file.toPath(), target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+                this.hits.increment();
+                return true;
+            } catch (IOException e) {
+                // Evicted meanwhile.
+                LOGGER.debug("{}: {}", file.getName(), e.getMessage());
+            }
+        }
+
+        this.misses.increment();
+        return false;
+    }
+
+    /**
+     * @param key
+     *            The cache key.
+     * @return {@code true} if key is cached.
+     */
+    public synchronized boolean contains(final String key) {
+        return this.diskEntries.containsKey(key);
+    }
+
+    /**
+     * Puts an image in the cache by moving the image file into the cache
+     * directory.
+     *
+     * @param key
+     *            The cache key.
+     * @param imgFile
+     *            The image file, which is moved to the cache.
+     * @throws IOException
+     *             When IO error.
+     */
+    public void putMove(final String key, final File imgFile)
+            throws IOException {
+        this.put(key, imgFile, true);
+    }
+
+    /**
+     * Puts a copy of an image in the cache.
+     *
+     * @param key
+     *            The cache key.
+     * @param imgFile
+     *            The image file, which is copied to the cache.
+     * @throws IOException
+     *             When IO error.
+     */
+    public void putCopy(final String key, final File imgFile)
+            throws IOException {
+        this.put(key, imgFile, false);
+    }
+
+    /**
+     * Puts an image in the cache.
+     *
+     * @param key
+     *            The cache key.
+     * @param imgFile
+     *            The image file.
+     * @param move
+     *            If {@code true}, the image file is moved to the cache.
+     * @throws IOException
+     *             When IO error.
+     */
+    private void put(final String key, final File imgFile, final boolean move)
+            throws IOException {
+
+        final File dir = this.getDirectory();
+        Files.createDirectories(dir.toPath());
+
+        final File cacheFile = new File(dir, key);
+
+        /*
+         * Write to a unique temp file and atomically move, so concurrent
+         * readers never see a partial image.
+         */
+        final File tempFile = File.createTempFile("_put_", null, dir);
+
+        if (move) {
+            Files.move(imgFile.toPath(), tempFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.copy(imgFile.toPath(), tempFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        Files.move(tempFile.toPath(), cacheFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        final long size = cacheFile.length();
+        final long maxMemoryBytes = getMaxMemoryBytes();
+
+        final byte[] bytes;
+
+        if (size <= maxMemoryBytes / 2) {
+            bytes = Files.readAllBytes(cacheFile.toPath());
+        } else {
+            bytes = null;
+        }
+
+        synchronized (this) {
+
+            final Long prevSize = this.diskEntries.put(key, Long.valueOf(size));
+            if (prevSize != null) {
+                this.diskBytes -= prevSize.longValue();
+            }
+            this.diskBytes += size;
+
+            if (bytes != null) {
+                final byte[] prev = this.memoryEntries.put(key, bytes);
+                if (prev != null) {
+                    this.memoryBytes -= prev.length;
+                }
+                this.memoryBytes += bytes.length;
+            }
+            this.evict(getMaxDiskBytes(), maxMemoryBytes);
+        }
+    }
+
+    /**
+     * Evicts least recently used entries till cache sizes are within
+     * limits.
+     *
+     * @param maxDiskBytes
+     *            Max bytes on disk.
+     * @param maxMemoryBytes
+     *            Max bytes in memory.
+     */
+    private void evict(final long maxDiskBytes, final long maxMemoryBytes) {
+
+        final Iterator<Map.Entry<String, byte[]>> iterMemory =
+                this.memoryEntries.entrySet().iterator();
+
+        while (this.memoryBytes > maxMemoryBytes && iterMemory.hasNext()) {
+            this.memoryBytes -= iterMemory.next().getValue().length;
+            iterMemory.remove();
+        }
+
+        final Iterator<Map.Entry<String, Long>> iterDisk =
+                this.diskEntries.entrySet().iterator();
+
+        final File dir = this.getDirectory();
+
+        while (this.diskBytes > maxDiskBytes && iterDisk.hasNext()) {
+
+            final Map.Entry<String, Long> entry = iterDisk.next();
+            final File file = new File(dir, entry.getKey());
+
+            this.diskBytes -= entry.getValue().longValue();
+
+            final byte[] bytes = this.memoryEntries.remove(entry.getKey());
+            if (bytes != null) {
+                this.memoryBytes -= bytes.length;
+            }
+
+            if (!file.delete()) {
+                LOGGER.debug("{} could not be deleted.", file.getName());
+            }
+            iterDisk.remove();
+        }
+    }
+
+    /**
+     * @return Number of cache hits since start.
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return Number of cache misses since start.
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+}
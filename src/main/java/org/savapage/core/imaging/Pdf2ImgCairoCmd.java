@@ -240,4 +240,51 @@ public final class Pdf2ImgCairoCmd implements Pdf2ImgCommand, ICommandStrategy {
         return command;
     }
 
+    /**
+     * Creates an OS command for creating images of a range of pages in a PDF
+     * document, without rotation. The images are produced as files named by
+     * {@link #getRangeImageFile(String, int, int)}.
+     *
+     * @param pdfFile
+     *            The PDF source {@link File}.
+     * @param firstPage
+     *            The zero-based ordinal first page number.
+     * @param lastPage
+     *            The zero-based ordinal last page number.
+     * @param resolution
+     *            The resolution (density) in DPI.
+     * @param imageFileOutTemplate
+     *            The path template of the produced image files.
+     * @return The OS command string.
+     */
+    public String createRangeCommand(final File pdfFile, final int firstPage,
+            final int lastPage, final int resolution,
+            final String imageFileOutTemplate) {
+
+        return String.format("%s %s -r %d -f %d -l %d \"%s\" \"%s\"",
+                SystemInfo.Command.PDFTOCAIRO.cmd(), this.imgType.getCmdOpt(),
+                resolution, firstPage + 1, lastPage + 1,
+                pdfFile.getAbsolutePath(), imageFileOutTemplate);
+    }
+
+    /**
+     * Gets the image file of a page produced by
+     * {@link #createRangeCommand(File, int, int, int, String)}.
+     *
+     * @param imageFileOutTemplate
+     *            The path template of the produced image files.
+     * @param numberOfPages
+     *            Number of pages of PDF file.
+     * @param page
+     *            The zero-based ordinal page number.
+     * @return The image file.
+     */
+    public File getRangeImageFile(final String imageFileOutTemplate,
+            final int numberOfPages, final int page) {
+        return new File(String.format("%s-%s.%s", imageFileOutTemplate,
+                StringUtils.leftPad(String.valueOf(page + 1),
+                        String.valueOf(numberOfPages).length(), '0'),
+                this.imgType.getFileExt()));
+    }
+
 }
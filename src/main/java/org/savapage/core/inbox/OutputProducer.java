@@ -26,8 +26,10 @@ package org.savapage.core.inbox;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Date;
 import java.util.LinkedHashMap;
+import java.util.UUID;
 
 import org.savapage.core.LetterheadNotFoundException;
 import org.savapage.core.PostScriptDrmException;
@@ -39,12 +41,14 @@ import org.savapage.core.doc.DocContent;
 import org.savapage.core.imaging.EcoPrintPdfTask;
 import org.savapage.core.imaging.EcoPrintPdfTaskPendingException;
 import org.savapage.core.imaging.ImageUrl;
+import org.savapage.core.imaging.PageImageCache;
 import org.savapage.core.imaging.Pdf2ImgCairoCmd;
 import org.savapage.core.imaging.Pdf2ImgCairoCmd.ImgType;
 import org.savapage.core.imaging.Pdf2ImgCommand;
 import org.savapage.core.jpa.DocLog;
 import org.savapage.core.jpa.User;
 import org.savapage.core.pdf.AbstractPdfCreator;
+import org.savapage.core.pdf.PdfPageRotateHelper;
 import org.savapage.core.pdf.PdfCreateInfo;
 import org.savapage.core.pdf.PdfCreateRequest;
 import org.savapage.core.services.DocLogService;
@@ -81,9 +85,12 @@ public final class OutputProducer {
             ServiceContext.getServiceFactory().getDocLogService();
 
     /** Mantis #1079. */
-    private final Pdf2ImgCommand pdf2CairoCommand =
+    private final Pdf2ImgCairoCmd pdf2CairoCommand =
             new Pdf2ImgCairoCmd(ImgType.PNG);
 
+    /** */
+    private final PageImageCache pageImageCache = PageImageCache.instance();
+
     /**
      *
      */
@@ -257,8 +264,6 @@ public final class OutputProducer {
 
         final File imgFile = new File(imgFileBuilder.toString());
 
-        final String command;
-
         final int pdf2CairoResolution;
         if (thumbnail) {
             pdf2CairoResolution = Pdf2ImgCairoCmd.RESOLUTION_FOR_THUMNAIL;
@@ -266,9 +271,39 @@ public final class OutputProducer {
             pdf2CairoResolution = Pdf2ImgCairoCmd.RESOLUTION_FOR_BROWSER;
         }
 
-        command = pdf2CairoCommand.createCommand(Pdf2ImgCommand.CreateParms
-                .create(srcFile, imgFile, pageImageInfo,
-                        Integer.parseInt(pageInJobFile), pdf2CairoResolution));
+        final int pageOrdinal = Integer.parseInt(pageInJobFile);
+
+        final String cacheKey;
+
+        if (this.pageImageCache.isEnabled()) {
+
+            cacheKey = PageImageCache.createKey(srcFile, pageOrdinal,
+                    pdf2CairoResolution, pageImageInfo.getRotate());
+
+            try {
+                if (this.pageImageCache.copyTo(cacheKey, imgFile)) {
+                    return imgFile;
+                }
+                /*
+                 * Render a range of subsequent thumbnails in one call, since
+                 * these are typically requested next.
+                 */
+                if (thumbnail && this.renderPageRangeToCache(srcFile,
+                        pageImageInfo, pageOrdinal, pdf2CairoResolution)
+                        && this.pageImageCache.copyTo(cacheKey, imgFile)) {
+                    return imgFile;
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Page image cache: {}", e.getMessage());
+            }
+        } else {
+            cacheKey = null;
+        }
+
+        final String command =
+                pdf2CairoCommand.createCommand(Pdf2ImgCommand.CreateParms
+                        .create(srcFile, imgFile, pageImageInfo, pageOrdinal,
+                                pdf2CairoResolution));
 
         LOGGER.trace(command);
 
@@ -285,9 +320,107 @@ public final class OutputProducer {
             throw new InboxPageNotFoundException(e.getMessage());
         }
 
+        if (cacheKey != null) {
+            try {
+                this.pageImageCache.putCopy(cacheKey, imgFile);
+            } catch (IOException e) {
+                LOGGER.warn("Page image cache: {}", e.getMessage());
+            }
+        }
+
         return imgFile;
     }
 
+    /**
+     * Renders a range of page images, starting at a page, in one
+     * {@link Pdf2ImgCairoCmd} call, and puts them in the
+     * {@link PageImageCache}. Rotated pages are not rendered as range.
+     *
+     * @param srcFile
+     *            The PDF document file.
+     * @param pageImageInfo
+     *            The page image info of the document.
+     * @param firstPage
+     *            The zero-based ordinal page number of the first page.
+     * @param resolution
+     *            The resolution (density) in DPI.
+     * @return {@code true} when range is rendered and cached.
+     * @throws IOException
+     *             When IO error.
+     */
+    private boolean renderPageRangeToCache(final File srcFile,
+            final InboxPageImageInfo pageImageInfo, final int firstPage,
+            final int resolution) throws IOException {
+
+        final int rotate = pageImageInfo.getRotate();
+
+        if (rotate != PdfPageRotateHelper.PDF_ROTATION_0.intValue()) {
+            return false;
+        }
+
+        final int numberOfPages = pageImageInfo.getNumberOfPages();
+
+        /*
+         * Stop the range at the first page that is already cached.
+         */
+        int lastPage = firstPage;
+
+        while (lastPage + 1 < numberOfPages
+                && lastPage + 1 < firstPage
+                        + this.pageImageCache.getRangePages()
+                && !this.pageImageCache.contains(PageImageCache.createKey(
+                        srcFile, lastPage + 1, resolution, rotate))) {
+            lastPage++;
+        }
+
+        if (lastPage == firstPage) {
+            return false;
+        }
+
+        final File dir = this.pageImageCache.getDirectory();
+        Files.createDirectories(dir.toPath());
+
+        final String template = new File(dir,
+                String.format("_range_%s", UUID.randomUUID().toString()))
+                        .getAbsolutePath();
+
+        final String command = pdf2CairoCommand.createRangeCommand(srcFile,
+                firstPage, lastPage, resolution, template);
+
+        LOGGER.trace(command);
+
+        final ICommandExecutor exec = CommandExecutor.createSimple(command);
+
+        boolean rendered;
+
+        try {
+            rendered = exec.executeCommand() == 0;
+            if (!rendered) {
+                LOGGER.warn("{}: {}", command, exec.getStandardError());
+            }
+        } catch (Exception e) {
+            LOGGER.warn("{}: {}", command, e.getMessage());
+            rendered = false;
+        }
+
+        for (int page = firstPage; page <= lastPage; page++) {
+
+            final File pageFile = pdf2CairoCommand.getRangeImageFile(template,
+                    numberOfPages, page);
+
+            if (!pageFile.exists()) {
+                continue;
+            }
+            if (rendered) {
+                this.pageImageCache.putMove(PageImageCache.createKey(srcFile,
+                        page, resolution, rotate), pageFile);
+            } else {
+                pageFile.delete();
+            }
+        }
+        return rendered;
+    }
+
     /**
      * Releases (deletes) the PDF file.
      *
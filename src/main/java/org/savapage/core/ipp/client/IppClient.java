@@ -24,10 +24,9 @@
  */
 package org.savapage.core.ipp.client;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -40,8 +39,10 @@ import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
@@ -51,7 +52,6 @@ import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
@@ -68,6 +68,12 @@ import org.savapage.core.ipp.IppResponseHeader;
 import org.savapage.core.ipp.IppSyntaxException;
 import org.savapage.core.ipp.IppVersionEnum;
 import org.savapage.core.ipp.attribute.IppAttrGroup;
+import org.savapage.core.ipp.attribute.IppAttrValue;
+import org.savapage.core.ipp.attribute.IppDictJobDescAttr;
+import org.savapage.core.ipp.attribute.IppDictJobTemplateAttr;
+import org.savapage.core.ipp.attribute.IppDictOperationAttr;
+import org.savapage.core.ipp.attribute.IppDictPrinterDescAttr;
+import org.savapage.core.ipp.encoding.IppAttrFilter;
 import org.savapage.core.ipp.encoding.IppContentParser;
 import org.savapage.core.ipp.encoding.IppDelimiterTag;
 import org.savapage.core.ipp.encoding.IppEncoder;
@@ -156,8 +162,15 @@ public final class IppClient {
     /** */
     private static final IppVersionEnum IPP_VERSION = IppVersionEnum.V_1_1;
 
-    /** */
-    private int requestIdWlk = 0;
+    /**
+     * Buffer size for reading the IPP response stream.
+     */
+    private static final int RESPONSE_BUFFER_SIZE = 8192;
+
+    /**
+     * Request ID walker: requests can be sent concurrently.
+     */
+    private final AtomicInteger requestIdWlk = new AtomicInteger();
 
     /** */
     private static final String TRACE_SEP = "+---------------------------"
@@ -226,8 +239,8 @@ public final class IppClient {
          *
          * TODO: make a better solution (persistent requestId).
          */
-        this.requestIdWlk = Integer.valueOf(
-                new SimpleDateFormat("HHmmss'000'").format(new Date()), 10);
+        this.requestIdWlk.set(Integer.valueOf(
+                new SimpleDateFormat("HHmmss'000'").format(new Date()), 10));
 
         this.connManager = new PoolingHttpClientConnectionManager();
 
@@ -295,6 +308,58 @@ public final class IppClient {
         IOHelper.closeQuietly(this.connManager);
     }
 
+    /**
+     * Creates the {@link IppAttrFilter} for the response of a request, so that
+     * Job and Printer attributes that were not requested are skipped while
+     * reading the response.
+     *
+     * @param request
+     *            The IPP request.
+     * @return {@code null} when all attributes must be decoded, i.e. when
+     *         "requested-attributes" is absent, or holds a keyword that is
+     *         not an attribute, like "all" or a group name.
+     */
+    private static IppAttrFilter
+            createAttrFilter(final List<IppAttrGroup> request) {
+
+        IppAttrValue requested = null;
+
+        for (final IppAttrGroup group : request) {
+            if (group.getDelimiterTag() == IppDelimiterTag.OPERATION_ATTR) {
+                requested = group.getAttrValue(
+                        IppDictOperationAttr.ATTR_REQUESTED_ATTRIBUTES);
+                break;
+            }
+        }
+
+        if (requested == null || requested.getValues().isEmpty()) {
+            return null;
+        }
+
+        final Set<String> keywords = new HashSet<>();
+
+        for (final String keyword : requested.getValues()) {
+            if (IppDictJobDescAttr.instance().getAttr(keyword) == null
+                    && IppDictJobTemplateAttr.instance()
+                            .getAttr(keyword) == null
+                    && IppDictPrinterDescAttr.instance()
+                            .getAttr(keyword) == null) {
+                return null;
+            }
+            keywords.add(keyword);
+        }
+
+        return new IppAttrFilter() {
+            @Override
+            public boolean accept(final IppDelimiterTag group,
+                    final String keyword) {
+                return (group != IppDelimiterTag.JOB_ATTR
+                        && group != IppDelimiterTag.PRINTER_ATTR)
+                        || keywords.contains(keyword);
+            }
+        };
+    }
+
     /**
      * Sends a IPP request using {@link org.apache.http.client.HttpClient}.
      * <p>
@@ -331,46 +396,24 @@ public final class IppClient {
             final List<IppAttrGroup> response)
             throws InterruptedException, CircuitBreakerException {
 
-        ByteArrayOutputStream ostr = null;
-        InputStreamList istr = null;
-        URI uriIppServer = null;
+        final ByteArrayOutputStream ostr;
+        final URI uriIppServer;
 
         try {
             uriIppServer = urlServer.toURI();
             /*
-             * Prepare the input stream.
+             * Encode the IPP header: the (optional) file is streamed by the
+             * entity itself.
              */
             ostr = new ByteArrayOutputStream(1024);
             write(ostr, operationId, request);
 
-            final List<InputStream> istrList = new ArrayList<>();
-
-            istrList.add(new ByteArrayInputStream(ostr.toByteArray()));
-
-            if (file != null) {
-                istrList.add(new FileInputStream(file));
-            }
-
-            istr = new InputStreamList(istrList);
-
         } catch (IOException | URISyntaxException e) {
             throw new SpException(e);
         }
 
-        /*
-         *
-         */
-        final ContentType contentType =
-                ContentType.create(IppOperationContext.CONTENT_TYPE_IPP);
-
-        long length = ostr.size();
-
-        if (file != null) {
-            length += file.length();
-        }
-
-        final HttpEntity entity =
-                new InputStreamEntity(istr, length, contentType);
+        final HttpEntity entity = new IppRequestEntity(ostr.toByteArray(),
+                file, ContentType.create(IppOperationContext.CONTENT_TYPE_IPP));
 
         /*
          *
@@ -388,23 +431,41 @@ public final class IppClient {
         httppost.setEntity(entity);
 
         /*
-         * Custom handler.
+         * Custom handler: parse the IPP response straight from the content
+         * stream, without buffering it as byte array first, and skip the
+         * attributes that were not requested.
          */
-        final ResponseHandler<byte[]> handler = new ResponseHandler<byte[]>() {
+        final IppAttrFilter attrFilter = createAttrFilter(request);
 
-            @Override
-            public byte[] handleResponse(final HttpResponse response)
-                    throws ClientProtocolException, IOException {
+        final ResponseHandler<IppResponseParser> handler =
+                new ResponseHandler<IppResponseParser>() {
 
-                final HttpEntity entity = response.getEntity();
+                    @Override
+                    public IppResponseParser handleResponse(
+                            final HttpResponse response)
+                            throws ClientProtocolException, IOException {
 
-                if (entity != null) {
-                    return EntityUtils.toByteArray(entity);
-                } else {
-                    return null;
-                }
-            }
-        };
+                        final HttpEntity entity = response.getEntity();
+
+                        if (entity == null) {
+                            throw new ClientProtocolException(
+                                    "No IPP response content.");
+                        }
+
+                        final IppResponseParser ippParser =
+                                new IppResponseParser();
+
+                        ippParser.setAttrFilter(attrFilter);
+
+                        try (InputStream istr = new BufferedInputStream(
+                                entity.getContent(), RESPONSE_BUFFER_SIZE)) {
+                            ippParser.parse(istr);
+                        } finally {
+                            EntityUtils.consume(entity);
+                        }
+                        return ippParser;
+                    }
+                };
 
         final CircuitBreaker circuitBreaker;
 
@@ -450,7 +511,7 @@ public final class IppClient {
      */
     private IppStatusCode execute(final CircuitBreaker circuitBreaker,
             final HttpPost httppost, final List<IppAttrGroup> response,
-            final ResponseHandler<byte[]> handler)
+            final ResponseHandler<IppResponseParser> handler)
             throws InterruptedException, CircuitBreakerException {
 
         Exception deferredException = null;
@@ -458,13 +519,9 @@ public final class IppClient {
 
         try {
 
-            final byte[] responseBytes =
+            final IppResponseParser ippParser =
                     httpclientApache.execute(httppost, handler);
 
-            final IppResponseParser ippParser = new IppResponseParser();
-
-            ippParser.read(responseBytes);
-
             if (ippParser.hasException()) {
 
                 throw ippParser.getException();
@@ -531,51 +588,6 @@ public final class IppClient {
 
     }
 
-    /**
-     * A list of {@link InputStream} object acting as one {@link InputStream}.
-     */
-    private static class InputStreamList extends InputStream {
-
-        private static final int EOF = -1;
-
-        private final List<InputStream> istrList;
-        private final Iterator<InputStream> istrIter;
-        private InputStream istrWlk = null;
-
-        public InputStreamList(List<InputStream> istrList) {
-            super();
-            this.istrList = istrList;
-            this.istrIter = this.istrList.iterator();
-            if (this.istrIter.hasNext()) {
-                this.istrWlk = this.istrIter.next();
-            }
-        }
-
-        @Override
-        public int read() throws IOException {
-
-            int b = EOF;
-
-            if (istrWlk != null) {
-                b = istrWlk.read();
-                while (b == EOF && istrIter.hasNext()) {
-                    istrWlk = istrIter.next();
-                    b = istrWlk.read();
-                }
-            }
-            return b;
-        }
-
-        @Override
-        public void close() throws IOException {
-            if (istrList != null) {
-                for (final InputStream istr : istrList) {
-                    istr.close();
-                }
-            }
-        }
-    }
-
     /**
      * Sends an IPP request to <i>local</i> CUPS.
      *
@@ -754,7 +766,8 @@ public final class IppClient {
         // -----------------------------------------------
         // | request-id (4 bytes - required)
         // -----------------------------------------------
-        IppEncoder.writeInt32(ostr, ++requestIdWlk); // Id MUST be GT zero
+        final int requestId = this.requestIdWlk.incrementAndGet();
+        IppEncoder.writeInt32(ostr, requestId); // Id MUST be GT zero
 
         // -----------------------------------------------
         // Attribute groups
@@ -768,7 +781,7 @@ public final class IppClient {
             traceLog.write("\n");
             traceLog.write(TRACE_SEP);
             traceLog.write("\n| " + operationId.toString() + " : request-id ["
-                    + requestIdWlk + "]");
+                    + requestId + "]");
             traceLog.write("\n" + TRACE_SEP);
         }
 
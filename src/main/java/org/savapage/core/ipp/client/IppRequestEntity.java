@@ -0,0 +1,158 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.ipp.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+/**
+ * A repeatable {@link org.apache.http.HttpEntity} holding an encoded IPP
+ * request header (operation, attribute groups and end-of-attributes tag)
+ * optionally followed by a document file.
+ * <p>
+ * The encoded header is written as one block, and the document file is
+ * transferred with {@link FileChannel#transferTo(long, long,
+ * WritableByteChannel)}, so no per-byte {@link InputStream#read()} calls are
+ * made while streaming a (large) print file to CUPS.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class IppRequestEntity extends AbstractHttpEntity {
+
+    /**
+     * Max number of bytes per {@link FileChannel#transferTo(long, long,
+     * WritableByteChannel)} call.
+     */
+    private static final long TRANSFER_CHUNK_SIZE = 8L * 1024 * 1024;
+
+    /**
+     * The encoded IPP header.
+     */
+    private final byte[] header;
+
+    /**
+     * The document file (can be {@code null}).
+     */
+    private final File file;
+
+    /**
+     * @param header
+     *            The encoded IPP header.
+     * @param file
+     *            The document file (can be {@code null}).
+     * @param contentType
+     *            The {@link ContentType}.
+     */
+    public IppRequestEntity(final byte[] header, final File file,
+            final ContentType contentType) {
+        super();
+        this.header = header;
+        this.file = file;
+        if (contentType != null) {
+            this.setContentType(contentType.toString());
+        }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        long length = this.header.length;
+        if (this.file != null) {
+            length += this.file.length();
+        }
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        final InputStream istrHeader = new ByteArrayInputStream(this.header);
+        if (this.file == null) {
+            return istrHeader;
+        }
+        return new SequenceInputStream(istrHeader,
+                new FileInputStream(this.file));
+    }
+
+    @Override
+    public void writeTo(final OutputStream ostr) throws IOException {
+
+        if (ostr == null) {
+            throw new IllegalArgumentException("Output stream is null.");
+        }
+
+        ostr.write(this.header);
+
+        if (this.file != null) {
+            /*
+             * Do NOT close the channel wrapping the output stream: that would
+             * close the HTTP connection stream.
+             */
+            final WritableByteChannel target = Channels.newChannel(ostr);
+
+            try (FileInputStream istr = new FileInputStream(this.file);
+                    FileChannel source = istr.getChannel()) {
+
+                final long size = source.size();
+                long position = 0;
+
+                while (position < size) {
+                    final long transferred = source.transferTo(position,
+                            Math.min(TRANSFER_CHUNK_SIZE, size - position),
+                            target);
+                    if (transferred <= 0) {
+                        throw new IOException(String.format(
+                                "%s: unexpected end of file at %d of %d",
+                                this.file.getName(), position, size));
+                    }
+                    position += transferred;
+                }
+            }
+        }
+        ostr.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+}
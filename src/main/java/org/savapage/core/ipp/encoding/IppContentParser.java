@@ -26,6 +26,7 @@ package org.savapage.core.ipp.encoding;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -38,6 +39,12 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Streaming parser for IPP content.
+ * <p>
+ * Content can be pushed as byte array with {@link #read(byte[])}, or pulled
+ * directly from an {@link InputStream} with {@link #read(InputStream)}. The
+ * latter does not buffer the content, and can skip attributes with an
+ * {@link IppAttrFilter}.
+ * </p>
  *
  * @author Rijk Ravestein
  *
@@ -152,6 +159,21 @@ public abstract class IppContentParser {
 
     private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 
+    /**
+     * Filter used by {@link #read(InputStream)}: {@code null} when all
+     * attributes are accepted.
+     */
+    private IppAttrFilter attrFilter;
+
+    /**
+     * @param filter
+     *            The {@link IppAttrFilter} used by {@link #read(InputStream)}.
+     *            If {@code null}, all attributes are accepted.
+     */
+    public void setAttrFilter(final IppAttrFilter filter) {
+        this.attrFilter = filter;
+    }
+
     /**
      *
      * @throws Exception
@@ -163,6 +185,22 @@ public abstract class IppContentParser {
 
         header.read(istr);
 
+        traceHeader(header);
+
+        onHeader(header);
+    }
+
+    /**
+     * Traces the response header.
+     *
+     * @param header
+     *            The response header.
+     * @throws IOException
+     *             When write error.
+     */
+    private static void traceHeader(final IppResponseHeader header)
+            throws IOException {
+
         if (LOGGER.isTraceEnabled()) {
 
             Writer traceLog = new StringWriter();
@@ -174,8 +212,6 @@ public abstract class IppContentParser {
             traceLog.write(TRACE_SEP);
             LOGGER.trace(traceLog.toString());
         }
-
-        onHeader(header);
     }
 
     /**
@@ -211,6 +247,60 @@ public abstract class IppContentParser {
 
     abstract protected void onException(Exception e);
 
+    /**
+     * Parses IPP content pulled from an {@link InputStream}. Exceptions are
+     * reported with {@link #onException(Exception)}.
+     *
+     * @param istr
+     *            The {@link InputStream}.
+     */
+    public void parse(final InputStream istr) {
+        try {
+            read(istr);
+        } catch (Exception e) {
+            onException(e);
+        }
+    }
+
+    /**
+     * Reads IPP content directly from an {@link InputStream}, decoding each
+     * attribute group without intermediate buffering.
+     *
+     * @param istr
+     *            The {@link InputStream}. Note that the stream is read with
+     *            many small reads: a buffered stream is recommended.
+     * @throws Exception
+     *             When read or parse errors.
+     */
+    public void read(final InputStream istr) throws Exception {
+
+        final IppResponseHeader header = new IppResponseHeader();
+        header.read(istr);
+
+        traceHeader(header);
+        onHeader(header);
+
+        Writer traceLog = null;
+
+        if (LOGGER.isTraceEnabled()) {
+            traceLog = new StringWriter();
+        }
+
+        final List<IppAttrGroup> groups =
+                IppEncoder.readAttributes(istr, traceLog, this.attrFilter);
+
+        if (traceLog != null) {
+            LOGGER.trace(traceLog.toString());
+        }
+
+        for (final IppAttrGroup group : groups) {
+            onGroup(group);
+        }
+
+        this.state = StateEnum.END_OF_ATTR;
+        onContentEnd();
+    }
+
     /**
      * @throws Exception
      *
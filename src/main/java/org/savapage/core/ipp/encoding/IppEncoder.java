@@ -24,16 +24,19 @@
  */
 package org.savapage.core.ipp.encoding;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
-import java.math.BigInteger;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.savapage.core.SpException;
 import org.savapage.core.ipp.attribute.AbstractIppDict;
@@ -81,6 +84,20 @@ public final class IppEncoder {
      */
     private static final String INDENT_UNIT = "  ";
 
+    /**
+     * Max number of entries in {@link #KEYWORD_CACHE}.
+     */
+    private static final int KEYWORD_CACHE_MAX_SIZE = 4096;
+
+    /**
+     * Canonical instances of decoded attribute names and keyword-like values.
+     * Large responses, like CUPS-Get-Printers and Get-Jobs, repeat the same
+     * names and keywords many times: interning them keeps one shared
+     * {@link String} instance for each in the decoded attribute groups.
+     */
+    private static final ConcurrentMap<String, String> KEYWORD_CACHE =
+            new ConcurrentHashMap<>();
+
     /**
      *
      *
@@ -213,39 +230,41 @@ public final class IppEncoder {
             break;
 
         case DATETIME:
-            bytes = new byte[nBytes];
-            istr.read(bytes);
+            bytes = readBytes(istr, nBytes);
             str = IppDateTime.read(bytes);
             break;
 
         case RESOLUTION:
-            bytes = new byte[nBytes];
-            istr.read(bytes);
+            bytes = readBytes(istr, nBytes);
             str = IppResolution.read(bytes);
             break;
 
-        case TEXTWLANG:
-        case NAMEWLANG:
-        case TEXTWOLANG:
-        case NAMEWOLANG:
         case KEYWORD:
-        case URI:
         case URISCHEME:
         case CHARSET:
         case NATULANG:
         case MIMETYPE:
         case MEMBERATTRNAME:
 
-            bytes = new byte[nBytes];
-            istr.read(bytes);
+            bytes = readBytes(istr, nBytes);
+            str = internKeyword(new String(bytes, charset));
+
+            break;
+
+        case TEXTWLANG:
+        case NAMEWLANG:
+        case TEXTWOLANG:
+        case NAMEWOLANG:
+        case URI:
+
+            bytes = readBytes(istr, nBytes);
             str = new String(bytes, charset);
 
             break;
 
         case OCTETSTRING:
 
-            bytes = new byte[nBytes];
-            istr.read(bytes);
+            bytes = readBytes(istr, nBytes);
             str = IppOctetString.read(bytes);
 
             break;
@@ -254,8 +273,7 @@ public final class IppEncoder {
             /*
              * Eat the bytes!
              */
-            bytes = new byte[nBytes];
-            istr.read(bytes);
+            IOUtils.skipFully(istr, nBytes);
 
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("IPP value tag [" + valueTag.toString()
@@ -266,6 +284,55 @@ public final class IppEncoder {
         return str;
     }
 
+    /**
+     * Reads exactly n bytes from the stream.
+     * <p>
+     * Note: {@link InputStream#read(byte[])} may return less bytes than
+     * requested when reading directly from a network stream.
+     * </p>
+     *
+     * @param istr
+     *            The {@link InputStream}.
+     * @param nBytes
+     *            The number of bytes to read.
+     * @return The bytes.
+     * @throws IOException
+     *             When reading errors, or end-of-stream is reached before all
+     *             bytes are read.
+     */
+    private static byte[] readBytes(final InputStream istr, final int nBytes)
+            throws IOException {
+        final byte[] bytes = new byte[nBytes];
+        IOUtils.readFully(istr, bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the canonical instance of a keyword.
+     *
+     * @param keyword
+     *            The keyword.
+     * @return The canonical instance, or the keyword itself when the cache is
+     *         full.
+     */
+    private static String internKeyword(final String keyword) {
+
+        final String canonical = KEYWORD_CACHE.get(keyword);
+
+        if (canonical != null) {
+            return canonical;
+        }
+        if (KEYWORD_CACHE.size() >= KEYWORD_CACHE_MAX_SIZE) {
+            return keyword;
+        }
+        final String previous = KEYWORD_CACHE.putIfAbsent(keyword, keyword);
+
+        if (previous == null) {
+            return keyword;
+        }
+        return previous;
+    }
+
     /**
      * 16-bit (2 bytes).
      *
@@ -293,15 +360,11 @@ public final class IppEncoder {
     }
 
     /**
-     * Reads a IPP n-byte integer from the stream.
+     * Reads a IPP n-byte (big-endian) integer from the stream.
      * <p>
-     * IMPORTANT: {@link Integer#parseInt(String, int)} with hex string and
-     * radix 16 gives a NumberFormatException for IPP 4-byte encoded negative
-     * integers, like 0xFFFFFFFF (-1) and 0xFFFFFFFD (-3). Therefore we use
-     * {@link BigInteger#BigInteger(String, int)}.
-     * </p>
-     * <p>
-     * See Mantis #394, #609 and #688.
+     * IMPORTANT: IPP 4-byte encoded negative integers, like 0xFFFFFFFF (-1)
+     * and 0xFFFFFFFD (-3), must be returned as negative value. See Mantis
+     * #394, #609 and #688.
      * </p>
      *
      * @param istr
@@ -315,36 +378,50 @@ public final class IppEncoder {
     private static int readInt(final InputStream istr, final int nBytes)
             throws IOException {
 
-        final StringBuilder strHex = new StringBuilder();
+        int value = 0;
 
         for (int i = 0; i < nBytes; i++) {
-            strHex.append(String.format("%02X", istr.read()));
+            final int b = istr.read();
+            if (b < 0) {
+                throw new EOFException(String.format(
+                        "End of stream while reading %d-byte integer.",
+                        nBytes));
+            }
+            value = (value << 8) | b;
         }
 
-        return new BigInteger(strHex.toString(), 16).intValue();
+        return value;
     }
 
     /**
+     * 16-bit (2 bytes).
      *
      * @param b1
+     *            High order byte.
      * @param b2
-     * @return
-     * @throws IOException
+     *            Low order byte.
+     * @return The (unsigned) integer value.
      */
     public static int readInt16(byte b1, byte b2) {
-        return Integer.parseInt(String.format("%02X%02X", b1, b2), 16);
+        return ((b1 & 0xFF) << 8) | (b2 & 0xFF);
     }
 
     /**
+     * 32-bit (4 bytes).
      *
      * @param b1
+     *            High order byte.
      * @param b2
-     * @return
-     * @throws IOException
+     *            Byte 2.
+     * @param b3
+     *            Byte 3.
+     * @param b4
+     *            Low order byte.
+     * @return The integer value (can be negative).
      */
     public static int readInt32(byte b1, byte b2, byte b3, byte b4) {
-        return Integer.parseInt(
-                String.format("%02X%02X%02X%02X", b1, b2, b3, b4), 16);
+        return ((b1 & 0xFF) << 24) | ((b2 & 0xFF) << 16) | ((b3 & 0xFF) << 8)
+                | (b4 & 0xFF);
     }
 
     /**
@@ -429,78 +506,98 @@ public final class IppEncoder {
             final OutputStream ostr, final Charset charset, Writer traceLog)
             throws IOException {
 
-        int nTraceLogIndent = 0;
-
         /*
          * Groups
          */
         for (final IppAttrGroup group : attrGroups) {
 
-            nTraceLogIndent = 0;
-
             if (traceLog != null) {
                 traceLog.write(
                         "\nGroup : " + group.getDelimiterTag().toString());
             }
             ostr.write(group.getDelimiterTag().asInt());
 
-            /*
-             * Attributes
-             */
-            for (final IppAttrValue attr : group.getAttributes()) {
+            writeGroupContent(group, ostr, charset, traceLog);
+        }
+    }
 
-                IppValueTag valueTag =
-                        attr.getAttribute().getSyntax().getValueTag();
+    /**
+     * Writes the attributes and collections of a group, <i>without</i> the
+     * group delimiter tag. This allows appending attributes to a group that
+     * was partly encoded before.
+     *
+     * @param group
+     *            The attribute group.
+     * @param ostr
+     *            IPP output stream.
+     * @param charset
+     *            Character set.
+     * @param traceLog
+     *            Trace log writer (can be {@code null}).
+     * @throws IOException
+     *             If IO error.
+     */
+    public static void writeGroupContent(final IppAttrGroup group,
+            final OutputStream ostr, final Charset charset,
+            final Writer traceLog) throws IOException {
 
-                if (traceLog != null) {
-                    traceLog.append("\n")
-                            .append(StringUtils.repeat(INDENT_UNIT,
-                                    nTraceLogIndent + 1))
-                            .append(attr.getAttribute().getKeyword())
-                            .append(" - ").append(valueTag.toString());
-                }
+        final int nTraceLogIndent = 0;
 
-                /*
-                 * Value(s)
-                 */
-                int i = 0;
+        /*
+         * Attributes
+         */
+        for (final IppAttrValue attr : group.getAttributes()) {
 
-                for (final String value : attr.getValues()) {
+            IppValueTag valueTag =
+                    attr.getAttribute().getSyntax().getValueTag();
 
-                    // Attribute type
-                    ostr.write(valueTag.asInt());
+            if (traceLog != null) {
+                traceLog.append("\n")
+                        .append(StringUtils.repeat(INDENT_UNIT,
+                                nTraceLogIndent + 1))
+                        .append(attr.getAttribute().getKeyword())
+                        .append(" - ").append(valueTag.toString());
+            }
 
-                    if (traceLog != null) {
-                        traceLog.append("\n").append(StringUtils
-                                .repeat(INDENT_UNIT, nTraceLogIndent + 2))
-                                .append(value);
-                    }
+            /*
+             * Value(s)
+             */
+            int i = 0;
 
-                    if (i == 0) {
-                        // name length + name
-                        final String keyword = attr.getAttribute().getKeyword();
-                        writeInt16(ostr, keyword.length());
-                        ostr.write(keyword.getBytes());
-                    } else {
-                        // length zero
-                        writeInt16(ostr, 0);
-                    }
+            for (final String value : attr.getValues()) {
 
-                    attr.write(ostr, value, charset);
+                // Attribute type
+                ostr.write(valueTag.asInt());
 
-                    i++;
+                if (traceLog != null) {
+                    traceLog.append("\n").append(
+                            StringUtils.repeat(INDENT_UNIT, nTraceLogIndent + 2))
+                            .append(value);
                 }
-            }
 
-            /*
-             * Collections
-             */
-            for (final IppAttrCollection collection : group.getCollections()) {
+                if (i == 0) {
+                    // name length + name
+                    final String keyword = attr.getAttribute().getKeyword();
+                    writeInt16(ostr, keyword.length());
+                    ostr.write(keyword.getBytes());
+                } else {
+                    // length zero
+                    writeInt16(ostr, 0);
+                }
 
-                writeCollection(collection, AttrCollectionType.MAIN, ostr,
-                        charset, traceLog, nTraceLogIndent + 1);
+                attr.write(ostr, value, charset);
 
+                i++;
             }
+        }
+
+        /*
+         * Collections
+         */
+        for (final IppAttrCollection collection : group.getCollections()) {
+
+            writeCollection(collection, AttrCollectionType.MAIN, ostr, charset,
+                    traceLog, nTraceLogIndent + 1);
 
         }
     }
@@ -723,7 +820,33 @@ public final class IppEncoder {
      *             When reading from the stream goes wrong.
      */
     public static List<IppAttrGroup> readAttributes(final InputStream istr,
-            Writer traceLog) throws IOException {
+            final Writer traceLog) throws IOException {
+        return readAttributes(istr, traceLog, null);
+    }
+
+    /**
+     * Generic read of attributes from an input stream, returning a list of
+     * attribute groups with the attributes accepted by a filter.
+     * <p>
+     * Note: the filter is not applied to collection attributes and to
+     * {@link IppDictOperationAttr#ATTR_ATTRIBUTES_CHARSET}.
+     * </p>
+     *
+     * @param istr
+     *            The input stream.
+     * @param traceLog
+     *            The tracelog.
+     * @param filter
+     *            The {@link IppAttrFilter}. If {@code null}, all attributes
+     *            are accepted.
+     * @return The attributes per group.
+     *
+     * @throws IOException
+     *             When reading from the stream goes wrong.
+     */
+    public static List<IppAttrGroup> readAttributes(final InputStream istr,
+            final Writer traceLog, final IppAttrFilter filter)
+            throws IOException {
 
         List<IppAttrGroup> attrGroups = new ArrayList<>();
 
@@ -884,6 +1007,8 @@ public final class IppEncoder {
 
             IppValueTag valueTagPrev = null;
 
+            boolean skipAttrWlk = false;
+
             String collectionNameWlk = null;
             String collectionMemberNameWlk = null;
             IppAttrValue collectionMemberValueWlk = null;
@@ -924,6 +1049,28 @@ public final class IppEncoder {
                 // -----------------------------------------------
                 final int lengthValue = IppEncoder.readInt16(istr);
 
+                /*
+                 * Skip value of attribute not accepted by filter?
+                 */
+                if (filter != null && collectionMemberNameWlk == null
+                        && valueTag != IppValueTag.BEGCOLLECTION
+                        && valueTag != IppValueTag.ENDCOLLECTION
+                        && valueTag != IppValueTag.MEMBERATTRNAME) {
+
+                    if (!isAdditionalValue) {
+                        skipAttrWlk = !name.equals(
+                                IppDictOperationAttr.ATTR_ATTRIBUTES_CHARSET)
+                                && !filter.accept(delimiterTag, name);
+                    }
+
+                    if (skipAttrWlk) {
+                        IOUtils.skipFully(istr, lengthValue);
+                        valueTagPrev = valueTag;
+                        chWlk = istr.read();
+                        continue;
+                    }
+                }
+
                 // -----------------------------------------------
                 // | value | v bytes
                 // -----------------------------------------------
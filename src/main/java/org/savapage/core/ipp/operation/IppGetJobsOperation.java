@@ -80,6 +80,14 @@ public final class IppGetJobsOperation extends AbstractIppOperation {
      */
     public static final String WHICH_JOB_NOT_COMPLETED = "not-completed";
 
+    /**
+     * 'all': This includes all Job objects (PWG 5100.7).
+     */
+    public static final String WHICH_JOB_ALL = "all";
+
+    /** integer(1:MAX): CUPS extension. */
+    public static final String ATTR_FIRST_JOB_ID = "first-job-id";
+
     /** */
     private static class IppGetJobsRequest extends AbstractIppRequest {
 
@@ -0,0 +1,213 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.ipp.operation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.savapage.core.config.ConfigManager;
+import org.savapage.core.util.DateUtil;
+
+/**
+ * Cache of encoded Get-Printer-Attributes response groups.
+ * <p>
+ * For a given IPP version, printer queue, printer URI and set of requested
+ * attributes the response hardly changes. Therefore, the encoded
+ * "unsupported-attributes" and "printer-attributes" groups are cached, and
+ * only the few time related attributes are encoded per request.
+ * </p>
+ * <p>
+ * An entry is invalidated when configuration changes (see
+ * {@link ConfigManager#getConfigModCount()}), or when it expires. Relevant
+ * queue properties are part of the cache key, so queue changes result in a
+ * new key.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class IppGetPrinterAttrCache {
+
+    /**
+     * Max number of entries: when exceeded the cache is cleared.
+     */
+    private static final int MAX_ENTRIES = 256;
+
+    /**
+     * Time-to-live of an entry, to pick up changes not driven by
+     * configuration, like Community Membership status.
+     */
+    private static final long ENTRY_TTL_MSEC = 5 * DateUtil.DURATION_MSEC_MINUTE;
+
+    /**
+     * A cached response part.
+     */
+    static final class Entry {
+
+        /** */
+        private final IppStatusCode statusCode;
+
+        /**
+         * Encoded unsupported-attributes group (if present) followed by the
+         * encoded printer-attributes group without its time related
+         * attributes.
+         */
+        private final byte[] encodedGroups;
+
+        /**
+         * Keywords of time related printer-attributes to be appended per
+         * request.
+         */
+        private final List<String> volatileAttrs;
+
+        /** */
+        private final long configModCount;
+
+        /** */
+        private final long expiryTime;
+
+        /**
+         * @param status
+         *            IPP status code.
+         * @param encoded
+         *            Encoded groups.
+         * @param volatileKeywords
+         *            Keywords of attributes to be appended per request.
+         * @param modCount
+         *            Configuration modification count.
+         */
+        Entry(final IppStatusCode status, final byte[] encoded,
+                final List<String> volatileKeywords, final long modCount) {
+            this.statusCode = status;
+            this.encodedGroups = encoded;
+            this.volatileAttrs = Collections.unmodifiableList(volatileKeywords);
+            this.configModCount = modCount;
+            this.expiryTime = System.currentTimeMillis() + ENTRY_TTL_MSEC;
+        }
+
+        /**
+         * @return IPP status code.
+         */
+        IppStatusCode getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @return Encoded groups.
+         */
+        byte[] getEncodedGroups() {
+            return encodedGroups;
+        }
+
+        /**
+         * @return Keywords of attributes to be appended per request.
+         */
+        List<String> getVolatileAttrs() {
+            return volatileAttrs;
+        }
+    }
+
+    /** */
+    private final ConcurrentMap<String, Entry> cache =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The SingletonHolder is loaded on the first execution of
+     * {@link IppGetPrinterAttrCache#instance()} or the first access to
+     * {@link SingletonHolder#INSTANCE}, not before.
+     */
+    private static class SingletonHolder {
+        /** */
+        public static final IppGetPrinterAttrCache INSTANCE =
+                new IppGetPrinterAttrCache();
+    }
+
+    /**
+     * Prevent public instantiation.
+     */
+    private IppGetPrinterAttrCache() {
+    }
+
+    /**
+     * @return The singleton instance.
+     */
+    public static IppGetPrinterAttrCache instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * @return Current configuration modification count.
+     */
+    static long getConfigModCount() {
+        return ConfigManager.instance().getConfigModCount();
+    }
+
+    /**
+     * Gets a valid entry.
+     *
+     * @param key
+     *            The cache key.
+     * @return {@code null} when not found, or invalid.
+     */
+    Entry get(final String key) {
+
+        final Entry entry = this.cache.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+        if (entry.configModCount != getConfigModCount()
+                || entry.expiryTime < System.currentTimeMillis()) {
+            this.cache.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Puts an entry.
+     *
+     * @param key
+     *            The cache key.
+     * @param entry
+     *            The entry.
+     */
+    void put(final String key, final Entry entry) {
+        if (this.cache.size() >= MAX_ENTRIES) {
+            this.cache.clear();
+        }
+        this.cache.put(key, entry);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        this.cache.clear();
+    }
+
+}
@@ -24,14 +24,22 @@
  */
 package org.savapage.core.ipp.operation;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -57,6 +65,7 @@ import org.savapage.core.ipp.attribute.syntax.IppRangeOfInteger;
 import org.savapage.core.ipp.attribute.syntax.IppResolution;
 import org.savapage.core.ipp.attribute.syntax.IppUri;
 import org.savapage.core.ipp.encoding.IppDelimiterTag;
+import org.savapage.core.ipp.encoding.IppEncoder;
 import org.savapage.core.ipp.helpers.IppMediaSizeHelper;
 import org.savapage.core.jpa.IppQueue;
 import org.savapage.core.services.ServiceContext;
@@ -256,6 +265,16 @@ public class IppGetPrinterAttrRsp extends AbstractIppResponse {
             IppDictPrinterDescAttr.ATTR_PRINTER_ICONS
             //
     };
+    /**
+     * Printer Description attributes with a time related value: these are
+     * not cached, but encoded per request.
+     */
+    private static final Set<String> VOLATILE_ATTR_PRINTER_DESC =
+            new HashSet<>(Arrays.asList(
+                    IppDictPrinterDescAttr.ATTR_PRINTER_CURRENT_TIME,
+                    IppDictPrinterDescAttr.ATTR_PRINTER_UP_TIME,
+                    IppDictPrinterDescAttr.ATTR_PRINTER_CONFIG_CHANGE_TIME));
+
     /** */
     private IppStatusCode ippStatusCode;
 
@@ -308,12 +327,10 @@ public class IppGetPrinterAttrRsp extends AbstractIppResponse {
             this.ippStatusCode = IppStatusCode.CLI_BADREQ;
         }
 
-        final List<IppAttrGroup> attrGroups = new ArrayList<>();
-
         /*
          * Group 1: Operation Attributes
          */
-        attrGroups.add(this.createOperationGroup());
+        final IppAttrGroup groupOperation = this.createOperationGroup();
 
         /*
          * In addition to the REQUIRED status code returned in every response,
@@ -321,84 +338,272 @@ public class IppGetPrinterAttrRsp extends AbstractIppResponse {
          * and/or a "detailed-status-message" (text(MAX)) operation attribute as
          * described in sections 13 and 3.1.6.
          */
+        if (this.ippStatusCode != IppStatusCode.OK) {
+            final List<IppAttrGroup> attrGroups = new ArrayList<>();
+            attrGroups.add(groupOperation);
+            this.writeHeaderAndAttributes(operation, this.ippStatusCode,
+                    attrGroups, ostr, request.getAttributesCharset());
+            return;
+        }
 
-        if (this.ippStatusCode == IppStatusCode.OK) {
+        final IppAttrValue printerUriAttr = request.getAttrValue("printer-uri");
 
-            /*
-             * Group 2: Unsupported Attributes
-             */
-            final IppAttrGroup groupAttrUnsupp =
-                    new IppAttrGroup(IppDelimiterTag.UNSUPP_ATTR);
+        final URI printerUri;
+
+        if (printerUriAttr == null || printerUriAttr.getValues().isEmpty()) {
+            printerUri = null;
+        } else {
+            try {
+                printerUri = new URI(printerUriAttr.getValues().get(0));
+            } catch (URISyntaxException e) {
+                throw new IllegalStateException(e.getMessage());
+            }
+        }
+
+        /*
+         * Groups 2 and 3 are taken from cache, or encoded and cached.
+         */
+        final IppGetPrinterAttrCache cache = IppGetPrinterAttrCache.instance();
+        final String cacheKey =
+                this.createCacheKey(operation, request, printerUri);
 
+        IppGetPrinterAttrCache.Entry cacheEntry = cache.get(cacheKey);
+
+        if (cacheEntry == null) {
             /*
-             * Group 3: Printer Object Attributes
+             * Get modification count before encoding, so a concurrent
+             * configuration change invalidates the entry.
              */
-            final IppAttrGroup groupAttrSupp =
-                    new IppAttrGroup(IppDelimiterTag.PRINTER_ATTR);
+            final long configModCount =
+                    IppGetPrinterAttrCache.getConfigModCount();
 
-            final IppAttrValue printerUriAttr =
-                    request.getAttrValue("printer-uri");
+            cacheEntry = this.createCacheEntry(operation, printerUri,
+                    request.getAttributesCharset(), configModCount);
 
-            final URI printerUri;
+            cache.put(cacheKey, cacheEntry);
+        }
 
-            if (printerUriAttr == null
-                    || printerUriAttr.getValues().isEmpty()) {
-                printerUri = null;
-            } else {
-                try {
-                    printerUri = new URI(printerUriAttr.getValues().get(0));
-                } catch (URISyntaxException e) {
-                    throw new IllegalStateException(e.getMessage());
-                }
+        this.ippStatusCode = cacheEntry.getStatusCode();
+
+        this.writeResponse(operation, groupOperation, cacheEntry, printerUri,
+                ostr, request.getAttributesCharset());
+    }
+
+    /**
+     * Creates the cache key of this response.
+     *
+     * @param operation
+     *            IPP operation.
+     * @param request
+     *            IPP request.
+     * @param printerUri
+     *            Printer URI.
+     * @return The key.
+     */
+    private String createCacheKey(final IppGetPrinterAttrOperation operation,
+            final IppGetPrinterAttrReq request, final URI printerUri) {
+
+        final StringBuilder key = new StringBuilder();
+
+        key.append(this.isIPPversion2()).append('|').append(printerUri)
+                .append('|').append(request.getAttributesCharset().name())
+                .append('|');
+
+        final IppAttrValue naturalLang = request.getAttrValue(
+                IppDictOperationAttr.ATTR_ATTRIBUTES_NATURAL_LANG);
+
+        if (naturalLang != null) {
+            for (final String lang : naturalLang.getValues()) {
+                key.append(lang).append(',');
             }
+        }
+        key.append('|');
 
-            if (operation.getRequestedAttributes() == null) {
-                /*
-                 * The client OPTIONALLY supplies a set of attribute names
-                 * and/or attribute group names in whose values the requester is
-                 * interested. The Printer object MUST support this attribute.
-                 *
-                 * If the client omits this attribute, the Printer MUST respond
-                 * as if this attribute had been supplied with a value of 'all'.
-                 */
-                this.handleRequestedAttr(printerUri, groupAttrSupp,
-                        groupAttrUnsupp,
-                        IppGetPrinterAttrOperation.ATTR_GRP_ALL);
+        if (this.printerQueue != null) {
+            key.append(this.printerQueue.getUrlPath()).append('|')
+                    .append(BooleanUtils
+                            .isTrue(this.printerQueue.getDisabled()));
+        }
+        key.append('|');
 
-            } else {
+        if (operation.getRequestedAttributes() == null) {
+            key.append(IppGetPrinterAttrOperation.ATTR_GRP_ALL);
+        } else {
+            for (final String keyword : operation.getRequestedAttributes()
+                    .getValues()) {
+                key.append(keyword).append(',');
+            }
+        }
+        return key.toString();
+    }
 
-                if (LOGGER.isDebugEnabled()) {
-                    final StringBuilder log = new StringBuilder();
-                    log.append("requested attributes:");
-                    for (final String keyword : operation
-                            .getRequestedAttributes().getValues()) {
-                        log.append(" ").append(keyword);
-                    }
-                    LOGGER.debug(log.toString());
-                }
+    /**
+     * Creates the attribute groups for the requested attributes, and encodes
+     * them as cache entry.
+     *
+     * @param operation
+     *            IPP operation.
+     * @param printerUri
+     *            Printer URI.
+     * @param charset
+     *            Character set.
+     * @param configModCount
+     *            Configuration modification count.
+     * @return The cache entry.
+     * @throws IOException
+     *             If encoding error.
+     */
+    private IppGetPrinterAttrCache.Entry createCacheEntry(
+            final IppGetPrinterAttrOperation operation, final URI printerUri,
+            final Charset charset, final long configModCount)
+            throws IOException {
+
+        /*
+         * Group 2: Unsupported Attributes
+         */
+        final IppAttrGroup groupAttrUnsupp =
+                new IppAttrGroup(IppDelimiterTag.UNSUPP_ATTR);
 
+        /*
+         * Group 3: Printer Object Attributes
+         */
+        final IppAttrGroup groupAttrSupp =
+                new IppAttrGroup(IppDelimiterTag.PRINTER_ATTR);
+
+        if (operation.getRequestedAttributes() == null) {
+            /*
+             * The client OPTIONALLY supplies a set of attribute names and/or
+             * attribute group names in whose values the requester is
+             * interested. The Printer object MUST support this attribute.
+             *
+             * If the client omits this attribute, the Printer MUST respond as
+             * if this attribute had been supplied with a value of 'all'.
+             */
+            this.handleRequestedAttr(printerUri, groupAttrSupp,
+                    groupAttrUnsupp, IppGetPrinterAttrOperation.ATTR_GRP_ALL);
+
+        } else {
+
+            if (LOGGER.isDebugEnabled()) {
+                final StringBuilder log = new StringBuilder();
+                log.append("requested attributes:");
                 for (final String keyword : operation.getRequestedAttributes()
                         .getValues()) {
-                    this.handleRequestedAttr(printerUri, groupAttrSupp,
-                            groupAttrUnsupp, keyword);
+                    log.append(" ").append(keyword);
                 }
+                LOGGER.debug(log.toString());
             }
 
-            /*
-             * If the Printer object is not returning any Unsupported Attributes
-             * in the response, the Printer object SHOULD omit Group 2 rather
-             * than sending an empty group. However, a client MUST be able to
-             * accept an empty group.
-             */
-            if (!groupAttrUnsupp.getAttributes().isEmpty()) {
-                attrGroups.add(groupAttrUnsupp);
+            for (final String keyword : operation.getRequestedAttributes()
+                    .getValues()) {
+                this.handleRequestedAttr(printerUri, groupAttrSupp,
+                        groupAttrUnsupp, keyword);
+            }
+        }
+
+        /*
+         * Move time related attributes out of the group: they are encoded per
+         * request.
+         */
+        final List<IppAttrValue> attrsStatic = new ArrayList<>();
+        final List<String> attrsVolatile = new ArrayList<>();
+
+        for (final IppAttrValue value : groupAttrSupp.getAttributes()) {
+            final String keyword = value.getAttribute().getKeyword();
+            if (VOLATILE_ATTR_PRINTER_DESC.contains(keyword)) {
+                attrsVolatile.add(keyword);
+            } else {
+                attrsStatic.add(value);
             }
+        }
+        groupAttrSupp.setAttributes(attrsStatic);
+
+        final List<IppAttrGroup> attrGroups = new ArrayList<>();
 
-            attrGroups.add(groupAttrSupp);
+        /*
+         * If the Printer object is not returning any Unsupported Attributes in
+         * the response, the Printer object SHOULD omit Group 2 rather than
+         * sending an empty group. However, a client MUST be able to accept an
+         * empty group.
+         */
+        if (!groupAttrUnsupp.getAttributes().isEmpty()) {
+            attrGroups.add(groupAttrUnsupp);
         }
 
-        this.writeHeaderAndAttributes(operation, this.ippStatusCode, attrGroups,
-                ostr, request.getAttributesCharset());
+        attrGroups.add(groupAttrSupp);
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        IppEncoder.writeAttributes(attrGroups, bos, charset, null);
+
+        return new IppGetPrinterAttrCache.Entry(this.ippStatusCode,
+                bos.toByteArray(), attrsVolatile, configModCount);
+    }
+
+    /**
+     * Writes the response.
+     *
+     * @param operation
+     *            IPP operation.
+     * @param groupOperation
+     *            Operation attributes group.
+     * @param cacheEntry
+     *            Cached encoded groups.
+     * @param printerUri
+     *            Printer URI.
+     * @param ostr
+     *            IPP output stream.
+     * @param charset
+     *            Character set.
+     * @throws IOException
+     *             If error.
+     */
+    private void writeResponse(final IppGetPrinterAttrOperation operation,
+            final IppAttrGroup groupOperation,
+            final IppGetPrinterAttrCache.Entry cacheEntry,
+            final URI printerUri, final OutputStream ostr,
+            final Charset charset) throws IOException {
+
+        Writer traceLog = null;
+
+        if (LOGGER.isTraceEnabled()) {
+            traceLog = new StringWriter();
+        }
+
+        this.writeHeader(operation, this.ippStatusCode, ostr);
+
+        IppEncoder.writeAttributes(Collections.singletonList(groupOperation),
+                ostr, charset, traceLog);
+
+        if (traceLog != null) {
+            traceLog.write("\n[cached groups: "
+                    + cacheEntry.getEncodedGroups().length + " bytes]");
+        }
+
+        ostr.write(cacheEntry.getEncodedGroups());
+
+        /*
+         * Append time related attributes to the printer-attributes group,
+         * which is the last encoded group.
+         */
+        if (!cacheEntry.getVolatileAttrs().isEmpty()) {
+
+            final IppAttrGroup group =
+                    new IppAttrGroup(IppDelimiterTag.PRINTER_ATTR);
+
+            for (final String keyword : cacheEntry.getVolatileAttrs()) {
+                group.addAttribute(
+                        this.getAttrValuePrinterDesc(keyword, printerUri));
+            }
+            IppEncoder.writeGroupContent(group, ostr, charset, traceLog);
+        }
+
+        ostr.write(IppDelimiterTag.END_OF_ATTR.asInt());
+
+        if (traceLog != null) {
+            LOGGER.trace(String.format("\nResponse: %s\nstatus: %s%s",
+                    this.getClass().getSimpleName(), this.ippStatusCode,
+                    traceLog));
+        }
     }
 
     /**
@@ -25,6 +25,7 @@
 package org.savapage.core.jmx;
 
 import org.savapage.core.config.ConfigManager;
+import org.savapage.core.services.helpers.PpdExtFileReader;
 
 /**
  *
@@ -38,4 +39,24 @@ public class CoreConfig implements CoreConfigMBean {
         return ConfigManager.getAppVersionBuild();
     }
 
+    @Override
+    public final int getPpdExtCacheSize() {
+        return PpdExtFileReader.getCacheSize();
+    }
+
+    @Override
+    public final long getPpdExtCacheHits() {
+        return PpdExtFileReader.getCacheHits();
+    }
+
+    @Override
+    public final long getPpdExtCacheMisses() {
+        return PpdExtFileReader.getCacheMisses();
+    }
+
+    @Override
+    public final long getPpdExtParseTimeMillis() {
+        return PpdExtFileReader.getParseTimeMillis();
+    }
+
 }
@@ -36,4 +36,24 @@ public interface CoreConfigMBean {
      * @return The version.
      */
     String getVersion();
+
+    /**
+     * @return Number of parsed SavaPage PPD extension files in cache.
+     */
+    int getPpdExtCacheSize();
+
+    /**
+     * @return Number of SavaPage PPD extension cache hits.
+     */
+    long getPpdExtCacheHits();
+
+    /**
+     * @return Number of SavaPage PPD extension cache misses.
+     */
+    long getPpdExtCacheMisses();
+
+    /**
+     * @return Total SavaPage PPD extension parse time in milliseconds.
+     */
+    long getPpdExtParseTimeMillis();
 }
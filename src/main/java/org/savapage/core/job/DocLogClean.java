@@ -46,6 +46,7 @@ import org.savapage.core.dao.IppQueueDao;
 import org.savapage.core.dao.PrinterDao;
 import org.savapage.core.dao.UserDao;
 import org.savapage.core.dao.helpers.DaoBatchCommitter;
+import org.savapage.core.dao.helpers.DaoPurgeProgress;
 import org.savapage.core.jpa.Account;
 import org.savapage.core.jpa.AccountTrx;
 import org.savapage.core.jpa.DocIn;
@@ -75,9 +76,34 @@ import org.slf4j.LoggerFactory;
  */
 public final class DocLogClean extends AbstractJob {
 
+    /**
+     * Min milliseconds between two purge progress messages.
+     */
+    private static final long PURGE_PROGRESS_PUB_INTERVAL_MSEC =
+            5 * DateUtil.DURATION_MSEC_SECOND;
+
+    /**
+     * {@code true} when job is interrupted.
+     */
+    private volatile boolean isInterrupted = false;
+
+    /**
+     * Progress of current purge step.
+     */
+    private volatile DaoPurgeProgress purgeProgress;
+
+    /**
+     * Time of last purge progress message.
+     */
+    private long purgeProgressPubTime;
+
     @Override
     protected void onInterrupt() throws UnableToInterruptJobException {
-        // noop
+        this.isInterrupted = true;
+        final DaoPurgeProgress progress = this.purgeProgress;
+        if (progress != null) {
+            progress.interrupt();
+        }
     }
 
     @Override
@@ -119,7 +145,9 @@ public final class DocLogClean extends AbstractJob {
      *
      * </ul>
      *
-     * <b>IMPORTANT</b>: After each step a commit is done.
+     * <b>IMPORTANT</b>: After each step a commit is done. Steps 1 to 4 delete
+     * and commit in keyset paged chunks: an interrupted run resumes after the
+     * last committed chunk when run again with the same history border date.
      * <p>
      * <b>REMEMBER</b>: <i>Records deleted with JPQL don't trigger cascading
      * deletion for child records.</i>
@@ -243,6 +271,10 @@ public final class DocLogClean extends AbstractJob {
                     batchCommitter);
         }
 
+        if (isInterrupted(docClean)) {
+            return;
+        }
+
         if (daysBackInTimeDocLog != null) {
 
             final Date dateBackInTime = DateUtils.truncate(
@@ -251,18 +283,108 @@ public final class DocLogClean extends AbstractJob {
 
             cleanStep2DocAccountTrx(docClean, publisher, dateBackInTime,
                     batchCommitter);
+            if (isInterrupted(docClean)) {
+                return;
+            }
             cleanStep3DocOut(docClean, publisher, dateBackInTime,
                     batchCommitter);
+            if (isInterrupted(docClean)) {
+                return;
+            }
             cleanStep4DocIn(docClean, publisher, dateBackInTime,
                     batchCommitter);
         }
 
+        if (isInterrupted(docClean)) {
+            return;
+        }
+
         cleanStep5PruneUsers(docClean, publisher, batchCommitter);
         cleanStep6PrunePrinters(docClean, publisher, batchCommitter);
         cleanStep7PruneQueues(docClean, publisher, batchCommitter);
         cleanStep8PruneAccounts(docClean, publisher, batchCommitter);
     }
 
+    /**
+     * @param docClean
+     *            {@code null} when NOT run in {@link DocLogClean} context.
+     * @return {@code true} when job is interrupted.
+     */
+    private static boolean isInterrupted(final DocLogClean docClean) {
+        return docClean != null && docClean.isInterrupted;
+    }
+
+    /**
+     * Creates the progress of a keyset paged purge step.
+     *
+     * @param docClean
+     *            {@code null} when NOT run in {@link DocLogClean} context.
+     * @param publisher
+     *            {@code null} when NOT run in {@link DocLogClean} context.
+     * @param step
+     *            Unique name of the purge step.
+     * @param dateBackInTime
+     *            History border date.
+     * @return The {@link DaoPurgeProgress}.
+     */
+    private static DaoPurgeProgress createPurgeProgress(
+            final DocLogClean docClean, final AdminPublisher publisher,
+            final String step, final Date dateBackInTime) {
+
+        final ConfigManager cm = ConfigManager.instance();
+
+        final DaoPurgeProgress.Listener listener;
+
+        if (docClean == null) {
+            listener = null;
+        } else {
+            listener = p -> docClean.onPurgeChunk(p, publisher);
+        }
+
+        final DaoPurgeProgress progress = new DaoPurgeProgress(step,
+                dateBackInTime, cm.getConfigInt(Key.DELETE_HISTORY_CHUNK_SIZE),
+                cm.getConfigLong(Key.DELETE_HISTORY_CHUNK_PAUSE_MSEC),
+                listener);
+
+        if (docClean != null) {
+            docClean.purgeProgress = progress;
+            if (docClean.isInterrupted) {
+                progress.interrupt();
+            }
+        }
+        return progress;
+    }
+
+    /**
+     * Publishes the progress of a purge step, at most once every
+     * {@link #PURGE_PROGRESS_PUB_INTERVAL_MSEC}.
+     *
+     * @param progress
+     *            The purge progress.
+     * @param publisher
+     *            The publisher.
+     */
+    private void onPurgeChunk(final DaoPurgeProgress progress,
+            final AdminPublisher publisher) {
+
+        final long now = System.currentTimeMillis();
+
+        final long elapsed = now - this.purgeProgressPubTime;
+
+        if (elapsed < PURGE_PROGRESS_PUB_INTERVAL_MSEC) {
+            return;
+        }
+        this.purgeProgressPubTime = now;
+
+        final String msg = String.format("%s: %d rows cleaned (%d rows/sec).",
+                progress.getStep(), progress.getRowsDeleted(),
+                progress.getRowsPerSecond());
+
+        SpInfo.instance().log(String.format("|          %s", msg));
+
+        publisher.publish(PubTopicEnum.DB, PubLevelEnum.INFO, msg);
+    }
+
     /**
      * @param publisher
      * @param msgKey
@@ -360,7 +482,10 @@ public final class DocLogClean extends AbstractJob {
 
         if (performClean) {
             batchCommitter.lazyOpen();
-            nDeleted = dao.cleanHistory(dateBackInTime, batchCommitter);
+            nDeleted = dao.cleanHistory(dateBackInTime,
+                    createPurgeProgress(docClean, publisher, entity,
+                            dateBackInTime),
+                    batchCommitter);
             duration = batchCommitter.close();
         } else {
             nDeleted = 0;
@@ -420,6 +545,8 @@ public final class DocLogClean extends AbstractJob {
         if (performClean) {
             batchCommitter.lazyOpen();
             nDeleted = daoDocLog.cleanAccountTrxHistory(dateBackInTime,
+                    createPurgeProgress(docClean, publisher, entity,
+                            dateBackInTime),
                     batchCommitter);
             duration = batchCommitter.close();
         } else {
@@ -468,7 +595,10 @@ public final class DocLogClean extends AbstractJob {
 
         if (performClean) {
             batchCommitter.lazyOpen();
-            nDeleted = dao.cleanDocOutHistory(dateBackInTime, batchCommitter);
+            nDeleted = dao.cleanDocOutHistory(dateBackInTime,
+                    createPurgeProgress(docClean, publisher, entity,
+                            dateBackInTime),
+                    batchCommitter);
             duration = batchCommitter.close();
 
         } else {
@@ -518,7 +648,10 @@ public final class DocLogClean extends AbstractJob {
         if (performClean) {
 
             batchCommitter.lazyOpen();
-            nDeleted = dao.cleanDocInHistory(dateBackInTime, batchCommitter);
+            nDeleted = dao.cleanDocInHistory(dateBackInTime,
+                    createPurgeProgress(docClean, publisher, entity,
+                            dateBackInTime),
+                    batchCommitter);
             duration = batchCommitter.close();
 
         } else {
@@ -29,7 +29,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 import org.quartz.JobDataMap;
@@ -44,6 +49,7 @@ import org.savapage.core.config.ConfigManager;
 import org.savapage.core.config.IConfigProp.Key;
 import org.savapage.core.dao.DaoContext;
 import org.savapage.core.dao.enums.AppLogLevelEnum;
+import org.savapage.core.dao.helpers.DaoBatchCommitter;
 import org.savapage.core.dto.PrinterSnmpDto;
 import org.savapage.core.services.PrinterService;
 import org.savapage.core.services.ProxyPrintService;
@@ -57,6 +63,7 @@ import org.savapage.core.util.AppLogHelper;
 import org.savapage.core.util.JsonHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snmp4j.Snmp;
 
 /**
  *
@@ -247,69 +254,84 @@ public final class PrinterSnmpJob extends AbstractJob {
         }
         publisher.publish(PubTopicEnum.SNMP, level, msgStart);
 
-        final PrinterSnmpReader snmpReader = new PrinterSnmpReader(
-                cm.getConfigInt(Key.PRINTER_SNMP_READ_RETRIES),
-                cm.getConfigInt(Key.PRINTER_SNMP_READ_TIMEOUT_MSECS));
-
         /*
-         * Since there might be multiple queues for a single host, we cache
-         * results for easy retrieval.
+         * Hosts are read concurrently over one shared SNMP transport. Since
+         * there might be multiple queues for a single host, each host is read
+         * once.
          */
-        final Map<String, PrinterSnmpDto> hostCache = new HashMap<>();
+        final Map<String, Future<PrinterSnmpDto>> hostReads = new HashMap<>();
 
-        String hostWlk = null;
+        final int parallelism = Math.max(1,
+                Math.min(cm.getConfigInt(Key.PRINTER_SNMP_READ_PARALLELISM),
+                        queries.size()));
 
-        try {
+        final ExecutorService executor =
+                Executors.newFixedThreadPool(parallelism);
 
-            for (final SnmpPrinterQueryDto query : queries) {
+        Snmp snmp = null;
 
-                final String host = query.getUriHost();
-                hostWlk = host;
+        DaoBatchCommitter batchCommitter = null;
 
-                PrinterSnmpDto dto = null;
+        String hostWlk = null;
 
-                if (hostCache.containsKey(host)) {
+        try {
+            snmp = SnmpClientSession.createSnmp();
 
-                    dto = hostCache.get(host);
+            final PrinterSnmpReader snmpReader = new PrinterSnmpReader(
+                    cm.getConfigInt(Key.PRINTER_SNMP_READ_RETRIES),
+                    cm.getConfigInt(Key.PRINTER_SNMP_READ_TIMEOUT_MSECS),
+                    snmp);
 
-                } else {
+            for (final SnmpPrinterQueryDto query : queries) {
 
-                    if (printerID == null) {
-                        SNMP_RETRIEVE_SERVICE.claimSnmpRetrieve(host);
-                    }
+                final String host = query.getUriHost();
 
-                    if (SNMP_RETRIEVE_SERVICE.lockSnmpRetrieve(host)) {
+                if (hostReads.containsKey(host)) {
+                    continue;
+                }
+
+                if (printerID == null) {
+                    SNMP_RETRIEVE_SERVICE.claimSnmpRetrieve(host);
+                }
 
-                        try {
-                            dto = snmpReader.read(host,
+                if (SNMP_RETRIEVE_SERVICE.lockSnmpRetrieve(host)) {
+                    hostReads.put(host,
+                            executor.submit(() -> snmpReader.read(host,
                                     SnmpClientSession.DEFAULT_PORT_READ,
-                                    SnmpClientSession.DEFAULT_COMMUNITY);
+                                    SnmpClientSession.DEFAULT_COMMUNITY)));
+                } else {
+                    hostReads.put(host, null);
+                }
+            }
 
-                        } catch (SnmpConnectException e) {
+            /*
+             * Results are stored in query order, in batched transactions.
+             */
+            batchCommitter = daoContext
+                    .createBatchCommitter(ConfigManager.getDaoBatchChunkSize());
+            batchCommitter.open();
 
-                            dto = null;
+            final Map<String, PrinterSnmpDto> hostCache = new HashMap<>();
 
-                            msg = AppLogHelper.logWarning(getClass(),
-                                    "PrinterSnmp.retrieve.failure",
-                                    query.getPrinter().getPrinterName(),
-                                    query.getUriHost(), e.getMessage());
+            for (final SnmpPrinterQueryDto query : queries) {
 
-                            publisher.publish(PubTopicEnum.SNMP,
-                                    PubLevelEnum.WARN, msg);
+                final String host = query.getUriHost();
+                hostWlk = host;
 
-                        }
+                final PrinterSnmpDto dto;
 
-                        hostCache.put(host, dto);
-                    }
+                if (hostCache.containsKey(host)) {
+                    dto = hostCache.get(host);
+                } else {
+                    dto = this.getHostRead(hostReads.get(host), query);
+                    hostCache.put(host, dto);
                 }
 
                 ServiceContext.resetTransactionDate();
 
-                daoContext.beginTransaction();
-
                 PRINTER_SERVICE.setSnmpInfo(query.getPrinter(), dto);
 
-                daoContext.commit();
+                batchCommitter.increment();
 
                 if (dto == null) {
                     continue;
@@ -322,6 +344,9 @@ public final class PrinterSnmpJob extends AbstractJob {
                 count++;
             }
 
+            batchCommitter.close();
+            batchCommitter = null;
+
             if (count == 0) {
                 msg = AppLogHelper.logWarning(getClass(), "PrinterSnmp.none");
             } else if (count == 1) {
@@ -340,6 +365,9 @@ public final class PrinterSnmpJob extends AbstractJob {
 
         } catch (Exception e) {
 
+            if (batchCommitter != null) {
+                batchCommitter.rollback();
+            }
             daoContext.rollback();
 
             LOGGER.error(e.getMessage(), e);
@@ -354,12 +382,68 @@ public final class PrinterSnmpJob extends AbstractJob {
             AppLogHelper.log(AppLogLevelEnum.ERROR, msg);
 
         } finally {
-            for (final String host : hostCache.keySet()) {
-                SNMP_RETRIEVE_SERVICE.releaseSnmpRetrieve(host);
+
+            executor.shutdownNow();
+
+            if (snmp != null) {
+                try {
+                    snmp.close();
+                } catch (IOException e) {
+                    LOGGER.warn(e.getMessage());
+                }
+            }
+
+            for (final Entry<String, Future<PrinterSnmpDto>> entry : hostReads
+                    .entrySet()) {
+                if (entry.getValue() != null) {
+                    SNMP_RETRIEVE_SERVICE.releaseSnmpRetrieve(entry.getKey());
+                }
             }
         }
 
         publisher.publish(PubTopicEnum.SNMP, level, msg);
     }
 
-}
\ No newline at end of file
+    /**
+     * Waits for the SNMP read of a host.
+     *
+     * @param hostRead
+     *            The pending read, or {@code null} when the host was not
+     *            locked for this job.
+     * @param query
+     *            The query of the host.
+     * @return The {@link PrinterSnmpDto}, or {@code null} when not read or
+     *         the SNMP connection failed.
+     * @throws InterruptedException
+     *             When interrupted while waiting.
+     */
+    private PrinterSnmpDto getHostRead(final Future<PrinterSnmpDto> hostRead,
+            final SnmpPrinterQueryDto query) throws InterruptedException {
+
+        if (hostRead == null) {
+            return null;
+        }
+
+        try {
+            return hostRead.get();
+
+        } catch (ExecutionException e) {
+
+            if (!(e.getCause() instanceof SnmpConnectException)) {
+                throw new IllegalStateException(e.getCause().getMessage(),
+                        e.getCause());
+            }
+
+            final String msg = AppLogHelper.logWarning(getClass(),
+                    "PrinterSnmp.retrieve.failure",
+                    query.getPrinter().getPrinterName(), query.getUriHost(),
+                    e.getCause().getMessage());
+
+            AdminPublisher.instance().publish(PubTopicEnum.SNMP,
+                    PubLevelEnum.WARN, msg);
+
+            return null;
+        }
+    }
+
+}
@@ -32,7 +32,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
@@ -191,6 +190,29 @@ public final class SyncUsersJob extends AbstractJob {
 
     };
 
+    /**
+     * Primary key and user name of a non-deleted database user.
+     */
+    private static final class DbUserKey {
+
+        /** */
+        private final Long id;
+
+        /** */
+        private final String userId;
+
+        /**
+         * @param pk
+         *            Primary key.
+         * @param uid
+         *            User name.
+         */
+        DbUserKey(final Long pk, final String uid) {
+            this.id = pk;
+            this.userId = uid;
+        }
+    }
+
     @Override
     protected void onInterrupt() throws UnableToInterruptJobException {
         // noop
@@ -391,20 +413,32 @@ public final class SyncUsersJob extends AbstractJob {
     }
 
     /**
-     * Gets the next database User and load it into the session context.
+     * Gets the next database User key.
      *
      * @param iter
      *            The {@link Iterator}.
      * @return {@code null} when EOF.
      */
-    private User nextDb(final Iterator<User> iter) {
+    private static DbUserKey nextDb(final Iterator<DbUserKey> iter) {
         if (iter.hasNext()) {
-            return ServiceContext.getDaoContext().getUserDao()
-                    .findById(iter.next().getId());
+            return iter.next();
         }
         return null;
     }
 
+    /**
+     * Loads a database User into the session context. A User is loaded just
+     * before it is processed, since the session context is cleared at each
+     * chunk commit.
+     *
+     * @param key
+     *            The User key.
+     * @return {@code null} when not found.
+     */
+    private static User loadDbUser(final DbUserKey key) {
+        return ServiceContext.getDaoContext().getUserDao().findById(key.id);
+    }
+
     /**
      * Adds/Removes card number(s) to/from the User, based on the card number
      * offered from the user source.
@@ -1718,8 +1752,10 @@ public final class SyncUsersJob extends AbstractJob {
         @SuppressWarnings("unused")
         int nInternalUsersUpd = 0;
 
-        final SortedSet<User> usersDb =
-                getAllDbUsers(DaoContextImpl.peekEntityManager());
+        final int chunkSize = ConfigManager.getDaoBatchChunkSize();
+
+        final List<DbUserKey> usersDb = getAllDbUserKeys(
+                DaoContextImpl.peekEntityManager(), chunkSize);
 
         final SortedSet<CommonUser> users = getSourceUsers();
 
@@ -1730,7 +1766,7 @@ public final class SyncUsersJob extends AbstractJob {
          * Balanced line between users in the source and users in the database.
          */
         final Iterator<CommonUser> iterSrc = users.iterator();
-        final Iterator<User> iterDb = usersDb.iterator();
+        final Iterator<DbUserKey> iterDb = usersDb.iterator();
 
         /*
          * Initial reads + batch committer.
@@ -1738,55 +1774,63 @@ public final class SyncUsersJob extends AbstractJob {
         final MutableInt disabledCounter = new MutableInt();
 
         CommonUser userSrc = nextSrc(iterSrc, disabledCounter);
-        User userDb = nextDb(iterDb);
+        DbUserKey keyDb = nextDb(iterDb);
 
-        this.batchCommitter = ServiceContext.getDaoContext()
-                .createBatchCommitter(ConfigManager.getDaoBatchChunkSize());
+        this.batchCommitter =
+                ServiceContext.getDaoContext().createBatchCommitter(chunkSize);
 
         this.batchCommitter.setTest(this.isTest);
 
+        /*
+         * Users are loaded one by one: detach processed users at each chunk
+         * commit, so the persistence context does not grow with the number
+         * of users.
+         */
+        this.batchCommitter.setClearAfterChunk(true);
+
         this.batchCommitter.open(); // Mantis #720
 
         /*
-         * Process the balanced line.
+         * Process the balanced line. A database user is loaded just before it
+         * is processed, since processed users are detached at each chunk
+         * commit.
          */
-        while (userSrc != null || userDb != null) {
-
-            if (userSrc == null) {
+        while (userSrc != null || keyDb != null) {
 
+            if (keyDb == null) {
                 /*
-                 * No more users in source.
+                 * No more users in Db: add user + read next
                  */
-                if (userDb.getInternal()) {
-                    /*
-                     * Do NOT delete internal users.
-                     */
-                    nInternalUsers++;
-                } else {
-                    if (isDeleteUsers) {
-                        deleteUser(userDb);
-                        nDeleted++;
-                    } else {
-                        nNonExist++;
-                    }
-                    deleteUserFiles(userDb);
-                }
-                userDb = nextDb(iterDb);
+                addUser(userSrc, syncDate, syncActor);
+                nAdded++;
+                userSrc = nextSrc(iterSrc, disabledCounter);
                 continue;
             }
 
-            if (userDb == null) {
+            final int compare;
+
+            if (userSrc == null) {
                 /*
-                 * No more users in Db: add user + read next
+                 * No more users in source.
                  */
+                compare = -1;
+            } else {
+                compare = keyDb.userId.compareTo(userSrc.getUserName());
+            }
+
+            if (compare > 0) {
                 addUser(userSrc, syncDate, syncActor);
                 nAdded++;
                 userSrc = nextSrc(iterSrc, disabledCounter);
                 continue;
             }
 
-            final int compare =
-                    userDb.getUserId().compareTo(userSrc.getUserName());
+            final User userDb = loadDbUser(keyDb);
+            keyDb = nextDb(iterDb);
+
+            if (userDb == null) {
+                continue;
+            }
 
             if (compare == 0) {
 
@@ -1813,31 +1857,20 @@ public final class SyncUsersJob extends AbstractJob {
                 }
 
                 userSrc = nextSrc(iterSrc, disabledCounter);
-                userDb = nextDb(iterDb);
 
-            } else if (compare < 0) {
-
-                if (userDb.getInternal()) {
-                    /*
-                     * Do NOT delete internal users.
-                     */
-                    nInternalUsers++;
+            } else if (userDb.getInternal()) {
+                /*
+                 * Do NOT delete internal users.
+                 */
+                nInternalUsers++;
+            } else {
+                if (isDeleteUsers) {
+                    deleteUser(userDb);
+                    nDeleted++;
                 } else {
-                    if (isDeleteUsers) {
-                        deleteUser(userDb);
-                        nDeleted++;
-                    } else {
-                        nNonExist++;
-                    }
-                    deleteUserFiles(userDb);
+                    nNonExist++;
                 }
-                userDb = nextDb(iterDb);
-
-            } else {
-
-                addUser(userSrc, syncDate, syncActor);
-                nAdded++;
-                userSrc = nextSrc(iterSrc, disabledCounter);
+                deleteUserFiles(userDb);
             }
 
         } // end-while
@@ -1897,31 +1930,56 @@ public final class SyncUsersJob extends AbstractJob {
     }
 
     /**
-     * Gets all (external AND internal) non-deleted users sorted by userId.
+     * Gets the primary key and user name of all (external AND internal)
+     * non-deleted users sorted by userId.
+     * <p>
+     * Users are read by keyset pagination on primary key, and only the key
+     * columns are selected, so no entities are loaded into the persistence
+     * context. Sorting is done here, since database collation may differ from
+     * {@link String#compareTo(String)}, which must be used to match the
+     * ordering of the user source (Mantis #760).
+     * </p>
      *
      * @param em
      *            The JPA entity manager. The caller is responsible for the
      *            close() of the entity manager.
-     * @return The {@link SortedSet} of Users.
+     * @param pageSize
+     *            The number of rows per query.
+     * @return The sorted list of user keys.
      */
-    private static SortedSet<User> getAllDbUsers(final EntityManager em) {
+    private static List<DbUserKey> getAllDbUserKeys(final EntityManager em,
+            final int pageSize) {
+
+        final String jpql = "SELECT U.id, U.userId FROM User U"
+                + " WHERE U.deleted = false AND U.id > :lastId"
+                + " ORDER BY U.id";
+
+        final List<DbUserKey> keys = new ArrayList<>();
 
-        final String jpql = "SELECT U FROM User U" + " WHERE U.deleted = false"
-                + " ORDER BY U.userId ";
+        Long lastId = Long.valueOf(Long.MIN_VALUE);
 
-        final Query query = em.createQuery(jpql);
+        while (true) {
 
-        final SortedSet<User> ssetUser =
-                new TreeSet<>(new DbUserNameComparator());
+            final Query query = em.createQuery(jpql);
+            query.setParameter("lastId", lastId);
+            query.setMaxResults(pageSize);
 
-        @SuppressWarnings("unchecked")
-        final List<User> list = query.getResultList();
+            @SuppressWarnings("unchecked")
+            final List<Object[]> rows = query.getResultList();
 
-        for (final User user : list) {
-            ssetUser.add(user);
+            for (final Object[] row : rows) {
+                keys.add(new DbUserKey((Long) row[0], (String) row[1]));
+            }
+
+            if (rows.size() < pageSize) {
+                break;
+            }
+            lastId = keys.get(keys.size() - 1).id;
         }
 
-        return ssetUser;
+        keys.sort((o1, o2) -> o1.userId.compareTo(o2.userId));
+
+        return keys;
     }
 
 }
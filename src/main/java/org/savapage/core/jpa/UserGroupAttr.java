@@ -26,6 +26,7 @@ package org.savapage.core.jpa;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -34,6 +35,8 @@ import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.persistence.TableGenerator;
 
+import org.savapage.core.services.helpers.AccessControlCacheListener;
+
 /**
  *
  * @author Rijk Ravestein
@@ -41,6 +44,7 @@ import javax.persistence.TableGenerator;
  */
 @Entity
 @Table(name = UserGroupAttr.TABLE_NAME)
+@EntityListeners(AccessControlCacheListener.class)
 public class UserGroupAttr extends org.savapage.core.jpa.Entity {
 
     /**
@@ -28,6 +28,7 @@ import java.util.Date;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -36,6 +37,9 @@ import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.persistence.TableGenerator;
 
+import org.savapage.core.services.helpers.AccessControlCacheListener;
+import org.savapage.core.services.helpers.PrinterAccessIndexListener;
+
 /**
  * Relation between User and UserGroup.
  *
@@ -44,6 +48,8 @@ import javax.persistence.TableGenerator;
  */
 @Entity
 @Table(name = UserGroupMember.TABLE_NAME)
+@EntityListeners({ AccessControlCacheListener.class,
+        PrinterAccessIndexListener.class })
 public class UserGroupMember extends org.savapage.core.jpa.Entity {
 
     /**
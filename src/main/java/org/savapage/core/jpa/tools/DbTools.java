@@ -25,12 +25,21 @@
 package org.savapage.core.jpa.tools;
 
 import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
 import java.beans.PropertyDescriptor;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -41,6 +50,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.EnumSet;
@@ -48,12 +58,21 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
+import javax.persistence.Id;
 import javax.persistence.Query;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLOutputFactory;
@@ -219,6 +238,136 @@ public final class DbTools implements ServiceEntryPoint {
      */
     private static final String JPQL_ENTITY_ALIAS = "T";
 
+    /**
+     * JPQL parameter for the last primary key of a keyset paged export.
+     */
+    private static final String JPQL_PARM_LAST_ID = "lastId";
+
+    /**
+     * The root element of the export XML document.
+     */
+    private static final String XML_EXPORT_ROOT = "data";
+
+    /**
+     * The trailer of the export XML document.
+     */
+    private static final String XML_EXPORT_TRAILER =
+            "</" + XML_EXPORT_ROOT + ">";
+
+    /**
+     * A property of an exported entity, with a cached read method handle.
+     */
+    private static final class ExportProperty {
+
+        /** */
+        private final String name;
+
+        /** */
+        private final boolean date;
+
+        /** */
+        private final MethodHandle getter;
+
+        /**
+         * @param name
+         *            The property name.
+         * @param date
+         *            {@code true} if property is a {@link Date}.
+         * @param getter
+         *            The read method handle.
+         */
+        ExportProperty(final String name, final boolean date,
+                final MethodHandle getter) {
+            this.name = name;
+            this.date = date;
+            this.getter = getter;
+        }
+
+        /**
+         * @return The property name.
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return {@code true} if property is a {@link Date}.
+         */
+        boolean isDate() {
+            return date;
+        }
+
+        /**
+         * @param obj
+         *            The entity.
+         * @return The property value (can be {@code null}).
+         * @throws SpException
+         *             When read method fails.
+         */
+        Object getValue(final Object obj) {
+            try {
+                return this.getter.invoke(obj);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new SpException(t.getMessage(), t);
+            }
+        }
+    }
+
+    /**
+     * Exported properties by entity class.
+     */
+    private static final ConcurrentMap<Class<?>, List<ExportProperty>> //
+    EXPORT_PROPERTIES = new ConcurrentHashMap<>();
+
+    /**
+     * An {@link InputStream} that reads all entries of a
+     * {@link ZipInputStream} as one stream.
+     */
+    private static final class ZipEntriesInputStream
+            extends FilterInputStream {
+
+        /**
+         * @param zin
+         *            The {@link ZipInputStream} positioned at the first entry.
+         */
+        ZipEntriesInputStream(final ZipInputStream zin) {
+            super(zin);
+        }
+
+        /**
+         * @return {@code true} if positioned at next entry.
+         * @throws IOException
+         *             When zip error.
+         */
+        private boolean nextEntry() throws IOException {
+            return ((ZipInputStream) this.in).getNextEntry() != null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = this.in.read();
+            while (b < 0 && this.nextEntry()) {
+                b = this.in.read();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len)
+                throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int n = this.in.read(b, off, len);
+            while (n < 0 && this.nextEntry()) {
+                n = this.in.read(b, off, len);
+            }
+            return n;
+        }
+    }
+
     /**
      * DB_SCHEMA_DEPENDENT: when a new schema version is introduced a new
      * constant should be added (search for DB_SCHEMA_DEPENDENT to find other
@@ -1446,6 +1595,49 @@ public final class DbTools implements ServiceEntryPoint {
 
         final ConfigManager cm = ConfigManager.instance();
 
+        final int parallelism = cm.getConfigInt(Key.DB_EXPORT_PARALLELISM,
+                Integer.valueOf(IConfigProp.DEFAULT_EXPORT_PARALLELISM));
+
+        final int zipLevel = cm.getConfigInt(Key.DB_EXPORT_ZIP_LEVEL,
+                Integer.valueOf(IConfigProp.DEFAULT_EXPORT_ZIP_LEVEL));
+
+        return exportDb(em, queryMaxResults, fileExport, parallelism,
+                zipLevel);
+    }
+
+    /**
+     * Exports the database content to named zipped XML file, or to a directory.
+     * Also see {@link #importDb(File)}.
+     * <p>
+     * Each table is exported by a parallel worker, with its own
+     * {@link EntityManager}, to a temporary XML fragment. The fragments are
+     * added in schema order as separate zip entries, between a header entry
+     * with the XML root start element and a trailer entry with the root end
+     * element. The concatenated entries form the XML document read by
+     * {@link #importDb(File, DbProcessListener)}.
+     * </p>
+     *
+     * @param em
+     *            The {@link EntityManager}.
+     * @param queryMaxResults
+     *            The maximum number of rows in each query result set.
+     * @param fileExport
+     *            The output file. When the file is a directory a default
+     *            filename in this directory is constructed.
+     * @param parallelism
+     *            The number of tables exported in parallel.
+     * @param zipLevel
+     *            The zip compression level (0-9).
+     * @return The exported file.
+     * @throws IOException
+     *             When file i/o errors.
+     */
+    public static File exportDb(final EntityManager em,
+            final int queryMaxResults, final File fileExport,
+            final int parallelism, final int zipLevel) throws IOException {
+
+        final ConfigManager cm = ConfigManager.instance();
+
         final Date dateExport = new Date();
 
         String exportFile;
@@ -1456,28 +1648,113 @@ public final class DbTools implements ServiceEntryPoint {
             exportFile = fileExport.getAbsolutePath();
         }
 
-        XMLStreamWriter writer = null;
+        final String exportBaseName = FilenameUtils.getBaseName(exportFile);
+        final File exportDir = new File(exportFile).getAbsoluteFile()
+                .getParentFile();
 
-        try {
+        /*
+         * Use the XML @Entity classes of the schema version of the current
+         * Database. IMPORTANT: this might NOT be equal to the schema version
+         * of the application, since e.g. we want to backup the database before
+         * an upgrade.
+         */
+        final String dbSchemaVersion = getDbSchemaVersion();
+        final Class<?>[] entityClasses =
+                getXmlSchemaEntities(dbSchemaVersion);
 
-            final SimpleDateFormat dateFormat = new SimpleDateFormat();
-            dateFormat.applyPattern("yyyy-MM-dd'T'HH-mm-ss");
+        final EntityManagerFactory emf = em.getEntityManagerFactory();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(parallelism, entityClasses.length)));
+
+        final List<Future<File>> futures = new ArrayList<>();
+
+        int nFuturesDone = 0;
+
+        try (FileOutputStream fout = new FileOutputStream(exportFile);
+                ZipOutputStream zout =
+                        new ZipOutputStream(new BufferedOutputStream(fout))) {
+
+            zout.setLevel(Math.max(Deflater.NO_COMPRESSION,
+                    Math.min(Deflater.BEST_COMPRESSION, zipLevel)));
+
+            for (final Class<?> objClass : entityClasses) {
+                futures.add(executor.submit(() -> exportDbTable(emf,
+                        queryMaxResults, objClass, exportDir)));
+            }
+
+            /*
+             * Header entry.
+             */
+            zout.putNextEntry(new ZipEntry(exportBaseName + ".xml"));
+            exportDbHeader(cm, zout, dateExport, dbSchemaVersion);
+            zout.closeEntry();
+
+            /*
+             * Table entries, in schema order.
+             */
+            for (int i = 0; i < entityClasses.length; i++) {
+
+                final File fileTable = futures.get(i).get();
+                nFuturesDone++;
+
+                try {
+                    zout.putNextEntry(new ZipEntry(
+                            String.format("%s-%02d-%s.xml", exportBaseName,
+                                    i + 1, entityClasses[i].getSimpleName())));
+                    Files.copy(fileTable.toPath(), zout);
+                    zout.closeEntry();
+                } finally {
+                    fileTable.delete();
+                }
+            }
 
             /*
-             * Zipped XML output
+             * Trailer entry.
              */
-            FileOutputStream fout = new FileOutputStream(exportFile);
-            ZipOutputStream zout = new ZipOutputStream(fout);
-            final int level = 9; // highest level
-            zout.setLevel(level);
+            zout.putNextEntry(new ZipEntry(exportBaseName + "-end.xml"));
+            zout.write(XML_EXPORT_TRAILER.getBytes(StandardCharsets.UTF_8));
+            zout.closeEntry();
 
-            ZipEntry ze = new ZipEntry(
-                    FilenameUtils.getBaseName(exportFile) + ".xml");
-            zout.putNextEntry(ze);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new SpException(cause.getMessage(), cause);
+        } finally {
+            executor.shutdownNow();
+            for (int i = nFuturesDone; i < futures.size(); i++) {
+                deleteExportDbTableFile(futures.get(i));
+            }
+        }
+        return new File(exportFile);
+    }
 
-            final XMLOutputFactory factory = XMLOutputFactory.newInstance();
+    /**
+     * Writes the XML document header with the opened root element.
+     *
+     * @param cm
+     *            The {@link ConfigManager}.
+     * @param ostr
+     *            The output stream.
+     * @param dateExport
+     *            The export date.
+     * @param dbSchemaVersion
+     *            The schema version of the database.
+     * @throws IOException
+     *             When XML errors.
+     */
+    private static void exportDbHeader(final ConfigManager cm,
+            final OutputStream ostr, final Date dateExport,
+            final String dbSchemaVersion) throws IOException {
 
-            writer = factory.createXMLStreamWriter(zout, "UTF-8");
+        try {
+            final XMLStreamWriter writer = XMLOutputFactory.newInstance()
+                    .createXMLStreamWriter(ostr, "UTF-8");
 
             /*
              * XML document
@@ -1487,8 +1764,9 @@ public final class DbTools implements ServiceEntryPoint {
             /*
              * Root element
              */
-            writer.writeStartElement("data");
+            writer.writeStartElement(XML_EXPORT_ROOT);
 
+            final SimpleDateFormat dateFormat = new SimpleDateFormat();
             dateFormat.applyPattern("yyyy-MM-dd'T'HH:mm:ss");
             final String exportTime = dateFormat.format(dateExport).toString();
 
@@ -1512,8 +1790,7 @@ public final class DbTools implements ServiceEntryPoint {
              * We need the schema version from the database, because may be this
              * is a backup-before-upgrade.
              */
-            writer.writeAttribute(XML_ATTR_SCHEMA_VERSION,
-                    getDbSchemaVersion());
+            writer.writeAttribute(XML_ATTR_SCHEMA_VERSION, dbSchemaVersion);
 
             writer.writeAttribute(XML_ATTR_EXPORT_DATETIME, exportTime);
 
@@ -1531,40 +1808,33 @@ public final class DbTools implements ServiceEntryPoint {
                     String.valueOf(dbVersionInfo.getMinorVersion()));
 
             /*
-             * Use the XML @Entity classes of the schema version of the current
-             * Database. IMPORTANT: this might NOT be equal to the schema
-             * version of the application, since e.g. we want to backup the
-             * database before an upgrade.
+             * Empty characters close the start tag: the root element is closed
+             * by the trailer entry. Do NOT close the writer, since that might
+             * close the zip stream.
              */
-            for (Class<?> objClass : getXmlSchemaEntities(
-                    getDbSchemaVersion())) {
-                exportDbTable(em, queryMaxResults, writer, objClass);
-            }
-
-            writer.writeEndElement(); // </data>
-            writer.writeEndDocument();
-
+            writer.writeCharacters("");
             writer.flush();
-            writer.close();
-
-            zout.closeEntry();
-            zout.flush();
-            zout.close();
-
-            writer = null;
 
         } catch (XMLStreamException e) {
             throw new IOException(e.getMessage(), e);
-        } finally {
-            if (writer != null) {
-                try {
-                    writer.close();
-                } catch (XMLStreamException e) {
-                    LOGGER.error("Close failed: " + e.getMessage());
-                }
+        }
+    }
+
+    /**
+     * Deletes the temporary table export file of a worker that is not
+     * consumed.
+     *
+     * @param future
+     *            The worker future.
+     */
+    private static void deleteExportDbTableFile(final Future<File> future) {
+        if (future.isDone() && !future.isCancelled()) {
+            try {
+                future.get().delete();
+            } catch (InterruptedException | ExecutionException e) {
+                // noop
             }
         }
-        return new File(exportFile);
     }
 
     /**
@@ -1607,8 +1877,184 @@ public final class DbTools implements ServiceEntryPoint {
         return query;
     }
 
+    /**
+     * Creates a keyset paged export query, ordered by primary key.
+     *
+     * @param em
+     *            The {@link EntityManager}.
+     * @param entityClassNameFull
+     *            The full entity class name.
+     * @param idName
+     *            The name of the primary key property.
+     * @param isNext
+     *            If {@code true}, the query selects rows with a key greater
+     *            than parameter {@link #JPQL_PARM_LAST_ID}.
+     * @return The {@link Query} object.
+     */
+    private static Query createDbTableKeysetQueryForExport(
+            final EntityManager em, final String entityClassNameFull,
+            final String idName, final boolean isNext) {
+
+        final StringBuilder jpql = new StringBuilder(128);
+
+        final String idPath = JPQL_ENTITY_ALIAS + "." + idName;
+
+        jpql.append("SELECT ").append(JPQL_ENTITY_ALIAS).append(" FROM ")
+                .append(entityClassNameFull).append(" ")
+                .append(JPQL_ENTITY_ALIAS);
+
+        if (isNext) {
+            jpql.append(" WHERE ").append(idPath).append(" > :")
+                    .append(JPQL_PARM_LAST_ID);
+        }
+
+        jpql.append(" ORDER BY ").append(idPath);
+
+        return em.createQuery(jpql.toString());
+    }
+
+    /**
+     * Exports a database table to a temporary XML fragment file.
+     *
+     * @param emf
+     *            The JPA {@link EntityManagerFactory}.
+     * @param queryMaxResults
+     *            The maximum number of rows in each query result set.
+     * @param objClass
+     *            The class of the JPA entity to export.
+     * @param dir
+     *            The directory of the temporary file.
+     * @return The temporary file.
+     * @throws IOException
+     *             When file i/o errors.
+     */
+    private static File exportDbTable(final EntityManagerFactory emf,
+            final int queryMaxResults, final Class<?> objClass,
+            final File dir) throws IOException {
+
+        final File file = File.createTempFile("savapage-export-", ".xml", dir);
+
+        final EntityManager em = emf.createEntityManager();
+
+        boolean exported = false;
+
+        try (OutputStream ostr =
+                new BufferedOutputStream(new FileOutputStream(file))) {
+
+            final XMLStreamWriter writer = XMLOutputFactory.newInstance()
+                    .createXMLStreamWriter(ostr, "UTF-8");
+
+            exportDbTable(em, queryMaxResults, writer, objClass);
+
+            writer.flush();
+            writer.close();
+
+            exported = true;
+
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            em.close();
+            if (!exported) {
+                file.delete();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Gets the name of the {@link Id} property of an entity class.
+     *
+     * @param objClass
+     *            The class of the JPA entity.
+     * @return The property name, or {@code null} when not found.
+     */
+    private static String getEntityIdName(final Class<?> objClass) {
+        for (Class<?> cls = objClass; cls != null; cls = cls.getSuperclass()) {
+            for (final Field field : cls.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Id.class)) {
+                    return field.getName();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the (cached) exported properties of an entity class.
+     *
+     * @param objClass
+     *            The class of the JPA entity.
+     * @return The exported properties.
+     */
+    private static List<ExportProperty>
+            getExportProperties(final Class<?> objClass) {
+        return EXPORT_PROPERTIES.computeIfAbsent(objClass,
+                DbTools::createExportProperties);
+    }
+
+    /**
+     * Creates the exported properties of an entity class: {@link Date} and
+     * {@link #SIMPLE_JPA_TYPES} properties with a read method.
+     *
+     * @param objClass
+     *            The class of the JPA entity.
+     * @return The exported properties.
+     */
+    private static List<ExportProperty>
+            createExportProperties(final Class<?> objClass) {
+
+        final List<ExportProperty> props = new ArrayList<>();
+
+        try {
+            final BeanInfo binfo =
+                    java.beans.Introspector.getBeanInfo(objClass);
+
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            for (final PropertyDescriptor descr : binfo
+                    .getPropertyDescriptors()) {
+
+                final String propName = descr.getName();
+
+                if (propName.equals("class")
+                        || descr.getReadMethod() == null) {
+                    continue;
+                }
+
+                final Class<?> propClass = descr.getPropertyType();
+                final boolean isDate = propClass.equals(java.util.Date.class);
+
+                boolean isSimpleType = false;
+
+                if (!isDate) {
+                    for (final Class<?> cls : SIMPLE_JPA_TYPES) {
+                        if (propClass.equals(cls)) {
+                            isSimpleType = true;
+                            break;
+                        }
+                    }
+                }
+
+                if (isDate || isSimpleType) {
+                    props.add(new ExportProperty(propName, isDate,
+                            lookup.unreflect(descr.getReadMethod())));
+                }
+            }
+        } catch (IntrospectionException | IllegalAccessException e) {
+            throw new SpException(e);
+        }
+        return props;
+    }
+
     /**
      * Exports a database table.
+     * <p>
+     * Rows are read in pages ordered by primary key, where each next page
+     * starts after the key of the previous page (keyset paging). Entities
+     * with a specific export order (see
+     * {@link #XML_SCHEMA_ENTITIES_EXPORT_ORDER_BY}) are read in offset pages.
+     * </p>
      *
      * @param em
      *            The JPA EntityManager.
@@ -1630,10 +2076,9 @@ public final class DbTools implements ServiceEntryPoint {
 
         final String entityClassNameSimple = objClass.getSimpleName();
 
-        try {
+        final List<ExportProperty> props = getExportProperties(objClass);
 
-            final BeanInfo binfo =
-                    java.beans.Introspector.getBeanInfo(objClass);
+        try {
 
             writer.writeStartElement("entity");
             writer.writeAttribute("name", entityClassNameSimple);
@@ -1644,13 +2089,45 @@ public final class DbTools implements ServiceEntryPoint {
             }
 
             /*
-             * Create Query.
+             * Keyset paging on primary key, unless a specific order is needed.
              */
-            final Query query = createDbTableQueryForExport(em,
-                    entityClassNameFull, entityClassNameSimple);
+            String idName = getEntityIdName(objClass);
+
+            for (final String[] orderBy : XML_SCHEMA_ENTITIES_EXPORT_ORDER_BY) {
+                if (orderBy[0].equals(entityClassNameSimple)) {
+                    idName = null;
+                    break;
+                }
+            }
+
+            ExportProperty idProp = null;
+
+            if (idName != null) {
+                for (final ExportProperty prop : props) {
+                    if (prop.getName().equals(idName)) {
+                        idProp = prop;
+                        break;
+                    }
+                }
+            }
+
+            final Query queryFirst;
+            final Query queryNext;
+
+            if (idProp == null) {
+                queryFirst = createDbTableQueryForExport(em,
+                        entityClassNameFull, entityClassNameSimple);
+                queryNext = queryFirst;
+            } else {
+                queryFirst = createDbTableKeysetQueryForExport(em,
+                        entityClassNameFull, idName, false);
+                queryNext = createDbTableKeysetQueryForExport(em,
+                        entityClassNameFull, idName, true);
+            }
 
             int startPositionWlk = 0;
             int resultListSizeWlk = queryMaxResults;
+            Object lastIdWlk = null;
 
             /*
              * Process result chunks.
@@ -1660,7 +2137,17 @@ public final class DbTools implements ServiceEntryPoint {
                 /*
                  * Get chunk.
                  */
-                query.setFirstResult(startPositionWlk);
+                final Query query;
+
+                if (idProp == null) {
+                    query = queryFirst;
+                    query.setFirstResult(startPositionWlk);
+                } else if (lastIdWlk == null) {
+                    query = queryFirst;
+                } else {
+                    query = queryNext;
+                    query.setParameter(JPQL_PARM_LAST_ID, lastIdWlk);
+                }
                 query.setMaxResults(queryMaxResults);
 
                 @SuppressWarnings("unchecked")
@@ -1680,55 +2167,26 @@ public final class DbTools implements ServiceEntryPoint {
 
                     writer.writeStartElement(obj.xmlName());
 
-                    for (final PropertyDescriptor descr : binfo
-                            .getPropertyDescriptors()) {
-
-                        final String propName = descr.getName();
-
-                        if (propName.equals("class")) {
-                            continue;
-                        }
+                    for (final ExportProperty prop : props) {
 
-                        final String propVal =
-                                BeanUtils.getProperty(obj, propName);
+                        final Object propVal = prop.getValue(obj);
 
                         if (propVal == null) {
                             continue;
                         }
 
-                        final Class<?> propClass = descr.getPropertyType();
-
                         final String text;
 
-                        if (propClass.equals(java.util.Date.class)) {
-
-                            text = xmlDateFormat
-                                    .format(descr.getReadMethod().invoke(obj));
-
+                        if (prop.isDate()) {
+                            text = xmlDateFormat.format(propVal);
                         } else {
-
-                            boolean isSimpleType = false;
-
-                            for (final Class<?> cls : SIMPLE_JPA_TYPES) {
-                                if (propClass.equals(cls)) {
-                                    isSimpleType = true;
-                                    break;
-                                }
-                            }
-
-                            if (isSimpleType) {
-                                text = XmlParseHelper
-                                        .removeIllegalChars(propVal);
-                            } else {
-                                text = null;
-                            }
+                            text = XmlParseHelper
+                                    .removeIllegalChars(propVal.toString());
                         }
 
-                        if (text != null) {
-                            writer.writeStartElement(propName);
-                            writer.writeCharacters(text);
-                            writer.writeEndElement();
-                        }
+                        writer.writeStartElement(prop.getName());
+                        writer.writeCharacters(text);
+                        writer.writeEndElement();
                     }
                     writer.writeEndElement(); // </>
                 }
@@ -1737,6 +2195,16 @@ public final class DbTools implements ServiceEntryPoint {
 
                 resultListSizeWlk = list.size();
                 startPositionWlk += resultListSizeWlk;
+
+                if (idProp != null && resultListSizeWlk > 0) {
+                    lastIdWlk = idProp
+                            .getValue(list.get(resultListSizeWlk - 1));
+                }
+
+                /*
+                 * Detach the exported rows.
+                 */
+                em.clear();
             }
 
             writer.writeEndElement(); // </entity>
@@ -1837,8 +2305,12 @@ public final class DbTools implements ServiceEntryPoint {
                 return;
             }
 
+            /*
+             * The XML document can be split over subsequent zip entries.
+             */
             final XMLInputFactory factory = XMLInputFactory.newInstance();
-            final XMLStreamReader reader = factory.createXMLStreamReader(zin);
+            final XMLStreamReader reader = factory
+                    .createXMLStreamReader(new ZipEntriesInputStream(zin));
 
             if (reader.getEventType() != XMLStreamReader.START_DOCUMENT) {
                 throw new IllegalStateException("No XML Document.");
@@ -0,0 +1,390 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.msg;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory bus with the most recent message for each user.
+ * <p>
+ * Each user has a channel holding the latest message only. Publishing is
+ * lock-free and never blocks: it replaces the latest message, unless that is
+ * more recent, and advances a {@link Phaser}, which wakes up the threads that
+ * wait for a new message.
+ * </p>
+ * <p>
+ * Messages that are not persisted yet are tracked per user, so they can be
+ * written behind. A message stays tracked till it is marked persisted.
+ * </p>
+ * <p>
+ * Channels that are idle, have no waiting threads and no unpersisted message
+ * can be evicted with {@link #evictIdle(long)}: the latest message of an
+ * evicted channel is read from its persisted store.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class UserMsgBus {
+
+    /**
+     * An immutable user message.
+     */
+    public static final class Event {
+
+        /** Date-time of the message. */
+        private final long time;
+
+        /** */
+        private final UserMsgIndicator.Msg msg;
+
+        /** Can be {@code null}. */
+        private final String senderId;
+
+        /**
+         * @param msgTime
+         *            Date-time of the message.
+         * @param message
+         *            The message.
+         * @param sender
+         *            Any ID the sender wants to add (can be {@code null}).
+         */
+        public Event(final long msgTime, final UserMsgIndicator.Msg message,
+                final String sender) {
+            this.time = msgTime;
+            this.msg = message;
+            this.senderId = sender;
+        }
+
+        /**
+         * @return Date-time of the message.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return The message.
+         */
+        public UserMsgIndicator.Msg getMsg() {
+            return msg;
+        }
+
+        /**
+         * @return Any ID the sender added (can be {@code null}).
+         */
+        public String getSenderId() {
+            return senderId;
+        }
+    }
+
+    /**
+     * The channel of a user.
+     */
+    private static final class Channel {
+
+        /** */
+        private final AtomicReference<Event> latest = new AtomicReference<>();
+
+        /**
+         * Advances a phase for each published message. One party is
+         * registered, so each arrival advances the phase.
+         */
+        private final Phaser phaser = new Phaser(1);
+
+        /** Number of threads waiting for a message. */
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        /** Time of last publish or wait. */
+        private volatile long lastAccess = System.currentTimeMillis();
+    }
+
+    /** */
+    private static class SingletonHolder {
+        /** */
+        public static final UserMsgBus INSTANCE = new UserMsgBus();
+    }
+
+    /**
+     * Channels by user id.
+     */
+    private final ConcurrentMap<String, Channel> channels =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Most recent message that is not persisted yet, by user id.
+     */
+    private final ConcurrentMap<String, Event> unpersisted =
+            new ConcurrentHashMap<>();
+
+    /**
+     * @param current
+     *            The current message (can be {@code null}).
+     * @param event
+     *            The new message.
+     * @return The new message, or the current one when it is more recent.
+     */
+    private static Event mostRecent(final Event current, final Event event) {
+        if (current != null && current.getTime() > event.getTime()) {
+            return current;
+        }
+        return event;
+    }
+
+    /**
+     * Package-private for unit tests: use {@link #instance()}.
+     */
+    UserMsgBus() {
+    }
+
+    /**
+     * @return The singleton instance.
+     */
+    public static UserMsgBus instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Gets the channel of a user, and marks it accessed. Since this is done
+     * under the lock of the user key, the channel is not evicted
+     * concurrently.
+     *
+     * @param userId
+     *            The user id.
+     * @param isWaiter
+     *            {@code true} if the caller is going to wait for a message.
+     * @return The channel of the user.
+     */
+    private Channel accessChannel(final String userId,
+            final boolean isWaiter) {
+        return this.channels.compute(userId, (k, current) -> {
+            final Channel channel;
+            if (current == null) {
+                channel = new Channel();
+            } else {
+                channel = current;
+                channel.lastAccess = System.currentTimeMillis();
+            }
+            if (isWaiter) {
+                channel.waiters.incrementAndGet();
+            }
+            return channel;
+        });
+    }
+
+    /**
+     * Publishes the latest message for a user, and wakes up the threads
+     * waiting for it. A message older than the latest one is ignored.
+     *
+     * @param userId
+     *            The user id.
+     * @param event
+     *            The message.
+     * @param persisted
+     *            {@code true} if the message is already persisted.
+     */
+    public void publish(final String userId, final Event event,
+            final boolean persisted) {
+
+        /*
+         * Track the unpersisted message before accessing the channel, so it
+         * is not evicted while the message is set.
+         */
+        if (persisted) {
+            this.unpersisted.computeIfPresent(userId, (k, current) -> {
+                if (mostRecent(current, event) == event) {
+                    return null;
+                }
+                return current;
+            });
+        } else {
+            this.unpersisted.merge(userId, event, UserMsgBus::mostRecent);
+        }
+
+        final Channel channel = this.accessChannel(userId, false);
+
+        if (channel.latest.accumulateAndGet(event,
+                UserMsgBus::mostRecent) == event) {
+            channel.phaser.arrive();
+        }
+    }
+
+    /**
+     * Gets the latest message of a user.
+     *
+     * @param userId
+     *            The user id.
+     * @return {@code null} when no message was published (since start).
+     */
+    public Event getLatest(final String userId) {
+        final Channel channel = this.channels.get(userId);
+        if (channel == null) {
+            return null;
+        }
+        return channel.latest.get();
+    }
+
+    /**
+     * Waits for a message of a user that is more recent than a date-time.
+     *
+     * @param userId
+     *            The user id.
+     * @param after
+     *            The date-time the message must be more recent than.
+     * @param timeout
+     *            Max time to wait.
+     * @param unit
+     *            The unit of timeout.
+     * @return The message, or {@code null} when timed out.
+     * @throws InterruptedException
+     *             When interrupted while waiting.
+     */
+    public Event await(final String userId, final Date after,
+            final long timeout, final TimeUnit unit)
+            throws InterruptedException {
+
+        final Channel channel = this.accessChannel(userId, true);
+
+        try {
+            return awaitChannel(channel, after,
+                    System.nanoTime() + unit.toNanos(timeout));
+        } finally {
+            channel.lastAccess = System.currentTimeMillis();
+            channel.waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits for a message on a channel that is more recent than a date-time.
+     *
+     * @param channel
+     *            The channel.
+     * @param after
+     *            The date-time the message must be more recent than.
+     * @param deadline
+     *            The {@link System#nanoTime()} to wait until.
+     * @return The message, or {@code null} when timed out.
+     * @throws InterruptedException
+     *             When interrupted while waiting.
+     */
+    private static Event awaitChannel(final Channel channel, final Date after,
+            final long deadline) throws InterruptedException {
+
+        while (true) {
+
+            // Get phase before checking, so no publication is missed.
+            final int phase = channel.phaser.getPhase();
+
+            final Event event = channel.latest.get();
+
+            if (event != null && event.getTime() > after.getTime()) {
+                return event;
+            }
+
+            final long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0) {
+                return null;
+            }
+
+            try {
+                channel.phaser.awaitAdvanceInterruptibly(phase, remaining,
+                        TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Gets the messages that are not persisted yet. A message is tracked till
+     * {@link #markPersisted(String, Event)} is called.
+     *
+     * @return Copy of the unpersisted messages by user id.
+     */
+    public Map<String, Event> getUnpersisted() {
+        return new HashMap<>(this.unpersisted);
+    }
+
+    /**
+     * Marks a message of a user as persisted. Nothing is marked when a more
+     * recent message was published in the meantime.
+     *
+     * @param userId
+     *            The user id.
+     * @param event
+     *            The persisted message.
+     */
+    public void markPersisted(final String userId, final Event event) {
+        this.unpersisted.remove(userId, event);
+    }
+
+    /**
+     * Evicts the channels that are idle, have no waiting threads and no
+     * unpersisted message.
+     *
+     * @param maxIdleMsec
+     *            Max milliseconds a channel can be idle.
+     * @return Number of evicted channels.
+     */
+    public int evictIdle(final long maxIdleMsec) {
+
+        final long idleBefore = System.currentTimeMillis() - maxIdleMsec;
+        int nEvicted = 0;
+
+        for (final String userId : this.channels.keySet()) {
+            final boolean[] evicted = new boolean[1];
+            this.channels.computeIfPresent(userId, (k, channel) -> {
+                if (channel.lastAccess < idleBefore
+                        && channel.waiters.get() == 0
+                        && !this.unpersisted.containsKey(userId)) {
+                    evicted[0] = true;
+                    return null;
+                }
+                return channel;
+            });
+            if (evicted[0]) {
+                nEvicted++;
+            }
+        }
+        return nEvicted;
+    }
+
+    /**
+     * @return Number of user channels.
+     */
+    public int size() {
+        return this.channels.size();
+    }
+}
@@ -34,14 +34,19 @@ import java.nio.file.StandardCopyOption;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 
 import org.savapage.core.community.CommunityDictEnum;
 import org.savapage.core.config.ConfigManager;
+import org.savapage.core.config.IConfigProp.Key;
 import org.savapage.core.dao.PrintOutDao;
 import org.savapage.core.dao.helpers.IppQueueHelper;
 import org.savapage.core.i18n.AdjectiveEnum;
@@ -64,8 +69,13 @@ import org.slf4j.LoggerFactory;
  * This class manages the date-time of the most recent message to be delivered
  * to User Web App.
  * <p>
- * A file is used in the SafePages directory of the user to read/write the
- * message.
+ * The most recent message is published on the in-memory {@link UserMsgBus},
+ * so User Web App sessions can wait for it with
+ * {@link #await(String, Date, long)}. A file in the SafePages directory of
+ * the user persists the message, so it survives a restart: this file can be
+ * written behind, see
+ * {@link Key#WEBAPP_USER_MSG_INDICATOR_WRITE_BEHIND_MSEC}. Idle bus channels
+ * are evicted periodically.
  * </p>
  *
  * @author Rijk Ravestein
@@ -180,6 +190,29 @@ public final class UserMsgIndicator {
      */
     private static final String PROP_SENDER_ID = "sender-id";
 
+    /**
+     * Max milliseconds a {@link UserMsgBus} channel can be idle before it is
+     * evicted.
+     */
+    private static final long CHANNEL_MAX_IDLE_MSEC =
+            DateUtil.DURATION_MSEC_HOUR;
+
+    /**
+     * Milliseconds between evictions of idle {@link UserMsgBus} channels.
+     */
+    private static final long CHANNEL_EVICT_PERIOD_MSEC =
+            10 * DateUtil.DURATION_MSEC_MINUTE;
+
+    /**
+     * Executor for channel eviction and write-behind, lazy created.
+     */
+    private static ScheduledExecutorService executor;
+
+    /**
+     * {@code true} when write-behind is scheduled on {@link #executor}.
+     */
+    private static boolean writeBehindScheduled;
+
     /**
      *
      */
@@ -206,6 +239,22 @@ public final class UserMsgIndicator {
     private UserMsgIndicator() {
     }
 
+    /**
+     * Creates the message indicator for a user from a bus message.
+     *
+     * @param userId
+     *            The user id.
+     * @param event
+     *            The message.
+     */
+    private UserMsgIndicator(final String userId,
+            final UserMsgBus.Event event) {
+        this.userId = userId;
+        this.messageDate = new Date(event.getTime());
+        this.message = event.getMsg();
+        this.senderId = event.getSenderId();
+    }
+
     /**
      * Reads the message indicator property file for a user.
      *
@@ -363,7 +412,145 @@ public final class UserMsgIndicator {
      */
     public static UserMsgIndicator read(final String userId)
             throws IOException {
-        return new UserMsgIndicator(userId);
+
+        final UserMsgBus.Event event = UserMsgBus.instance().getLatest(userId);
+
+        if (event == null) {
+            // Nothing published since start: read the persisted message.
+            return new UserMsgIndicator(userId);
+        }
+        return new UserMsgIndicator(userId, event);
+    }
+
+    /**
+     * Waits for a message for a user that is more recent than a date-time.
+     *
+     * @param userId
+     *            The user id.
+     * @param after
+     *            The date-time the message must be more recent than.
+     * @param timeoutMsec
+     *            Max milliseconds to wait.
+     * @return The {@link UserMsgIndicator}, or {@code null} when timed out.
+     * @throws InterruptedException
+     *             When interrupted while waiting.
+     */
+    public static UserMsgIndicator await(final String userId,
+            final Date after, final long timeoutMsec)
+            throws InterruptedException {
+
+        final UserMsgBus.Event event = UserMsgBus.instance().await(userId,
+                after, timeoutMsec, TimeUnit.MILLISECONDS);
+
+        if (event == null) {
+            return null;
+        }
+        return new UserMsgIndicator(userId, event);
+    }
+
+    /**
+     * @return Milliseconds between write-behind persistence. If {@code 0}
+     *         (zero), messages are written immediately.
+     */
+    private static long getWriteBehindMsec() {
+        return ConfigManager.instance()
+                .getConfigLong(Key.WEBAPP_USER_MSG_INDICATOR_WRITE_BEHIND_MSEC);
+    }
+
+    /**
+     * Lazy starts the executor, which evicts idle {@link UserMsgBus} channels.
+     */
+    private static synchronized void lazyStartExecutor() {
+
+        if (executor != null) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread =
+                    new Thread(r, UserMsgIndicator.class.getSimpleName());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.scheduleWithFixedDelay(
+                () -> UserMsgBus.instance().evictIdle(CHANNEL_MAX_IDLE_MSEC),
+                CHANNEL_EVICT_PERIOD_MSEC, CHANNEL_EVICT_PERIOD_MSEC,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lazy starts the write-behind on the executor.
+     *
+     * @param periodMsec
+     *            Milliseconds between write-behind persistence.
+     */
+    private static synchronized void lazyStartWriteBehind(
+            final long periodMsec) {
+
+        lazyStartExecutor();
+
+        if (writeBehindScheduled) {
+            return;
+        }
+
+        executor.scheduleWithFixedDelay(UserMsgIndicator::persistUnpersisted,
+                periodMsec, periodMsec, TimeUnit.MILLISECONDS);
+
+        writeBehindScheduled = true;
+    }
+
+    /**
+     * Persists the messages on the {@link UserMsgBus} that are not persisted
+     * yet.
+     */
+    private static void persistUnpersisted() {
+
+        final UserMsgBus bus = UserMsgBus.instance();
+
+        for (final Map.Entry<String, UserMsgBus.Event> entry : bus
+                .getUnpersisted().entrySet()) {
+
+            final String userId = entry.getKey();
+            final UserMsgBus.Event event = entry.getValue();
+
+            try {
+                writeMsgFile(userId, event.getTime(), event.getMsg(),
+                        event.getSenderId(), false);
+            } catch (Exception e) {
+                LOGGER.error(e.getMessage(), e);
+                continue;
+            }
+            /*
+             * Mark persisted after the write only, so the channel is not
+             * evicted before the message can be read from file.
+             */
+            bus.markPersisted(userId, event);
+        }
+    }
+
+    /**
+     * Stops the executor, after persisting pending messages.
+     */
+    public static synchronized void exit() {
+
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(DateUtil.DURATION_MSEC_SECOND,
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        executor = null;
+        writeBehindScheduled = false;
+
+        persistUnpersisted();
     }
 
     /**
@@ -409,8 +596,8 @@ public final class UserMsgIndicator {
      * @param senderId
      *            Any ID the sender wants to add (can be {@code null}).
      * @throws IOException
-     *             When message could not be written, e.g. because the User
-     *             SafePages directory does not exist (yet).
+     *             When message could not be written immediately. With
+     *             write-behind, write errors are logged instead.
      */
     public static void write(final String userId, final Date date,
             final Msg msg, final String senderId) throws IOException {
@@ -430,12 +617,48 @@ public final class UserMsgIndicator {
      * @param senderId
      *            Any ID the sender wants to add (can be {@code null}).
      * @throws IOException
-     *             When message could not be written, e.g. because the User
-     *             SafePages directory does not exist (yet).
+     *             When message could not be written immediately. With
+     *             write-behind, write errors are logged instead.
      */
     private static void writeMsg(final String userId, final long time,
             final Msg msg, final String senderId) throws IOException {
 
+        final UserMsgBus.Event event =
+                new UserMsgBus.Event(time, msg, senderId);
+
+        final long writeBehindMsec = getWriteBehindMsec();
+
+        if (writeBehindMsec > 0) {
+            UserMsgBus.instance().publish(userId, event, false);
+            lazyStartWriteBehind(writeBehindMsec);
+        } else {
+            writeMsgFile(userId, time, msg, senderId, true);
+            UserMsgBus.instance().publish(userId, event, true);
+            lazyStartExecutor();
+        }
+    }
+
+    /**
+     * Writes the date-time and type of the last user message to the message
+     * file.
+     *
+     * @param userId
+     *            The user_name.
+     * @param time
+     *            The date-time of the user message.
+     * @param msg
+     *            The {@link UserMsgIndicator.Msg} type.
+     * @param senderId
+     *            Any ID the sender wants to add (can be {@code null}).
+     * @param sync
+     *            If {@code true}, the file is synced to the physical device.
+     * @throws IOException
+     *             When message could not be written.
+     */
+    private static void writeMsgFile(final String userId, final long time,
+            final Msg msg, final String senderId, final boolean sync)
+            throws IOException {
+
         FileOutputStream fos = null;
         File fileTemp = null;
 
@@ -494,7 +717,9 @@ public final class UserMsgIndicator {
              * buffers associated with this FileDescriptor have been written to
              * the physical medium.
              */
-            fos.getFD().sync();
+            if (sync) {
+                fos.getFD().sync();
+            }
 
             // close after sync
             fos.close();
@@ -56,13 +56,11 @@ import org.savapage.core.doc.DocContentToPdfException;
 import org.savapage.core.doc.DocContentTypeEnum;
 import org.savapage.core.doc.IDocFileConverter;
 import org.savapage.core.doc.PdfRepair;
-import org.savapage.core.doc.PdfToAnnotatedURL;
 import org.savapage.core.doc.PdfToBooklet;
-import org.savapage.core.doc.PdfToEncryptedPdf;
 import org.savapage.core.doc.PdfToFilterImagePdf;
 import org.savapage.core.doc.PdfToGrayscale;
 import org.savapage.core.doc.PdfToRasterPdf;
-import org.savapage.core.doc.PdfToRotateAlignedPdf;
+import org.savapage.core.doc.PdfToStampedPdf;
 import org.savapage.core.doc.SvgToPdf;
 import org.savapage.core.fonts.InternalFontFamilyEnum;
 import org.savapage.core.i18n.PhraseEnum;
@@ -547,62 +545,55 @@ public final class ITextPdfCreator extends AbstractPdfCreator {
     @Override
     protected void onPdfGenerated(final File pdfFile) throws Exception {
 
+        final PdfConvertPipeline pipeline = new PdfConvertPipeline();
+
+        /*
+         * Stages by external (Ghostscript, Poppler) commands.
+         */
         if (this.onExitConvertToRaster && this.onExitConvertToGrayscale) {
-            replaceWithConvertedPdf(pdfFile,
-                    new PdfToRasterPdf(PdfToRasterPdf.Raster.GRAYSCALE,
-                            PdfToRasterPdf.Resolution.DPI_150)
-                                    .convert(pdfFile));
+            pipeline.add(new PdfToRasterPdf(PdfToRasterPdf.Raster.GRAYSCALE,
+                    PdfToRasterPdf.Resolution.DPI_150));
         } else if (this.onExitConvertToRaster) {
-            replaceWithConvertedPdf(pdfFile,
-                    new PdfToRasterPdf(PdfToRasterPdf.Raster.CMYK,
-                            PdfToRasterPdf.Resolution.DPI_150)
-                                    .convert(pdfFile));
+            pipeline.add(new PdfToRasterPdf(PdfToRasterPdf.Raster.CMYK,
+                    PdfToRasterPdf.Resolution.DPI_150));
         } else if (this.onExitConvertToGrayscale) {
-            replaceWithConvertedPdf(pdfFile,
-                    new PdfToGrayscale().convert(pdfFile));
+            pipeline.add(new PdfToGrayscale());
         }
 
         if (this.onExitRepairPdf) {
-            replaceWithConvertedPdf(pdfFile, new PdfRepair().convert(pdfFile));
-        }
-        if (this.onExitBookletPageOrder) {
-            replaceWithConvertedPdf(pdfFile,
-                    new PdfToBooklet().convert(pdfFile));
+            pipeline.add(new PdfRepair());
         }
 
         /*
-         * Ad-hoc rotate?
+         * Booklet page order rebuilds the page tree, and is a stage of its
+         * own.
          */
-        if (this.targetPdfCopyPages2Align != null
-                && this.targetPdfCopyPages2Align.size() > 0) {
-            replaceWithConvertedPdf(pdfFile,
-                    new PdfToRotateAlignedPdf(this.firstPageSeenAsLandscape,
-                            this.targetPdfCopyPages2Align).convert(pdfFile));
+        if (this.onExitBookletPageOrder) {
+            pipeline.add(new PdfToBooklet());
         }
 
         /*
-         * Annotate URLs including Letterhead. Note: optional PDF encryption is
-         * part of last action.
+         * Ad-hoc rotate, annotate URLs including Letterhead, and optional PDF
+         * encryption in one pass.
          */
-        if (this.onExitAnnotateUrls) {
-
-            final PdfToAnnotatedURL converter;
-
-            if (this.isStampEncryption) {
-                converter = new PdfToAnnotatedURL(this.pdfAllow,
-                        this.pdfOwnerPass, this.pdfUserPass);
-            } else {
-                converter = new PdfToAnnotatedURL();
-            }
-
-            replaceWithConvertedPdf(pdfFile, converter.convert(pdfFile));
+        final PdfToStampedPdf stamper = new PdfToStampedPdf();
 
-        } else if (this.isStampEncryption) {
-
-            replaceWithConvertedPdf(pdfFile,
-                    new PdfToEncryptedPdf(this.pdfAllow, this.pdfOwnerPass,
-                            this.pdfUserPass).convert(pdfFile));
+        if (this.targetPdfCopyPages2Align != null) {
+            stamper.setRotateAligned(this.firstPageSeenAsLandscape,
+                    this.targetPdfCopyPages2Align);
         }
+        if (this.onExitAnnotateUrls) {
+            stamper.setAnnotateUrls();
+        }
+        if (this.isStampEncryption) {
+            stamper.setEncryption(this.pdfAllow, this.pdfOwnerPass,
+                    this.pdfUserPass);
+        }
+        if (stamper.hasStamps()) {
+            pipeline.add(stamper);
+        }
+
+        pipeline.run(pdfFile);
     }
 
     @Override
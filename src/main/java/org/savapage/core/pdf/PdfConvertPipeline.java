@@ -0,0 +1,102 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.pdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.savapage.core.doc.IPdfConverter;
+import org.savapage.core.util.FileSystemHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An ordered list of PDF conversion stages, each replacing the PDF file with
+ * its converted version. The duration of each stage is logged at DEBUG level.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+final class PdfConvertPipeline {
+
+    /** */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(PdfConvertPipeline.class);
+
+    /**
+     * The stages.
+     */
+    private final List<IPdfConverter> stages = new ArrayList<>();
+
+    /**
+     * Appends a stage.
+     *
+     * @param converter
+     *            The converter of the stage.
+     * @return This instance.
+     */
+    PdfConvertPipeline add(final IPdfConverter converter) {
+        this.stages.add(converter);
+        return this;
+    }
+
+    /**
+     * Runs all stages.
+     *
+     * @param pdfFile
+     *            The PDF file to convert in place.
+     * @throws IOException
+     *             When IO error.
+     */
+    void run(final File pdfFile) throws IOException {
+
+        final long startTotal = System.nanoTime();
+
+        for (final IPdfConverter converter : this.stages) {
+
+            final long start = System.nanoTime();
+
+            FileSystemHelper.replaceWithNewVersion(pdfFile,
+                    converter.convert(pdfFile));
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("[{}] {}: {} msec, {} bytes", pdfFile.getName(),
+                        converter.getClass().getSimpleName(),
+                        TimeUnit.NANOSECONDS
+                                .toMillis(System.nanoTime() - start),
+                        pdfFile.length());
+            }
+        }
+
+        if (LOGGER.isDebugEnabled() && this.stages.size() > 1) {
+            LOGGER.debug("[{}] {} stages: {} msec", pdfFile.getName(),
+                    this.stages.size(), TimeUnit.NANOSECONDS
+                            .toMillis(System.nanoTime() - startTotal));
+        }
+    }
+}
@@ -146,6 +146,26 @@ public final class JsonProxyPrinter extends JsonAbstractBase {
     @JsonIgnore
     boolean ppdPresent;
 
+    /**
+     * IPP printer-config-change-time: used to detect printer changes.
+     */
+    @JsonIgnore
+    private String configChangeTime;
+
+    /**
+     * Signature (path and content digest) of the injected SavaPage PPD
+     * extension file.
+     */
+    @JsonIgnore
+    private String ppdExtSignature;
+
+    /**
+     * {@code true} when this is a copy of a cached printer, with its CUPS
+     * state refreshed.
+     */
+    @JsonIgnore
+    private boolean cacheRefresh;
+
     /**
      *
      */
@@ -389,6 +409,7 @@ public final class JsonProxyPrinter extends JsonAbstractBase {
     @JsonIgnore
     public void removeInjectPpdExt() {
         this.setInjectPpdExt(false);
+        this.setPpdExtSignature(null);
         this.setCustomCostRulesCopy(null);
         this.setCustomCostRulesMedia(null);
         this.setCustomCostRulesSet(null);
@@ -517,6 +538,60 @@ public final class JsonProxyPrinter extends JsonAbstractBase {
         this.ppdPresent = ppdPresent;
     }
 
+    /**
+     * @return IPP printer-config-change-time (can be {@code null}).
+     */
+    @JsonIgnore
+    public String getConfigChangeTime() {
+        return configChangeTime;
+    }
+
+    /**
+     * @param time
+     *            IPP printer-config-change-time.
+     */
+    @JsonIgnore
+    public void setConfigChangeTime(final String time) {
+        this.configChangeTime = time;
+    }
+
+    /**
+     * @return Signature of the injected SavaPage PPD extension file, or
+     *         {@code null} when not injected.
+     */
+    @JsonIgnore
+    public String getPpdExtSignature() {
+        return ppdExtSignature;
+    }
+
+    /**
+     * @param signature
+     *            Signature of the injected SavaPage PPD extension file.
+     */
+    @JsonIgnore
+    public void setPpdExtSignature(final String signature) {
+        this.ppdExtSignature = signature;
+    }
+
+    /**
+     * @return {@code true} when this is a copy of a cached printer, with its
+     *         CUPS state refreshed.
+     */
+    @JsonIgnore
+    public boolean isCacheRefresh() {
+        return cacheRefresh;
+    }
+
+    /**
+     * @param refresh
+     *            {@code true} when this is a copy of a cached printer, with
+     *            its CUPS state refreshed.
+     */
+    @JsonIgnore
+    public void setCacheRefresh(final boolean refresh) {
+        this.cacheRefresh = refresh;
+    }
+
     public String getState() {
         return state;
     }
@@ -834,6 +909,14 @@ public final class JsonProxyPrinter extends JsonAbstractBase {
         copy.customCostRulesCopy = this.customCostRulesCopy;
         copy.customCostRulesMedia = this.customCostRulesMedia;
         copy.customCostRulesSheet = this.customCostRulesSheet;
+        copy.customCostRulesSet = this.customCostRulesSet;
+        copy.customNumberUpRules = this.customNumberUpRules;
+
+        copy.deviceUri = this.deviceUri;
+        copy.cupsClassMembers = this.cupsClassMembers;
+        copy.bookletClientSide = this.bookletClientSide;
+        copy.configChangeTime = this.configChangeTime;
+        copy.ppdExtSignature = this.ppdExtSignature;
 
         copy.archiveDisabled = this.archiveDisabled;
         copy.journalDisabled = this.journalDisabled;
@@ -843,7 +926,10 @@ public final class JsonProxyPrinter extends JsonAbstractBase {
         copy.customRulesSubst = this.customRulesSubst;
 
         copy.groups = new ArrayList<>();
-        copy.groups.addAll(this.getGroups());
+
+        for (final JsonProxyPrinterOptGroup group : this.getGroups()) {
+            copy.groups.add(group.copy());
+        }
 
         return copy;
     }
@@ -25,11 +25,21 @@
 package org.savapage.core.print.proxy;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -64,6 +74,13 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Processes {@link PrintJobStatus} events in a separate thread.
+ * <p>
+ * Jobs are scheduled in a {@link DelayQueue} when they are due for
+ * processing: right after a status event, when a CUPS status pull is due, or
+ * when the wait for a PRINT_OUT match expires. Each heartbeat only the due
+ * jobs are processed. CUPS status of due jobs is pulled with one request per
+ * printer, and {@link PrintOut} updates are committed in batches.
+ * </p>
  *
  * @author Rijk Ravestein
  *
@@ -131,6 +148,33 @@ public final class ProxyPrintJobStatusMonitor extends Thread {
     private final ConcurrentMap<Integer, PrintJobStatus> jobStatusMap =
             new ConcurrentHashMap<>();
 
+    /**
+     * Jobs due for processing.
+     */
+    private final DelayQueue<JobDue> jobDueQueue = new DelayQueue<>();
+
+    /**
+     * The scheduled {@link JobDue} by CUPS job id: a job is present at most
+     * once in {@link #jobDueQueue}.
+     */
+    private final Map<Integer, JobDue> scheduledJobs =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Max number of {@link PrintOut} updates in one database transaction.
+     */
+    private static final int PRINTOUT_UPDATE_BATCH_SIZE = 100;
+
+    /**
+     * Max number of attempts to persist a {@link PrintOut} update.
+     */
+    private static final int PRINTOUT_UPDATE_MAX_ATTEMPTS = 3;
+
+    /**
+     * Pending {@link PrintOut} updates of the current processing cycle.
+     */
+    private final List<PrintOutUpdate> printOutUpdates = new ArrayList<>();
+
     /**
      * Waiting time till processing finished.
      */
@@ -143,6 +187,84 @@ public final class ProxyPrintJobStatusMonitor extends Thread {
     private static final long TIMEOUT_CUPS_PRINTOUT_MATCH_MSEC =
             30 * DateUtil.DURATION_MSEC_SECOND;
 
+    /**
+     * A CUPS job id with the time it is due for processing.
+     */
+    private static final class JobDue implements Delayed {
+
+        /** */
+        private final Integer jobId;
+
+        /** Due time in milliseconds. */
+        private final long dueTime;
+
+        /**
+         * @param id
+         *            CUPS job id.
+         * @param due
+         *            Due time in milliseconds.
+         */
+        JobDue(final Integer id, final long due) {
+            this.jobId = id;
+            this.dueTime = due;
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(this.dueTime - System.currentTimeMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(final Delayed other) {
+            return Long.compare(this.dueTime, ((JobDue) other).dueTime);
+        }
+    }
+
+    /**
+     * A pending {@link PrintOut} update.
+     */
+    private static final class PrintOutUpdate {
+
+        /** */
+        private final PrintOut printOut;
+        /** */
+        private final IppJobStateEnum ippState;
+        /** CUPS complete time in seconds (can be {@code null}). */
+        private final Integer cupsCompletedTime;
+        /** User id to notify (can be {@code null}). */
+        private final String userIdToNotify;
+        /**
+         * The job status, when job is completed (can be {@code null}).
+         */
+        private final PrintJobStatus completedJob;
+        /** Number of failed attempts to persist. */
+        private int failedAttempts;
+
+        /**
+         * @param out
+         *            The PrintOut.
+         * @param state
+         *            IPP job state.
+         * @param completedTime
+         *            CUPS complete time in seconds (can be {@code null}).
+         * @param userid
+         *            User id to notify (can be {@code null}).
+         * @param completed
+         *            The job status, when job is completed (can be
+         *            {@code null}).
+         */
+        PrintOutUpdate(final PrintOut out, final IppJobStateEnum state,
+                final Integer completedTime, final String userid,
+                final PrintJobStatus completed) {
+            this.printOut = out;
+            this.ippState = state;
+            this.cupsCompletedTime = completedTime;
+            this.userIdToNotify = userid;
+            this.completedJob = completed;
+        }
+    }
+
     /**
      *
      */
@@ -409,6 +531,8 @@ public final class ProxyPrintJobStatusMonitor extends Thread {
             this.jobStatusMap.put(jobUpdate.getJobId(),
                     new PrintJobStatus(jobUpdate));
 
+            this.scheduleJob(jobUpdate.getJobId(), 0L);
+
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug(String.format("Add job [%s] [%d] [%s] [%s] [%s]",
                         jobUpdate.getPrinterName(), jobUpdate.getJobId(),
@@ -515,6 +639,59 @@ public final class ProxyPrintJobStatusMonitor extends Thread {
             throw new SpException(
                     "[" + jobUpdate.getStatusSource() + "] is not supported");
         }
+
+        this.scheduleJob(jobUpdate.getJobId(), 0L);
+    }
+
+    /**
+     * Schedules a job for processing.
+     *
+     * @param jobId
+     *            The CUPS job id.
+     * @param dueTime
+     *            The time (milliseconds) the job is due. If in the past, the
+     *            job is processed in the next heartbeat.
+     */
+    private void scheduleJob(final Integer jobId, final long dueTime) {
+
+        synchronized (this.jobDueQueue) {
+
+            final JobDue current = this.scheduledJobs.get(jobId);
+
+            if (current != null) {
+                if (current.dueTime <= dueTime) {
+                    return;
+                }
+                this.jobDueQueue.remove(current);
+            }
+
+            final JobDue jobDue = new JobDue(jobId, dueTime);
+            this.scheduledJobs.put(jobId, jobDue);
+            this.jobDueQueue.add(jobDue);
+        }
+    }
+
+    /**
+     * Drains the ids of the jobs that are due for processing.
+     *
+     * @return The unique job ids, in due order.
+     */
+    private Set<Integer> drainDueJobs() {
+
+        final List<JobDue> due = new ArrayList<>();
+
+        synchronized (this.jobDueQueue) {
+            this.jobDueQueue.drainTo(due);
+            for (final JobDue jobDue : due) {
+                this.scheduledJobs.remove(jobDue.jobId, jobDue);
+            }
+        }
+
+        final Set<Integer> jobIds = new LinkedHashSet<>();
+        for (final JobDue jobDue : due) {
+            jobIds.add(jobDue.jobId);
+        }
+        return jobIds;
     }
 
     /**
@@ -626,15 +803,21 @@ public final class ProxyPrintJobStatusMonitor extends Thread {
 
         jobStatus.setJobStateCups(jobStateCups);
 
-        this.updatePrintOutStatus(printOut.getId(), jobStateCups,
-                jobStatus.getCupsCompletedTime());
+        /*
+         * PrintOut update, completion processing and user notification are
+         * deferred till end of processing cycle, see flushPrintOutUpdates().
+         */
+        final PrintJobStatus completedJob;
 
         if (jobStateCups == IppJobStateEnum.IPP_JOB_COMPLETED) {
-            this.onJobCompleted(printOut, jobStatus);
+            completedJob = jobStatus;
+        } else {
+            completedJob = null;
         }
 
-        this.evaluatePrintOutUserMsg(getUserIdToNotify(printOut),
-                jobStatus.getCupsCompletedTime());
+        this.printOutUpdates.add(new PrintOutUpdate(printOut, jobStateCups,
+                jobStatus.getCupsCompletedTime(), getUserIdToNotify(printOut),
+                completedJob));
 
         return !jobStatus.getJobStateCups().isPresentOnQueue();
     }
@@ -748,7 +931,7 @@ public final class ProxyPrintJobStatusMonitor extends Thread {
     }
 
     /**
-     * Processes print job status instances from {@link #jobStatusMap}.
+     * Processes the due print job status instances from {@link #jobStatusMap}.
      */
     private void processJobStatusMap() {
 
@@ -765,197 +948,316 @@ public final class ProxyPrintJobStatusMonitor extends Thread {
         final boolean cancelIfStopped = ConfigManager.instance()
                 .isConfigValue(Key.CUPS_IPP_JOBSTATE_CANCEL_IF_STOPPED_ENABLE);
 
-        final Iterator<Integer> iter = this.jobStatusMap.keySet().iterator();
-
-        while (iter.hasNext() && this.keepProcessing) {
+        final Set<Integer> dueJobIds = this.drainDueJobs();
 
-            final PrintJobStatus jobIter = this.jobStatusMap.get(iter.next());
+        /*
+         * Pull CUPS job status of due jobs, with one request per printer.
+         */
+        final Map<Integer, JsonProxyPrintJob> pulledJobs = new HashMap<>();
+        final Set<Integer> pullFailedJobs = new HashSet<>();
 
-            final boolean removeJobIter;
-            final PrintOut printOut;
+        this.pullJobStatus(dueJobIds, timeNow, pullWaitMsec, cancelIfStopped,
+                pulledJobs, pullFailedJobs);
 
-            if (jobIter.getCupsCreationTime() == null) {
-                /*
-                 * INVARIANT: CUPS creation time MUST be present. It must be set
-                 * when the job was added by either CUPS or PRINT_OUT (whoever
-                 * is first).
-                 */
-                LOGGER.error(String.format(
-                        "Removed CUPS Job [%d]. Reason: no creation time.",
-                        jobIter.jobId.intValue()));
-
-                removeJobIter = true;
-                printOut = null;
+        try {
+            for (final Integer jobId : dueJobIds) {
 
-            } else if (jobIter.jobStatePrintOut == null) {
-                /*
-                 * INVARIANT: A PRINT_OUT event MUST be received within
-                 * reasonable time.
-                 */
-                final long msecAge = timeNow - jobIter.getCupsCreationTime()
-                        * DateUtil.DURATION_MSEC_SECOND;
+                if (!this.keepProcessing) {
+                    // Process in next run.
+                    this.scheduleJob(jobId, 0L);
+                    continue;
+                }
 
-                final boolean orphanedPrint =
-                        msecAge > TIMEOUT_CUPS_PRINTOUT_MATCH_MSEC;
+                final PrintJobStatus jobIter = this.jobStatusMap.get(jobId);
 
-                if (!orphanedPrint) {
-                    // Let it stay.
+                if (jobIter == null) {
+                    // Removed in previous cycle.
                     continue;
                 }
-                /*
-                 * Wait for PRINT_OUT message has expired: this is probably an
-                 * external print action (from outside SavaPage).
-                 */
-                final StringBuilder msg = new StringBuilder();
 
-                msg.append("External CUPS job #").append(jobIter.getJobId())
-                        .append(" \"")
-                        .append(StringUtils.defaultString(jobIter.getJobName()))
-                        .append("\" on printer ")
-                        .append(jobIter.getPrinterName()).append(" is ");
+                this.processJobStatus(jobIter, timeNow, pullWaitMsec,
+                        cancelIfStopped, pulledJobs, pullFailedJobs);
+            }
+        } finally {
+            this.flushPrintOutUpdates();
+        }
+    }
 
-                final IppJobStateEnum state;
+    /**
+     * Pulls the CUPS job status of due jobs that waited too long for a status
+     * update, with one request per printer.
+     *
+     * @param dueJobIds
+     *            The ids of the due jobs.
+     * @param timeNow
+     *            Current time in milliseconds.
+     * @param pullWaitMsec
+     *            Max wait for a CUPS job id notification before <b>pulling</b>
+     *            its status from CUPS.
+     * @param cancelIfStopped
+     *            If {@code true}, stopped jobs are canceled (and not pulled).
+     * @param pulledJobs
+     *            Map to put the pulled jobs on. Jobs not found have a
+     *            {@code null} value.
+     * @param pullFailedJobs
+     *            Set to add the ids of jobs that could not be pulled.
+     */
+    private void pullJobStatus(final Set<Integer> dueJobIds,
+            final long timeNow, final long pullWaitMsec,
+            final boolean cancelIfStopped,
+            final Map<Integer, JsonProxyPrintJob> pulledJobs,
+            final Set<Integer> pullFailedJobs) {
 
-                if (jobIter.getJobStateCupsUpdate() != null) {
-                    state = jobIter.getJobStateCupsUpdate();
-                } else {
-                    state = jobIter.getJobStateCups();
-                }
+        final Map<String, Set<Integer>> jobIdsByPrinter = new HashMap<>();
 
-                msg.append(state.asLogText()).append(".");
+        for (final Integer jobId : dueJobIds) {
 
-                AdminPublisher.instance().publish(PubTopicEnum.CUPS,
-                        PubLevelEnum.WARN, msg.toString());
+            final PrintJobStatus job = this.jobStatusMap.get(jobId);
 
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug(msg.toString());
+            if (job == null || job.getJobStatePrintOut() == null
+                    || timeNow - job.getUpdateTime() < pullWaitMsec
+                    || (cancelIfStopped && IppJobStateEnum.IPP_JOB_STOPPED
+                            .equals(job.getJobStateCups()))) {
+                continue;
+            }
+
+            Set<Integer> jobIds = jobIdsByPrinter.get(job.getPrinterName());
+            if (jobIds == null) {
+                jobIds = new HashSet<>();
+                jobIdsByPrinter.put(job.getPrinterName(), jobIds);
+            }
+            jobIds.add(jobId);
+        }
+
+        for (final Map.Entry<String, Set<Integer>> entry : jobIdsByPrinter
+                .entrySet()) {
+
+            try {
+                for (final Integer jobId : entry.getValue()) {
+                    pulledJobs.put(jobId, null);
                 }
+                for (final JsonProxyPrintJob cupsJob : PROXY_PRINT_SERVICE
+                        .retrievePrintJobs(entry.getKey(), entry.getValue())) {
+                    pulledJobs.put(cupsJob.getJobId(), cupsJob);
+                }
+            } catch (IppConnectException e) {
+                pullFailedJobs.addAll(entry.getValue());
+                LOGGER.warn("CUPS jobs {} on printer [{}] : {}",
+                        entry.getValue(), entry.getKey(), e.getMessage());
+            }
+        }
+    }
 
-                removeJobIter = true;
-                printOut = null;
+    /**
+     * Processes a due print job status instance from {@link #jobStatusMap}.
+     * The job is removed from the map when finished, or scheduled again.
+     *
+     * @param jobIter
+     *            {@link PrintJobStatus}.
+     * @param timeNow
+     *            Current time in milliseconds.
+     * @param pullWaitMsec
+     *            Max wait for a CUPS job id notification before <b>pulling</b>
+     *            its status from CUPS.
+     * @param cancelIfStopped
+     *            If {@code true}, stopped jobs are canceled.
+     * @param pulledJobs
+     *            The pulled CUPS jobs.
+     * @param pullFailedJobs
+     *            The ids of jobs that could not be pulled.
+     */
+    private void processJobStatus(final PrintJobStatus jobIter,
+            final long timeNow, final long pullWaitMsec,
+            final boolean cancelIfStopped,
+            final Map<Integer, JsonProxyPrintJob> pulledJobs,
+            final Set<Integer> pullFailedJobs) {
 
-            } else {
-                /*
-                 * INVARIANT: Active PrintOut CUPS job MUST be present in
-                 * database.
-                 */
-                printOut = this.getCupsJobActive(jobIter);
-
-                if (printOut == null) {
-                    /*
-                     * When CUPS push notification fails, and PaperCut Print
-                     * integration is enabled, the job might already have
-                     * received an end-state status from PaperCut, and therefore
-                     * will not be found as active.
-                     *
-                     * So, find job that is set end-of-state by PaperCut
-                     * monitor.
-                     */
-                    final PrintOut printOutPaperCut =
-                            this.getCupsJobEndOfStatePaperCut(jobIter);
-
-                    if (printOutPaperCut == null) {
-
-                        final StringBuilder msg = new StringBuilder();
-
-                        msg.append("Active CUPS job #")
-                                .append(jobIter.getJobId()).append(" \"")
-                                .append(StringUtils
-                                        .defaultString(jobIter.getJobName()))
-                                .append("\" on printer \"")
-                                .append(jobIter.getPrinterName())
-                                .append("\" not found in Log.");
-
-                        AdminPublisher.instance().publish(PubTopicEnum.CUPS,
-                                PubLevelEnum.ERROR, msg.toString());
-                        LOGGER.error(msg.toString());
+        final boolean removeJobIter;
+        final PrintOut printOut;
 
-                    } else {
-                        LOGGER.warn("CUPS Job #{} {} by PaperCut.",
-                                jobIter.getJobId(),
-                                IppJobStateEnum
-                                        .asEnum(printOutPaperCut
-                                                .getCupsJobState())
-                                        .asLogText());
-
-                        this.evaluatePrintOutUserMsg(
-                                getUserIdToNotify(printOutPaperCut),
-                                printOutPaperCut.getCupsCompletedTime());
-                    }
+        if (jobIter.getCupsCreationTime() == null) {
+            /*
+             * INVARIANT: CUPS creation time MUST be present. It must be set
+             * when the job was added by either CUPS or PRINT_OUT (whoever is
+             * first).
+             */
+            LOGGER.error(String.format(
+                    "Removed CUPS Job [%d]. Reason: no creation time.",
+                    jobIter.jobId.intValue()));
 
-                    removeJobIter = true;
+            removeJobIter = true;
+            printOut = null;
 
-                } else {
-                    // TEST for getEndOfStatePaperCutCupsJob()
-                    // removeJobIter = false;
+        } else if (jobIter.jobStatePrintOut == null) {
+            /*
+             * INVARIANT: A PRINT_OUT event MUST be received within reasonable
+             * time.
+             */
+            final long msecCreated = jobIter.getCupsCreationTime()
+                    * DateUtil.DURATION_MSEC_SECOND;
 
-                    removeJobIter =
-                            this.processJobStatusEntry(printOut, jobIter);
-                }
-            }
+            final boolean orphanedPrint =
+                    timeNow - msecCreated > TIMEOUT_CUPS_PRINTOUT_MATCH_MSEC;
 
+            if (!orphanedPrint) {
+                // Let it stay, till PRINT_OUT event or wait expired.
+                this.scheduleJob(jobIter.getJobId(),
+                        msecCreated + TIMEOUT_CUPS_PRINTOUT_MATCH_MSEC + 1);
+                return;
+            }
             /*
-             * Remove job from the map?
+             * Wait for PRINT_OUT message has expired: this is probably an
+             * external print action (from outside SavaPage).
              */
-            if (removeJobIter) {
-                iter.remove();
-                continue;
+            final StringBuilder msg = new StringBuilder();
+
+            msg.append("External CUPS job #").append(jobIter.getJobId())
+                    .append(" \"")
+                    .append(StringUtils.defaultString(jobIter.getJobName()))
+                    .append("\" on printer ").append(jobIter.getPrinterName())
+                    .append(" is ");
+
+            final IppJobStateEnum state;
+
+            if (jobIter.getJobStateCupsUpdate() != null) {
+                state = jobIter.getJobStateCupsUpdate();
+            } else {
+                state = jobIter.getJobStateCups();
             }
 
-            if (printOut != null && cancelIfStopped && jobIter.getJobStateCups()
-                    .equals(IppJobStateEnum.IPP_JOB_STOPPED)) {
+            msg.append(state.asLogText()).append(".");
 
-                try {
-                    final JsonProxyPrintJob cupsJob = PROXY_PRINT_SERVICE
-                            .retrievePrintJob(jobIter.getPrinterName(),
-                                    jobIter.getJobId());
-                    /*
-                     * Check status, since CANCELED status as result of a
-                     * previous cancelPrintJob() may not have been pushed by
-                     * CUPS Notifier.
-                     */
-                    if (cupsJob.getIppJobState().isFinished()) {
-                        // Simulate the CUPS Notifier.
-                        jobIter.setJobStateCupsUpdate(cupsJob.getIppJobState());
-                        jobIter.setUpdateTime(timeNow);
-                        jobIter.setCupsCompletedTime(
-                                PROXY_PRINT_SERVICE.getCupsSystemTime());
-                    } else {
-                        PROXY_PRINT_SERVICE.cancelPrintJob(printOut);
-
-                        LOGGER.warn("User [{}] CUPS Job #{} [{}]{} > CANCEL",
-                                printOut.getDocOut().getDocLog().getUser()
-                                        .getUserId(),
-                                jobIter.getJobId(),
-                                jobIter.getJobStateCups().uiText(Locale.ENGLISH)
-                                        .toUpperCase(),
-                                cupsJob.createStateMsgForLogging());
-                    }
-                } catch (IppConnectException e) {
-                    LOGGER.error(e.getMessage());
+            AdminPublisher.instance().publish(PubTopicEnum.CUPS,
+                    PubLevelEnum.WARN, msg.toString());
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(msg.toString());
+            }
+
+            removeJobIter = true;
+            printOut = null;
+
+        } else {
+            /*
+             * INVARIANT: Active PrintOut CUPS job MUST be present in database.
+             */
+            printOut = this.getCupsJobActive(jobIter);
+
+            if (printOut == null) {
+                /*
+                 * When CUPS push notification fails, and PaperCut Print
+                 * integration is enabled, the job might already have received
+                 * an end-state status from PaperCut, and therefore will not be
+                 * found as active.
+                 *
+                 * So, find job that is set end-of-state by PaperCut monitor.
+                 */
+                final PrintOut printOutPaperCut =
+                        this.getCupsJobEndOfStatePaperCut(jobIter);
+
+                if (printOutPaperCut == null) {
+
+                    final StringBuilder msg = new StringBuilder();
+
+                    msg.append("Active CUPS job #").append(jobIter.getJobId())
+                            .append(" \"")
+                            .append(StringUtils
+                                    .defaultString(jobIter.getJobName()))
+                            .append("\" on printer \"")
+                            .append(jobIter.getPrinterName())
+                            .append("\" not found in Log.");
+
+                    AdminPublisher.instance().publish(PubTopicEnum.CUPS,
+                            PubLevelEnum.ERROR, msg.toString());
+                    LOGGER.error(msg.toString());
+
+                } else {
+                    LOGGER.warn("CUPS Job #{} {} by PaperCut.",
+                            jobIter.getJobId(),
+                            IppJobStateEnum
+                                    .asEnum(printOutPaperCut.getCupsJobState())
+                                    .asLogText());
+
+                    this.evaluatePrintOutUserMsg(
+                            getUserIdToNotify(printOutPaperCut),
+                            printOutPaperCut.getCupsCompletedTime());
                 }
+
+                removeJobIter = true;
+
             } else {
+                removeJobIter = this.processJobStatusEntry(printOut, jobIter);
+            }
+        }
 
-                final IppJobStateEnum stateBefore =
-                        jobIter.getJobStateCupsUpdate();
+        /*
+         * Remove job from the map?
+         */
+        if (removeJobIter) {
+            this.jobStatusMap.remove(jobIter.getJobId());
+            return;
+        }
 
-                this.evaluateJobStatusPull(jobIter, timeNow, pullWaitMsec);
+        if (printOut != null && cancelIfStopped && jobIter.getJobStateCups()
+                .equals(IppJobStateEnum.IPP_JOB_STOPPED)) {
 
-                if (printOut != null
-                        && stateBefore != jobIter.getJobStateCupsUpdate()) {
-                    if (this.processJobStatusEntry(printOut, jobIter)) {
-                        iter.remove();
-                    }
+            try {
+                final JsonProxyPrintJob cupsJob =
+                        PROXY_PRINT_SERVICE.retrievePrintJob(
+                                jobIter.getPrinterName(), jobIter.getJobId());
+                /*
+                 * Check status, since CANCELED status as result of a previous
+                 * cancelPrintJob() may not have been pushed by CUPS Notifier.
+                 */
+                if (cupsJob.getIppJobState().isFinished()) {
+                    // Simulate the CUPS Notifier.
+                    jobIter.setJobStateCupsUpdate(cupsJob.getIppJobState());
+                    jobIter.setUpdateTime(timeNow);
+                    jobIter.setCupsCompletedTime(
+                            PROXY_PRINT_SERVICE.getCupsSystemTime());
+                } else {
+                    PROXY_PRINT_SERVICE.cancelPrintJob(printOut);
+
+                    LOGGER.warn("User [{}] CUPS Job #{} [{}]{} > CANCEL",
+                            printOut.getDocOut().getDocLog().getUser()
+                                    .getUserId(),
+                            jobIter.getJobId(),
+                            jobIter.getJobStateCups().uiText(Locale.ENGLISH)
+                                    .toUpperCase(),
+                            cupsJob.createStateMsgForLogging());
                 }
+            } catch (IppConnectException e) {
+                LOGGER.error(e.getMessage());
+            }
+
+            // Evaluate again in next heartbeat.
+            this.scheduleJob(jobIter.getJobId(), 0L);
+
+        } else {
 
+            final IppJobStateEnum stateBefore =
+                    jobIter.getJobStateCupsUpdate();
+
+            this.evaluateJobStatusPull(jobIter, timeNow, pullWaitMsec,
+                    pulledJobs, pullFailedJobs);
+
+            if (printOut != null
+                    && stateBefore != jobIter.getJobStateCupsUpdate()) {
+                if (this.processJobStatusEntry(printOut, jobIter)) {
+                    this.jobStatusMap.remove(jobIter.getJobId());
+                    return;
+                }
             }
 
-        } // end-while iter.
+            // Evaluate again when next pull is due.
+            this.scheduleJob(jobIter.getJobId(),
+                    jobIter.getUpdateTime() + pullWaitMsec);
+        }
     }
 
     /**
-     * Checks if last status update is too long ago. If {@code true}, then pull
-     * job status from CUPS.
+     * Checks if last status update is too long ago. If {@code true}, then use
+     * the job status pulled from CUPS.
      *
      * @param jobStatus
      *            {@link PrintJobStatus}.
@@ -964,18 +1266,31 @@ public final class ProxyPrintJobStatusMonitor extends Thread {
      * @param pullWaitMsec
      *            Max wait for a CUPS job id notification before <b>pulling</b>
      *            its status from CUPS.
+     * @param pulledJobs
+     *            The pulled CUPS jobs. Jobs not found have a {@code null}
+     *            value.
+     * @param pullFailedJobs
+     *            The ids of jobs that could not be pulled.
      */
     private void evaluateJobStatusPull(final PrintJobStatus jobStatus,
-            final long timeNow, final long pullWaitMsec) {
+            final long timeNow, final long pullWaitMsec,
+            final Map<Integer, JsonProxyPrintJob> pulledJobs,
+            final Set<Integer> pullFailedJobs) {
 
-        if (timeNow - jobStatus.getUpdateTime() < pullWaitMsec) {
+        if (timeNow - jobStatus.getUpdateTime() < pullWaitMsec
+                || pullFailedJobs.contains(jobStatus.getJobId())) {
             return;
         }
 
         try {
-            final JsonProxyPrintJob cupsJob =
-                    PROXY_PRINT_SERVICE.retrievePrintJob(
-                            jobStatus.getPrinterName(), jobStatus.getJobId());
+            final JsonProxyPrintJob cupsJob;
+
+            if (pulledJobs.containsKey(jobStatus.getJobId())) {
+                cupsJob = pulledJobs.get(jobStatus.getJobId());
+            } else {
+                cupsJob = PROXY_PRINT_SERVICE.retrievePrintJob(
+                        jobStatus.getPrinterName(), jobStatus.getJobId());
+            }
 
             final IppJobStateEnum ippState;
             if (cupsJob == null) {
@@ -1202,25 +1517,88 @@ public final class ProxyPrintJobStatusMonitor extends Thread {
     }
 
     /**
-     * Updates the {@link PrintOut} with CUPS status and completion time.
+     * Updates the {@link PrintOut} rows with the pending CUPS status and
+     * completion time, in batched transactions. After a batch is committed,
+     * its completed jobs are processed and users are notified.
+     * <p>
+     * When a batch fails, its updates are kept for the next processing cycle,
+     * unless they failed {@link #PRINTOUT_UPDATE_MAX_ATTEMPTS} times.
+     * </p>
+     */
+    private void flushPrintOutUpdates() {
+
+        final DaoContext daoContext = ServiceContext.getDaoContext();
+
+        while (!this.printOutUpdates.isEmpty()) {
+
+            final List<PrintOutUpdate> batch =
+                    this.printOutUpdates.subList(0, Math.min(
+                            PRINTOUT_UPDATE_BATCH_SIZE,
+                            this.printOutUpdates.size()));
+            try {
+                this.updatePrintOutStatus(daoContext, batch);
+            } catch (RuntimeException e) {
+                this.onPrintOutUpdatesFailed(batch);
+                throw e;
+            }
+
+            final List<PrintOutUpdate> committed = new ArrayList<>(batch);
+            batch.clear();
+
+            for (final PrintOutUpdate update : committed) {
+                if (update.completedJob != null) {
+                    this.onJobCompleted(update.printOut, update.completedJob);
+                }
+                this.evaluatePrintOutUserMsg(update.userIdToNotify,
+                        update.cupsCompletedTime);
+            }
+        }
+    }
+
+    /**
+     * Handles a failed batch of {@link PrintOut} updates: updates that failed
+     * {@link #PRINTOUT_UPDATE_MAX_ATTEMPTS} times are dropped, the others are
+     * kept for retry.
      *
-     * @param printOut
-     *            The {@link PrintOut}.
-     * @param ippState
-     *            The {@link IppJobStateEnum}.
-     * @param cupsCompletedTime
-     *            The CUPS complete time in seconds (can be {@code null}).
-     * @return The user id of the printOut.
+     * @param batch
+     *            The failed updates.
      */
-    private void updatePrintOutStatus(final Long printOutId,
-            final IppJobStateEnum ippState, final Integer cupsCompletedTime) {
+    private void onPrintOutUpdatesFailed(final List<PrintOutUpdate> batch) {
 
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(String.format("PrintOut ID [%d] update: state [%s]",
-                    printOutId, ippState.asLogText()));
+        final Iterator<PrintOutUpdate> iter = batch.iterator();
+
+        while (iter.hasNext()) {
+            final PrintOutUpdate update = iter.next();
+            if (++update.failedAttempts >= PRINTOUT_UPDATE_MAX_ATTEMPTS) {
+                LOGGER.error(String.format(
+                        "PrintOut ID [%d] update to state [%s] dropped "
+                                + "after %d failed attempts.",
+                        update.printOut.getId(), update.ippState.asLogText(),
+                        update.failedAttempts));
+                iter.remove();
+            }
         }
+    }
 
-        final DaoContext daoContext = ServiceContext.getDaoContext();
+    /**
+     * Updates {@link PrintOut} rows with CUPS status and completion time, in
+     * one transaction.
+     *
+     * @param daoContext
+     *            The {@link DaoContext}.
+     * @param updates
+     *            The updates.
+     */
+    private void updatePrintOutStatus(final DaoContext daoContext,
+            final List<PrintOutUpdate> updates) {
+
+        if (LOGGER.isDebugEnabled()) {
+            for (final PrintOutUpdate update : updates) {
+                LOGGER.debug(String.format(
+                        "PrintOut ID [%d] update: state [%s]",
+                        update.printOut.getId(), update.ippState.asLogText()));
+            }
+        }
 
         boolean rollback = false;
 
@@ -1230,8 +1608,12 @@ public final class ProxyPrintJobStatusMonitor extends Thread {
 
             rollback = true;
 
-            daoContext.getPrintOutDao().updateCupsJob(printOutId, ippState,
-                    cupsCompletedTime);
+            final PrintOutDao printOutDao = daoContext.getPrintOutDao();
+
+            for (final PrintOutUpdate update : updates) {
+                printOutDao.updateCupsJob(update.printOut.getId(),
+                        update.ippState, update.cupsCompletedTime);
+            }
 
             daoContext.commit();
             rollback = false;
@@ -86,6 +86,11 @@ public interface JobTicketService extends StatefulService {
          */
         private Long printerGroupID;
 
+        /**
+         * Max (inclusive) delivery date of the job ticket.
+         */
+        private Date deliveryDateTo;
+
         public Long getUserId() {
             return userId;
         }
@@ -110,6 +115,14 @@ public interface JobTicketService extends StatefulService {
             this.printerGroupID = printerGroupID;
         }
 
+        public Date getDeliveryDateTo() {
+            return deliveryDateTo;
+        }
+
+        public void setDeliveryDateTo(Date deliveryDateTo) {
+            this.deliveryDateTo = deliveryDateTo;
+        }
+
     }
 
     /**
@@ -0,0 +1,337 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.savapage.core.dao.DaoTransactionListener;
+import org.savapage.core.dao.enums.ACLOidEnum;
+import org.savapage.core.dao.enums.ACLRoleEnum;
+import org.savapage.core.dao.impl.DaoContextImpl;
+
+/**
+ * Cache of compiled Access Control decisions per user: a bitmap of
+ * {@link ACLRoleEnum} authorizations and the privileges per
+ * {@link ACLOidEnum}.
+ * <p>
+ * Any change of a user or group ACL attribute, or of a group membership,
+ * invalidates the whole cache by advancing its generation: once when the change
+ * is flushed to the database, and once more when the transaction ends. A
+ * decision loaded while the generation advances is returned, but not cached.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class AccessControlCache implements DaoTransactionListener {
+
+    /**
+     * Max number of cached users. When exceeded the cache is cleared.
+     */
+    private static final int MAX_ENTRIES = 10000;
+
+    /**
+     * Privileges value: not cached.
+     */
+    private static final int PRIVILEGES_NOT_CACHED = 0;
+
+    /**
+     * Privileges value: undetermined ({@code null}).
+     */
+    private static final int PRIVILEGES_UNDETERMINED = 1;
+
+    /**
+     * Offset of a cached privileges value.
+     */
+    private static final int PRIVILEGES_OFFSET = 2;
+
+    /**
+     * Compiled decisions of a user.
+     */
+    private static final class Entry {
+
+        /**
+         * The cache generation this entry belongs to.
+         */
+        private final long generation;
+
+        /**
+         * Bitmap of {@link ACLRoleEnum} ordinals that are cached.
+         */
+        private final AtomicLong rolesCached = new AtomicLong();
+
+        /**
+         * Bitmap of {@link ACLRoleEnum} ordinals that are authorized.
+         */
+        private final AtomicLong rolesAuthorized = new AtomicLong();
+
+        /**
+         * Encoded privileges by {@link ACLOidEnum} ordinal.
+         */
+        private final AtomicIntegerArray privileges =
+                new AtomicIntegerArray(ACLOidEnum.values().length);
+
+        /**
+         * @param gen
+         *            The cache generation.
+         */
+        Entry(final long gen) {
+            this.generation = gen;
+        }
+    }
+
+    /**
+     * The cache generation.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Entries by user key, see {@link #createUserKey(Long, boolean)}.
+     */
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * {@code true} when the current thread changed ACL data in its
+     * transaction.
+     */
+    private final ThreadLocal<Boolean> pendingChange =
+            ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    /** */
+    private final LongAdder hits = new LongAdder();
+
+    /** */
+    private final LongAdder misses = new LongAdder();
+
+    /** */
+    private final LongAdder invalidations = new LongAdder();
+
+    /** */
+    private static final class SingletonHolder {
+        /** */
+        static final AccessControlCache INSTANCE = new AccessControlCache();
+
+        static {
+            DaoContextImpl.addTransactionListener(INSTANCE);
+        }
+    }
+
+    /**
+     * Package private constructor for unit testing.
+     */
+    AccessControlCache() {
+    }
+
+    /**
+     * @return The singleton instance.
+     */
+    public static AccessControlCache instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * @param userDbKey
+     *            Primary database key of the user.
+     * @param internalUser
+     *            {@code true} when internal user.
+     * @return The user key.
+     */
+    private static Long createUserKey(final Long userDbKey,
+            final boolean internalUser) {
+        final long bit;
+        if (internalUser) {
+            bit = 1L;
+        } else {
+            bit = 0L;
+        }
+        return Long.valueOf(userDbKey.longValue() << 1 | bit);
+    }
+
+    /**
+     * Gets the entry of a user for the current generation.
+     *
+     * @param userDbKey
+     *            Primary database key of the user.
+     * @param internalUser
+     *            {@code true} when internal user.
+     * @return The entry.
+     */
+    private Entry getEntry(final Long userDbKey, final boolean internalUser) {
+
+        final long gen = this.generation.get();
+        final Long key = createUserKey(userDbKey, internalUser);
+
+        final Entry entry = this.entries.get(key);
+
+        if (entry != null && entry.generation == gen) {
+            return entry;
+        }
+
+        if (this.entries.size() >= MAX_ENTRIES) {
+            this.entries.clear();
+        }
+
+        return this.entries.compute(key,
+                (k, old) -> old != null && old.generation == gen ? old
+                        : new Entry(gen));
+    }
+
+    /**
+     * Checks if user is authorized for a role.
+     *
+     * @param userDbKey
+     *            Primary database key of the user.
+     * @param internalUser
+     *            {@code true} when internal user.
+     * @param role
+     *            The {@link ACLRoleEnum}.
+     * @param loader
+     *            The uncached decision.
+     * @return {@code true} when authorized.
+     */
+    public boolean isAuthorized(final Long userDbKey,
+            final boolean internalUser, final ACLRoleEnum role,
+            final BooleanSupplier loader) {
+
+        final Entry entry = this.getEntry(userDbKey, internalUser);
+        final long bit = 1L << role.ordinal();
+
+        if ((entry.rolesCached.get() & bit) != 0) {
+            this.hits.increment();
+            return (entry.rolesAuthorized.get() & bit) != 0;
+        }
+
+        this.misses.increment();
+
+        final boolean authorized = loader.getAsBoolean();
+
+        if (entry.generation == this.generation.get()) {
+            if (authorized) {
+                entry.rolesAuthorized.getAndUpdate(v -> v | bit);
+            }
+            entry.rolesCached.getAndUpdate(v -> v | bit);
+        }
+        return authorized;
+    }
+
+    /**
+     * Gets the privileges of a user for an OID.
+     *
+     * @param userDbKey
+     *            Primary database key of the user.
+     * @param internalUser
+     *            {@code true} when internal user.
+     * @param oid
+     *            The {@link ACLOidEnum}.
+     * @param loader
+     *            The uncached privileges.
+     * @return The privileges, or {@code null} when undetermined.
+     */
+    public Integer getPrivileges(final Long userDbKey,
+            final boolean internalUser, final ACLOidEnum oid,
+            final Supplier<Integer> loader) {
+
+        final Entry entry = this.getEntry(userDbKey, internalUser);
+        final int i = oid.ordinal();
+
+        final int cached = entry.privileges.get(i);
+
+        if (cached != PRIVILEGES_NOT_CACHED) {
+            this.hits.increment();
+            if (cached == PRIVILEGES_UNDETERMINED) {
+                return null;
+            }
+            return Integer.valueOf(cached - PRIVILEGES_OFFSET);
+        }
+
+        this.misses.increment();
+
+        final Integer privileges = loader.get();
+
+        if (entry.generation == this.generation.get()) {
+            if (privileges == null) {
+                entry.privileges.set(i, PRIVILEGES_UNDETERMINED);
+            } else if (privileges.intValue() >= 0) {
+                entry.privileges.set(i,
+                        privileges.intValue() + PRIVILEGES_OFFSET);
+            }
+        }
+        return privileges;
+    }
+
+    /**
+     * Invalidates all cached decisions.
+     */
+    public void invalidate() {
+        this.generation.incrementAndGet();
+        this.entries.clear();
+        this.invalidations.increment();
+    }
+
+    /**
+     * Notifies a change of ACL data in the transaction of the current thread:
+     * the cache is invalidated, and invalidated once more at
+     * {@link #onTransactionEnd()}.
+     */
+    public void onChange() {
+        this.pendingChange.set(Boolean.TRUE);
+        this.invalidate();
+    }
+
+    @Override
+    public void onTransactionEnd() {
+        if (this.pendingChange.get().booleanValue()) {
+            this.pendingChange.remove();
+            this.invalidate();
+        }
+    }
+
+    /**
+     * @return Number of cache hits.
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return Number of cache misses.
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return Number of invalidations.
+     */
+    public long getInvalidations() {
+        return this.invalidations.sum();
+    }
+}
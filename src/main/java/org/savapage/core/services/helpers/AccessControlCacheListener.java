@@ -0,0 +1,84 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.savapage.core.jpa.UserAttr;
+import org.savapage.core.jpa.UserGroupAttr;
+import org.savapage.core.jpa.UserGroupMember;
+
+/**
+ * JPA entity listener that notifies the {@link AccessControlCache} of changed
+ * ACL attributes and group memberships.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class AccessControlCacheListener {
+
+    /**
+     * Prefix of ACL attribute names.
+     */
+    private static final String ACL_ATTR_PREFIX = "acl.";
+
+    /**
+     * Notifies the {@link AccessControlCache} when entity holds ACL data.
+     *
+     * @param entity
+     *            The {@link UserAttr}, {@link UserGroupAttr} or
+     *            {@link UserGroupMember}.
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(final Object entity) {
+
+        final boolean isAclChange;
+
+        if (entity instanceof UserAttr) {
+            isAclChange = isAclAttr(((UserAttr) entity).getName());
+        } else if (entity instanceof UserGroupAttr) {
+            isAclChange = isAclAttr(((UserGroupAttr) entity).getName());
+        } else {
+            isAclChange = entity instanceof UserGroupMember;
+        }
+
+        if (isAclChange) {
+            AccessControlCache.instance().onChange();
+        }
+    }
+
+    /**
+     * @param name
+     *            The attribute name.
+     * @return {@code true} when ACL attribute.
+     */
+    private static boolean isAclAttr(final String name) {
+        return name != null && name.startsWith(ACL_ATTR_PREFIX);
+    }
+}
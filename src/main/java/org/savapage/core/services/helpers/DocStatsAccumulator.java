@@ -0,0 +1,464 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.savapage.core.concurrent.ReadLockObtainFailedException;
+import org.savapage.core.concurrent.ReadWriteLockEnum;
+import org.savapage.core.config.ConfigManager;
+import org.savapage.core.config.IConfigProp.Key;
+import org.savapage.core.dao.DaoContext;
+import org.savapage.core.json.JsonRollingTimeSeries;
+import org.savapage.core.json.TimeSeriesInterval;
+import org.savapage.core.jpa.Entity;
+import org.savapage.core.services.ServiceContext;
+import org.savapage.core.util.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory accumulator of global DocIn/DocOut statistics, that are flushed to
+ * the {@code STATS_*} configuration keys on a schedule and at shutdown.
+ * <p>
+ * Observations are recorded in {@link LongAdder} instances while holding the
+ * {@link ReadWriteLockEnum#DOC_IN_STATS} or
+ * {@link ReadWriteLockEnum#DOC_OUT_STATS} <i>read</i> lock. A flush drains the
+ * accumulators with both <i>write</i> locks held, so no observation is lost.
+ * </p>
+ * <p>
+ * Rolling time series observations are bucketed by day, which keeps the
+ * {@link TimeSeriesInterval#DAY}, {@link TimeSeriesInterval#WEEK} and
+ * {@link TimeSeriesInterval#MONTH} intervals intact.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class DocStatsAccumulator {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(DocStatsAccumulator.class);
+
+    /**
+     * Max milliseconds to wait for the flush at shutdown.
+     */
+    private static final long EXIT_FLUSH_MAX_MSEC =
+            10 * DateUtil.DURATION_MSEC_SECOND;
+
+    /**
+     * Pending observations of a rolling time series configuration key.
+     */
+    private static final class RollingSeries {
+
+        /** */
+        private final TimeSeriesInterval interval;
+
+        /** */
+        private final int maxPoints;
+
+        /**
+         * {@code true} when series of {@link Long}, {@code false} when
+         * {@link Integer}.
+         */
+        private final boolean isLong;
+
+        /**
+         * Observation total by start of day (epoch milliseconds).
+         */
+        private final Map<Long, LongAdder> points = new ConcurrentHashMap<>();
+
+        /**
+         * @param intv
+         *            The interval.
+         * @param max
+         *            The max number of points.
+         * @param longSeries
+         *            {@code true} when series of {@link Long}.
+         */
+        RollingSeries(final TimeSeriesInterval intv, final int max,
+                final boolean longSeries) {
+            this.interval = intv;
+            this.maxPoints = max;
+            this.isLong = longSeries;
+        }
+    }
+
+    /**
+     * Pending rolling time series observations.
+     */
+    private final Map<Key, RollingSeries> rollingSeries =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Pending running total increments.
+     */
+    private final Map<Key, LongAdder> totals = new ConcurrentHashMap<>();
+
+    /**
+     * Flush executor, lazy created.
+     */
+    private ScheduledExecutorService flushExecutor;
+
+    /** */
+    private static final class SingletonHolder {
+        /** */
+        static final DocStatsAccumulator INSTANCE = new DocStatsAccumulator();
+    }
+
+    /**
+     * Singleton.
+     */
+    private DocStatsAccumulator() {
+    }
+
+    /**
+     * @return The singleton instance.
+     */
+    public static DocStatsAccumulator instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Adds an observation to a rolling time series of {@link Integer}.
+     * <p>
+     * Note: caller must hold the read lock of the statistics.
+     * </p>
+     *
+     * @param key
+     *            The configuration key of the time series.
+     * @param interval
+     *            The interval of the time series.
+     * @param maxPoints
+     *            The max number of points of the time series.
+     * @param observationTime
+     *            The observation time.
+     * @param observation
+     *            The observation.
+     */
+    public void addDataPoint(final Key key, final TimeSeriesInterval interval,
+            final int maxPoints, final Date observationTime,
+            final int observation) {
+        this.addPoint(key, interval, maxPoints, false, observationTime,
+                observation);
+    }
+
+    /**
+     * Adds an observation to a rolling time series of {@link Long}.
+     * <p>
+     * Note: caller must hold the read lock of the statistics.
+     * </p>
+     *
+     * @param key
+     *            The configuration key of the time series.
+     * @param interval
+     *            The interval of the time series.
+     * @param maxPoints
+     *            The max number of points of the time series.
+     * @param observationTime
+     *            The observation time.
+     * @param observation
+     *            The observation.
+     */
+    public void addDataPoint(final Key key, final TimeSeriesInterval interval,
+            final int maxPoints, final Date observationTime,
+            final long observation) {
+        this.addPoint(key, interval, maxPoints, true, observationTime,
+                observation);
+    }
+
+    /**
+     * Adds an observation to a rolling time series.
+     *
+     * @param key
+     *            The configuration key of the time series.
+     * @param interval
+     *            The interval of the time series.
+     * @param maxPoints
+     *            The max number of points of the time series.
+     * @param isLong
+     *            {@code true} when series of {@link Long}.
+     * @param observationTime
+     *            The observation time.
+     * @param observation
+     *            The observation.
+     */
+    private void addPoint(final Key key, final TimeSeriesInterval interval,
+            final int maxPoints, final boolean isLong,
+            final Date observationTime, final long observation) {
+
+        final Long day = Long.valueOf(DateUtils
+                .truncate(observationTime, Calendar.DAY_OF_MONTH).getTime());
+
+        this.rollingSeries
+                .computeIfAbsent(key,
+                        k -> new RollingSeries(interval, maxPoints, isLong))
+                .points.computeIfAbsent(day, d -> new LongAdder())
+                .add(observation);
+    }
+
+    /**
+     * Adds an increment to a running total.
+     * <p>
+     * Note: caller must hold the read lock of the statistics.
+     * </p>
+     *
+     * @param key
+     *            The configuration key of the running total.
+     * @param increment
+     *            The increment.
+     */
+    public void addTotal(final Key key, final long increment) {
+        this.totals.computeIfAbsent(key, k -> new LongAdder()).add(increment);
+    }
+
+    /**
+     * Discards all pending observations.
+     * <p>
+     * Note: caller must hold the write lock of the statistics.
+     * </p>
+     */
+    public void clear() {
+        this.rollingSeries.clear();
+        this.totals.clear();
+    }
+
+    /**
+     * Notifies that observations were recorded: flushes synchronously when
+     * {@link Key#STATS_FLUSH_MSEC} is zero, or lazy starts the flush schedule.
+     * <p>
+     * Note: caller must NOT hold a lock of the statistics.
+     * </p>
+     */
+    public void onRecorded() {
+
+        final long periodMsec =
+                ConfigManager.instance().getConfigLong(Key.STATS_FLUSH_MSEC);
+
+        if (periodMsec <= 0) {
+            this.flush();
+        } else {
+            this.lazyStartFlush(periodMsec);
+        }
+    }
+
+    /**
+     * Lazy starts the flush executor.
+     *
+     * @param periodMsec
+     *            Milliseconds between flushes.
+     */
+    private synchronized void lazyStartFlush(final long periodMsec) {
+
+        if (this.flushExecutor != null) {
+            return;
+        }
+
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread =
+                    new Thread(r, DocStatsAccumulator.class.getSimpleName());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.flushExecutor.scheduleWithFixedDelay(this::flushScheduled,
+                periodMsec, periodMsec, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Flushes in the flush executor thread. The flush is skipped when the
+     * database is locked for update (e.g. during a backup), and retried next
+     * time.
+     */
+    private void flushScheduled() {
+
+        ServiceContext.open();
+
+        try {
+            ServiceContext.setActor(Entity.ACTOR_SYSTEM);
+
+            ReadWriteLockEnum.DATABASE_READONLY.tryReadLock();
+
+            try {
+                this.flush();
+            } finally {
+                ReadWriteLockEnum.DATABASE_READONLY.setReadLock(false);
+            }
+
+        } catch (ReadLockObtainFailedException e) {
+            LOGGER.debug(e.getMessage());
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+        } finally {
+            ServiceContext.close();
+        }
+    }
+
+    /**
+     * Writes pending observations to the database in one transaction, with
+     * {@link ReadWriteLockEnum#DOC_OUT_STATS} and
+     * {@link ReadWriteLockEnum#DOC_IN_STATS} write locks held.
+     */
+    public void flush() {
+
+        if (this.rollingSeries.isEmpty() && this.totals.isEmpty()) {
+            return;
+        }
+
+        final DaoContext daoContext = ServiceContext.getDaoContext();
+
+        ReadWriteLockEnum.DOC_OUT_STATS.setWriteLock(true);
+        ReadWriteLockEnum.DOC_IN_STATS.setWriteLock(true);
+
+        boolean rollbackTrx = false;
+
+        try {
+            daoContext.beginTransaction();
+            rollbackTrx = true;
+
+            this.writeRollingSeries();
+            this.writeTotals();
+
+            daoContext.commit();
+            rollbackTrx = false;
+
+            this.clear();
+
+        } finally {
+            try {
+                if (rollbackTrx) {
+                    daoContext.rollback();
+                }
+            } finally {
+                ReadWriteLockEnum.DOC_IN_STATS.setWriteLock(false);
+                ReadWriteLockEnum.DOC_OUT_STATS.setWriteLock(false);
+            }
+        }
+    }
+
+    /**
+     * Adds the pending rolling time series observations to the database, in
+     * chronological order.
+     */
+    private void writeRollingSeries() {
+
+        for (final Map.Entry<Key, RollingSeries> entry : this.rollingSeries
+                .entrySet()) {
+
+            final Key key = entry.getKey();
+            final RollingSeries series = entry.getValue();
+
+            for (final Map.Entry<Long, LongAdder> point : new TreeMap<>(
+                    series.points).entrySet()) {
+
+                final Date observationTime = new Date(point.getKey());
+                final long observation = point.getValue().sum();
+
+                if (series.isLong) {
+                    new JsonRollingTimeSeries<>(series.interval,
+                            series.maxPoints, 0L).addDataPoint(key,
+                                    observationTime, observation);
+                } else {
+                    new JsonRollingTimeSeries<>(series.interval,
+                            series.maxPoints, 0).addDataPoint(key,
+                                    observationTime, (int) observation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the pending running total increments to the database.
+     */
+    private void writeTotals() {
+
+        final ConfigManager cm = ConfigManager.instance();
+
+        for (final Map.Entry<Key, LongAdder> entry : this.totals.entrySet()) {
+            final Key key = entry.getKey();
+            cm.updateConfigKey(key,
+                    cm.getConfigLong(key) + entry.getValue().sum(),
+                    Entity.ACTOR_SYSTEM);
+        }
+    }
+
+    /**
+     * Stops the flush executor and flushes pending observations.
+     * <p>
+     * Note: the caller holds the {@link ReadWriteLockEnum#DATABASE_READONLY}
+     * write lock, so the final flush is performed in a separate thread
+     * without taking the read lock.
+     * </p>
+     */
+    public synchronized void exit() {
+
+        if (this.flushExecutor == null) {
+            return;
+        }
+
+        this.flushExecutor.shutdown();
+
+        try {
+            this.flushExecutor.awaitTermination(DateUtil.DURATION_MSEC_SECOND,
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        final Thread exitThread = new Thread(() -> {
+            ServiceContext.open();
+            try {
+                ServiceContext.setActor(Entity.ACTOR_SYSTEM);
+                this.flush();
+            } catch (Exception e) {
+                LOGGER.error(e.getMessage(), e);
+            } finally {
+                ServiceContext.close();
+            }
+        }, DocStatsAccumulator.class.getSimpleName());
+
+        exitThread.start();
+
+        try {
+            exitThread.join(EXIT_FLUSH_MAX_MSEC);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.flushExecutor = null;
+    }
+}
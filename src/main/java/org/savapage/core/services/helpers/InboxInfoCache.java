@@ -0,0 +1,727 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import org.savapage.core.SpException;
+import org.savapage.core.config.ConfigManager;
+import org.savapage.core.config.IConfigProp.Key;
+import org.savapage.core.inbox.InboxInfoDto;
+import org.savapage.core.util.DateUtil;
+import org.savapage.core.util.FileSystemHelper;
+import org.savapage.core.util.JsonHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Bounded in-memory cache of {@link InboxInfoDto} by user inbox (SafePages),
+ * with write-behind persistence to the inbox info file.
+ * <p>
+ * An entry holds the JSON snapshot of the inbox info, i.e. the exact file
+ * content. Each {@link #get(String, File)} returns a fresh copy and each
+ * {@link #put(String, File, InboxInfoDto)} takes a snapshot, so callers can
+ * freely change the objects they hold. Changed entries are marked dirty and
+ * written every {@link Key#INBOX_CACHE_FLUSH_MSEC}, so successive changes are
+ * coalesced into one write.
+ * </p>
+ * <p>
+ * The last-modified time and size of the inbox info file are kept with each
+ * entry. When they no longer match the file on disk, the SafePages were
+ * changed externally (e.g. removed or restored) and the entry is reloaded
+ * from disk: a pending write is discarded.
+ * </p>
+ * <p>
+ * Operations on the same user are serialized by a per-user (striped) lock:
+ * use {@link #compute(String, File, UnaryOperator)} for a read-modify-write.
+ * The least recently used entries are written (when dirty) and evicted when
+ * there are more than {@link Key#INBOX_CACHE_MAX_USERS} entries.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class InboxInfoCache {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(InboxInfoCache.class);
+
+    /**
+     * Number of per-user lock stripes.
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Min age (milliseconds) of a directory last-modified time before it is
+     * trusted as scan marker: a change within the same file system time tick
+     * would not be noticed otherwise.
+     */
+    private static final long DIR_MTIME_SETTLED_MSEC =
+            2 * DateUtil.DURATION_MSEC_SECOND;
+
+    /**
+     * {@link ObjectMapper} is thread-safe.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Last-modified time and size of a file.
+     */
+    private static final class Stamp {
+
+        /** */
+        private final boolean exists;
+        /** */
+        private final long lastModified;
+        /** */
+        private final long size;
+
+        /**
+         * @param exists
+         *            {@code true} when file exists.
+         * @param lastModified
+         *            Last-modified time.
+         * @param size
+         *            File size.
+         */
+        private Stamp(final boolean exists, final long lastModified,
+                final long size) {
+            this.exists = exists;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        /**
+         * @param file
+         *            The file.
+         * @return The stamp of the file.
+         */
+        static Stamp of(final File file) {
+            try {
+                final BasicFileAttributes attrs = Files.readAttributes(
+                        file.toPath(), BasicFileAttributes.class);
+                return new Stamp(true, attrs.lastModifiedTime().toMillis(),
+                        attrs.size());
+            } catch (NoSuchFileException e) {
+                return new Stamp(false, 0L, 0L);
+            } catch (IOException e) {
+                throw new SpException(e.getMessage(), e);
+            }
+        }
+
+        /**
+         * @param other
+         *            The stamp to compare with.
+         * @return {@code true} when equal.
+         */
+        boolean isSame(final Stamp other) {
+            return this.exists == other.exists
+                    && this.lastModified == other.lastModified
+                    && this.size == other.size;
+        }
+    }
+
+    /**
+     * Cached inbox info of a user.
+     */
+    private static final class Entry {
+
+        /**
+         * The inbox info file.
+         */
+        private final File file;
+
+        /**
+         * JSON snapshot of the inbox info.
+         */
+        private byte[] json;
+
+        /**
+         * Stamp of the inbox info file when last read or written.
+         */
+        private Stamp stamp;
+
+        /**
+         * {@code true} when {@link #json} is not written yet.
+         */
+        private boolean dirty;
+
+        /**
+         * Last-modified time of the inbox directory when it was last scanned
+         * for unknown documents. Zero when unknown.
+         */
+        private long scannedDirMtime;
+
+        /**
+         * @param file
+         *            The inbox info file.
+         * @param stamp
+         *            The stamp of the file.
+         */
+        Entry(final File file, final Stamp stamp) {
+            this.file = file;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * Entries by user inbox id, in access order.
+     */
+    private final Map<String, Entry> entries =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Per-user lock stripes.
+     */
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * Flush executor, lazy created.
+     */
+    private ScheduledExecutorService flushExecutor;
+
+    /** */
+    private static final class SingletonHolder {
+        /** */
+        static final InboxInfoCache INSTANCE = new InboxInfoCache();
+    }
+
+    /**
+     * Singleton.
+     */
+    private InboxInfoCache() {
+        for (int i = 0; i < this.locks.length; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return The singleton instance.
+     */
+    public static InboxInfoCache instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * @param userIdInbox
+     *            The unique user id of the inbox.
+     * @return The lock of the user.
+     */
+    private Object lockOf(final String userIdInbox) {
+        return this.locks[(userIdInbox.hashCode() & Integer.MAX_VALUE)
+                % this.locks.length];
+    }
+
+    /**
+     * @param userIdInbox
+     *            The unique user id of the inbox.
+     * @return The entry or {@code null} when not cached.
+     */
+    private Entry lookup(final String userIdInbox) {
+        synchronized (this.entries) {
+            return this.entries.get(userIdInbox);
+        }
+    }
+
+    /**
+     * Gets a copy of the inbox info of a user. When the inbox info file does
+     * not exist (first time use, or reset) an empty inbox info is returned.
+     *
+     * @param userIdInbox
+     *            The unique user id of the inbox.
+     * @param file
+     *            The inbox info file.
+     * @return The {@link InboxInfoDto}.
+     */
+    public InboxInfoDto get(final String userIdInbox, final File file) {
+
+        final byte[] json;
+
+        synchronized (this.lockOf(userIdInbox)) {
+            json = this.getEntry(userIdInbox, file).json;
+        }
+
+        this.evictOverflow();
+
+        try {
+            return MAPPER.readValue(json, InboxInfoDto.class);
+        } catch (IOException e) {
+            throw new SpException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the valid cache entry of a user, (re)loading it from disk when
+     * needed. Note: caller must hold the user lock.
+     *
+     * @param userIdInbox
+     *            The unique user id of the inbox.
+     * @param file
+     *            The inbox info file.
+     * @return The entry.
+     */
+    private Entry getEntry(final String userIdInbox, final File file) {
+
+        final Stamp stamp = Stamp.of(file);
+
+        Entry entry = this.lookup(userIdInbox);
+
+        if (entry != null) {
+            if (entry.stamp.isSame(stamp)) {
+                return entry;
+            }
+            if (entry.dirty) {
+                LOGGER.warn("File [{}] changed externally: "
+                        + "pending inbox info discarded.",
+                        file.getAbsolutePath());
+            }
+        }
+
+        entry = new Entry(file, stamp);
+
+        if (stamp.exists) {
+            try {
+                entry.json = Files.readAllBytes(file.toPath());
+                MAPPER.readValue(entry.json, InboxInfoDto.class);
+
+            } catch (JsonParseException e) {
+                throw new SpException("Error parsing file ["
+                        + file.getAbsolutePath() + "] : " + e.getMessage());
+
+            } catch (JsonMappingException e) {
+
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Error mapping from file ["
+                            + file.getAbsolutePath() + "]: create new.");
+                }
+                /*
+                 * There has been a change in layout of the JSON file, so
+                 * create a new default and store it.
+                 */
+                entry.json = toJson(new InboxInfoDto());
+                this.onChange(entry);
+
+            } catch (IOException e) {
+                throw new SpException("Error reading file ["
+                        + file.getAbsolutePath() + "]" + e.getMessage());
+            }
+        } else {
+            entry.json = toJson(new InboxInfoDto());
+        }
+
+        synchronized (this.entries) {
+            this.entries.put(userIdInbox, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Puts the inbox info of a user.
+     *
+     * @param userIdInbox
+     *            The unique user id of the inbox.
+     * @param file
+     *            The inbox info file.
+     * @param dto
+     *            The {@link InboxInfoDto}.
+     */
+    public void put(final String userIdInbox, final File file,
+            final InboxInfoDto dto) {
+
+        final byte[] json = toJson(dto);
+
+        synchronized (this.lockOf(userIdInbox)) {
+            this.putEntry(userIdInbox, file, json);
+        }
+
+        this.evictOverflow();
+    }
+
+    /**
+     * Reads, changes and puts the inbox info of a user, while holding the
+     * user lock: no change of a concurrent operation on the same user gets
+     * lost in between.
+     *
+     * @param userIdInbox
+     *            The unique user id of the inbox.
+     * @param file
+     *            The inbox info file.
+     * @param fn
+     *            Changes a copy of the current inbox info, and returns the
+     *            inbox info to put, or {@code null} when nothing is to be put.
+     * @return The inbox info as put, or the current inbox info when nothing
+     *         was put.
+     */
+    public InboxInfoDto compute(final String userIdInbox, final File file,
+            final UnaryOperator<InboxInfoDto> fn) {
+
+        final InboxInfoDto result;
+
+        synchronized (this.lockOf(userIdInbox)) {
+
+            final InboxInfoDto current;
+
+            try {
+                current = MAPPER.readValue(
+                        this.getEntry(userIdInbox, file).json,
+                        InboxInfoDto.class);
+            } catch (IOException e) {
+                throw new SpException(e.getMessage(), e);
+            }
+
+            final InboxInfoDto changed = fn.apply(current);
+
+            if (changed == null) {
+                result = current;
+            } else {
+                this.putEntry(userIdInbox, file, toJson(changed));
+                result = changed;
+            }
+        }
+
+        this.evictOverflow();
+
+        return result;
+    }
+
+    /**
+     * Puts the JSON snapshot of the inbox info of a user. Note: caller must
+     * hold the user lock.
+     *
+     * @param userIdInbox
+     *            The unique user id of the inbox.
+     * @param file
+     *            The inbox info file.
+     * @param json
+     *            The JSON snapshot.
+     */
+    private void putEntry(final String userIdInbox, final File file,
+            final byte[] json) {
+
+        /*
+         * The file on disk is overwritten, even when changed externally.
+         */
+        final Stamp stamp = Stamp.of(file);
+
+        Entry entry = this.lookup(userIdInbox);
+
+        if (entry == null) {
+            entry = new Entry(file, stamp);
+            synchronized (this.entries) {
+                this.entries.put(userIdInbox, entry);
+            }
+        } else {
+            entry.stamp = stamp;
+        }
+
+        entry.json = json;
+        entry.scannedDirMtime = 0L;
+
+        this.onChange(entry);
+    }
+
+    /**
+     * Removes the inbox info of a user from the cache, without writing a
+     * pending change. E.g. when the user's SafePages are removed.
+     *
+     * @param userIdInbox
+     *            The unique user id of the inbox.
+     */
+    public void remove(final String userIdInbox) {
+        synchronized (this.lockOf(userIdInbox)) {
+            synchronized (this.entries) {
+                this.entries.remove(userIdInbox);
+            }
+        }
+    }
+
+    /**
+     * Checks if the inbox directory of a user is unchanged since it was last
+     * scanned for unknown documents, and the inbox info is unchanged since.
+     *
+     * @param userIdInbox
+     *            The unique user id of the inbox.
+     * @param dirMtime
+     *            Current last-modified time of the inbox directory.
+     * @return {@code true} when scan can be skipped.
+     */
+    public boolean isScanCurrent(final String userIdInbox,
+            final long dirMtime) {
+        synchronized (this.lockOf(userIdInbox)) {
+            final Entry entry = this.lookup(userIdInbox);
+            return entry != null && dirMtime != 0L
+                    && entry.scannedDirMtime == dirMtime;
+        }
+    }
+
+    /**
+     * Marks the inbox directory of a user as scanned for unknown documents.
+     *
+     * @param userIdInbox
+     *            The unique user id of the inbox.
+     * @param dirMtime
+     *            Last-modified time of the inbox directory at start of scan.
+     */
+    public void setScanned(final String userIdInbox, final long dirMtime) {
+
+        if (System.currentTimeMillis() - dirMtime < DIR_MTIME_SETTLED_MSEC) {
+            return;
+        }
+
+        synchronized (this.lockOf(userIdInbox)) {
+            final Entry entry = this.lookup(userIdInbox);
+            if (entry != null) {
+                entry.scannedDirMtime = dirMtime;
+            }
+        }
+    }
+
+    /**
+     * Writes a changed entry, or marks it dirty to be written by the flush
+     * executor. Note: caller must hold the user lock.
+     *
+     * @param entry
+     *            The changed entry.
+     */
+    private void onChange(final Entry entry) {
+
+        final long periodMsec = ConfigManager.instance()
+                .getConfigLong(Key.INBOX_CACHE_FLUSH_MSEC);
+
+        if (periodMsec <= 0) {
+            write(entry);
+        } else {
+            entry.dirty = true;
+            this.lazyStartFlush(periodMsec);
+        }
+    }
+
+    /**
+     * Writes (and evicts when dirty) the least recently used entries above
+     * the max number of entries.
+     */
+    private void evictOverflow() {
+
+        final int maxUsers = Math.max(1, ConfigManager.instance()
+                .getConfigInt(Key.INBOX_CACHE_MAX_USERS));
+
+        final List<String> victims = new ArrayList<>();
+
+        synchronized (this.entries) {
+            int overflow = this.entries.size() - maxUsers;
+            final Iterator<String> iter = this.entries.keySet().iterator();
+            while (overflow > 0 && iter.hasNext()) {
+                victims.add(iter.next());
+                overflow--;
+            }
+        }
+
+        for (final String userIdInbox : victims) {
+            synchronized (this.lockOf(userIdInbox)) {
+                final Entry entry;
+                synchronized (this.entries) {
+                    entry = this.entries.remove(userIdInbox);
+                }
+                if (entry != null && entry.dirty) {
+                    writeQuietly(userIdInbox, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lazy starts the flush executor.
+     *
+     * @param periodMsec
+     *            Milliseconds between flushes.
+     */
+    private synchronized void lazyStartFlush(final long periodMsec) {
+
+        if (this.flushExecutor != null) {
+            return;
+        }
+
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread =
+                    new Thread(r, InboxInfoCache.class.getSimpleName());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.flushExecutor.scheduleWithFixedDelay(this::flush, periodMsec,
+                periodMsec, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes all dirty entries. An entry that fails to be written is evicted.
+     */
+    public void flush() {
+
+        final List<String> dirtyUsers = new ArrayList<>();
+
+        synchronized (this.entries) {
+            for (final Map.Entry<String, Entry> entry : this.entries
+                    .entrySet()) {
+                if (entry.getValue().dirty) {
+                    dirtyUsers.add(entry.getKey());
+                }
+            }
+        }
+
+        for (final String userIdInbox : dirtyUsers) {
+            synchronized (this.lockOf(userIdInbox)) {
+                final Entry entry = this.lookup(userIdInbox);
+                if (entry != null && entry.dirty
+                        && !writeQuietly(userIdInbox, entry)) {
+                    synchronized (this.entries) {
+                        this.entries.remove(userIdInbox);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the flush executor and writes all dirty entries.
+     */
+    public synchronized void exit() {
+
+        if (this.flushExecutor == null) {
+            return;
+        }
+
+        this.flushExecutor.shutdown();
+
+        try {
+            this.flushExecutor.awaitTermination(DateUtil.DURATION_MSEC_SECOND,
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.flush();
+
+        this.flushExecutor = null;
+    }
+
+    /**
+     * @param dto
+     *            The {@link InboxInfoDto}.
+     * @return The pretty printed JSON bytes, as written to file.
+     */
+    private static byte[] toJson(final InboxInfoDto dto) {
+        final StringWriter writer = new StringWriter();
+        try {
+            JsonHelper.write(dto, writer);
+        } catch (IOException e) {
+            throw new SpException(e.getMessage(), e);
+        }
+        return writer.toString().getBytes(Charset.defaultCharset());
+    }
+
+    /**
+     * Writes an entry, logging any error. Note: caller must hold the user
+     * lock.
+     *
+     * @param userIdInbox
+     *            The unique user id of the inbox.
+     * @param entry
+     *            The entry.
+     * @return {@code true} when written.
+     */
+    private static boolean writeQuietly(final String userIdInbox,
+            final Entry entry) {
+        try {
+            write(entry);
+            return true;
+        } catch (SpException e) {
+            LOGGER.error("Inbox info of [{}] not written: {}", userIdInbox,
+                    e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes an entry to a temporary file that is atomically moved to the
+     * inbox info file (Mantis #863). Note: caller must hold the user lock.
+     *
+     * @param entry
+     *            The entry.
+     */
+    private static void write(final Entry entry) {
+
+        final File fileTarget = entry.file;
+
+        final File fileSource = new File(String.format("%s%c%s_%s.%s",
+                ConfigManager.getAppTmpDir(), File.separatorChar,
+                fileTarget.getParentFile().getName(), fileTarget.getName(),
+                UUID.randomUUID().toString()));
+
+        try {
+            Files.write(fileSource.toPath(), entry.json);
+        } catch (IOException e) {
+            throw new SpException("Error writing file ["
+                    + fileSource.getAbsolutePath() + "] : " + e.getMessage());
+        }
+
+        try {
+            FileSystemHelper.doAtomicFileMove(fileSource.toPath(),
+                    fileTarget.toPath());
+        } catch (IOException e) {
+            throw new SpException(
+                    "Error moving file [" + fileSource.getAbsolutePath()
+                            + "] to [" + fileTarget.getAbsolutePath() + "] : "
+                            + e.getMessage());
+        } finally {
+            fileSource.delete(); // just to be sure
+        }
+
+        entry.stamp = Stamp.of(fileTarget);
+        entry.dirty = false;
+    }
+}
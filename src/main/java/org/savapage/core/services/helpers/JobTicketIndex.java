@@ -0,0 +1,403 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Secondary in-memory indexes of pending Job Tickets: by user, by printer
+ * group, by delivery time and by trigrams of the lower-case ticket number.
+ * <p>
+ * A selection starts from the smallest matching index entry, and verifies
+ * the remaining criteria against the indexed attributes of each candidate.
+ * Tickets must be (re)put on each change of an indexed attribute.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class JobTicketIndex {
+
+    /**
+     * Length of a ticket number n-gram.
+     */
+    private static final int NGRAM_LENGTH = 3;
+
+    /**
+     * Indexed attributes of a ticket.
+     */
+    private static final class Entry {
+
+        /** */
+        private final Long userId;
+        /** */
+        private final String ticketNumber;
+        /** */
+        private final Set<Long> printerGroupIDs;
+        /** */
+        private final long deliveryTime;
+
+        /**
+         * @param user
+         *            User database key.
+         * @param number
+         *            Lower-case ticket number.
+         * @param groupIDs
+         *            Printer group IDs.
+         * @param delivery
+         *            Delivery time.
+         */
+        Entry(final Long user, final String number, final Set<Long> groupIDs,
+                final long delivery) {
+            this.userId = user;
+            this.ticketNumber = number;
+            this.printerGroupIDs = groupIDs;
+            this.deliveryTime = delivery;
+        }
+    }
+
+    /** */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** */
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    /** */
+    private final Map<Long, Set<UUID>> byUser = new HashMap<>();
+
+    /** */
+    private final Map<Long, Set<UUID>> byPrinterGroup = new HashMap<>();
+
+    /** */
+    private final TreeMap<Long, Set<UUID>> byDeliveryTime = new TreeMap<>();
+
+    /** */
+    private final Map<String, Set<UUID>> byNgram = new HashMap<>();
+
+    /**
+     * @param ticketNumber
+     *            The lower-case ticket number.
+     * @return The distinct n-grams.
+     */
+    private static Set<String> ngrams(final String ticketNumber) {
+        final Set<String> grams = new HashSet<>();
+        for (int i = 0; i + NGRAM_LENGTH <= ticketNumber.length(); i++) {
+            grams.add(ticketNumber.substring(i, i + NGRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * @param <K>
+     *            The key type.
+     * @param index
+     *            The index.
+     * @param key
+     *            The key.
+     * @param uuid
+     *            The ticket.
+     */
+    private static <K> void add(final Map<K, Set<UUID>> index, final K key,
+            final UUID uuid) {
+        index.computeIfAbsent(key, k -> new HashSet<>()).add(uuid);
+    }
+
+    /**
+     * @param <K>
+     *            The key type.
+     * @param index
+     *            The index.
+     * @param key
+     *            The key.
+     * @param uuid
+     *            The ticket.
+     */
+    private static <K> void remove(final Map<K, Set<UUID>> index,
+            final K key, final UUID uuid) {
+        final Set<UUID> uuids = index.get(key);
+        if (uuids != null) {
+            uuids.remove(uuid);
+            if (uuids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Puts (adds or replaces) a ticket.
+     *
+     * @param uuid
+     *            The ticket UUID.
+     * @param userId
+     *            The user database key.
+     * @param ticketNumber
+     *            The ticket number.
+     * @param printerGroupIDs
+     *            The printer group IDs (can be {@code null}).
+     * @param deliveryTime
+     *            The delivery time as in {@link java.util.Date#getTime()}.
+     */
+    public void put(final UUID uuid, final Long userId,
+            final String ticketNumber, final Set<Long> printerGroupIDs,
+            final long deliveryTime) {
+
+        final Set<Long> groupIDs;
+        if (printerGroupIDs == null) {
+            groupIDs = Collections.emptySet();
+        } else {
+            groupIDs = new HashSet<>(printerGroupIDs);
+        }
+
+        final Entry entry = new Entry(userId,
+                ticketNumber.toLowerCase(Locale.ROOT), groupIDs, deliveryTime);
+
+        this.lock.writeLock().lock();
+        try {
+            this.removeEntry(uuid);
+
+            this.entries.put(uuid, entry);
+
+            add(this.byUser, entry.userId, uuid);
+            for (final Long groupID : entry.printerGroupIDs) {
+                add(this.byPrinterGroup, groupID, uuid);
+            }
+            add(this.byDeliveryTime, entry.deliveryTime, uuid);
+            for (final String gram : ngrams(entry.ticketNumber)) {
+                add(this.byNgram, gram, uuid);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a ticket.
+     *
+     * @param uuid
+     *            The ticket UUID.
+     */
+    public void remove(final UUID uuid) {
+        this.lock.writeLock().lock();
+        try {
+            this.removeEntry(uuid);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a ticket. Note: caller must hold the write lock.
+     *
+     * @param uuid
+     *            The ticket UUID.
+     */
+    private void removeEntry(final UUID uuid) {
+
+        final Entry entry = this.entries.remove(uuid);
+
+        if (entry == null) {
+            return;
+        }
+
+        remove(this.byUser, entry.userId, uuid);
+        for (final Long groupID : entry.printerGroupIDs) {
+            remove(this.byPrinterGroup, groupID, uuid);
+        }
+        remove(this.byDeliveryTime, entry.deliveryTime, uuid);
+        for (final String gram : ngrams(entry.ticketNumber)) {
+            remove(this.byNgram, gram, uuid);
+        }
+    }
+
+    /**
+     * Selects tickets.
+     *
+     * @param userId
+     *            The user database key, or {@code null} for all users.
+     * @param searchTicketId
+     *            Part of a ticket number as case-insensitive search
+     *            argument, or {@code null} or empty for all.
+     * @param printerGroupID
+     *            The printer group ID, or {@code null} or zero for all.
+     * @param deliveryTimeMax
+     *            Max delivery time, or {@code null} for all.
+     * @param maxItems
+     *            Max number of tickets to select. Zero or less for all.
+     * @return The selected ticket UUIDs.
+     */
+    public List<UUID> select(final Long userId, final String searchTicketId,
+            final Long printerGroupID, final Long deliveryTimeMax,
+            final int maxItems) {
+
+        final String search;
+        if (searchTicketId == null) {
+            search = "";
+        } else {
+            search = searchTicketId.toLowerCase(Locale.ROOT);
+        }
+
+        final Long groupID;
+        if (printerGroupID == null || printerGroupID.longValue() <= 0) {
+            groupID = null;
+        } else {
+            groupID = printerGroupID;
+        }
+
+        final List<UUID> selected = new ArrayList<>();
+
+        this.lock.readLock().lock();
+
+        try {
+            final Collection<UUID> candidates =
+                    this.getCandidates(userId, search, groupID);
+
+            if (candidates == null) {
+                // All tickets, by delivery time.
+                for (final Set<UUID> uuids : this.byDeliveryTime.values()) {
+                    if (!this.collect(uuids, selected, userId, search,
+                            groupID, deliveryTimeMax, maxItems)) {
+                        break;
+                    }
+                }
+            } else {
+                this.collect(candidates, selected, userId, search, groupID,
+                        deliveryTimeMax, maxItems);
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return selected;
+    }
+
+    /**
+     * Gets the smallest index entry matching the criteria. Note: caller must
+     * hold the read lock.
+     *
+     * @param userId
+     *            The user database key, or {@code null}.
+     * @param search
+     *            Lower-case search argument, or empty.
+     * @param groupID
+     *            The printer group ID, or {@code null}.
+     * @return The candidate UUIDs, or {@code null} when no index applies.
+     */
+    private Collection<UUID> getCandidates(final Long userId,
+            final String search, final Long groupID) {
+
+        final List<Set<UUID>> lookups = new ArrayList<>();
+
+        if (userId != null) {
+            lookups.add(this.byUser.get(userId));
+        }
+        if (groupID != null) {
+            lookups.add(this.byPrinterGroup.get(groupID));
+        }
+        for (final String gram : ngrams(search)) {
+            lookups.add(this.byNgram.get(gram));
+        }
+
+        Set<UUID> smallest = null;
+
+        for (final Set<UUID> uuids : lookups) {
+            if (uuids == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || uuids.size() < smallest.size()) {
+                smallest = uuids;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Collects candidates that match all criteria. Note: caller must hold
+     * the read lock.
+     *
+     * @param candidates
+     *            The candidates.
+     * @param selected
+     *            The selection to add to.
+     * @param userId
+     *            The user database key, or {@code null}.
+     * @param search
+     *            Lower-case search argument, or empty.
+     * @param groupID
+     *            The printer group ID, or {@code null}.
+     * @param deliveryTimeMax
+     *            Max delivery time, or {@code null}.
+     * @param maxItems
+     *            Max number of selected tickets. Zero or less for all.
+     * @return {@code false} when max number of tickets is selected.
+     */
+    private boolean collect(final Collection<UUID> candidates,
+            final List<UUID> selected, final Long userId, final String search,
+            final Long groupID, final Long deliveryTimeMax,
+            final int maxItems) {
+
+        for (final UUID uuid : candidates) {
+
+            if (maxItems > 0 && selected.size() >= maxItems) {
+                return false;
+            }
+
+            final Entry entry = this.entries.get(uuid);
+
+            if ((userId == null || userId.equals(entry.userId))
+                    && (groupID == null
+                            || entry.printerGroupIDs.contains(groupID))
+                    && (deliveryTimeMax == null
+                            || entry.deliveryTime <= deliveryTimeMax
+                                    .longValue())
+                    && entry.ticketNumber.contains(search)) {
+                selected.add(uuid);
+            }
+        }
+        return maxItems <= 0 || selected.size() < maxItems;
+    }
+
+    /**
+     * @return Number of indexed tickets.
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.entries.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+}
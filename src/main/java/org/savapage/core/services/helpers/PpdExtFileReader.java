@@ -25,7 +25,9 @@
 package org.savapage.core.services.helpers;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -37,6 +39,12 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.codec.digest.DigestUtils;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -67,6 +75,12 @@ import org.slf4j.LoggerFactory;
 /**
  * Reader of file with SavaPage PPD extensions from
  * {@link ServerPathEnum#CUSTOM_CUPS}.
+ * <p>
+ * Parsed files are cached, keyed by file path and the IPP options retrieved
+ * from CUPS the file is validated against. A cached parse is re-used as long
+ * as the file content digest is unchanged, and is treated as read-only: its
+ * options are copied when injected into a {@link JsonProxyPrinter}.
+ * </p>
  *
  * @author Rijk Ravestein
  *
@@ -273,6 +287,82 @@ public final class PpdExtFileReader extends AbstractConfigFileReader {
      */
     private static final int SP_CONSTRAINT_WORDS = 4;
 
+    /**
+     * Max number of parsed files in cache. When exceeded, the cache is
+     * cleared.
+     */
+    private static final int PARSED_CACHE_MAX_ENTRIES = 256;
+
+    /**
+     * Parsed files, with file path and CUPS options fingerprint as key.
+     */
+    private static final ConcurrentMap<String, ParsedEntry> PARSED_CACHE =
+            new ConcurrentHashMap<>();
+
+    /**
+     * File stamps, with file path as key.
+     */
+    private static final ConcurrentMap<String, FileStamp> FILE_STAMPS =
+            new ConcurrentHashMap<>();
+
+    /** */
+    private static final LongAdder CACHE_HITS = new LongAdder();
+
+    /** */
+    private static final LongAdder CACHE_MISSES = new LongAdder();
+
+    /** */
+    private static final LongAdder PARSE_NANOS = new LongAdder();
+
+    /**
+     * Last modified time, length and content digest of a file.
+     */
+    private static final class FileStamp {
+
+        /** */
+        private final long lastModified;
+        /** */
+        private final long length;
+        /** */
+        private final String digest;
+
+        /**
+         * @param modified
+         *            Last modified time.
+         * @param len
+         *            File length.
+         * @param hex
+         *            Content digest.
+         */
+        FileStamp(final long modified, final long len, final String hex) {
+            this.lastModified = modified;
+            this.length = len;
+            this.digest = hex;
+        }
+    }
+
+    /**
+     * A parsed file.
+     */
+    private static final class ParsedEntry {
+
+        /** Content digest of the parsed file. */
+        private final String digest;
+        /** The read-only reader holding the parse result. */
+        private final PpdExtFileReader reader;
+
+        /**
+         * @param hex
+         *            Content digest of the parsed file.
+         * @param parsed
+         *            The reader holding the parse result.
+         */
+        ParsedEntry(final String hex, final PpdExtFileReader parsed) {
+            this.digest = hex;
+            this.reader = parsed;
+        }
+    }
+
     /**
      * PPD Option as key to JsonProxyPrinterOpt with IPP mapping.
      */
@@ -346,9 +436,9 @@ public final class PpdExtFileReader extends AbstractConfigFileReader {
     private List<IppRuleSubst> rulesSubst;
 
     /**
-     * IPP printer options as retrieved from CUPS.
+     * IPP printer options as retrieved from CUPS. Released after parsing.
      */
-    private final Map<String, JsonProxyPrinterOpt> optionsFromCUPS;
+    private Map<String, JsonProxyPrinterOpt> optionsFromCUPS;
 
     /**
      *
@@ -472,6 +562,8 @@ public final class PpdExtFileReader extends AbstractConfigFileReader {
      */
     @Override
     protected void onEof() {
+        // Not needed anymore: do not hold on to printer options in cache.
+        this.optionsFromCUPS = null;
     }
 
     /**
@@ -1589,17 +1681,22 @@ public final class PpdExtFileReader extends AbstractConfigFileReader {
         final Map<String, JsonProxyPrinterOpt> optionsLookup =
                 proxyPrinter.getOptionsLookup();
 
-        final PpdExtFileReader reader = new PpdExtFileReader(optionsLookup);
-        reader.read(filePpdExt);
+        final String digest = getContentDigest(filePpdExt);
+        final PpdExtFileReader reader =
+                getParsed(filePpdExt, digest, optionsLookup);
 
         final IppDictJobTemplateAttr ippDict =
                 IppDictJobTemplateAttr.instance();
 
+        // Private copy of the (shared) mapped PPD options.
+        final Map<String, JsonProxyPrinterOpt> ppdOptionMap =
+                copyOptions(reader.ppdOptionMap);
+
         // The mapped PPD options
         final ArrayList<JsonProxyPrinterOpt> optToInjectPageSetup =
                 new ArrayList<>();
 
-        for (final JsonProxyPrinterOpt opt : reader.ppdOptionMap.values()) {
+        for (final JsonProxyPrinterOpt opt : ppdOptionMap.values()) {
 
             final String keywordIpp = opt.getKeyword();
 
@@ -1681,7 +1778,7 @@ public final class PpdExtFileReader extends AbstractConfigFileReader {
         // Append main job copy options
         for (final JsonProxyPrinterOpt opt : reader.jobMainOptMapCopy
                 .values()) {
-            optToInjectPageSetup.add(opt);
+            optToInjectPageSetup.add(opt.copy());
         }
 
         // Inject page setup options in the right order.
@@ -1695,35 +1792,41 @@ public final class PpdExtFileReader extends AbstractConfigFileReader {
 
         for (final JsonProxyPrinterOpt opt : reader.jobTicketOptMapMedia
                 .values()) {
-            optGroupJobTicket.getOptions().add(opt);
+            optGroupJobTicket.getOptions().add(opt.copy());
         }
         for (final JsonProxyPrinterOpt opt : reader.jobTicketOptMapCopy
                 .values()) {
-            optGroupJobTicket.getOptions().add(opt);
+            optGroupJobTicket.getOptions().add(opt.copy());
         }
         for (final JsonProxyPrinterOpt opt : reader.jobTicketOptMapSet
                 .values()) {
-            optGroupJobTicket.getOptions().add(opt);
+            optGroupJobTicket.getOptions().add(opt.copy());
         }
         for (final JsonProxyPrinterOpt opt : reader.jobTicketOptMapSheet
                 .values()) {
-            optGroupJobTicket.getOptions().add(opt);
+            optGroupJobTicket.getOptions().add(opt.copy());
         }
 
-        // Custom cost rules.
-        proxyPrinter.setCustomCostRulesSet(reader.jobTicketCostRulesSet);
-        proxyPrinter.setCustomCostRulesCopy(reader.jobTicketCostRulesCopy);
-        proxyPrinter.setCustomCostRulesMedia(reader.jobTicketCostRulesMedia);
-        proxyPrinter.setCustomCostRulesSheet(reader.jobTicketCostRulesSheet);
+        // Custom cost rules: rule objects are shared, lists are not.
+        proxyPrinter.setCustomCostRulesSet(
+                new ArrayList<>(reader.jobTicketCostRulesSet));
+        proxyPrinter.setCustomCostRulesCopy(
+                new ArrayList<>(reader.jobTicketCostRulesCopy));
+        proxyPrinter.setCustomCostRulesMedia(
+                new ArrayList<>(reader.jobTicketCostRulesMedia));
+        proxyPrinter.setCustomCostRulesSheet(
+                new ArrayList<>(reader.jobTicketCostRulesSheet));
 
         proxyPrinter.getCustomCostRulesCopy()
                 .addAll(reader.jobMainCostRulesCopy);
 
         // Other rules.
-        proxyPrinter.setCustomNumberUpRules(reader.numberUpRules);
-        proxyPrinter.setCustomRulesConstraint(reader.rulesConstraint);
-        proxyPrinter.setCustomRulesExtra(reader.rulesExtra);
-        proxyPrinter.setCustomRulesSubst(reader.rulesSubst);
+        proxyPrinter
+                .setCustomNumberUpRules(new ArrayList<>(reader.numberUpRules));
+        proxyPrinter.setCustomRulesConstraint(
+                new ArrayList<>(reader.rulesConstraint));
+        proxyPrinter.setCustomRulesExtra(new ArrayList<>(reader.rulesExtra));
+        proxyPrinter.setCustomRulesSubst(new ArrayList<>(reader.rulesSubst));
 
         // PPD attributes
         if (reader.ppdLandscapeMinus90 != null) {
@@ -1733,6 +1836,7 @@ public final class PpdExtFileReader extends AbstractConfigFileReader {
         proxyPrinter.setBookletClientSide(reader.localBooklet.booleanValue());
         //
         proxyPrinter.setInjectPpdExt(true);
+        proxyPrinter.setPpdExtSignature(getSignature(filePpdExt, digest));
 
         if (proxyPrinter.hasJobSheets() || proxyPrinter.hasJobSheetsMedia()) {
             final String attr;
@@ -1749,7 +1853,200 @@ public final class PpdExtFileReader extends AbstractConfigFileReader {
             }
         }
 
-        return reader.ppdOptionMap;
+        return ppdOptionMap;
+    }
+
+    /**
+     * Gets the parsed SavaPage PPD extensions from cache, or parses the file
+     * and caches the result.
+     *
+     * @param filePpdExt
+     *            The {@link File} with the SavaPage PPD extensions.
+     * @param digest
+     *            The content digest of the file.
+     * @param optionsLookup
+     *            IPP printer options as retrieved from CUPS.
+     * @return The read-only reader holding the parse result.
+     * @throws IOException
+     *             The file IO errors.
+     */
+    private static PpdExtFileReader getParsed(final File filePpdExt,
+            final String digest,
+            final Map<String, JsonProxyPrinterOpt> optionsLookup)
+            throws IOException {
+
+        final String key = String.format("%s|%s",
+                filePpdExt.getAbsolutePath(),
+                getOptionsFingerprint(optionsLookup));
+
+        final ParsedEntry entry = PARSED_CACHE.get(key);
+
+        if (entry != null && entry.digest.equals(digest)) {
+            CACHE_HITS.increment();
+            return entry.reader;
+        }
+
+        CACHE_MISSES.increment();
+
+        final long start = System.nanoTime();
+
+        final PpdExtFileReader reader = new PpdExtFileReader(optionsLookup);
+        reader.read(filePpdExt);
+
+        PARSE_NANOS.add(System.nanoTime() - start);
+
+        if (PARSED_CACHE.size() >= PARSED_CACHE_MAX_ENTRIES) {
+            PARSED_CACHE.clear();
+        }
+        PARSED_CACHE.put(key, new ParsedEntry(digest, reader));
+
+        return reader;
+    }
+
+    /**
+     * Creates a fingerprint of IPP printer options, as input for the cache
+     * key of a parsed file: the parse result depends on the options it is
+     * validated against.
+     *
+     * @param options
+     *            IPP printer options as retrieved from CUPS.
+     * @return The fingerprint.
+     */
+    private static String
+            getOptionsFingerprint(final Map<String, JsonProxyPrinterOpt> options) {
+
+        final StringBuilder builder = new StringBuilder();
+
+        for (final Map.Entry<String, JsonProxyPrinterOpt> entry : new TreeMap<>(
+                options).entrySet()) {
+
+            builder.append(entry.getKey());
+
+            if (entry.getValue().getChoices() != null) {
+                for (final JsonProxyPrinterOptChoice choice : entry.getValue()
+                        .getChoices()) {
+                    builder.append('/').append(choice.getChoice());
+                }
+            }
+            builder.append(' ');
+        }
+        return DigestUtils.sha1Hex(builder.toString());
+    }
+
+    /**
+     * Gets the content digest of a file. The digest is only calculated when
+     * file last modified time or length changed since the previous call.
+     *
+     * @param file
+     *            The file.
+     * @return The SHA-256 hex digest.
+     * @throws IOException
+     *             The file IO errors.
+     */
+    private static String getContentDigest(final File file)
+            throws IOException {
+
+        final String path = file.getAbsolutePath();
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+
+        final FileStamp stamp = FILE_STAMPS.get(path);
+
+        if (stamp != null && stamp.lastModified == lastModified
+                && stamp.length == length) {
+            return stamp.digest;
+        }
+
+        final String digest;
+
+        try (InputStream istr = new FileInputStream(file)) {
+            digest = DigestUtils.sha256Hex(istr);
+        }
+
+        FILE_STAMPS.put(path, new FileStamp(lastModified, length, digest));
+        return digest;
+    }
+
+    /**
+     * @param file
+     *            The file.
+     * @param digest
+     *            The content digest.
+     * @return The signature.
+     */
+    private static String getSignature(final File file, final String digest) {
+        return String.format("%s|%s", file.getAbsolutePath(), digest);
+    }
+
+    /**
+     * Gets the signature of a SavaPage PPD extension file, as set by
+     * {@link #injectPpdExt(JsonProxyPrinter, File)} with
+     * {@link JsonProxyPrinter#setPpdExtSignature(String)}.
+     *
+     * @param filePpdExt
+     *            The {@link File} with the SavaPage PPD extensions.
+     * @return The signature.
+     * @throws IOException
+     *             The file IO errors.
+     */
+    public static String getSignature(final File filePpdExt)
+            throws IOException {
+        return getSignature(filePpdExt, getContentDigest(filePpdExt));
+    }
+
+    /**
+     * Copies options, retaining iteration order.
+     *
+     * @param options
+     *            The options to copy.
+     * @return The copy.
+     */
+    private static Map<String, JsonProxyPrinterOpt>
+            copyOptions(final Map<String, JsonProxyPrinterOpt> options) {
+
+        final Map<String, JsonProxyPrinterOpt> copy = new LinkedHashMap<>();
+
+        for (final Map.Entry<String, JsonProxyPrinterOpt> entry : options
+                .entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().copy());
+        }
+        return copy;
+    }
+
+    /**
+     * Clears the cache of parsed files.
+     */
+    public static void clearCache() {
+        PARSED_CACHE.clear();
+        FILE_STAMPS.clear();
+    }
+
+    /**
+     * @return Number of parsed files in cache.
+     */
+    public static int getCacheSize() {
+        return PARSED_CACHE.size();
+    }
+
+    /**
+     * @return Number of cache hits since start.
+     */
+    public static long getCacheHits() {
+        return CACHE_HITS.sum();
+    }
+
+    /**
+     * @return Number of cache misses (files parsed) since start.
+     */
+    public static long getCacheMisses() {
+        return CACHE_MISSES.sum();
+    }
+
+    /**
+     * @return Total parse time (milliseconds) since start.
+     */
+    public static long getParseTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(PARSE_NANOS.sum());
     }
 
     /**
@@ -0,0 +1,344 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.savapage.core.dao.DaoTransactionListener;
+import org.savapage.core.dao.enums.AccessControlScopeEnum;
+import org.savapage.core.dao.helpers.JsonUserGroupAccess;
+import org.savapage.core.dao.impl.DaoContextImpl;
+
+/**
+ * Index of printer access by user group: user group names are interned to
+ * integer IDs, and both the printer access groups and the group memberships
+ * of a user are held as {@link BitSet}. Access evaluation is a bitset
+ * intersection.
+ * <p>
+ * Entries are loaded lazily and invalidated incrementally: a printer entry when
+ * its access attribute changes, a user entry when one of its group memberships
+ * changes. Invalidations are applied when the change is flushed to the
+ * database, and once more when the transaction ends.
+ * </p>
+ * <p>
+ * The number of cached users and interned group names is bounded: user
+ * entries are cleared, and the index is reset, when a bound is exceeded.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class PrinterAccessIndex implements DaoTransactionListener {
+
+    /**
+     * Max number of cached user entries.
+     */
+    private static final int MAX_USERS = 10000;
+
+    /**
+     * Max number of interned user group names.
+     */
+    private static final int MAX_GROUPS = 10000;
+
+    /**
+     * Compiled access control of a printer.
+     */
+    private static final class PrinterEntry {
+
+        /** */
+        private final boolean isDenyScope;
+
+        /**
+         * Interned IDs of the access groups.
+         */
+        private final BitSet groups;
+
+        /**
+         * @param deny
+         *            {@code true} when {@link AccessControlScopeEnum#DENY}.
+         * @param groupIds
+         *            Interned IDs of the access groups.
+         */
+        PrinterEntry(final boolean deny, final BitSet groupIds) {
+            this.isDenyScope = deny;
+            this.groups = groupIds;
+        }
+    }
+
+    /**
+     * The entries and the group IDs they are interned with. Interned IDs are
+     * only valid within one state.
+     */
+    private static final class State {
+
+        /**
+         * Interned user group IDs by group name.
+         */
+        private final Map<String, Integer> groupIds =
+                new ConcurrentHashMap<>();
+
+        /** */
+        private final AtomicInteger nextGroupId = new AtomicInteger();
+
+        /**
+         * Printer entries by printer primary key.
+         */
+        private final Map<Long, PrinterEntry> printers =
+                new ConcurrentHashMap<>();
+
+        /**
+         * Interned group IDs of memberships by user primary key.
+         */
+        private final Map<Long, BitSet> users = new ConcurrentHashMap<>();
+    }
+
+    /** */
+    private final AtomicReference<State> state =
+            new AtomicReference<>(new State());
+
+    /**
+     * Incremented on each invalidation, before entries are removed. An entry
+     * loaded while the version changes is not stored.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Printer keys changed in the transaction of the current thread.
+     */
+    private final ThreadLocal<Set<Long>> pendingPrinters =
+            ThreadLocal.withInitial(HashSet::new);
+
+    /**
+     * User keys changed in the transaction of the current thread. A
+     * {@code null} element means all users.
+     */
+    private final ThreadLocal<Set<Long>> pendingUsers =
+            ThreadLocal.withInitial(HashSet::new);
+
+    /** */
+    private static final class SingletonHolder {
+        /** */
+        static final PrinterAccessIndex INSTANCE = new PrinterAccessIndex();
+
+        static {
+            DaoContextImpl.addTransactionListener(INSTANCE);
+        }
+    }
+
+    /**
+     * Package private constructor for unit testing.
+     */
+    PrinterAccessIndex() {
+    }
+
+    /**
+     * @return The singleton instance.
+     */
+    public static PrinterAccessIndex instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * @param st
+     *            The state to intern in.
+     * @param groupNames
+     *            User group names.
+     * @return The bitset of interned group IDs.
+     */
+    private BitSet intern(final State st,
+            final Collection<String> groupNames) {
+
+        final BitSet bits = new BitSet();
+
+        for (final String name : groupNames) {
+            bits.set(st.groupIds
+                    .computeIfAbsent(name,
+                            n -> Integer.valueOf(
+                                    st.nextGroupId.getAndIncrement()))
+                    .intValue());
+        }
+
+        if (st.groupIds.size() > MAX_GROUPS) {
+            this.state.compareAndSet(st, new State());
+        }
+        return bits;
+    }
+
+    /**
+     * Stores a loaded entry, unless an invalidation happened while loading.
+     * The entry is stored under the lock of its key, which an invalidation
+     * also takes when removing the key after incrementing the version: either
+     * the version check fails, or the entry is removed afterwards.
+     *
+     * @param <V>
+     *            The entry type.
+     * @param map
+     *            The entries.
+     * @param key
+     *            The key.
+     * @param value
+     *            The loaded entry.
+     * @param loadVersion
+     *            The version before loading.
+     */
+    private <V> void store(final Map<Long, V> map, final Long key,
+            final V value, final long loadVersion) {
+        map.compute(key, (k, current) -> {
+            if (this.version.get() == loadVersion) {
+                return value;
+            }
+            return current;
+        });
+    }
+
+    /**
+     * Checks if a user has access to a printer.
+     *
+     * @param printerKey
+     *            Primary database key of the printer.
+     * @param printerAccess
+     *            Loads the printer access control.
+     * @param userKey
+     *            Primary database key of the user.
+     * @param userGroups
+     *            Loads the names of the groups the user is member of.
+     * @return {@code true} when access is granted.
+     */
+    public boolean isAccessGranted(final Long printerKey,
+            final Supplier<JsonUserGroupAccess> printerAccess,
+            final Long userKey, final Supplier<Collection<String>> userGroups) {
+
+        final State st = this.state.get();
+
+        PrinterEntry printer = st.printers.get(printerKey);
+
+        if (printer == null) {
+            final long loadVersion = this.version.get();
+            final JsonUserGroupAccess access = printerAccess.get();
+            printer = new PrinterEntry(
+                    access.getScope() == AccessControlScopeEnum.DENY,
+                    this.intern(st, access.getGroups()));
+            this.store(st.printers, printerKey, printer, loadVersion);
+        }
+
+        /*
+         * An empty group list denies none (DENY) or allows none (ALLOW).
+         */
+        if (printer.groups.isEmpty()) {
+            return printer.isDenyScope;
+        }
+
+        BitSet memberships = st.users.get(userKey);
+
+        if (memberships == null) {
+            final long loadVersion = this.version.get();
+            memberships = this.intern(st, userGroups.get());
+            if (st.users.size() >= MAX_USERS) {
+                st.users.clear();
+            }
+            this.store(st.users, userKey, memberships, loadVersion);
+        }
+
+        return printer.groups.intersects(memberships) != printer.isDenyScope;
+    }
+
+    /**
+     * Notifies a change of the access control of a printer in the transaction
+     * of the current thread.
+     *
+     * @param printerKey
+     *            Primary database key of the printer.
+     */
+    public void onPrinterChange(final Long printerKey) {
+        this.pendingPrinters.get().add(printerKey);
+        this.invalidatePrinter(printerKey);
+    }
+
+    /**
+     * Notifies a change of group memberships of a user in the transaction of
+     * the current thread.
+     *
+     * @param userKey
+     *            Primary database key of the user, or {@code null} for all
+     *            users.
+     */
+    public void onUserChange(final Long userKey) {
+        this.pendingUsers.get().add(userKey);
+        this.invalidateUser(userKey);
+    }
+
+    @Override
+    public void onTransactionEnd() {
+
+        final Set<Long> printerKeys = this.pendingPrinters.get();
+        final Set<Long> userKeys = this.pendingUsers.get();
+
+        if (printerKeys.isEmpty() && userKeys.isEmpty()) {
+            return;
+        }
+
+        for (final Long key : printerKeys) {
+            this.invalidatePrinter(key);
+        }
+        for (final Long key : userKeys) {
+            this.invalidateUser(key);
+        }
+
+        this.pendingPrinters.remove();
+        this.pendingUsers.remove();
+    }
+
+    /**
+     * @param printerKey
+     *            Primary database key of the printer.
+     */
+    private void invalidatePrinter(final Long printerKey) {
+        this.version.incrementAndGet();
+        this.state.get().printers.remove(printerKey);
+    }
+
+    /**
+     * @param userKey
+     *            Primary database key of the user, or {@code null} for all
+     *            users.
+     */
+    private void invalidateUser(final Long userKey) {
+        this.version.incrementAndGet();
+        if (userKey == null) {
+            this.state.get().users.clear();
+        } else {
+            this.state.get().users.remove(userKey);
+        }
+    }
+}
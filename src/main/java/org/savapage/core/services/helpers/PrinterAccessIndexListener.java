@@ -0,0 +1,78 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.savapage.core.dao.enums.PrinterAttrEnum;
+import org.savapage.core.jpa.PrinterAttr;
+import org.savapage.core.jpa.UserGroupMember;
+
+/**
+ * JPA entity listener that notifies the {@link PrinterAccessIndex} of changed
+ * printer access attributes and group memberships.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class PrinterAccessIndexListener {
+
+    /**
+     * Notifies the {@link PrinterAccessIndex} when entity holds printer access
+     * data.
+     *
+     * @param entity
+     *            The {@link PrinterAttr} or {@link UserGroupMember}.
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(final Object entity) {
+
+        if (entity instanceof PrinterAttr) {
+
+            final PrinterAttr attr = (PrinterAttr) entity;
+
+            if (PrinterAttrEnum.ACCESS_USER_GROUPS.getDbName()
+                    .equals(attr.getName()) && attr.getPrinter() != null) {
+                PrinterAccessIndex.instance()
+                        .onPrinterChange(attr.getPrinter().getId());
+            }
+
+        } else if (entity instanceof UserGroupMember) {
+
+            final UserGroupMember member = (UserGroupMember) entity;
+
+            if (member.getUser() == null) {
+                PrinterAccessIndex.instance().onUserChange(null);
+            } else {
+                PrinterAccessIndex.instance()
+                        .onUserChange(member.getUser().getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.savapage.core.SpException;
+import org.savapage.core.dao.PrinterDao.CostMediaAttr;
+import org.savapage.core.dto.MediaCostDto;
+import org.savapage.core.dto.MediaPageCostDto;
+import org.savapage.core.json.JsonAbstractBase;
+import org.savapage.core.jpa.Printer;
+import org.savapage.core.jpa.PrinterAttr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable media cost of a printer, compiled from its
+ * {@link CostMediaAttr} attributes: a page cost per media, duplex and color
+ * mode.
+ * <p>
+ * Media names are matched case-insensitive. When no valid cost is present
+ * for a media, duplex and color mode, the cost of the default media is used.
+ * Invalid attribute values and costs are logged and ignored.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class PrinterCostMatrix {
+
+    /** */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(PrinterCostMatrix.class);
+
+    /**
+     * Page cost of a media. A cost that is missing or invalid is {@code null}.
+     */
+    private static final class MediaPageCost {
+
+        /** */
+        private final BigDecimal oneSidedGrayscale;
+        /** */
+        private final BigDecimal oneSidedColor;
+        /** */
+        private final BigDecimal twoSidedGrayscale;
+        /** */
+        private final BigDecimal twoSidedColor;
+
+        /**
+         * @param attr
+         *            The attribute holding the cost.
+         * @param dto
+         *            The cost as persisted.
+         */
+        MediaPageCost(final PrinterAttr attr, final MediaCostDto dto) {
+
+            final MediaPageCostDto oneSided = dto.getCostOneSided();
+            final MediaPageCostDto twoSided = dto.getCostTwoSided();
+
+            this.oneSidedGrayscale = parseCost(attr,
+                    oneSided == null ? null : oneSided.getCostGrayscale());
+            this.oneSidedColor = parseCost(attr,
+                    oneSided == null ? null : oneSided.getCostColor());
+            this.twoSidedGrayscale = parseCost(attr,
+                    twoSided == null ? null : twoSided.getCostGrayscale());
+            this.twoSidedColor = parseCost(attr,
+                    twoSided == null ? null : twoSided.getCostColor());
+        }
+
+        /**
+         * @param duplex
+         *            {@code true} for a two-sided page.
+         * @param grayscale
+         *            {@code true} for a grayscale page.
+         * @return The page cost, or {@code null} when missing or invalid.
+         */
+        BigDecimal getCost(final boolean duplex, final boolean grayscale) {
+            if (duplex) {
+                return grayscale ? this.twoSidedGrayscale : this.twoSidedColor;
+            }
+            return grayscale ? this.oneSidedGrayscale : this.oneSidedColor;
+        }
+    }
+
+    /**
+     * An empty matrix.
+     */
+    public static final PrinterCostMatrix EMPTY =
+            new PrinterCostMatrix(Collections.emptyMap());
+
+    /**
+     * Page cost by lower-case media name, including the default media.
+     */
+    private final Map<String, MediaPageCost> costByMedia;
+
+    /**
+     * @param costs
+     *            Page cost by lower-case media name.
+     */
+    private PrinterCostMatrix(final Map<String, MediaPageCost> costs) {
+        this.costByMedia = costs;
+    }
+
+    /**
+     * @param media
+     *            The media name.
+     * @return The lower-case media name.
+     */
+    private static String toKey(final String media) {
+        return media.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Compiles the cost matrix from printer attributes.
+     *
+     * @param attributes
+     *            The printer attributes (can be {@code null}).
+     * @return The cost matrix.
+     */
+    public static PrinterCostMatrix create(
+            final Collection<PrinterAttr> attributes) {
+
+        if (attributes == null) {
+            return EMPTY;
+        }
+
+        final String prefix = toKey(CostMediaAttr.getKeyPrefix());
+        final Map<String, MediaPageCost> costs = new HashMap<>();
+
+        for (final PrinterAttr attr : attributes) {
+
+            final String name = toKey(attr.getName());
+
+            if (!name.startsWith(prefix) || name.length() == prefix.length()) {
+                continue;
+            }
+
+            final String media = name.substring(prefix.length());
+
+            if (costs.containsKey(media)) {
+                continue;
+            }
+
+            final MediaCostDto dto;
+
+            try {
+                dto = JsonAbstractBase.create(MediaCostDto.class,
+                        attr.getValue());
+            } catch (SpException | IllegalArgumentException e) {
+                logInvalid(attr, e.getMessage());
+                continue;
+            }
+
+            if (dto != null) {
+                costs.put(media, new MediaPageCost(attr, dto));
+            }
+        }
+
+        if (costs.isEmpty()) {
+            return EMPTY;
+        }
+        return new PrinterCostMatrix(Collections.unmodifiableMap(costs));
+    }
+
+    /**
+     * @param attr
+     *            The attribute holding the cost.
+     * @param cost
+     *            The cost as persisted (can be {@code null}).
+     * @return The cost, or {@code null} when missing or invalid.
+     */
+    private static BigDecimal parseCost(final PrinterAttr attr,
+            final String cost) {
+
+        if (cost == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(cost);
+        } catch (NumberFormatException e) {
+            logInvalid(attr, String.format("[%s] is not a number", cost));
+            return null;
+        }
+    }
+
+    /**
+     * @param attr
+     *            The attribute holding the cost.
+     * @param reason
+     *            The reason why the cost is invalid.
+     */
+    private static void logInvalid(final PrinterAttr attr,
+            final String reason) {
+        final Printer printer = attr.getPrinter();
+        LOGGER.warn("Printer [{}]: invalid media cost [{}] ignored: {}",
+                printer == null ? "?" : printer.getPrinterName(),
+                attr.getName(), reason);
+    }
+
+    /**
+     * @param media
+     *            The lower-case media name.
+     * @param duplex
+     *            {@code true} for a two-sided page.
+     * @param grayscale
+     *            {@code true} for a grayscale page.
+     * @return The page cost, or {@code null} when the media has no valid
+     *         cost.
+     */
+    private BigDecimal getMediaCost(final String media, final boolean duplex,
+            final boolean grayscale) {
+        final MediaPageCost cost = this.costByMedia.get(media);
+        if (cost == null) {
+            return null;
+        }
+        return cost.getCost(duplex, grayscale);
+    }
+
+    /**
+     * @param ippMediaName
+     *            The IPP media name (can be {@code null}).
+     * @param duplex
+     *            {@code true} for a two-sided page.
+     * @param grayscale
+     *            {@code true} for a grayscale page.
+     * @return The page cost of the media, or of the default media when the
+     *         media has no valid cost. {@code null} when neither has a valid
+     *         cost.
+     */
+    public BigDecimal getCost(final String ippMediaName, final boolean duplex,
+            final boolean grayscale) {
+
+        if (StringUtils.isNotBlank(ippMediaName)) {
+            final BigDecimal cost =
+                    this.getMediaCost(toKey(ippMediaName), duplex, grayscale);
+            if (cost != null) {
+                return cost;
+            }
+        }
+        return this.getMediaCost(toKey(CostMediaAttr.COST_3_MEDIA_DEFAULT),
+                duplex, grayscale);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.savapage.core.dao.DaoTransactionListener;
+import org.savapage.core.dao.impl.DaoContextImpl;
+import org.savapage.core.jpa.Printer;
+
+/**
+ * Cache of {@link PrinterCostMatrix} by printer.
+ * <p>
+ * A matrix is compiled lazily and invalidated when a media cost attribute of
+ * its printer changes. Invalidations are applied when the change is flushed
+ * to the database, and once more when the transaction ends.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class PrinterCostMatrixCache implements DaoTransactionListener {
+
+    /**
+     * Cost matrix by printer primary key.
+     */
+    private final Map<Long, PrinterCostMatrix> printers =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on each invalidation, before the matrix is removed. A
+     * matrix compiled while the version changes is not stored.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Printer keys changed in the transaction of the current thread.
+     */
+    private final ThreadLocal<Set<Long>> pendingPrinters =
+            ThreadLocal.withInitial(HashSet::new);
+
+    /** */
+    private static final class SingletonHolder {
+        /** */
+        static final PrinterCostMatrixCache INSTANCE =
+                new PrinterCostMatrixCache();
+
+        static {
+            DaoContextImpl.addTransactionListener(INSTANCE);
+        }
+    }
+
+    /**
+     * Package private constructor for unit testing.
+     */
+    PrinterCostMatrixCache() {
+    }
+
+    /**
+     * @return The singleton instance.
+     */
+    public static PrinterCostMatrixCache instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Gets the cost matrix of a printer.
+     *
+     * @param printer
+     *            The printer.
+     * @return The cost matrix.
+     */
+    public PrinterCostMatrix get(final Printer printer) {
+
+        final Long printerKey = printer.getId();
+
+        if (printerKey == null) {
+            return PrinterCostMatrix.create(printer.getAttributes());
+        }
+
+        PrinterCostMatrix matrix = this.printers.get(printerKey);
+
+        if (matrix == null) {
+            final long loadVersion = this.version.get();
+            final PrinterCostMatrix loaded =
+                    PrinterCostMatrix.create(printer.getAttributes());
+            /*
+             * Stored under the lock of the key, which an invalidation also
+             * takes when removing the key after incrementing the version:
+             * either the version check fails, or the matrix is removed
+             * afterwards.
+             */
+            this.printers.compute(printerKey, (k, current) -> {
+                if (this.version.get() == loadVersion) {
+                    return loaded;
+                }
+                return current;
+            });
+            matrix = loaded;
+        }
+        return matrix;
+    }
+
+    /**
+     * Notifies a change of the media cost of a printer in the transaction of
+     * the current thread.
+     *
+     * @param printerKey
+     *            Primary database key of the printer.
+     */
+    public void onPrinterChange(final Long printerKey) {
+        this.pendingPrinters.get().add(printerKey);
+        this.invalidatePrinter(printerKey);
+    }
+
+    @Override
+    public void onTransactionEnd() {
+
+        final Set<Long> printerKeys = this.pendingPrinters.get();
+
+        if (printerKeys.isEmpty()) {
+            return;
+        }
+        for (final Long key : printerKeys) {
+            this.invalidatePrinter(key);
+        }
+        this.pendingPrinters.remove();
+    }
+
+    /**
+     * @param printerKey
+     *            Primary database key of the printer.
+     */
+    private void invalidatePrinter(final Long printerKey) {
+        this.version.incrementAndGet();
+        this.printers.remove(printerKey);
+    }
+}
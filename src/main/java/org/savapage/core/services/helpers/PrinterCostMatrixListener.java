@@ -0,0 +1,63 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.savapage.core.dao.PrinterDao.CostMediaAttr;
+import org.savapage.core.jpa.PrinterAttr;
+
+/**
+ * JPA entity listener that notifies the {@link PrinterCostMatrixCache} of
+ * changed printer media cost attributes.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class PrinterCostMatrixListener {
+
+    /**
+     * Notifies the {@link PrinterCostMatrixCache} when attribute holds media
+     * cost.
+     *
+     * @param attr
+     *            The {@link PrinterAttr}.
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(final PrinterAttr attr) {
+
+        if (attr.getPrinter() != null && attr.getName() != null
+                && attr.getName().regionMatches(true, 0,
+                        CostMediaAttr.getKeyPrefix(), 0,
+                        CostMediaAttr.getKeyPrefix().length())) {
+            PrinterCostMatrixCache.instance()
+                    .onPrinterChange(attr.getPrinter().getId());
+        }
+    }
+}
@@ -43,6 +43,7 @@ import org.savapage.core.snmp.SnmpVersionEnum;
 import org.savapage.core.util.DateUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snmp4j.Snmp;
 import org.snmp4j.smi.OID;
 
 /**
@@ -68,6 +69,26 @@ public final class PrinterSnmpReader {
      */
     private final int timeout;
 
+    /**
+     * Shared SNMP transport, or {@code null} when each read opens its own.
+     */
+    private final Snmp snmp;
+
+    /**
+     * The scalar OIDs retrieved with one request.
+     */
+    private static final OID[] SCALAR_OIDS = new OID[] { //
+            SnmpMibDict.OID_SYSTEM_OID, //
+            SnmpMibDict.OID_PRINTER_STATUS, //
+            SnmpMibDict.OID_SYSTEM_UPTIME, //
+            SnmpMibDict.OID_PRT_MARKER_COUNTER_UNIT, //
+            SnmpMibDict.OID_PRT_MARKER_LIFE_COUNT, //
+            SnmpMibDict.OID_SYSTEM_DESCR_RFC2790, //
+            SnmpMibDict.OID_SYSTEM_DESCR_RFC1213, //
+            SnmpMibDict.OID_PRT_SERIAL_NR, //
+            SnmpPrinterErrorStateEnum.getOID() //
+    };
+
     /**
      * @param retries
      *            Number of retries.
@@ -75,8 +96,29 @@ public final class PrinterSnmpReader {
      *            Time-out in milliseconds.
      */
     public PrinterSnmpReader(final int retries, final int timeout) {
+        this(retries, timeout, null);
+    }
+
+    /**
+     * Constructor for concurrent reads of many hosts over one shared SNMP
+     * transport. The {@link #read(String, int, String)} methods are thread
+     * safe.
+     *
+     * @param retries
+     *            Number of retries.
+     * @param timeout
+     *            Time-out in milliseconds.
+     * @param sharedSnmp
+     *            The shared SNMP transport, see
+     *            {@link SnmpClientSession#createSnmp()}. The caller is
+     *            responsible for closing it. When {@code null}, each read opens
+     *            its own transport.
+     */
+    public PrinterSnmpReader(final int retries, final int timeout,
+            final Snmp sharedSnmp) {
         this.retries = retries;
         this.timeout = timeout;
+        this.snmp = sharedSnmp;
     }
 
     /**
@@ -132,9 +174,9 @@ public final class PrinterSnmpReader {
 
         final PrinterSnmpDto info = new PrinterSnmpDto();
 
-        final SnmpClientSession client =
-                new SnmpClientSession(String.format("udp:%s/%d", host, port),
-                        community, version, this.retries, this.timeout);
+        final SnmpClientSession client = new SnmpClientSession(this.snmp,
+                String.format("udp:%s/%d", host, port), community, version,
+                this.retries, this.timeout);
 
         try {
             client.init();
@@ -149,6 +191,9 @@ public final class PrinterSnmpReader {
             Integer intValue;
             String strValue;
 
+            oidWlk = null;
+            client.prefetch(SCALAR_OIDS);
+
             // ----- Enterprise and vendor
             final Integer enterprise = client.getEnterprise();
             info.setEnterprise(enterprise);
@@ -84,7 +84,7 @@ import org.savapage.core.dao.enums.ExternalSupplierStatusEnum;
 import org.savapage.core.dao.enums.PrintModeEnum;
 import org.savapage.core.dao.enums.PrinterAttrEnum;
 import org.savapage.core.dao.helpers.ProxyPrinterName;
-import org.savapage.core.doc.IPdfConverter;
+import org.savapage.core.doc.PdfConvertCache;
 import org.savapage.core.doc.PdfToGrayscale;
 import org.savapage.core.doc.store.DocStoreBranchEnum;
 import org.savapage.core.doc.store.DocStoreException;
@@ -359,8 +359,12 @@ public abstract class AbstractProxyPrintService extends AbstractService
 
     /**
      * Dictionary on printer name. NOTE: the key is in UPPER CASE.
+     * <p>
+     * The dictionary is replaced as a whole when refreshed, so readers never
+     * see a partially updated cache.
+     * </p>
      */
-    private final ConcurrentMap<String, JsonProxyPrinter> cupsPrinterCache =
+    private volatile ConcurrentMap<String, JsonProxyPrinter> cupsPrinterCache =
             new ConcurrentHashMap<>();
 
     /**
@@ -1237,6 +1241,37 @@ public abstract class AbstractProxyPrintService extends AbstractService
                 .toFile();
     }
 
+    /**
+     * Gets the signature of the SavaPage PPD extension file of a printer.
+     *
+     * @param dbPrinter
+     *            The database {@link Printer}.
+     * @return The signature, or {@code null} when no (existing) file is
+     *         configured.
+     */
+    private String getPpdExtSignature(final Printer dbPrinter) {
+
+        final String ppdfExtFile = printerService().getAttributeValue(dbPrinter,
+                PrinterAttrEnum.CUSTOM_PPD_EXT_FILE);
+
+        if (StringUtils.isBlank(ppdfExtFile)) {
+            return null;
+        }
+
+        final File filePpdExt = getPPDExtFile(ppdfExtFile);
+
+        if (!filePpdExt.exists()) {
+            return null;
+        }
+
+        try {
+            return PpdExtFileReader.getSignature(filePpdExt);
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Assigns the database {@link Printer} to the {@link JsonProxyPrinter}, and
      * overrules IPP option defaults specified as {@link PrinterAttr}.
@@ -1268,7 +1303,12 @@ public abstract class AbstractProxyPrintService extends AbstractService
 
             if (filePpdExt.exists()) {
                 try {
-                    PpdExtFileReader.injectPpdExt(proxyPrinter, filePpdExt);
+                    // Skip when already injected (re-used cached printer).
+                    if (!PpdExtFileReader.getSignature(filePpdExt)
+                            .equals(proxyPrinter.getPpdExtSignature())) {
+                        PpdExtFileReader.injectPpdExt(proxyPrinter,
+                                filePpdExt);
+                    }
                 } catch (IOException e) {
                     LOGGER.error(e.getMessage());
                 }
@@ -1668,13 +1708,13 @@ public abstract class AbstractProxyPrintService extends AbstractService
         }
 
         /*
-         * Mark all currently cached printers as 'not present'.
+         * The current cache, and the cache to replace it.
          */
-        final Map<String, Boolean> printersPresent = new HashMap<>();
+        final ConcurrentMap<String, JsonProxyPrinter> cacheCurrent =
+                this.cupsPrinterCache;
 
-        for (final String key : this.cupsPrinterCache.keySet()) {
-            printersPresent.put(key, Boolean.FALSE);
-        }
+        final ConcurrentMap<String, JsonProxyPrinter> cacheUpdated =
+                new ConcurrentHashMap<>();
 
         /*
          * Traverse the CUPS printers.
@@ -1685,37 +1725,67 @@ public abstract class AbstractProxyPrintService extends AbstractService
         final boolean remoteCupsEnabled = ConfigManager.instance()
                 .isConfigValue(Key.CUPS_IPP_REMOTE_ENABLED);
 
-        for (final JsonProxyPrinter cupsPrinter : cupsPrinters) {
+        for (final JsonProxyPrinter cupsPrinterRetrieved : cupsPrinters) {
 
             /*
              * Access remote CUPS for remote printer?
              */
             if (!remoteCupsEnabled
-                    && !isLocalPrinter(cupsPrinter.getPrinterUri())) {
+                    && !isLocalPrinter(cupsPrinterRetrieved.getPrinterUri())) {
                 continue;
             }
 
-            final String cupsPrinterKey = cupsPrinter.getName();
+            final String cupsPrinterKey = cupsPrinterRetrieved.getName();
 
             /*
-             * Mark as present.
+             * Get the cached replicate.
              */
-            printersPresent.put(cupsPrinterKey, Boolean.TRUE);
+            final JsonProxyPrinter cachedCupsPrinter =
+                    cacheCurrent.get(cupsPrinterKey);
+
+            final Printer dbPrinterFound = printerDAO()
+                    .findByNameInsert(cupsPrinterKey, lazyCreatedDbPrinter);
+
+            final JsonProxyPrinter cupsPrinter;
 
             /*
-             * Get the cached replicate.
+             * A refreshed copy of the cached printer?
              */
-            JsonProxyPrinter cachedCupsPrinter =
-                    this.cupsPrinterCache.get(cupsPrinterKey);
+            final boolean isReused = cachedCupsPrinter != null
+                    && cupsPrinterRetrieved.isCacheRefresh();
+
+            /*
+             * A re-used cached printer is retrieved again when its SavaPage
+             * PPD extension changed, since injected options can not be
+             * withdrawn.
+             */
+            if (isReused && !StringUtils.equals(
+                    cachedCupsPrinter.getPpdExtSignature(),
+                    this.getPpdExtSignature(dbPrinterFound))) {
+
+                cupsPrinter = this.retrieveCupsPrinterDetails(cupsPrinterKey,
+                        cachedCupsPrinter.getPrinterUri());
+
+                if (cupsPrinter == null) {
+                    continue;
+                }
+                cupsPrinter.setPpdPresent(cachedCupsPrinter.isPpdPresent());
+                cupsPrinter.setConfigChangeTime(
+                        cachedCupsPrinter.getConfigChangeTime());
+            } else {
+                cupsPrinter = cupsPrinterRetrieved;
+            }
 
             /*
              * Is printer already part of the cache?
              */
-            if (cachedCupsPrinter == null) {
+            if (!isReused || cupsPrinter != cupsPrinterRetrieved) {
 
-                LOGGER.info("CUPS printer [{}] detected", cupsPrinterKey);
+                if (cachedCupsPrinter == null) {
+                    LOGGER.info("CUPS printer [{}] detected", cupsPrinterKey);
+                }
                 /*
-                 * Add the extra groups.
+                 * Add the extra groups (not for a re-used cached printer).
                  */
                 if (this.hasCommonPrinterOptGroups()) {
                     cupsPrinter.getGroups().addAll(0,
@@ -1727,8 +1797,7 @@ public abstract class AbstractProxyPrintService extends AbstractService
              * Assign the (lazy created) printer in database to proxy printer
              * CUPS definition.
              */
-            this.assignDbPrinter(cupsPrinter, printerDAO()
-                    .findByNameInsert(cupsPrinterKey, lazyCreatedDbPrinter));
+            this.assignDbPrinter(cupsPrinter, dbPrinterFound);
 
             if (lazyCreatedDbPrinter.isTrue()) {
                 newCupsPrinterNameKeys.add(cupsPrinterKey);
@@ -1752,25 +1821,24 @@ public abstract class AbstractProxyPrintService extends AbstractService
             /*
              * Update the cache.
              */
-            this.cupsPrinterCache.put(cupsPrinterKey, cupsPrinter);
-            cachedCupsPrinter = cupsPrinter;
+            cacheUpdated.put(cupsPrinterKey, cupsPrinter);
         }
 
         /*
-         * Remove printers from cache which are no longer present in CUPS.
+         * Log printers which are no longer present in CUPS.
          */
-        for (Map.Entry<String, Boolean> entry : printersPresent.entrySet()) {
-
-            if (!entry.getValue().booleanValue()) {
-
-                final JsonProxyPrinter removed =
-                        this.cupsPrinterCache.remove(entry.getKey());
-
+        for (final JsonProxyPrinter removed : cacheCurrent.values()) {
+            if (!cacheUpdated.containsKey(removed.getName())) {
                 LOGGER.info("removed CUPS printer [{}] detected",
                         removed.getName());
             }
         }
 
+        /*
+         * Replace the cache as a whole.
+         */
+        this.cupsPrinterCache = cacheUpdated;
+
         if (isLazyInit) {
             SpInfo.instance().log(String.format("| %s CUPS printers retrieved.",
                     cupsPrinters.size()));
@@ -3274,10 +3342,9 @@ public abstract class AbstractProxyPrintService extends AbstractService
                 && printReq.isGrayscale()
                 && printerService().isClientSideMonochrome(printer)) {
 
-            final IPdfConverter converter = new PdfToGrayscale();
-
             try {
-                downloadedFileConverted = converter.convert(pdfFile);
+                downloadedFileConverted = PdfConvertCache.instance()
+                        .convert(new PdfToGrayscale(), pdfFile);
             } catch (IOException e) {
                 throw new ProxyPrintException("Monochrome conversion failed.");
             }
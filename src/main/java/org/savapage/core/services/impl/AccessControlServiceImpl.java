@@ -46,6 +46,7 @@ import org.savapage.core.jpa.UserGroup;
 import org.savapage.core.jpa.UserGroupAttr;
 import org.savapage.core.services.AccessControlService;
 import org.savapage.core.services.ServiceContext;
+import org.savapage.core.services.helpers.AccessControlCache;
 import org.savapage.core.util.JsonHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +72,152 @@ public final class AccessControlServiceImpl extends AbstractService
     private static final EnumSet<ACLRoleEnum> TOP_INDETERMINATE_GRANTED =
             EnumSet.of(ACLRoleEnum.PRINT_CREATOR);
 
+    /**
+     * Source of the ACL data the uncached decisions are made on.
+     */
+    interface AclSource {
+
+        /**
+         * @param userDbKey
+         *            Primary database key of {@link User}.
+         * @param attrEnum
+         *            The attribute.
+         * @return The {@link UserAttr}, or {@code null} when not found.
+         */
+        UserAttr findUserAttr(Long userDbKey, UserAttrEnum attrEnum);
+
+        /**
+         * @param group
+         *            The {@link UserGroup}.
+         * @param attrEnum
+         *            The attribute.
+         * @return The {@link UserGroupAttr}, or {@code null} when not found.
+         */
+        UserGroupAttr findGroupAttr(UserGroup group,
+                UserGroupAttrEnum attrEnum);
+
+        /**
+         * @param userDbKey
+         *            Primary database key of {@link User}.
+         * @return The groups the user is an explicit member of, ordered by
+         *         group name.
+         */
+        List<UserGroup> getGroupMemberships(Long userDbKey);
+
+        /**
+         * @param internalUser
+         *            {@code true} when internal user.
+         * @return The Internal or External User group.
+         */
+        UserGroup getUserSourceGroup(boolean internalUser);
+
+        /**
+         * @return The All Users group.
+         */
+        UserGroup getAllUserGroup();
+
+        /**
+         * Deletes a {@link UserAttr} with an invalid value.
+         *
+         * @param attr
+         *            The attribute.
+         * @return {@code true} when deleted.
+         */
+        boolean deleteInvalid(UserAttr attr);
+
+        /**
+         * Deletes a {@link UserGroupAttr} with an invalid value.
+         *
+         * @param attr
+         *            The attribute.
+         * @return {@code true} when deleted.
+         */
+        boolean deleteInvalid(UserGroupAttr attr);
+    }
+
+    /**
+     * The {@link AclSource} of the database.
+     */
+    private static final class DaoAclSource implements AclSource {
+
+        @Override
+        public UserAttr findUserAttr(final Long userDbKey,
+                final UserAttrEnum attrEnum) {
+            return userAttrDAO().findByName(userDbKey, attrEnum);
+        }
+
+        @Override
+        public UserGroupAttr findGroupAttr(final UserGroup group,
+                final UserGroupAttrEnum attrEnum) {
+            return userGroupAttrDAO().findByName(group, attrEnum);
+        }
+
+        @Override
+        public List<UserGroup> getGroupMemberships(final Long userDbKey) {
+
+            final UserGroupMemberDao.UserFilter filter =
+                    new UserGroupMemberDao.UserFilter();
+
+            filter.setUserId(userDbKey);
+
+            return userGroupMemberDAO().getGroupChunk(filter, null, null,
+                    UserGroupMemberDao.GroupField.GROUP_NAME, true);
+        }
+
+        @Override
+        public UserGroup getUserSourceGroup(final boolean internalUser) {
+            if (internalUser) {
+                return userGroupService().getInternalUserGroup();
+            }
+            return userGroupService().getExternalUserGroup();
+        }
+
+        @Override
+        public UserGroup getAllUserGroup() {
+            return userGroupService().getAllUserGroup();
+        }
+
+        @Override
+        public boolean deleteInvalid(final UserAttr attr) {
+            if (ServiceContext.getDaoContext().isTransactionActive()) {
+                userAttrDAO().delete(attr);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean deleteInvalid(final UserGroupAttr attr) {
+            if (ServiceContext.getDaoContext().isTransactionActive()) {
+                userGroupAttrDAO().delete(attr);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The ACL data source.
+     */
+    private final AclSource aclSource;
+
+    /**
+     * Constructor.
+     */
+    public AccessControlServiceImpl() {
+        this(new DaoAclSource());
+    }
+
+    /**
+     * Package private constructor for unit testing.
+     *
+     * @param source
+     *            The ACL data source.
+     */
+    AccessControlServiceImpl(final AclSource source) {
+        this.aclSource = source;
+    }
+
     /**
      * Checks if role is enabled in JSON String.
      *
@@ -109,19 +256,18 @@ public final class AccessControlServiceImpl extends AbstractService
      * @return {@code true} when authorized, {@code false} when not,
      *         {@code null} when undetermined.
      */
-    private static Boolean isUserAuthorized(final Long userDbKey,
+    private Boolean isUserAuthorized(final Long userDbKey,
             final ACLRoleEnum role) {
 
-        final UserAttr userAttr =
-                userAttrDAO().findByName(userDbKey, UserAttrEnum.ACL_ROLES);
+        final UserAttr userAttr = this.aclSource.findUserAttr(userDbKey,
+                UserAttrEnum.ACL_ROLES);
 
         if (userAttr != null) {
             try {
                 return isRoleEnabledInJson(userAttr.getValue(), role);
             } catch (IOException e) {
                 // Try to remove the culprit.
-                if (ServiceContext.getDaoContext().isTransactionActive()) {
-                    userAttrDAO().delete(userAttr);
+                if (this.aclSource.deleteInvalid(userAttr)) {
                     LOGGER.warn(String.format(
                             "%s [%s] has invalid value: %s (the object "
                                     + "is deleted from the database)",
@@ -147,7 +293,7 @@ public final class AccessControlServiceImpl extends AbstractService
     public Boolean isGroupAuthorized(final UserGroup group,
             final ACLRoleEnum role) {
 
-        final UserGroupAttr groupAttr = userGroupAttrDAO().findByName(group,
+        final UserGroupAttr groupAttr = this.aclSource.findGroupAttr(group,
                 UserGroupAttrEnum.ACL_ROLES);
 
         if (groupAttr != null) {
@@ -155,8 +301,7 @@ public final class AccessControlServiceImpl extends AbstractService
                 return isRoleEnabledInJson(groupAttr.getValue(), role);
             } catch (IOException e) {
                 // Try to remove the culprit.
-                if (ServiceContext.getDaoContext().isTransactionActive()) {
-                    userGroupAttrDAO().delete(groupAttr);
+                if (this.aclSource.deleteInvalid(groupAttr)) {
                     LOGGER.warn(String.format(
                             "%s [%s] has invalid value: %s (the object "
                                     + "is deleted from the database)",
@@ -175,6 +320,23 @@ public final class AccessControlServiceImpl extends AbstractService
 
     @Override
     public boolean isAuthorized(final UserIdDto dto, final ACLRoleEnum role) {
+        return AccessControlCache.instance().isAuthorized(dto.getDbKey(),
+                dto.isInternalUser(), role,
+                () -> this.isAuthorizedUncached(dto, role));
+    }
+
+    /**
+     * Checks if User is authorized for a Role, without using the
+     * {@link AccessControlCache}.
+     *
+     * @param dto
+     *            The user.
+     * @param role
+     *            The {@link ACLRoleEnum};
+     * @return {@code true} when authorized.
+     */
+    boolean isAuthorizedUncached(final UserIdDto dto,
+            final ACLRoleEnum role) {
 
         final Boolean isUserAuth = isUserAuthorized(dto.getDbKey(), role);
 
@@ -185,16 +347,8 @@ public final class AccessControlServiceImpl extends AbstractService
         /*
          * Check Group Memberships (explicit).
          */
-        final UserGroupMemberDao.UserFilter filter =
-                new UserGroupMemberDao.UserFilter();
-
-        filter.setUserId(dto.getDbKey());
-
-        final List<UserGroup> groupList =
-                userGroupMemberDAO().getGroupChunk(filter, null, null,
-                        UserGroupMemberDao.GroupField.GROUP_NAME, true);
-
-        for (final UserGroup group : groupList) {
+        for (final UserGroup group : this.aclSource
+                .getGroupMemberships(dto.getDbKey())) {
             final Boolean isGroupAuth = isGroupAuthorized(group, role);
             if (isGroupAuth != null) {
                 return isGroupAuth.booleanValue();
@@ -204,13 +358,8 @@ public final class AccessControlServiceImpl extends AbstractService
         /*
          * Check Group Memberships (implicit).
          */
-        final UserGroup group;
-
-        if (dto.isInternalUser()) {
-            group = userGroupService().getInternalUserGroup();
-        } else {
-            group = userGroupService().getExternalUserGroup();
-        }
+        final UserGroup group =
+                this.aclSource.getUserSourceGroup(dto.isInternalUser());
 
         final Boolean isGroupAuth = isGroupAuthorized(group, role);
         if (isGroupAuth != null) {
@@ -222,7 +371,7 @@ public final class AccessControlServiceImpl extends AbstractService
          * roles.
          */
         final Boolean isAllUserAuth =
-                isGroupAuthorized(userGroupService().getAllUserGroup(), role);
+                isGroupAuthorized(this.aclSource.getAllUserGroup(), role);
 
         if (isAllUserAuth == null
                 && this.getTopIndeterminateGranted().contains(role)) {
@@ -296,18 +445,18 @@ public final class AccessControlServiceImpl extends AbstractService
      *            The OID
      * @return {@code null} when undetermined.
      */
-    private static Integer getUserPrivileges(final Long userDbKey,
+    private Integer getUserPrivileges(final Long userDbKey,
             final UserAttrEnum attrEnum, final ACLOidEnum oid) {
 
-        final UserAttr userAttr = userAttrDAO().findByName(userDbKey, attrEnum);
+        final UserAttr userAttr =
+                this.aclSource.findUserAttr(userDbKey, attrEnum);
 
         if (userAttr != null) {
             try {
                 return getOidPrivilegesFromJson(userAttr.getValue(), oid);
             } catch (IOException e) {
                 // Try to remove the culprit.
-                if (ServiceContext.getDaoContext().isTransactionActive()) {
-                    userAttrDAO().delete(userAttr);
+                if (this.aclSource.deleteInvalid(userAttr)) {
                     LOGGER.warn(String.format(
                             "%s [%s] has invalid value: %s (the object "
                                     + "is deleted from the database)",
@@ -334,15 +483,14 @@ public final class AccessControlServiceImpl extends AbstractService
             final UserGroupAttrEnum attrEnum, final ACLOidEnum oid) {
 
         final UserGroupAttr groupAttr =
-                userGroupAttrDAO().findByName(group, attrEnum);
+                this.aclSource.findGroupAttr(group, attrEnum);
 
         if (groupAttr != null) {
             try {
                 return getOidPrivilegesFromJson(groupAttr.getValue(), oid);
             } catch (IOException e) {
                 // Try to remove the culprit.
-                if (ServiceContext.getDaoContext().isTransactionActive()) {
-                    userGroupAttrDAO().delete(groupAttr);
+                if (this.aclSource.deleteInvalid(groupAttr)) {
                     LOGGER.warn(String.format(
                             "%s [%s] has invalid value: %s (the object "
                                     + "is deleted from the database)",
@@ -425,6 +573,23 @@ public final class AccessControlServiceImpl extends AbstractService
                 && ConfigManager.isInternalAdmin(dto.getUserId())) {
             return null;
         }
+        return AccessControlCache.instance().getPrivileges(dto.getDbKey(),
+                dto.isInternalUser(), oid,
+                () -> this.getPrivilegesUncached(dto, oid));
+    }
+
+    /**
+     * Gets the privileges of a user for an OID, without using the
+     * {@link AccessControlCache}.
+     *
+     * @param dto
+     *            The user.
+     * @param oid
+     *            The OID.
+     * @return {@code null} when undetermined.
+     */
+    Integer getPrivilegesUncached(final UserIdDto dto,
+            final ACLOidEnum oid) {
 
         Integer userPrivileges = getUserPrivileges(dto.getDbKey(),
                 UserAttrEnum.valueOf(oid), oid);
@@ -438,16 +603,8 @@ public final class AccessControlServiceImpl extends AbstractService
         /*
          * Check Group Memberships (explicit).
          */
-        final UserGroupMemberDao.UserFilter filter =
-                new UserGroupMemberDao.UserFilter();
-
-        filter.setUserId(dto.getDbKey());
-
-        final List<UserGroup> groupList =
-                userGroupMemberDAO().getGroupChunk(filter, null, null,
-                        UserGroupMemberDao.GroupField.GROUP_NAME, true);
-
-        for (final UserGroup group : groupList) {
+        for (final UserGroup group : this.aclSource
+                .getGroupMemberships(dto.getDbKey())) {
             userPrivileges = getGroupPrivileges(group, groupAttrEnum, oid);
             if (userPrivileges != null) {
                 return userPrivileges;
@@ -457,13 +614,8 @@ public final class AccessControlServiceImpl extends AbstractService
         /*
          * Check Group Memberships (implicit).
          */
-        final UserGroup group;
-
-        if (dto.isInternalUser()) {
-            group = userGroupService().getInternalUserGroup();
-        } else {
-            group = userGroupService().getExternalUserGroup();
-        }
+        final UserGroup group =
+                this.aclSource.getUserSourceGroup(dto.isInternalUser());
 
         userPrivileges = getGroupPrivileges(group, groupAttrEnum, oid);
         if (userPrivileges != null) {
@@ -471,7 +623,7 @@ public final class AccessControlServiceImpl extends AbstractService
         }
 
         // All Users
-        return getGroupPrivileges(userGroupService().getAllUserGroup(),
+        return getGroupPrivileges(this.aclSource.getAllUserGroup(),
                 groupAttrEnum, oid);
     }
 
@@ -60,7 +60,6 @@ import org.savapage.core.dto.AccountDisplayInfoDto;
 import org.savapage.core.dto.AccountVoucherRedeemDto;
 import org.savapage.core.dto.CreditLimitDtoEnum;
 import org.savapage.core.dto.FinancialDisplayInfoDto;
-import org.savapage.core.dto.IppMediaCostDto;
 import org.savapage.core.dto.IppMediaSourceCostDto;
 import org.savapage.core.dto.MediaCostDto;
 import org.savapage.core.dto.MediaPageCostDto;
@@ -110,6 +109,8 @@ import org.savapage.core.services.helpers.AccountTrxInfo;
 import org.savapage.core.services.helpers.AccountTrxInfoSet;
 import org.savapage.core.services.helpers.AccountingException;
 import org.savapage.core.services.helpers.PosSalesLabelCache;
+import org.savapage.core.services.helpers.PrinterCostMatrix;
+import org.savapage.core.services.helpers.PrinterCostMatrixCache;
 import org.savapage.core.services.helpers.ProxyPrintCostDto;
 import org.savapage.core.services.helpers.ProxyPrintCostParms;
 import org.savapage.core.util.BigDecimalUtil;
@@ -1150,18 +1151,21 @@ public final class AccountingServiceImpl extends AbstractService
 
             case MEDIA:
 
-                final IppMediaCostDto costDto = printerDAO()
-                        .getMediaCost(printer, costParms.getIppMediaOption());
+                final PrinterCostMatrix matrix =
+                        PrinterCostMatrixCache.instance().get(printer);
 
-                if (costDto != null) {
+                final BigDecimal mediaCostOneSided =
+                        matrix.getCost(costParms.getIppMediaOption(), false,
+                                costParms.isGrayscale());
+                final BigDecimal mediaCostTwoSided =
+                        matrix.getCost(costParms.getIppMediaOption(), true,
+                                costParms.isGrayscale());
 
-                    final MediaCostDto pageCost = costDto.getPageCost();
-
-                    pageCostOneSided = this.getCost(pageCost.getCostOneSided(),
-                            costParms.isGrayscale());
-
-                    pageCostTwoSided = this.getCost(pageCost.getCostTwoSided(),
-                            costParms.isGrayscale());
+                if (mediaCostOneSided != null) {
+                    pageCostOneSided = mediaCostOneSided;
+                }
+                if (mediaCostTwoSided != null) {
+                    pageCostTwoSided = mediaCostTwoSided;
                 }
                 break;
 
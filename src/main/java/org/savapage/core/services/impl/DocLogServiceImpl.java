@@ -48,7 +48,6 @@ import org.savapage.core.cometd.PubLevelEnum;
 import org.savapage.core.cometd.PubTopicEnum;
 import org.savapage.core.concurrent.ReadWriteLockEnum;
 import org.savapage.core.config.ConfigManager;
-import org.savapage.core.config.IConfigProp;
 import org.savapage.core.config.IConfigProp.Key;
 import org.savapage.core.crypto.CryptoUser;
 import org.savapage.core.dao.DaoContext;
@@ -76,7 +75,6 @@ import org.savapage.core.jpa.PrintOut;
 import org.savapage.core.jpa.Printer;
 import org.savapage.core.jpa.User;
 import org.savapage.core.jpa.UserAccount;
-import org.savapage.core.json.JsonRollingTimeSeries;
 import org.savapage.core.json.TimeSeriesInterval;
 import org.savapage.core.msg.UserMsgIndicator;
 import org.savapage.core.pdf.IPdfPageProps;
@@ -87,6 +85,7 @@ import org.savapage.core.services.DocLogService;
 import org.savapage.core.services.ServiceContext;
 import org.savapage.core.services.helpers.AccountTrxInfoSet;
 import org.savapage.core.services.helpers.DocContentPrintInInfo;
+import org.savapage.core.services.helpers.DocStatsAccumulator;
 import org.savapage.core.services.helpers.ExternalSupplierInfo;
 import org.savapage.core.services.helpers.PdfRepairEnum;
 import org.savapage.core.util.DateUtil;
@@ -114,9 +113,6 @@ public final class DocLogServiceImpl extends AbstractService
      */
     private static final int TIME_SERIES_INTERVAL_MONTH_MAX_POINTS = 5;
 
-    /** */
-    private static final Integer INTEGER_ONE = Integer.valueOf(1);
-
     @Override
     public String generateSignature(final DocLog docLog) {
 
@@ -470,11 +466,12 @@ public final class DocLogServiceImpl extends AbstractService
     }
 
     /**
-     * Commits the global {@link DocOut} statistics to the database.
+     * Records the global {@link DocOut} statistics in the
+     * {@link DocStatsAccumulator}.
      * <p>
-     * Note: This method is performed in a critical section, with
-     * {@link ReadWriteLockEnum#DOC_OUT_STATS} write lock, and has its own
-     * database transaction. See Mantis #430.
+     * Note: Observations are recorded with the
+     * {@link ReadWriteLockEnum#DOC_OUT_STATS} read lock, and are written to
+     * the database by {@link DocStatsAccumulator#flush()}. See Mantis #430.
      * </p>
      *
      * @param docOut
@@ -484,30 +481,14 @@ public final class DocLogServiceImpl extends AbstractService
 
         final DocLog docLog = docOut.getDocLog();
 
-        final ConfigManager cm = ConfigManager.instance();
+        final DocStatsAccumulator stats = DocStatsAccumulator.instance();
 
-        final String actor = Entity.ACTOR_SYSTEM;
         final Date now = docLog.getCreatedDate();
 
-        ServiceContext.setActor(actor);
+        ServiceContext.setActor(Entity.ACTOR_SYSTEM);
         ServiceContext.setTransactionDate(now);
 
-        JsonRollingTimeSeries<Integer> statsPages = null;
-        JsonRollingTimeSeries<Long> statsBytes = null;
-        JsonRollingTimeSeries<Long> statsEsu = null;
-
-        IConfigProp.Key key = null;
-
-        final DaoContext daoContext = ServiceContext.getDaoContext();
-
-        // ----------------------------
-        // Begin Critical Section
-        // ----------------------------
-        ReadWriteLockEnum.DOC_OUT_STATS.setWriteLock(true);
-
-        daoContext.beginTransaction();
-
-        boolean isCommitted = false;
+        ReadWriteLockEnum.DOC_OUT_STATS.setReadLock(true);
 
         try {
 
@@ -518,53 +499,29 @@ public final class DocLogServiceImpl extends AbstractService
 
             if (pdfOut != null) {
 
-                /*
-                 * ConfigProperty - running totals
-                 */
-                statsPages = new JsonRollingTimeSeries<>(TimeSeriesInterval.DAY,
-                        TIME_SERIES_INTERVAL_DAY_MAX_POINTS, 0);
-                statsPages.addDataPoint(Key.STATS_PDF_OUT_ROLLING_DAY_PAGES,
-                        now, docLog.getNumberOfPages());
-                /*
-                 *
-                 */
-                statsPages =
-                        new JsonRollingTimeSeries<>(TimeSeriesInterval.WEEK,
-                                TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, 0);
-                statsPages.addDataPoint(Key.STATS_PDF_OUT_ROLLING_WEEK_PAGES,
-                        now, docLog.getNumberOfPages());
-                //
-                statsBytes =
-                        new JsonRollingTimeSeries<>(TimeSeriesInterval.WEEK,
-                                TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, 0L);
-                statsBytes.addDataPoint(Key.STATS_PDF_OUT_ROLLING_WEEK_BYTES,
-                        now, docLog.getNumberOfBytes());
-                /*
-                 *
-                 */
-                statsPages =
-                        new JsonRollingTimeSeries<>(TimeSeriesInterval.MONTH,
-                                TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, 0);
-                statsPages.addDataPoint(Key.STATS_PDF_OUT_ROLLING_MONTH_PAGES,
-                        now, docLog.getNumberOfPages());
-                //
-                statsBytes =
-                        new JsonRollingTimeSeries<>(TimeSeriesInterval.MONTH,
-                                TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, 0L);
-                statsBytes.addDataPoint(Key.STATS_PDF_OUT_ROLLING_MONTH_BYTES,
-                        now, docLog.getNumberOfBytes());
-                /*
-                 *
-                 */
-                key = Key.STATS_TOTAL_PDF_OUT_PAGES;
-                cm.updateConfigKey(key,
-                        cm.getConfigLong(key) + docLog.getNumberOfPages(),
-                        actor);
-
-                key = Key.STATS_TOTAL_PDF_OUT_BYTES;
-                cm.updateConfigKey(key,
-                        cm.getConfigLong(key) + docLog.getNumberOfBytes(),
-                        actor);
+                final int pages = docLog.getNumberOfPages();
+                final long bytes = docLog.getNumberOfBytes();
+
+                stats.addDataPoint(Key.STATS_PDF_OUT_ROLLING_DAY_PAGES,
+                        TimeSeriesInterval.DAY,
+                        TIME_SERIES_INTERVAL_DAY_MAX_POINTS, now, pages);
+
+                stats.addDataPoint(Key.STATS_PDF_OUT_ROLLING_WEEK_PAGES,
+                        TimeSeriesInterval.WEEK,
+                        TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, now, pages);
+                stats.addDataPoint(Key.STATS_PDF_OUT_ROLLING_WEEK_BYTES,
+                        TimeSeriesInterval.WEEK,
+                        TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, now, bytes);
+
+                stats.addDataPoint(Key.STATS_PDF_OUT_ROLLING_MONTH_PAGES,
+                        TimeSeriesInterval.MONTH,
+                        TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, now, pages);
+                stats.addDataPoint(Key.STATS_PDF_OUT_ROLLING_MONTH_BYTES,
+                        TimeSeriesInterval.MONTH,
+                        TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, now, bytes);
+
+                stats.addTotal(Key.STATS_TOTAL_PDF_OUT_PAGES, pages);
+                stats.addTotal(Key.STATS_TOTAL_PDF_OUT_BYTES, bytes);
             }
 
             /*
@@ -576,110 +533,98 @@ public final class DocLogServiceImpl extends AbstractService
 
                 final int printOutPages = docLog.getNumberOfPages()
                         * printOut.getNumberOfCopies();
-                /*
-                 * ConfigProperty - running totals
-                 */
-                statsPages = new JsonRollingTimeSeries<>(TimeSeriesInterval.DAY,
-                        TIME_SERIES_INTERVAL_DAY_MAX_POINTS, 0);
-                statsPages.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_DAY_PAGES,
-                        now, printOutPages);
-                /*
-                 *
-                 */
-                statsPages =
-                        new JsonRollingTimeSeries<>(TimeSeriesInterval.WEEK,
-                                TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, 0);
-                statsPages.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_WEEK_PAGES,
-                        now, printOutPages);
-                //
-                statsPages =
-                        new JsonRollingTimeSeries<>(TimeSeriesInterval.WEEK,
-                                TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, 0);
-                statsPages.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_WEEK_SHEETS,
-                        now, printOut.getNumberOfSheets());
-                //
-                statsEsu = new JsonRollingTimeSeries<>(TimeSeriesInterval.WEEK,
-                        TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, 0L);
-                statsEsu.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_WEEK_ESU, now,
-                        printOut.getNumberOfEsu());
-                //
-                statsBytes =
-                        new JsonRollingTimeSeries<>(TimeSeriesInterval.WEEK,
-                                TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, 0L);
-                statsBytes.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_WEEK_BYTES,
-                        now, docLog.getNumberOfBytes());
-                /*
-                 *
-                 */
-                statsPages =
-                        new JsonRollingTimeSeries<>(TimeSeriesInterval.MONTH,
-                                TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, 0);
-                statsPages.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_MONTH_PAGES,
-                        now, printOutPages);
-                //
-                statsPages =
-                        new JsonRollingTimeSeries<>(TimeSeriesInterval.MONTH,
-                                TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, 0);
-                statsPages.addDataPoint(
-                        Key.STATS_PRINT_OUT_ROLLING_MONTH_SHEETS, now,
-                        printOut.getNumberOfSheets());
-                //
-                statsEsu = new JsonRollingTimeSeries<>(TimeSeriesInterval.MONTH,
-                        TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, 0L);
-                statsEsu.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_MONTH_ESU,
-                        now, printOut.getNumberOfEsu());
-                //
-                statsBytes =
-                        new JsonRollingTimeSeries<>(TimeSeriesInterval.MONTH,
-                                TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, 0L);
-                statsBytes.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_MONTH_BYTES,
-                        now, docLog.getNumberOfBytes());
-                /*
-                 *
-                 */
-                key = Key.STATS_TOTAL_PRINT_OUT_PAGES;
-                cm.updateConfigKey(key, cm.getConfigLong(key) + printOutPages,
-                        actor);
-
-                key = Key.STATS_TOTAL_PRINT_OUT_SHEETS;
-                cm.updateConfigKey(key,
-                        cm.getConfigLong(key) + printOut.getNumberOfSheets(),
-                        actor);
-
-                key = Key.STATS_TOTAL_PRINT_OUT_ESU;
-                cm.updateConfigKey(key,
-                        cm.getConfigLong(key) + printOut.getNumberOfEsu(),
-                        actor);
-
-                key = Key.STATS_TOTAL_PRINT_OUT_BYTES;
-                cm.updateConfigKey(key,
-                        cm.getConfigLong(key) + docLog.getNumberOfBytes(),
-                        actor);
+                final int sheets = printOut.getNumberOfSheets();
+                final long esu = printOut.getNumberOfEsu();
+                final long bytes = docLog.getNumberOfBytes();
+
+                stats.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_DAY_PAGES,
+                        TimeSeriesInterval.DAY,
+                        TIME_SERIES_INTERVAL_DAY_MAX_POINTS, now,
+                        printOutPages);
+
+                stats.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_WEEK_PAGES,
+                        TimeSeriesInterval.WEEK,
+                        TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, now,
+                        printOutPages);
+                stats.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_WEEK_SHEETS,
+                        TimeSeriesInterval.WEEK,
+                        TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, now, sheets);
+                stats.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_WEEK_ESU,
+                        TimeSeriesInterval.WEEK,
+                        TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, now, esu);
+                stats.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_WEEK_BYTES,
+                        TimeSeriesInterval.WEEK,
+                        TIME_SERIES_INTERVAL_WEEK_MAX_POINTS, now, bytes);
+
+                stats.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_MONTH_PAGES,
+                        TimeSeriesInterval.MONTH,
+                        TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, now,
+                        printOutPages);
+                stats.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_MONTH_SHEETS,
+                        TimeSeriesInterval.MONTH,
+                        TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, now, sheets);
+                stats.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_MONTH_ESU,
+                        TimeSeriesInterval.MONTH,
+                        TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, now, esu);
+                stats.addDataPoint(Key.STATS_PRINT_OUT_ROLLING_MONTH_BYTES,
+                        TimeSeriesInterval.MONTH,
+                        TIME_SERIES_INTERVAL_MONTH_MAX_POINTS, now, bytes);
+
+                stats.addTotal(Key.STATS_TOTAL_PRINT_OUT_PAGES, printOutPages);
+                stats.addTotal(Key.STATS_TOTAL_PRINT_OUT_SHEETS, sheets);
+                stats.addTotal(Key.STATS_TOTAL_PRINT_OUT_ESU, esu);
+                stats.addTotal(Key.STATS_TOTAL_PRINT_OUT_BYTES, bytes);
             }
-            //
-            daoContext.commit();
-            isCommitted = true;
 
         } finally {
-            try {
-                if (!isCommitted) {
-                    daoContext.rollback();
-                }
-            } finally {
-                ReadWriteLockEnum.DOC_OUT_STATS.setWriteLock(false);
-            }
+            ReadWriteLockEnum.DOC_OUT_STATS.setReadLock(false);
         }
-        // ----------------------------
-        // End Critical Section
-        // ----------------------------
+
+        stats.onRecorded();
     }
 
     /**
-     * Commits the global PrintIn statistics to the database.
+     * Gets the rolling time series key of a PDF repair result.
+     *
+     * @param pdfRepair
+     *            The PDF repair result.
+     * @param keyDoc
+     *            Key for {@link PdfRepairEnum#DOC}.
+     * @param keyDocFail
+     *            Key for {@link PdfRepairEnum#DOC_FAIL}.
+     * @param keyFont
+     *            Key for {@link PdfRepairEnum#FONT}.
+     * @param keyFontFail
+     *            Key for {@link PdfRepairEnum#FONT_FAIL}.
+     * @return The key, or {@code null} for {@link PdfRepairEnum#NONE}.
+     */
+    private static Key getPdfRepairKey(final PdfRepairEnum pdfRepair,
+            final Key keyDoc, final Key keyDocFail, final Key keyFont,
+            final Key keyFontFail) {
+
+        switch (pdfRepair) {
+        case DOC:
+            return keyDoc;
+        case DOC_FAIL:
+            return keyDocFail;
+        case FONT:
+            return keyFont;
+        case FONT_FAIL:
+            return keyFontFail;
+        case NONE:
+            return null;
+        default:
+            throw new SpException(pdfRepair.toString().concat(" not handled."));
+        }
+    }
+
+    /**
+     * Records the global PrintIn statistics in the
+     * {@link DocStatsAccumulator}.
      * <p>
-     * Note: This method is performed in a critical section, with
-     * {@link ReadWriteLockEnum#DOC_IN_STATS} write lock, and has its own
-     * database transaction. See Mantis #483.
+     * Note: Observations are recorded with the
+     * {@link ReadWriteLockEnum#DOC_IN_STATS} read lock, and are written to the
+     * database by {@link DocStatsAccumulator#flush()}. See Mantis #483.
      * </p>
      *
      * @param docLog
@@ -692,279 +637,143 @@ public final class DocLogServiceImpl extends AbstractService
     private void commitPrintInStatsGlobal(final DocLog docLog,
             final PdfRepairEnum pdfRepair, final boolean isAccepted) {
 
-        final DaoContext daoContext = ServiceContext.getDaoContext();
-
-        // ----------------------------
-        // Begin Critical Section
-        // ----------------------------
-        ReadWriteLockEnum.DOC_IN_STATS.setWriteLock(true);
+        final DocStatsAccumulator stats = DocStatsAccumulator.instance();
 
-        boolean rollbackTrx = false;
-
-        try {
-
-            /*
-             * Transaction.
-             */
-            daoContext.beginTransaction();
-            rollbackTrx = true;
-
-            /*
-             * ConfigProperty - running totals
-             */
-            final Date now = ServiceContext.getTransactionDate();
-            final String actor = Entity.ACTOR_SYSTEM;
+        final Date now = ServiceContext.getTransactionDate();
 
-            IConfigProp.Key key = null;
+        final int pages = docLog.getNumberOfPages();
+        final long bytes = docLog.getNumberOfBytes();
 
-            JsonRollingTimeSeries<Integer> statsDocs = null;
-            JsonRollingTimeSeries<Integer> statsPages = null;
-            JsonRollingTimeSeries<Long> statsBytes = null;
+        ReadWriteLockEnum.DOC_IN_STATS.setReadLock(true);
 
+        try {
             /*
-             * .
+             * Day
              */
             TimeSeriesInterval intervalWlk = TimeSeriesInterval.DAY;
             int intervalPointWlk = TIME_SERIES_INTERVAL_DAY_MAX_POINTS;
 
             if (isAccepted) {
-                statsPages = new JsonRollingTimeSeries<>(intervalWlk,
-                        intervalPointWlk, 0);
-                statsPages.addDataPoint(Key.STATS_PRINT_IN_ROLLING_DAY_PAGES,
-                        now, docLog.getNumberOfPages());
+                stats.addDataPoint(Key.STATS_PRINT_IN_ROLLING_DAY_PAGES,
+                        intervalWlk, intervalPointWlk, now, pages);
             }
 
-            statsDocs = new JsonRollingTimeSeries<>(intervalWlk,
-                    intervalPointWlk, 0);
-            statsDocs.addDataPoint(Key.STATS_PRINT_IN_ROLLING_DAY_DOCS, now,
-                    INTEGER_ONE);
+            stats.addDataPoint(Key.STATS_PRINT_IN_ROLLING_DAY_DOCS,
+                    intervalWlk, intervalPointWlk, now, 1);
 
             if (pdfRepair != null) {
-                statsDocs = new JsonRollingTimeSeries<>(intervalWlk,
-                        intervalPointWlk, 0);
-                statsDocs.addDataPoint(Key.STATS_PRINT_IN_ROLLING_DAY_PDF, now,
-                        INTEGER_ONE);
-
-                final Key keyInc;
-
-                switch (pdfRepair) {
-                case DOC:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_DAY_PDF_REPAIR;
-                    break;
-                case DOC_FAIL:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_DAY_PDF_REPAIR_FAIL;
-                    break;
-                case FONT:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_DAY_PDF_REPAIR_FONT;
-                    break;
-                case FONT_FAIL:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_DAY_PDF_REPAIR_FONT_FAIL;
-                    break;
-                case NONE:
-                    keyInc = null;
-                    break;
-                default:
-                    throw new SpException(
-                            pdfRepair.toString().concat(" not handled."));
-                }
+
+                stats.addDataPoint(Key.STATS_PRINT_IN_ROLLING_DAY_PDF,
+                        intervalWlk, intervalPointWlk, now, 1);
+
+                final Key keyInc = getPdfRepairKey(pdfRepair,
+                        Key.STATS_PRINT_IN_ROLLING_DAY_PDF_REPAIR,
+                        Key.STATS_PRINT_IN_ROLLING_DAY_PDF_REPAIR_FAIL,
+                        Key.STATS_PRINT_IN_ROLLING_DAY_PDF_REPAIR_FONT,
+                        Key.STATS_PRINT_IN_ROLLING_DAY_PDF_REPAIR_FONT_FAIL);
+
                 if (keyInc != null) {
-                    statsDocs = new JsonRollingTimeSeries<>(intervalWlk,
-                            intervalPointWlk, 0);
-                    statsDocs.addDataPoint(keyInc, now, INTEGER_ONE);
+                    stats.addDataPoint(keyInc, intervalWlk, intervalPointWlk,
+                            now, 1);
                 }
             }
 
             /*
-             * .
+             * Week
              */
             intervalWlk = TimeSeriesInterval.WEEK;
             intervalPointWlk = TIME_SERIES_INTERVAL_WEEK_MAX_POINTS;
 
             if (isAccepted) {
-                statsPages = new JsonRollingTimeSeries<>(intervalWlk,
-                        intervalPointWlk, 0);
-                statsPages.addDataPoint(Key.STATS_PRINT_IN_ROLLING_WEEK_PAGES,
-                        now, docLog.getNumberOfPages());
-                //
-                statsBytes = new JsonRollingTimeSeries<>(intervalWlk,
-                        intervalPointWlk, 0L);
-                statsBytes.addDataPoint(Key.STATS_PRINT_IN_ROLLING_WEEK_BYTES,
-                        now, docLog.getNumberOfBytes());
+                stats.addDataPoint(Key.STATS_PRINT_IN_ROLLING_WEEK_PAGES,
+                        intervalWlk, intervalPointWlk, now, pages);
+                stats.addDataPoint(Key.STATS_PRINT_IN_ROLLING_WEEK_BYTES,
+                        intervalWlk, intervalPointWlk, now, bytes);
             }
 
-            statsDocs = new JsonRollingTimeSeries<>(intervalWlk,
-                    intervalPointWlk, 0);
-            statsDocs.addDataPoint(Key.STATS_PRINT_IN_ROLLING_WEEK_DOCS, now,
-                    INTEGER_ONE);
+            stats.addDataPoint(Key.STATS_PRINT_IN_ROLLING_WEEK_DOCS,
+                    intervalWlk, intervalPointWlk, now, 1);
 
             if (pdfRepair != null) {
-                statsDocs = new JsonRollingTimeSeries<>(intervalWlk,
-                        intervalPointWlk, 0);
-                statsDocs.addDataPoint(Key.STATS_PRINT_IN_ROLLING_WEEK_PDF, now,
-                        INTEGER_ONE);
-
-                final Key keyInc;
-
-                switch (pdfRepair) {
-                case DOC:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_WEEK_PDF_REPAIR;
-                    break;
-                case DOC_FAIL:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_WEEK_PDF_REPAIR_FAIL;
-                    break;
-                case FONT:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_WEEK_PDF_REPAIR_FONT;
-                    break;
-                case FONT_FAIL:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_WEEK_PDF_REPAIR_FONT_FAIL;
-                    break;
-                case NONE:
-                    keyInc = null;
-                    break;
-                default:
-                    throw new SpException(
-                            pdfRepair.toString().concat(" not handled."));
-                }
+
+                stats.addDataPoint(Key.STATS_PRINT_IN_ROLLING_WEEK_PDF,
+                        intervalWlk, intervalPointWlk, now, 1);
+
+                final Key keyInc = getPdfRepairKey(pdfRepair,
+                        Key.STATS_PRINT_IN_ROLLING_WEEK_PDF_REPAIR,
+                        Key.STATS_PRINT_IN_ROLLING_WEEK_PDF_REPAIR_FAIL,
+                        Key.STATS_PRINT_IN_ROLLING_WEEK_PDF_REPAIR_FONT,
+                        Key.STATS_PRINT_IN_ROLLING_WEEK_PDF_REPAIR_FONT_FAIL);
 
                 if (keyInc != null) {
-                    statsDocs = new JsonRollingTimeSeries<>(intervalWlk,
-                            intervalPointWlk, 0);
-                    statsDocs.addDataPoint(keyInc, now, INTEGER_ONE);
+                    stats.addDataPoint(keyInc, intervalWlk, intervalPointWlk,
+                            now, 1);
                 }
             }
 
             /*
-             * .
+             * Month
              */
             intervalWlk = TimeSeriesInterval.MONTH;
             intervalPointWlk = TIME_SERIES_INTERVAL_MONTH_MAX_POINTS;
 
             if (isAccepted) {
-                statsPages = new JsonRollingTimeSeries<>(intervalWlk,
-                        intervalPointWlk, 0);
-                statsPages.addDataPoint(Key.STATS_PRINT_IN_ROLLING_MONTH_PAGES,
-                        now, docLog.getNumberOfPages());
-                //
-                statsBytes = new JsonRollingTimeSeries<>(intervalWlk,
-                        intervalPointWlk, 0L);
-                statsBytes.addDataPoint(Key.STATS_PRINT_IN_ROLLING_MONTH_BYTES,
-                        now, docLog.getNumberOfBytes());
+                stats.addDataPoint(Key.STATS_PRINT_IN_ROLLING_MONTH_PAGES,
+                        intervalWlk, intervalPointWlk, now, pages);
+                stats.addDataPoint(Key.STATS_PRINT_IN_ROLLING_MONTH_BYTES,
+                        intervalWlk, intervalPointWlk, now, bytes);
             }
 
-            statsDocs = new JsonRollingTimeSeries<>(intervalWlk,
-                    intervalPointWlk, 0);
-            statsDocs.addDataPoint(Key.STATS_PRINT_IN_ROLLING_MONTH_DOCS, now,
-                    INTEGER_ONE);
+            stats.addDataPoint(Key.STATS_PRINT_IN_ROLLING_MONTH_DOCS,
+                    intervalWlk, intervalPointWlk, now, 1);
 
             if (pdfRepair != null) {
-                statsDocs = new JsonRollingTimeSeries<>(intervalWlk,
-                        intervalPointWlk, 0);
-                statsDocs.addDataPoint(Key.STATS_PRINT_IN_ROLLING_MONTH_PDF,
-                        now, INTEGER_ONE);
-
-                final Key keyInc;
-
-                switch (pdfRepair) {
-                case DOC:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_MONTH_PDF_REPAIR;
-                    break;
-                case DOC_FAIL:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_MONTH_PDF_REPAIR_FAIL;
-                    break;
-                case FONT:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_MONTH_PDF_REPAIR_FONT;
-                    break;
-                case FONT_FAIL:
-                    keyInc = Key.STATS_PRINT_IN_ROLLING_MONTH_PDF_REPAIR_FONT_FAIL;
-                    break;
-                case NONE:
-                    keyInc = null;
-                    break;
-                default:
-                    throw new SpException(
-                            pdfRepair.toString().concat(" not handled."));
-                }
+
+                stats.addDataPoint(Key.STATS_PRINT_IN_ROLLING_MONTH_PDF,
+                        intervalWlk, intervalPointWlk, now, 1);
+
+                final Key keyInc = getPdfRepairKey(pdfRepair,
+                        Key.STATS_PRINT_IN_ROLLING_MONTH_PDF_REPAIR,
+                        Key.STATS_PRINT_IN_ROLLING_MONTH_PDF_REPAIR_FAIL,
+                        Key.STATS_PRINT_IN_ROLLING_MONTH_PDF_REPAIR_FONT,
+                        Key.STATS_PRINT_IN_ROLLING_MONTH_PDF_REPAIR_FONT_FAIL);
 
                 if (keyInc != null) {
-                    statsDocs = new JsonRollingTimeSeries<>(intervalWlk,
-                            intervalPointWlk, 0);
-                    statsDocs.addDataPoint(keyInc, now, INTEGER_ONE);
+                    stats.addDataPoint(keyInc, intervalWlk, intervalPointWlk,
+                            now, 1);
                 }
             }
 
             /*
-             *
+             * Running totals
              */
-            final ConfigManager cm = ConfigManager.instance();
-
             if (isAccepted) {
-
-                key = Key.STATS_TOTAL_PRINT_IN_PAGES;
-                cm.updateConfigKey(key,
-                        cm.getConfigLong(key) + docLog.getNumberOfPages(),
-                        actor);
-
-                key = Key.STATS_TOTAL_PRINT_IN_BYTES;
-                cm.updateConfigKey(key,
-                        cm.getConfigLong(key) + docLog.getNumberOfBytes(),
-                        actor);
+                stats.addTotal(Key.STATS_TOTAL_PRINT_IN_PAGES, pages);
+                stats.addTotal(Key.STATS_TOTAL_PRINT_IN_BYTES, bytes);
             }
 
-            key = Key.STATS_TOTAL_PRINT_IN_DOCS;
-            cm.updateConfigKey(key, cm.getConfigLong(key) + 1, actor);
+            stats.addTotal(Key.STATS_TOTAL_PRINT_IN_DOCS, 1);
 
             if (pdfRepair != null) {
-                key = Key.STATS_TOTAL_PRINT_IN_PDF;
-                cm.updateConfigKey(key, cm.getConfigLong(key) + 1, actor);
-
-                final Key keyInc;
-
-                switch (pdfRepair) {
-                case DOC:
-                    keyInc = Key.STATS_TOTAL_PRINT_IN_PDF_REPAIR;
-                    break;
-                case DOC_FAIL:
-                    keyInc = Key.STATS_TOTAL_PRINT_IN_PDF_REPAIR_FAIL;
-                    break;
-                case FONT:
-                    keyInc = Key.STATS_TOTAL_PRINT_IN_PDF_REPAIR_FONT;
-                    break;
-                case FONT_FAIL:
-                    keyInc = Key.STATS_TOTAL_PRINT_IN_PDF_REPAIR_FONT_FAIL;
-                    break;
-                case NONE:
-                    keyInc = null;
-                    break;
-                default:
-                    throw new SpException(
-                            pdfRepair.toString().concat(" not handled."));
-                }
+
+                stats.addTotal(Key.STATS_TOTAL_PRINT_IN_PDF, 1);
+
+                final Key keyInc = getPdfRepairKey(pdfRepair,
+                        Key.STATS_TOTAL_PRINT_IN_PDF_REPAIR,
+                        Key.STATS_TOTAL_PRINT_IN_PDF_REPAIR_FAIL,
+                        Key.STATS_TOTAL_PRINT_IN_PDF_REPAIR_FONT,
+                        Key.STATS_TOTAL_PRINT_IN_PDF_REPAIR_FONT_FAIL);
 
                 if (keyInc != null) {
-                    cm.updateConfigKey(keyInc, cm.getConfigLong(keyInc) + 1,
-                            actor);
+                    stats.addTotal(keyInc, 1);
                 }
             }
 
-            /*
-             * Commit
-             */
-            daoContext.commit();
-            rollbackTrx = false;
-
         } finally {
-
-            try {
-                if (rollbackTrx) {
-                    daoContext.rollback();
-                }
-            } finally {
-                ReadWriteLockEnum.DOC_IN_STATS.setWriteLock(false);
-            }
+            ReadWriteLockEnum.DOC_IN_STATS.setReadLock(false);
         }
-        // ----------------------------
-        // End Critical Section
-        // ----------------------------
+
+        stats.onRecorded();
     }
 
     /**
@@ -1386,6 +1195,8 @@ public final class DocLogServiceImpl extends AbstractService
              */
             if (resetDashboard) {
 
+                DocStatsAccumulator.instance().clear();
+
                 final Key[] series = {
                         /* */
                         Key.STATS_PRINT_IN_ROLLING_DAY_DOCS,
@@ -28,7 +28,6 @@ import static java.nio.file.FileVisitResult.CONTINUE;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
@@ -48,6 +47,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 
 import javax.print.attribute.standard.MediaSizeName;
@@ -56,6 +56,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.mutable.MutableInt;
 import org.apache.commons.lang3.mutable.MutableLong;
 import org.savapage.core.LetterheadNotFoundException;
 import org.savapage.core.PostScriptDrmException;
@@ -96,12 +97,11 @@ import org.savapage.core.services.InboxService;
 import org.savapage.core.services.ServiceContext;
 import org.savapage.core.services.helpers.InboxContext;
 import org.savapage.core.services.helpers.InboxContextCommon;
+import org.savapage.core.services.helpers.InboxInfoCache;
 import org.savapage.core.services.helpers.InboxPageImageChunker;
 import org.savapage.core.services.helpers.InboxPageImageInfo;
 import org.savapage.core.services.helpers.InboxPageMover;
 import org.savapage.core.services.helpers.PageRangeException;
-import org.savapage.core.util.FileSystemHelper;
-import org.savapage.core.util.JsonHelper;
 import org.savapage.core.util.MediaUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -137,6 +137,10 @@ public final class InboxServiceImpl implements InboxService {
     private static final UserDao USER_DAO =
             ServiceContext.getDaoContext().getUserDao();
 
+    /** */
+    private static final InboxInfoCache INBOX_INFO_CACHE =
+            InboxInfoCache.instance();
+
     /**
      *
      */
@@ -172,90 +176,34 @@ public final class InboxServiceImpl implements InboxService {
 
     @Override
     public InboxInfoDto readInboxInfo(final String userIdInbox) {
-
-        final File file = this.getInboxInfoFile(userIdInbox);
-        final ObjectMapper mapper = new ObjectMapper();
-
-        InboxInfoDto jobinfo = null;
-
-        try {
-            /*
-             * First check if file exists, if not (first time use, or reset)
-             * return an empty job info object.
-             */
-            if (file.exists()) {
-
-                try {
-
-                    jobinfo = mapper.readValue(file, InboxInfoDto.class);
-
-                } catch (JsonMappingException e) {
-
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("Error mapping from file ["
-                                + file.getAbsolutePath() + "]: create new.");
-                    }
-                    /*
-                     * There has been a change in layout of the JSON file, so
-                     * create a new default and store it.
-                     */
-                    jobinfo = new InboxInfoDto();
-                    this.storeInboxInfo(userIdInbox, jobinfo);
-                }
-            }
-            if (jobinfo == null) {
-                jobinfo = new InboxInfoDto();
-            }
-        } catch (JsonParseException e) {
-            throw new SpException("Error parsing file ["
-                    + file.getAbsolutePath() + "] : " + e.getMessage());
-        } catch (IOException e) {
-            throw new SpException("Error reading file ["
-                    + file.getAbsolutePath() + "]" + e.getMessage());
-        }
-        return jobinfo;
+        return INBOX_INFO_CACHE.get(userIdInbox,
+                this.getInboxInfoFile(userIdInbox));
     }
 
     @Override
     public void storeInboxInfo(final String userIdInbox,
             final InboxInfoDto jobinfo) {
+        INBOX_INFO_CACHE.put(userIdInbox,
+                this.getInboxInfoFile(userIdInbox), jobinfo);
+    }
 
-        final boolean atomicMove = true; // Mantis #863
-
-        final File fileTarget = getInboxInfoFile(userIdInbox);
-        final File fileSource;
-
-        if (atomicMove) {
-            fileSource = new File(String.format("%s%c%s_%s.%s",
-                    ConfigManager.getAppTmpDir(), File.separatorChar,
-                    userIdInbox, INBOX_DESCRIPT_FILE_NAME,
-                    UUID.randomUUID().toString()));
-        } else {
-            fileSource = fileTarget;
-        }
-
-        try (FileWriter writer = new FileWriter(fileSource)) {
-
-            JsonHelper.write(jobinfo, writer);
-
-        } catch (IOException e) {
-            throw new SpException("Error writing file ["
-                    + fileSource.getAbsolutePath() + "] : " + e.getMessage());
-        }
-
-        if (atomicMove) {
-            try {
-                FileSystemHelper.doAtomicFileMove(fileSource.toPath(),
-                        fileTarget.toPath());
-            } catch (IOException e) {
-                throw new SpException(
-                        "Error moving file [" + fileSource.getAbsolutePath()
-                                + "] to [" + fileTarget.getAbsolutePath()
-                                + "] : " + e.getMessage());
-            } finally {
-                fileSource.delete(); // just to be sure
-            }
-        }
+    /**
+     * Reads, changes and stores the inbox info of a user, while no other
+     * inbox info operation on the user takes place.
+     *
+     * @param userIdInbox
+     *            The unique user id of the inbox (SafePages).
+     * @param fn
+     *            Changes a copy of the current inbox info, and returns the
+     *            inbox info to store, or {@code null} when nothing is to be
+     *            stored.
+     * @return The stored inbox info, or the current inbox info when nothing
+     *         was stored.
+     */
+    private InboxInfoDto updateInboxInfo(final String userIdInbox,
+            final UnaryOperator<InboxInfoDto> fn) {
+        return INBOX_INFO_CACHE.compute(userIdInbox,
+                this.getInboxInfoFile(userIdInbox), fn);
     }
 
     @Override
@@ -294,7 +242,16 @@ public final class InboxServiceImpl implements InboxService {
         final String workdir = ConfigManager.getUserHomeDir(userIdInbox);
 
         final InboxInfoDto jobinfo = this.readInboxInfo(userIdInbox);
-        final int oldJobCount = jobinfo.jobCount();
+
+        /*
+         * Skip the scan for unknown documents when neither the inbox
+         * directory nor the inbox info changed since the last scan.
+         */
+        final long dirMtime = new File(workdir).lastModified();
+
+        if (INBOX_INFO_CACHE.isScanCurrent(userIdInbox, dirMtime)) {
+            return jobinfo;
+        }
 
         final FileFilter filefilter = new FileFilter() {
             @Override
@@ -306,6 +263,7 @@ public final class InboxServiceImpl implements InboxService {
         final File[] files = new File(workdir).listFiles(filefilter);
 
         if (null == files || files.length == 0) {
+            INBOX_INFO_CACHE.setScanned(userIdInbox, dirMtime);
             return jobinfo;
         }
 
@@ -325,7 +283,7 @@ public final class InboxServiceImpl implements InboxService {
             }
         });
 
-        int iJobNew = oldJobCount;
+        final List<InboxInfoDto.InboxJob> jobsNew = new ArrayList<>();
         User userObj = null; // lazy init
 
         // See Mantis #1167
@@ -385,23 +343,57 @@ public final class InboxServiceImpl implements InboxService {
             job.setLandscapeView(Boolean.valueOf(
                     PdfPageRotateHelper.isSeenAsLandscape(contentRotation,
                             rotation, isLandscape, rotate.intValue())));
-            // Append job
-            jobinfo.getJobs().add(job);
-            // ... and range
-            final InboxJobRange range = new InboxInfoDto.InboxJobRange();
-            range.setJob(iJobNew);
-            range.setRange(RangeAtom.FULL_PAGE_RANGE);
-            jobinfo.getPages().add(range); // append
 
-            // prepare for next job
-            iJobNew++;
+            jobsNew.add(job);
         }
 
-        if (jobinfo.jobCount() > oldJobCount) {
-            this.storeInboxInfo(userIdInbox, jobinfo);
+        final InboxInfoDto jobinfoNew;
+
+        if (jobsNew.isEmpty()) {
+            jobinfoNew = jobinfo;
+        } else {
+            /*
+             * Append the new jobs to the current inbox info, since it may
+             * have changed during the scan.
+             */
+            jobinfoNew = this.updateInboxInfo(userIdInbox, current -> {
+
+                final Set<String> jobFiles = new HashSet<>();
+                for (final InboxInfoDto.InboxJob job : current.getJobs()) {
+                    jobFiles.add(job.getFile());
+                }
+
+                final int jobCountCurrent = current.jobCount();
+                int iJobNew = jobCountCurrent;
+
+                for (final InboxInfoDto.InboxJob job : jobsNew) {
+
+                    if (!jobFiles.add(job.getFile())) {
+                        continue;
+                    }
+                    // Append job
+                    current.getJobs().add(job);
+                    // ... and range
+                    final InboxJobRange range =
+                            new InboxInfoDto.InboxJobRange();
+                    range.setJob(iJobNew);
+                    range.setRange(RangeAtom.FULL_PAGE_RANGE);
+                    current.getPages().add(range); // append
+
+                    // prepare for next job
+                    iJobNew++;
+                }
+
+                if (iJobNew == jobCountCurrent) {
+                    return null;
+                }
+                return current;
+            });
         }
 
-        return jobinfo;
+        INBOX_INFO_CACHE.setScanned(userIdInbox, dirMtime);
+
+        return jobinfoNew;
     }
 
     /**
@@ -977,8 +969,15 @@ public final class InboxServiceImpl implements InboxService {
              * Auto-correct dangling reference to default letterhead.
              */
             if (defaultLhStored != null && defaultLhFound == null) {
-                userJobInfo.setLetterhead(null);
-                storeInboxInfo(userObj.getUserId(), userJobInfo);
+                final String dangling = defaultLhStored;
+                this.updateInboxInfo(userObj.getUserId(), info -> {
+                    if (info.getLetterhead() == null || !dangling
+                            .equals(info.getLetterhead().getId())) {
+                        return null;
+                    }
+                    info.setLetterhead(null);
+                    return info;
+                });
             }
 
         }
@@ -1006,11 +1005,10 @@ public final class InboxServiceImpl implements InboxService {
     @Override
     public void detachLetterhead(final String user) {
 
-        final InboxInfoDto info = readInboxInfo(user);
-
-        info.setLetterhead(null);
-
-        storeInboxInfo(user, info);
+        this.updateInboxInfo(user, info -> {
+            info.setLetterhead(null);
+            return info;
+        });
     }
 
     @Override
@@ -1032,16 +1030,16 @@ public final class InboxServiceImpl implements InboxService {
             throw LetterheadNotFoundException.create(isPublic, letterheadId);
         }
 
-        final InboxInfoDto info = readInboxInfo(user.getUserId());
-
         final InboxInfoDto.InboxLetterhead lh =
                 new InboxInfoDto.InboxLetterhead();
-        info.setLetterhead(lh);
 
         lh.setId(ljob.getFile());
         lh.setPub(isPublic);
 
-        storeInboxInfo(user.getUserId(), info);
+        this.updateInboxInfo(user.getUserId(), info -> {
+            info.setLetterhead(lh);
+            return info;
+        });
     }
 
     @Override
@@ -1200,14 +1198,17 @@ public final class InboxServiceImpl implements InboxService {
          */
         final String user = userReq.getUserId();
 
-        final InboxInfoDto info = readInboxInfo(user);
+        this.updateInboxInfo(user, info -> {
 
-        if (info.getLetterhead() != null && info.getLetterhead().getId() != null
-                && info.getLetterhead().getId().equals(letterheadId)) {
+            if (info.getLetterhead() != null
+                    && info.getLetterhead().getId() != null
+                    && info.getLetterhead().getId().equals(letterheadId)) {
 
-            info.setLetterhead(null);
-            storeInboxInfo(user, info);
-        }
+                info.setLetterhead(null);
+                return info;
+            }
+            return null;
+        });
     }
 
     @Override
@@ -1502,8 +1503,15 @@ public final class InboxServiceImpl implements InboxService {
 
     @Override
     public int deletePages(final String user, final String ranges) {
-        final InboxInfoDto jobinfo = readInboxInfo(user);
-        return InboxPageMover.deletePages(user, jobinfo, ranges);
+        final MutableInt nDeleted = new MutableInt();
+
+        // The page mover stores the inbox info (re-entering the user lock).
+        this.updateInboxInfo(user, jobinfo -> {
+            nDeleted.setValue(
+                    InboxPageMover.deletePages(user, jobinfo, ranges));
+            return null;
+        });
+        return nDeleted.intValue();
     }
 
     @Override
@@ -1523,28 +1531,31 @@ public final class InboxServiceImpl implements InboxService {
     public int deleteJobs(final String userid,
             final List<ProxyPrintJobChunk> chunks) {
 
-        final InboxInfoDto jobs = readInboxInfo(userid);
-
         final Set<Integer> removedJobs = new HashSet<>();
 
-        for (final ProxyPrintJobChunk chunk : chunks) {
+        this.updateInboxInfo(userid, jobs -> {
 
-            for (final ProxyPrintJobChunkRange range : chunk.getRanges()) {
+            for (final ProxyPrintJobChunk chunk : chunks) {
 
-                final int iJob = range.getJob();
-                /*
-                 * Remove on first occurrence in collected jobs.
-                 */
-                if (removedJobs.add(Integer.valueOf(iJob))) {
-                    this.removeJobPages(jobs, iJob);
+                for (final ProxyPrintJobChunkRange range : chunk
+                        .getRanges()) {
+
+                    final int iJob = range.getJob();
+                    /*
+                     * Remove on first occurrence in collected jobs.
+                     */
+                    if (removedJobs.add(Integer.valueOf(iJob))) {
+                        this.removeJobPages(jobs, iJob);
+                    }
                 }
             }
-        }
 
-        if (!removedJobs.isEmpty()) {
-            storeInboxInfo(userid, this.pruneJobs(
-                    ConfigManager.getUserHomeDir(userid), userid, jobs));
-        }
+            if (removedJobs.isEmpty()) {
+                return null;
+            }
+            return this.pruneJobs(ConfigManager.getUserHomeDir(userid),
+                    userid, jobs);
+        });
 
         return removedJobs.size();
     }
@@ -1553,27 +1564,30 @@ public final class InboxServiceImpl implements InboxService {
     public int deleteJobs(final String userid, final long msecReferenceTime,
             final long msecExpiry) {
 
-        final InboxInfoDto inboxInfo = readInboxInfo(userid);
+        final MutableInt nDeleted = new MutableInt();
 
-        int nDeleted = 0;
-        int iJob = 0;
+        this.updateInboxInfo(userid, inboxInfo -> {
 
-        for (final InboxJob job : inboxInfo.getJobs()) {
+            int iJob = 0;
+
+            for (final InboxJob job : inboxInfo.getJobs()) {
 
-            if (job.getCreatedTime().longValue()
-                    + msecExpiry < msecReferenceTime) {
-                this.removeJobPages(inboxInfo, iJob);
-                nDeleted++;
+                if (job.getCreatedTime().longValue()
+                        + msecExpiry < msecReferenceTime) {
+                    this.removeJobPages(inboxInfo, iJob);
+                    nDeleted.increment();
+                }
+                iJob++;
             }
-            iJob++;
-        }
 
-        if (nDeleted > 0) {
-            storeInboxInfo(userid, this.pruneJobs(
-                    ConfigManager.getUserHomeDir(userid), userid, inboxInfo));
-        }
+            if (nDeleted.intValue() == 0) {
+                return null;
+            }
+            return this.pruneJobs(ConfigManager.getUserHomeDir(userid),
+                    userid, inboxInfo);
+        });
 
-        return nDeleted;
+        return nDeleted.intValue();
     }
 
     /**
@@ -1603,73 +1617,75 @@ public final class InboxServiceImpl implements InboxService {
 
     @Override
     public void deleteJob(final String user, final int iJob) {
-        storeInboxInfo(user, pruneJobs(ConfigManager.getUserHomeDir(user), user,
-                this.removeJobPages(readInboxInfo(user), iJob)));
+        this.updateInboxInfo(user,
+                info -> pruneJobs(ConfigManager.getUserHomeDir(user), user,
+                        this.removeJobPages(info, iJob)));
     }
 
     @Override
     public void editJob(final String user, final int iJob, final boolean rotate,
             final boolean undelete) {
 
-        final InboxInfoDto jobs = readInboxInfo(user);
+        this.updateInboxInfo(user, jobs -> {
 
-        //
-        final Integer userRotate;
+            //
+            final Integer userRotate;
 
-        if (rotate) {
-            userRotate = PdfPageRotateHelper.PDF_ROTATION_90;
-        } else {
-            userRotate = PdfPageRotateHelper.PDF_ROTATION_0;
-        }
+            if (rotate) {
+                userRotate = PdfPageRotateHelper.PDF_ROTATION_90;
+            } else {
+                userRotate = PdfPageRotateHelper.PDF_ROTATION_0;
+            }
 
-        final InboxJob job = jobs.getJobs().get(iJob);
-        job.setRotate(userRotate.toString());
+            final InboxJob job = jobs.getJobs().get(iJob);
+            job.setRotate(userRotate.toString());
 
-        final int rotation;
-        if (job.getRotation() == null) {
-            rotation = 0;
-        } else {
-            rotation = job.getRotation().intValue();
-        }
+            final int rotation;
+            if (job.getRotation() == null) {
+                rotation = 0;
+            } else {
+                rotation = job.getRotation().intValue();
+            }
 
-        final int contentRotation;
-        if (job.getContentRotation() == null) {
-            contentRotation = 0;
-        } else {
-            contentRotation = job.getContentRotation().intValue();
-        }
+            final int contentRotation;
+            if (job.getContentRotation() == null) {
+                contentRotation = 0;
+            } else {
+                contentRotation = job.getContentRotation().intValue();
+            }
+
+            job.setLandscapeView(Boolean.valueOf(
+                    PdfPageRotateHelper.isSeenAsLandscape(contentRotation,
+                            rotation, BooleanUtils.isTrue(job.getLandscape()),
+                            userRotate.intValue())));
+            //
+            if (undelete) {
 
-        job.setLandscapeView(Boolean
-                .valueOf(PdfPageRotateHelper.isSeenAsLandscape(contentRotation,
-                        rotation, BooleanUtils.isTrue(job.getLandscape()),
-                        userRotate.intValue())));
-        //
-        if (undelete) {
+                final ArrayList<InboxInfoDto.InboxJobRange> jobPagesNew =
+                        new ArrayList<>();
 
-            final ArrayList<InboxInfoDto.InboxJobRange> jobPagesNew =
-                    new ArrayList<>();
+                boolean first = true;
 
-            boolean first = true;
+                for (final InboxJobRange range : jobs.getPages()) {
 
-            for (final InboxJobRange range : jobs.getPages()) {
+                    if (range.getJob() == iJob) {
 
-                if (range.getJob() == iJob) {
+                        if (first) {
+                            range.setRange(RangeAtom.FULL_PAGE_RANGE);
+                            first = false;
+                            jobPagesNew.add(range);
+                        }
 
-                    if (first) {
-                        range.setRange(RangeAtom.FULL_PAGE_RANGE);
-                        first = false;
+                    } else {
                         jobPagesNew.add(range);
                     }
-
-                } else {
-                    jobPagesNew.add(range);
                 }
-            }
 
-            jobs.setPages(jobPagesNew);
-        }
+                jobs.setPages(jobPagesNew);
+            }
 
-        storeInboxInfo(user, jobs);
+            return jobs;
+        });
     }
 
     @Override
@@ -1698,9 +1714,15 @@ public final class InboxServiceImpl implements InboxService {
     public int movePages(final String user, final String nRanges,
             final int nPage2Move2) {
 
-        final InboxInfoDto jobinfo = readInboxInfo(user);
+        final MutableInt nMoved = new MutableInt();
 
-        return InboxPageMover.movePages(user, jobinfo, nRanges, nPage2Move2);
+        // The page mover stores the inbox info (re-entering the user lock).
+        this.updateInboxInfo(user, jobinfo -> {
+            nMoved.setValue(InboxPageMover.movePages(user, jobinfo, nRanges,
+                    nPage2Move2));
+            return null;
+        });
+        return nMoved.intValue();
     }
 
     @Override
@@ -1708,38 +1730,41 @@ public final class InboxServiceImpl implements InboxService {
             final User user) {
 
         final DocLogDao dao = ServiceContext.getDaoContext().getDocLogDao();
-        final InboxInfoDto dto = this.readInboxInfo(userIdInbox);
-        final Set<Integer> docLogAbsent = new HashSet<>();
 
-        int iJob = 0;
+        this.updateInboxInfo(userIdInbox, dto -> {
 
-        /*
-         * Collect the zero-based indices of the jobs that are not present in
-         * the database, or are not present as inbox document.
-         */
-        for (final InboxJob job : dto.getJobs()) {
+            final Set<Integer> docLogAbsent = new HashSet<>();
 
-            final String uuid = FilenameUtils.getBaseName(job.getFile());
+            int iJob = 0;
 
-            final DocLog docLog = dao.findByUuid(user.getId(), uuid);
+            /*
+             * Collect the zero-based indices of the jobs that are not present
+             * in the database, or are not present as inbox document.
+             */
+            for (final InboxJob job : dto.getJobs()) {
+
+                final String uuid = FilenameUtils.getBaseName(job.getFile());
 
-            if (docLog == null
-                    || !Paths.get(homedir, job.getFile()).toFile().exists()) {
-                docLogAbsent.add(Integer.valueOf(iJob));
+                final DocLog docLog = dao.findByUuid(user.getId(), uuid);
 
-                if (docLog != null) {
-                    LOGGER.warn(
-                            "Repaired user [{}] inbox for missing document.",
-                            userIdInbox);
+                if (docLog == null || !Paths.get(homedir, job.getFile())
+                        .toFile().exists()) {
+                    docLogAbsent.add(Integer.valueOf(iJob));
+
+                    if (docLog != null) {
+                        LOGGER.warn("Repaired user [{}] inbox for "
+                                + "missing document.", userIdInbox);
+                    }
                 }
+                iJob++;
             }
-            iJob++;
-        }
 
-        /*
-         * Are jobs absent?
-         */
-        if (!docLogAbsent.isEmpty()) {
+            /*
+             * Are jobs absent?
+             */
+            if (docLogAbsent.isEmpty()) {
+                return null;
+            }
 
             final Iterator<InboxJobRange> iter = dto.getPages().iterator();
 
@@ -1756,13 +1781,11 @@ public final class InboxServiceImpl implements InboxService {
             }
 
             /*
-             * Prune the jobs (this will actually delete the job files as well).
+             * Prune the jobs (this will actually delete the job files as
+             * well).
              */
-            final InboxInfoDto prunedDto =
-                    this.pruneJobs(homedir, userIdInbox, dto);
-
-            this.storeInboxInfo(userIdInbox, prunedDto);
-        }
+            return this.pruneJobs(homedir, userIdInbox, dto);
+        });
     }
 
     @Override
@@ -2478,28 +2501,28 @@ public final class InboxServiceImpl implements InboxService {
     public InboxInfoDto pruneForFastProxyPrint(final String userId,
             final Date expiryRef, final int expiryMins) {
 
-        final InboxInfoDto currentInfo = this.getInboxInfo(userId);
+        // Scan for unknown documents.
+        this.getInboxInfo(userId);
 
-        final InboxInfoDto prunedInfoFast =
-                this.pruneForFastProxyPrint(currentInfo, expiryRef, expiryMins);
+        return this.updateInboxInfo(userId, currentInfo -> {
 
-        /*
-         * If SAME object is returned, we know nothing was changed.
-         */
-        if (currentInfo == prunedInfoFast) {
-            return currentInfo;
-        }
-
-        /*
-         * Prune the jobs (this will actually delete the pruned job files in the
-         * user home directory as well) and store them.
-         */
-        final InboxInfoDto prunedInfoPersist = this.pruneJobs(
-                ConfigManager.getUserHomeDir(userId), userId, prunedInfoFast);
+            final InboxInfoDto prunedInfoFast = this.pruneForFastProxyPrint(
+                    currentInfo, expiryRef, expiryMins);
 
-        this.storeInboxInfo(userId, prunedInfoPersist);
+            /*
+             * If SAME object is returned, we know nothing was changed.
+             */
+            if (currentInfo == prunedInfoFast) {
+                return null;
+            }
 
-        return prunedInfoPersist;
+            /*
+             * Prune the jobs (this will actually delete the pruned job files
+             * in the user home directory as well) and store them.
+             */
+            return this.pruneJobs(ConfigManager.getUserHomeDir(userId), userId,
+                    prunedInfoFast);
+        });
     }
 
     /**
@@ -2518,11 +2541,10 @@ public final class InboxServiceImpl implements InboxService {
     @Override
     public InboxInfoDto touchLastPreviewTime(final String userIdInbox) {
 
-        final InboxInfoDto dto = this.readInboxInfo(userIdInbox);
-        this.touchLastPreviewTime(dto);
-        this.storeInboxInfo(userIdInbox, dto);
-
-        return dto;
+        return this.updateInboxInfo(userIdInbox, dto -> {
+            this.touchLastPreviewTime(dto);
+            return dto;
+        });
     }
 
     @Override
@@ -24,20 +24,16 @@
  */
 package org.savapage.core.services.impl;
 
-import static java.nio.file.FileVisitResult.CONTINUE;
-
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.math.BigDecimal;
-import java.nio.file.FileVisitResult;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -56,6 +52,10 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.mail.MessagingException;
 
@@ -75,6 +75,7 @@ import org.savapage.core.dao.enums.ExternalSupplierStatusEnum;
 import org.savapage.core.dao.enums.PrintModeEnum;
 import org.savapage.core.dao.enums.PrinterAttrEnum;
 import org.savapage.core.doc.DocContent;
+import org.savapage.core.doc.PdfConvertCache;
 import org.savapage.core.doc.PdfToBooklet;
 import org.savapage.core.doc.PdfToGrayscale;
 import org.savapage.core.doc.store.DocStoreException;
@@ -118,6 +119,7 @@ import org.savapage.core.services.ServiceContext;
 import org.savapage.core.services.helpers.DocContentPrintInInfo;
 import org.savapage.core.services.helpers.ExternalSupplierInfo;
 import org.savapage.core.services.helpers.JobTicketExecParms;
+import org.savapage.core.services.helpers.JobTicketIndex;
 import org.savapage.core.services.helpers.JobTicketLabelCache;
 import org.savapage.core.services.helpers.JobTicketQueueInfo;
 import org.savapage.core.services.helpers.JobTicketStats;
@@ -191,6 +193,9 @@ public final class JobTicketServiceImpl extends AbstractService
     /** By Ticket Number. */
     private ConcurrentHashMap<String, OutboxJobDto> reopenedTicketCache;
 
+    /** Secondary indexes of {@link #jobTicketCache}. */
+    private JobTicketIndex jobTicketIndex;
+
     /** */
     private JobTicketQueueInfo jobTicketQueueInfo;
 
@@ -283,9 +288,8 @@ public final class JobTicketServiceImpl extends AbstractService
             try {
                 final OutboxJobDto dto = this.serviceImpl.addJobticketToCache(
                         lockedUser, createInfo, uuid, request, this.submitDate,
-                        this.deliveryDate, this.label, chunkIndex, chunkSize);
-
-                dto.setPrinterGroupIDs(this.printerGroupIDs);
+                        this.deliveryDate, this.label, chunkIndex, chunkSize,
+                        this.printerGroupIDs);
 
                 ticketsCreated.add(dto);
 
@@ -329,7 +333,7 @@ public final class JobTicketServiceImpl extends AbstractService
 
         final OutboxJobDto dto = this.addJobticketToCache(lockedUser,
                 createInfo, uuid, request, ServiceContext.getTransactionDate(),
-                deliveryDate, this.createTicketLabel(label), 1, 1);
+                deliveryDate, this.createTicketLabel(label), 1, 1, null);
 
         final String msgKey = "msg-user-print-jobticket-print";
 
@@ -362,6 +366,9 @@ public final class JobTicketServiceImpl extends AbstractService
      *            1-based index of chunkSize;
      * @param chunkSize
      *            Total number of chunks;
+     * @param printerGroupIDs
+     *            The printer group IDs of the ticket printer. Can be
+     *            {@code null}.
      *
      * @return The Job Ticket added to the cache.
      * @throws IOException
@@ -371,7 +378,8 @@ public final class JobTicketServiceImpl extends AbstractService
             final PdfCreateInfo createInfo, final UUID uuid,
             final AbstractProxyPrintReq request, final Date submitDate,
             final Date deliveryDate, final String label, final int chunkIndex,
-            final int chunkSize) throws IOException {
+            final int chunkSize, final Set<Long> printerGroupIDs)
+            throws IOException {
 
         final OutboxJobDto dto = outboxService().createOutboxJob(request,
                 submitDate, deliveryDate, createInfo);
@@ -381,6 +389,7 @@ public final class JobTicketServiceImpl extends AbstractService
 
         dto.setChunkIndex(Integer.valueOf(chunkIndex));
         dto.setChunkSize(Integer.valueOf(chunkSize));
+        dto.setPrinterGroupIDs(printerGroupIDs);
 
         //
         final StringBuilder ticketNumber = new StringBuilder();
@@ -427,6 +436,7 @@ public final class JobTicketServiceImpl extends AbstractService
 
         this.jobTicketCache.put(uuid, dto);
         this.jobTicketsByNumber.put(dto.getTicketNumber(), dto);
+        this.indexTicket(uuid, dto);
 
         if (this.isReopenedTicketNumber(dto.getTicketNumber())) {
             this.reopenedTicketCache.put(dto.getTicketNumber(), dto);
@@ -435,6 +445,38 @@ public final class JobTicketServiceImpl extends AbstractService
         this.incrementStats(dto);
     }
 
+    /**
+     * Puts a cached Job Ticket in {@link #jobTicketIndex}.
+     *
+     * @param uuid
+     *            The Job Ticket {@link UUID}.
+     * @param dto
+     *            Job Ticket.
+     */
+    private void indexTicket(final UUID uuid, final OutboxJobDto dto) {
+        this.jobTicketIndex.put(uuid, dto.getUserId(), dto.getTicketNumber(),
+                dto.getPrinterGroupIDs(), dto.getExpiryTime());
+    }
+
+    /**
+     * Sets the printer group IDs of a cached Job Ticket, and re-indexes it.
+     * This is done under the lock of the cache entry, so a ticket removed
+     * concurrently is not indexed again.
+     *
+     * @param uuid
+     *            The Job Ticket {@link UUID}.
+     * @param printerGroupIDs
+     *            The printer group IDs.
+     */
+    private void setPrinterGroupIDs(final UUID uuid,
+            final Set<Long> printerGroupIDs) {
+        this.jobTicketCache.computeIfPresent(uuid, (k, dto) -> {
+            dto.setPrinterGroupIDs(printerGroupIDs);
+            this.indexTicket(k, dto);
+            return dto;
+        });
+    }
+
     /**
      * Gets the full file path of a Job Ticket file.
      *
@@ -517,77 +559,105 @@ public final class JobTicketServiceImpl extends AbstractService
     }
 
     /**
-     * Initializes job ticket cache.
+     * Reads a job ticket JSON file.
+     *
+     * @param file
+     *            The JSON file.
+     * @return The job ticket, or {@code null} when the layout of the JSON
+     *         file changed.
+     * @throws IOException
+     *             When IO error.
+     */
+    private static OutboxJobDto readTicketFile(final Path file)
+            throws IOException {
+        try {
+            return JsonHelper.read(OutboxJobDto.class, file.toFile());
+        } catch (JsonMappingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Initializes job ticket cache. The job ticket JSON files are read in
+     * parallel.
      *
      * @param svc
      *            This service.
-     * @param jobTicketMap
-     *            Cache on UUID.
-     * @param jobTicketNumbers
-     *            Cache on Ticket number
-     * @param reopenedTicketCache
-     *            Reopened ticket cache on Ticket number.
      * @param queueInfo
      *            The queue info to update.
      * @throws IOException
      *             When IO error.
      */
     private static void initTicketCache(final JobTicketServiceImpl svc,
-            final ConcurrentHashMap<UUID, OutboxJobDto> jobTicketMap,
-            final ConcurrentHashMap<String, OutboxJobDto> jobTicketNumbers,
-            final ConcurrentHashMap<String, OutboxJobDto> reopenedTicketCache,
             final JobTicketQueueInfo queueInfo) throws IOException {
 
-        final Set<UUID> uuidToDelete = new HashSet<>();
+        final List<Path> jsonFiles = new ArrayList<>();
 
-        final Map<String, Set<Long>> lookupGroupIDs = new HashMap<>();
+        try (DirectoryStream<Path> stream =
+                Files.newDirectoryStream(ConfigManager.getJobTicketsHome())) {
+            for (final Path file : stream) {
+                if (FilenameUtils.getExtension(file.toString())
+                        .equalsIgnoreCase(FILENAME_EXT_JSON)) {
+                    jsonFiles.add(file);
+                }
+            }
+        }
 
-        final SimpleFileVisitor<Path> visitor = new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(final Path file,
-                    final BasicFileAttributes attrs) throws IOException {
+        if (jsonFiles.isEmpty()) {
+            return;
+        }
 
-                final String filePath = file.toString();
+        final Set<UUID> uuidToDelete = new HashSet<>();
 
-                if (!FilenameUtils.getExtension(filePath)
-                        .equalsIgnoreCase(FILENAME_EXT_JSON)) {
-                    return CONTINUE;
-                }
+        final Map<String, Set<Long>> lookupGroupIDs = new HashMap<>();
 
-                final UUID uuid =
-                        UUID.fromString(FilenameUtils.getBaseName(filePath));
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(jsonFiles.size(),
+                        Runtime.getRuntime().availableProcessors()));
 
-                try {
-                    final OutboxJobDto dto =
-                            JsonHelper.read(OutboxJobDto.class, file.toFile());
+        try {
+            final List<Future<OutboxJobDto>> futures =
+                    new ArrayList<>(jsonFiles.size());
 
-                    final String lookupKey = dto.getPrinter();
-                    if (!lookupGroupIDs.containsKey(lookupKey)) {
-                        lookupGroupIDs.put(lookupKey,
-                                svc.getTicketPrinterGroupIDs(dto.getPrinter()));
-                    }
-                    dto.setPrinterGroupIDs(lookupGroupIDs.get(lookupKey));
+            for (final Path file : jsonFiles) {
+                futures.add(executor.submit(() -> readTicketFile(file)));
+            }
 
-                    jobTicketMap.put(uuid, dto);
-                    jobTicketNumbers.put(dto.getTicketNumber(), dto);
+            for (int i = 0; i < jsonFiles.size(); i++) {
 
-                    if (svc.isReopenedTicket(dto)) {
-                        reopenedTicketCache.put(dto.getTicketNumber(), dto);
-                    }
+                final UUID uuid = UUID.fromString(FilenameUtils
+                        .getBaseName(jsonFiles.get(i).toString()));
 
-                    incrementStats(queueInfo, dto);
+                final OutboxJobDto dto = getTicketRead(futures.get(i));
 
-                } catch (JsonMappingException e) {
+                if (dto == null) {
                     /*
                      * There has been a change in layout of the JSON file...
                      */
                     uuidToDelete.add(uuid);
+                    continue;
                 }
-                return CONTINUE;
-            }
-        };
 
-        Files.walkFileTree(ConfigManager.getJobTicketsHome(), visitor);
+                final String lookupKey = dto.getPrinter();
+                if (!lookupGroupIDs.containsKey(lookupKey)) {
+                    lookupGroupIDs.put(lookupKey,
+                            svc.getTicketPrinterGroupIDs(dto.getPrinter()));
+                }
+                dto.setPrinterGroupIDs(lookupGroupIDs.get(lookupKey));
+
+                svc.jobTicketCache.put(uuid, dto);
+                svc.jobTicketsByNumber.put(dto.getTicketNumber(), dto);
+                svc.indexTicket(uuid, dto);
+
+                if (svc.isReopenedTicket(dto)) {
+                    svc.reopenedTicketCache.put(dto.getTicketNumber(), dto);
+                }
+
+                incrementStats(queueInfo, dto);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
 
         /*
          * Clean up misfits?
@@ -607,17 +677,42 @@ public final class JobTicketServiceImpl extends AbstractService
         }
     }
 
+    /**
+     * Gets the result of a job ticket file read.
+     *
+     * @param future
+     *            The read.
+     * @return The job ticket, or {@code null} when the layout of the JSON
+     *         file changed.
+     * @throws IOException
+     *             When IO error.
+     */
+    private static OutboxJobDto getTicketRead(
+            final Future<OutboxJobDto> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new SpException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
     @Override
     public void start() {
 
         this.jobTicketCache = new ConcurrentHashMap<>();
         this.jobTicketsByNumber = new ConcurrentHashMap<>();
         this.reopenedTicketCache = new ConcurrentHashMap<>();
+        this.jobTicketIndex = new JobTicketIndex();
         this.jobTicketQueueInfo = new JobTicketQueueInfo();
 
         try {
-            initTicketCache(this, this.jobTicketCache, this.jobTicketsByNumber,
-                    this.reopenedTicketCache, this.jobTicketQueueInfo);
+            initTicketCache(this, this.jobTicketQueueInfo);
         } catch (IOException e) {
             throw new SpException(e.getMessage(), e);
         }
@@ -754,9 +849,7 @@ public final class JobTicketServiceImpl extends AbstractService
             dto = this.addJobticketToCache(user, null, uuid, request,
                     submitDate,
                     this.getTicketDeliveryDate(submitDate, deliveryDate),
-                    this.createTicketLabel(label), 1, 1);
-
-            dto.setPrinterGroupIDs(
+                    this.createTicketLabel(label), 1, 1,
                     this.getTicketPrinterGroupIDs(request.getPrinterName()));
 
             final String msgKey = "msg-user-print-jobticket-copy";
@@ -907,8 +1000,14 @@ public final class JobTicketServiceImpl extends AbstractService
 
     @Override
     public List<OutboxJobDto> getTickets(final JobTicketFilter filter) {
+        final Long deliveryTimeMax;
+        if (filter.getDeliveryDateTo() == null) {
+            deliveryTimeMax = null;
+        } else {
+            deliveryTimeMax = filter.getDeliveryDateTo().getTime();
+        }
         return filterTickets(filter.getUserId(), filter.getSearchTicketId(),
-                filter.getPrinterGroupID());
+                filter.getPrinterGroupID(), deliveryTimeMax);
     }
 
     @Override
@@ -929,7 +1028,7 @@ public final class JobTicketServiceImpl extends AbstractService
     @Override
     public int cancelTickets(final Long userId) {
         int nRemoved = 0;
-        for (final OutboxJobDto dto : filterTickets(userId, null, null)) {
+        for (final OutboxJobDto dto : filterTickets(userId, null, null, null)) {
             if (StringUtils.isBlank(dto.getPrinterRedirect())) {
                 if (cancelTicket(dto.getFile()) != null) {
                     nRemoved++;
@@ -948,28 +1047,13 @@ public final class JobTicketServiceImpl extends AbstractService
 
         final List<String> tickets = new ArrayList<>();
 
-        final String searchSeq =
-                StringUtils.defaultString(searchTicketId).toLowerCase();
-
-        int nItems = 0;
-
-        for (final OutboxJobDto dto : this.jobTicketCache.values()) {
-
-            if (userId != null && !dto.getUserId().equals(userId)) {
-                continue;
-            }
-
-            if (!searchSeq.isEmpty() && !StringUtils
-                    .contains(dto.getTicketNumber().toLowerCase(), searchSeq)) {
-                continue;
-            }
-
-            tickets.add(dto.getTicketNumber());
+        for (final UUID uuid : this.jobTicketIndex.select(userId,
+                searchTicketId, null, null, maxItems)) {
 
-            nItems++;
+            final OutboxJobDto dto = this.jobTicketCache.get(uuid);
 
-            if (nItems == maxItems) {
-                break;
+            if (dto != null) {
+                tickets.add(dto.getTicketNumber());
             }
         }
         return tickets;
@@ -985,45 +1069,25 @@ public final class JobTicketServiceImpl extends AbstractService
      *            Part of a ticket id as case-insensitive search argument.
      * @param printerGroupID
      *            See {@link PrinterGroup#getId()}.
+     * @param deliveryTimeMax
+     *            Max delivery time as in {@link Date#getTime()}, or
+     *            {@code null} for all.
      * @return The Job Tickets.
      */
     private List<OutboxJobDto> filterTickets(final Long userId,
-            final String searchTicketId, final Long printerGroupID) {
+            final String searchTicketId, final Long printerGroupID,
+            final Long deliveryTimeMax) {
 
         final List<OutboxJobDto> tickets = new ArrayList<>();
 
-        final String searchSeq =
-                StringUtils.defaultString(searchTicketId).toLowerCase();
-
-        for (final Entry<UUID, OutboxJobDto> entry : this.jobTicketCache
-                .entrySet()) {
-
-            // Filter #1
-            if (userId != null
-                    && !entry.getValue().getUserId().equals(userId)) {
-                continue;
-            }
-
-            // Filter #2
-            if (!searchSeq.isEmpty() && !StringUtils.contains(
-                    entry.getValue().getTicketNumber().toLowerCase(),
-                    searchSeq)) {
-                continue;
-            }
-
-            // Filter #3
-            if (printerGroupID != null && printerGroupID.longValue() > 0
-                    && !entry.getValue().getPrinterGroupIDs()
-                            .contains(printerGroupID)) {
-                continue;
-            }
-
+        for (final UUID uuid : this.jobTicketIndex.select(userId,
+                searchTicketId, printerGroupID, deliveryTimeMax, 0)) {
             /*
              * Create a new localized copy.
              */
             try {
                 final OutboxJobDto dto = JsonHelper.read(OutboxJobDto.class,
-                        getJobTicketFile(entry.getKey(), FILENAME_EXT_JSON));
+                        getJobTicketFile(uuid, FILENAME_EXT_JSON));
 
                 tickets.add(dto);
 
@@ -1031,7 +1095,7 @@ public final class JobTicketServiceImpl extends AbstractService
 
                 if (LOGGER.isWarnEnabled()) {
                     LOGGER.warn(String.format("Job Ticket [%s] cannot be read.",
-                            entry.getKey().toString()));
+                            uuid.toString()));
                 }
             }
         }
@@ -1064,6 +1128,7 @@ public final class JobTicketServiceImpl extends AbstractService
         final OutboxJobDto dto = this.jobTicketCache.remove(uuid);
 
         this.jobTicketsByNumber.remove(dto.getTicketNumber());
+        this.jobTicketIndex.remove(uuid);
 
         if (this.isReopenedTicketNumber(dto.getTicketNumber())) {
             this.reopenedTicketCache.remove(dto.getTicketNumber());
@@ -1214,8 +1279,10 @@ public final class JobTicketServiceImpl extends AbstractService
 
         final Map<String, Set<Long>> lookupGroupIDs = new HashMap<>();
 
-        for (final OutboxJobDto dto : this.jobTicketCache.values()) {
+        for (final Entry<UUID, OutboxJobDto> entry : this.jobTicketCache
+                .entrySet()) {
 
+            final OutboxJobDto dto = entry.getValue();
             final String lookupKey = dto.getPrinter();
 
             if (!lookupGroupIDs.containsKey(lookupKey)) {
@@ -1223,7 +1290,8 @@ public final class JobTicketServiceImpl extends AbstractService
                         this.getTicketPrinterGroupIDs(dto.getPrinter()));
             }
 
-            dto.setPrinterGroupIDs(lookupGroupIDs.get(lookupKey));
+            this.setPrinterGroupIDs(entry.getKey(),
+                    lookupGroupIDs.get(lookupKey));
         }
     }
 
@@ -1239,9 +1307,10 @@ public final class JobTicketServiceImpl extends AbstractService
 
         final String printerName = printer.getPrinterName();
 
-        for (final OutboxJobDto dto : this.jobTicketCache.values()) {
-            if (printerName.equalsIgnoreCase(dto.getPrinter())) {
-                dto.setPrinterGroupIDs(printerGroupIDs);
+        for (final Entry<UUID, OutboxJobDto> entry : this.jobTicketCache
+                .entrySet()) {
+            if (printerName.equalsIgnoreCase(entry.getValue().getPrinter())) {
+                this.setPrinterGroupIDs(entry.getKey(), printerGroupIDs);
             }
         }
     }
@@ -1266,6 +1335,7 @@ public final class JobTicketServiceImpl extends AbstractService
 
         this.jobTicketCache.put(uuid, dto);
         this.jobTicketsByNumber.put(dto.getTicketNumber(), dto);
+        this.indexTicket(uuid, dto);
 
         if (this.isReopenedTicketNumber(dto.getTicketNumber())) {
             this.reopenedTicketCache.put(dto.getTicketNumber(), dto);
@@ -1521,16 +1591,18 @@ public final class JobTicketServiceImpl extends AbstractService
 
         try {
             if (isClientSideGrayscaleConversion(dto, printer)) {
-                pdfFileToPrint = new PdfToGrayscale(
-                        new File(ConfigManager.getAppTmpDir()))
-                                .convert(pdfFileToPrint);
+                pdfFileToPrint = PdfConvertCache.instance().convert(
+                        new PdfToGrayscale(
+                                new File(ConfigManager.getAppTmpDir())),
+                        pdfFileToPrint);
                 files2Delete.add(pdfFileToPrint);
             }
 
             if (isClientSideBooklet(dto, printer)) {
-                pdfFileToPrint =
-                        new PdfToBooklet(new File(ConfigManager.getAppTmpDir()))
-                                .convert(pdfFileToPrint);
+                pdfFileToPrint = PdfConvertCache.instance().convert(
+                        new PdfToBooklet(
+                                new File(ConfigManager.getAppTmpDir())),
+                        pdfFileToPrint);
                 files2Delete.add(pdfFileToPrint);
             }
 
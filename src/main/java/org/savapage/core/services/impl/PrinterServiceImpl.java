@@ -26,6 +26,7 @@ package org.savapage.core.services.impl;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -34,8 +35,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -73,6 +72,7 @@ import org.savapage.core.print.proxy.JsonProxyPrinterOpt;
 import org.savapage.core.print.proxy.JsonProxyPrinterOptChoice;
 import org.savapage.core.services.PrinterService;
 import org.savapage.core.services.ServiceContext;
+import org.savapage.core.services.helpers.PrinterAccessIndex;
 import org.savapage.core.services.helpers.PrinterAttrLookup;
 import org.savapage.core.snmp.SnmpPrtMarkerColorantEntry;
 import org.savapage.core.snmp.SnmpPrtMarkerColorantValueEnum;
@@ -98,12 +98,6 @@ public final class PrinterServiceImpl extends AbstractService
     private static final Logger LOGGER =
             LoggerFactory.getLogger(PrinterServiceImpl.class);
 
-    /** */
-    private static final boolean ACCESS_ALLOWED = true;
-
-    /** */
-    private static final boolean ACCESS_DENIED = !ACCESS_ALLOWED;
-
     @Override
     public boolean isInternalPrinter(final Long id) {
 
@@ -969,74 +963,27 @@ public final class PrinterServiceImpl extends AbstractService
     public boolean isPrinterAccessGranted(final Printer printer,
             final User user) {
 
-        final JsonUserGroupAccess access = this.getAccessControl(printer);
-
-        final AccessControlScopeEnum scope = access.getScope();
-
-        if (access.getGroups().isEmpty()) {
+        return PrinterAccessIndex.instance().isAccessGranted(printer.getId(),
+                () -> this.getAccessControl(printer), user.getId(),
+                () -> getGroupNames(user));
+    }
 
-            if (scope == AccessControlScopeEnum.DENY) {
-                /*
-                 * Since no group is denied, everybody is allowed.
-                 */
-                return ACCESS_ALLOWED;
-            } else {
-                /*
-                 * Since no group is allowed, everybody is denied.
-                 */
-                return ACCESS_DENIED;
-            }
-        }
+    /**
+     * @param user
+     *            The user.
+     * @return The names of the groups the user is member of.
+     */
+    private static Collection<String> getGroupNames(final User user) {
 
         final List<UserGroupMember> memberships = user.getGroupMembership();
+        final List<String> names = new ArrayList<>();
 
-        /*
-         * Group membership is needed for ALLOW scope.
-         */
-        if (memberships == null || memberships.isEmpty()) {
-
-            if (scope == AccessControlScopeEnum.DENY) {
-                /*
-                 * Since some groups are denied, any non-member user is allowed.
-                 */
-                return ACCESS_ALLOWED;
-            } else {
-                /*
-                 * Since some groups are allowed, any non-member user is denied.
-                 */
-                return ACCESS_DENIED;
+        if (memberships != null) {
+            for (final UserGroupMember membership : memberships) {
+                names.add(membership.getGroup().getGroupName());
             }
         }
-
-        /*
-         * Check printer access with user group membership.
-         */
-        final SortedSet<String> accessGroups = new TreeSet<>();
-        accessGroups.addAll(access.getGroups());
-
-        for (final UserGroupMember membership : memberships) {
-
-            if (accessGroups.contains(membership.getGroup().getGroupName())) {
-
-                /*
-                 * User is part of printer access group.
-                 */
-                if (scope == AccessControlScopeEnum.DENY) {
-                    return ACCESS_DENIED;
-                } else {
-                    return ACCESS_ALLOWED;
-                }
-            }
-        }
-
-        /*
-         * User is NOT part of ANY printer access group.
-         */
-        if (scope == AccessControlScopeEnum.DENY) {
-            return ACCESS_ALLOWED;
-        } else {
-            return ACCESS_DENIED;
-        }
+        return names;
     }
 
     @Override
@@ -33,6 +33,7 @@ import java.net.URL;
 import java.net.UnknownHostException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -42,6 +43,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.print.attribute.standard.MediaSizeName;
 
@@ -84,6 +90,7 @@ import org.savapage.core.ipp.attribute.IppDictOperationAttr;
 import org.savapage.core.ipp.attribute.IppDictPrinterDescAttr;
 import org.savapage.core.ipp.attribute.IppDictSubscriptionAttr;
 import org.savapage.core.ipp.attribute.syntax.IppBoolean;
+import org.savapage.core.ipp.attribute.syntax.IppInteger;
 import org.savapage.core.ipp.attribute.syntax.IppKeyword;
 import org.savapage.core.ipp.client.IppClient;
 import org.savapage.core.ipp.client.IppConnectException;
@@ -91,6 +98,7 @@ import org.savapage.core.ipp.client.IppReqCupsGetPpd;
 import org.savapage.core.ipp.client.IppReqPrintJob;
 import org.savapage.core.ipp.encoding.IppDelimiterTag;
 import org.savapage.core.ipp.helpers.IppOptionMap;
+import org.savapage.core.ipp.operation.IppGetJobsOperation;
 import org.savapage.core.ipp.operation.IppGetPrinterAttrOperation;
 import org.savapage.core.ipp.operation.IppOperationId;
 import org.savapage.core.ipp.operation.IppStatusCode;
@@ -268,6 +276,9 @@ public final class ProxyPrintServiceImpl extends AbstractProxyPrintService {
         // The printers that are a CUPS printer class.
         final List<CupsPrinterClass> printerClasses = new ArrayList<>();
 
+        // The printers to retrieve details for.
+        final List<CupsPrinterDetailsTask> detailTasks = new ArrayList<>();
+
         //
         final boolean remoteCupsEnabled = ConfigManager.instance()
                 .isConfigValue(Key.CUPS_IPP_REMOTE_ENABLED);
@@ -328,12 +339,10 @@ public final class ProxyPrintServiceImpl extends AbstractProxyPrintService {
                 continue;
             }
 
-            final boolean isPpdPresent;
-
-            if (IppPrinterType.hasProperty(printerType,
-                    IppPrinterType.BitEnum.PRINTER_CLASS)) {
+            final boolean isPrinterClass = IppPrinterType
+                    .hasProperty(printerType, IppPrinterType.BitEnum.PRINTER_CLASS);
 
-                isPpdPresent = false;
+            if (isPrinterClass) {
 
                 final String printerName = group
                         .getAttrSingleValue(
@@ -352,8 +361,6 @@ public final class ProxyPrintServiceImpl extends AbstractProxyPrintService {
                 }
 
                 printerClasses.add(printerClass);
-            } else {
-                isPpdPresent = isCupsPpdPresent(uriPrinter);
             }
 
             /*
@@ -366,26 +373,19 @@ public final class ProxyPrintServiceImpl extends AbstractProxyPrintService {
                 continue;
             }
 
-            /*
-             * Retrieve printer details.
-             */
-            try {
-                final JsonProxyPrinter proxyPrinterDetails =
-                        retrieveCupsPrinterDetails(
-                                proxyPrinterFromGroup.getName(),
-                                proxyPrinterFromGroup.getPrinterUri());
-
-                if (proxyPrinterDetails != null) {
-
-                    proxyPrinterDetails.setPpdPresent(isPpdPresent);
-
-                    printers.add(proxyPrinterDetails);
-                    printerMap.put(proxyPrinterDetails.getName(),
-                            proxyPrinterDetails);
-                }
+            detailTasks.add(new CupsPrinterDetailsTask(proxyPrinterFromGroup,
+                    uriPrinter, isPrinterClass));
+        }
 
-            } catch (IppConnectException e) {
-                // noop
+        /*
+         * Retrieve printer details (concurrently).
+         */
+        for (final JsonProxyPrinter proxyPrinterDetails : this
+                .retrieveCupsPrinterDetails(detailTasks)) {
+            if (proxyPrinterDetails != null) {
+                printers.add(proxyPrinterDetails);
+                printerMap.put(proxyPrinterDetails.getName(),
+                        proxyPrinterDetails);
             }
         }
 
@@ -470,6 +470,184 @@ public final class ProxyPrintServiceImpl extends AbstractProxyPrintService {
         return printers;
     }
 
+    /**
+     * Retrieves the details of a printer listed by CUPS-Get-Printers.
+     */
+    private final class CupsPrinterDetailsTask
+            implements Callable<JsonProxyPrinter> {
+
+        /**
+         * The printer as created from the CUPS-Get-Printers group.
+         */
+        private final JsonProxyPrinter printerFromGroup;
+
+        /** */
+        private final URI printerUri;
+
+        /** */
+        private final boolean printerClass;
+
+        /**
+         * @param printer
+         *            The printer as created from the CUPS-Get-Printers group.
+         * @param uri
+         *            The printer URI.
+         * @param isPrinterClass
+         *            {@code true} if printer is a CUPS printer class.
+         */
+        CupsPrinterDetailsTask(final JsonProxyPrinter printer, final URI uri,
+                final boolean isPrinterClass) {
+            this.printerFromGroup = printer;
+            this.printerUri = uri;
+            this.printerClass = isPrinterClass;
+        }
+
+        /**
+         * @return The printer details, or {@code null} when not found or
+         *         details could not be retrieved.
+         * @throws IppConnectException
+         *             When CUPS PPD presence could not be checked.
+         */
+        @Override
+        public JsonProxyPrinter call() throws IppConnectException {
+
+            if (!this.printerClass) {
+
+                final JsonProxyPrinter cached =
+                        getCachedPrinter(this.printerFromGroup.getName());
+
+                if (isCupsPrinterUnchanged(cached, this.printerFromGroup)) {
+                    return refreshCupsPrinterState(cached,
+                            this.printerFromGroup);
+                }
+            }
+
+            final boolean isPpdPresent =
+                    !this.printerClass && isCupsPpdPresent(this.printerUri);
+
+            final JsonProxyPrinter details;
+
+            try {
+                details = retrieveCupsPrinterDetails(
+                        this.printerFromGroup.getName(),
+                        this.printerFromGroup.getPrinterUri());
+            } catch (IppConnectException e) {
+                return null;
+            }
+
+            if (details != null) {
+                details.setPpdPresent(isPpdPresent);
+                details.setConfigChangeTime(
+                        this.printerFromGroup.getConfigChangeTime());
+            }
+            return details;
+        }
+    }
+
+    /**
+     * Checks if a cached CUPS printer is unchanged, according to its IPP
+     * printer-config-change-time.
+     *
+     * @param cached
+     *            The cached printer (can be {@code null}).
+     * @param printerFromGroup
+     *            The printer as created from the CUPS-Get-Printers group.
+     * @return {@code true} if cached printer is unchanged.
+     */
+    private static boolean isCupsPrinterUnchanged(final JsonProxyPrinter cached,
+            final JsonProxyPrinter printerFromGroup) {
+
+        return cached != null && printerFromGroup.getConfigChangeTime() != null
+                && printerFromGroup.getConfigChangeTime()
+                        .equals(cached.getConfigChangeTime())
+                && printerFromGroup.getPrinterUri()
+                        .equals(cached.getPrinterUri());
+    }
+
+    /**
+     * Creates a copy of a cached CUPS printer, with the state of the
+     * CUPS-Get-Printers group. The cached printer itself is left untouched,
+     * since it is shared: the copy replaces it when the cache is replaced as
+     * a whole.
+     *
+     * @param cached
+     *            The cached printer.
+     * @param printerFromGroup
+     *            The printer as created from the CUPS-Get-Printers group.
+     * @return The refreshed copy.
+     */
+    private static JsonProxyPrinter refreshCupsPrinterState(
+            final JsonProxyPrinter cached,
+            final JsonProxyPrinter printerFromGroup) {
+
+        final JsonProxyPrinter refreshed = cached.copy();
+
+        refreshed.setAcceptingJobs(printerFromGroup.getAcceptingJobs());
+        refreshed.setState(printerFromGroup.getState());
+        refreshed.setStateChangeTime(printerFromGroup.getStateChangeTime());
+        refreshed.setStateReasons(printerFromGroup.getStateReasons());
+        refreshed.setInfo(printerFromGroup.getInfo());
+        refreshed.setLocation(printerFromGroup.getLocation());
+        refreshed.setCacheRefresh(true);
+
+        return refreshed;
+    }
+
+    /**
+     * Executes {@link CupsPrinterDetailsTask} objects, with a maximum number
+     * of concurrent tasks as configured by
+     * {@link Key#CUPS_IPP_PRINTER_CACHE_PARALLELISM}. Each IPP request is
+     * guarded by the CUPS {@link org.savapage.core.circuitbreaker.CircuitBreaker}
+     * in {@link IppClient}.
+     *
+     * @param tasks
+     *            The tasks.
+     * @return The printer details in the same order as the tasks. An element
+     *         is {@code null} when details could not be retrieved.
+     * @throws IppConnectException
+     *             When IPP connection failed.
+     */
+    private List<JsonProxyPrinter> retrieveCupsPrinterDetails(
+            final List<CupsPrinterDetailsTask> tasks)
+            throws IppConnectException {
+
+        final List<JsonProxyPrinter> details = new ArrayList<>();
+
+        final ConfigManager cm = ConfigManager.instance();
+
+        final int parallelism = Math.max(1,
+                Math.min(cm.getConfigInt(Key.CUPS_IPP_PRINTER_CACHE_PARALLELISM),
+                        cm.getConfigInt(Key.CUPS_IPP_MAX_CONNECTIONS)));
+
+        if (parallelism == 1 || tasks.size() < 2) {
+            for (final CupsPrinterDetailsTask task : tasks) {
+                details.add(task.call());
+            }
+            return details;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelism, tasks.size()));
+
+        try {
+            for (final Future<JsonProxyPrinter> future : executor
+                    .invokeAll(tasks)) {
+                details.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IppConnectException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IppConnectException) {
+                throw (IppConnectException) e.getCause();
+            }
+            throw new SpException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return details;
+    }
+
     /**
      * Initializes a CUPS printer class from a class member.
      *
@@ -719,6 +897,8 @@ public final class ProxyPrintServiceImpl extends AbstractProxyPrintService {
                 .getAttrSingleValue(IppDictPrinterDescAttr.ATTR_PRINTER_STATE));
         printer.setStateChangeTime(group.getAttrSingleValue(
                 IppDictPrinterDescAttr.ATTR_PRINTER_STATE_CHANGE_TIME));
+        printer.setConfigChangeTime(group.getAttrSingleValue(
+                IppDictPrinterDescAttr.ATTR_PRINTER_CONFIG_CHANGE_TIME));
         printer.setStateReasons(group.getAttrSingleValue(
                 IppDictPrinterDescAttr.ATTR_PRINTER_STATE_REASONS));
 
@@ -1334,11 +1514,20 @@ public final class ProxyPrintServiceImpl extends AbstractProxyPrintService {
                 throw new IppConnectException(e);
             }
 
-            for (final Integer jobId : jobIds) {
-                final JsonProxyPrintJob job = retrievePrintJobUri(urlCupsServer,
-                        printerUri, null, jobId);
-                if (job != null) {
-                    jobs.add(job);
+            if (jobIds.size() > 1) {
+                /*
+                 * One Get-Jobs round trip instead of a Get-Job-Attributes
+                 * request for each job.
+                 */
+                jobs.addAll(retrievePrintJobsBatch(urlCupsServer, printerUri,
+                        jobIds));
+            } else {
+                for (final Integer jobId : jobIds) {
+                    final JsonProxyPrintJob job = retrievePrintJobUri(
+                            urlCupsServer, printerUri, null, jobId);
+                    if (job != null) {
+                        jobs.add(job);
+                    }
                 }
             }
 
@@ -1712,43 +1901,109 @@ public final class ProxyPrintServiceImpl extends AbstractProxyPrintService {
         final JsonProxyPrintJob job;
 
         if (statusCode == IppStatusCode.OK && response.size() > 1) {
+            job = createPrintJob(jobId, response.get(1));
+        } else {
+            job = null;
+        }
+        // ---------------
+        return job;
+    }
 
-            job = new JsonProxyPrintJob();
+    /**
+     * Retrieves print jobs of a printer with a single IPP Get-Jobs request.
+     *
+     * @param urlCupsServer
+     *            The URL of the CUPS server.
+     * @param uriPrinter
+     *            The printer URI.
+     * @param jobIds
+     *            The job ids to retrieve.
+     * @return The print jobs found.
+     * @throws IppConnectException
+     *             When a connection error occurs.
+     */
+    private List<JsonProxyPrintJob> retrievePrintJobsBatch(
+            final URL urlCupsServer, final String uriPrinter,
+            final Set<Integer> jobIds) throws IppConnectException {
+
+        final List<JsonProxyPrintJob> jobs = new ArrayList<>();
 
-            job.setJobId(jobId);
+        final List<IppAttrGroup> response = new ArrayList<>();
 
-            final IppAttrGroup group = response.get(1);
+        final IppStatusCode statusCode = ippClient.send(urlCupsServer,
+                IppOperationId.GET_JOBS,
+                reqGetJobs(uriPrinter, Collections.min(jobIds),
+                        Collections.max(jobIds)),
+                response);
 
-            job.setDest(group.getAttrSingleValue(
-                    IppDictJobDescAttr.ATTR_JOB_PRINTER_URI));
-            job.setTitle(
-                    group.getAttrSingleValue(IppDictJobDescAttr.ATTR_JOB_NAME));
+        if (statusCode != IppStatusCode.OK) {
+            return jobs;
+        }
 
-            job.setJobState(Integer.parseInt(
-                    group.getAttrSingleValue(IppDictJobDescAttr.ATTR_JOB_STATE),
-                    NumberUtil.RADIX_10));
-            job.setJobStateMessage(group.getAttrSingleValue(
-                    IppDictJobDescAttr.ATTR_JOB_STATE_MESSAGE));
-            job.setJobStateReasons(group
-                    .getAttrValues(IppDictJobDescAttr.ATTR_JOB_STATE_REASONS));
+        for (final IppAttrGroup group : response) {
 
-            job.setCreationTime(Integer.valueOf(
-                    group.getAttrSingleValue(
-                            IppDictJobDescAttr.ATTR_TIME_AT_CREATION),
-                    NumberUtil.RADIX_10));
+            if (group.getDelimiterTag() != IppDelimiterTag.JOB_ATTR) {
+                continue;
+            }
 
-            final String value = group.getAttrSingleValue(
-                    IppDictJobDescAttr.ATTR_TIME_AT_COMPLETED, "");
+            final String jobIdValue =
+                    group.getAttrSingleValue(IppDictJobDescAttr.ATTR_JOB_ID);
 
-            if (StringUtils.isNotBlank(value)) {
-                job.setCompletedTime(
-                        Integer.parseInt(value, NumberUtil.RADIX_10));
+            if (jobIdValue == null) {
+                continue;
             }
 
-        } else {
-            job = null;
+            final Integer jobId =
+                    Integer.valueOf(jobIdValue, NumberUtil.RADIX_10);
+
+            if (jobIds.contains(jobId)) {
+                jobs.add(createPrintJob(jobId, group));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Creates a print job from IPP job attributes.
+     *
+     * @param jobId
+     *            The job id.
+     * @param group
+     *            The IPP job attributes group.
+     * @return The print job.
+     */
+    private static JsonProxyPrintJob createPrintJob(final Integer jobId,
+            final IppAttrGroup group) {
+
+        final JsonProxyPrintJob job = new JsonProxyPrintJob();
+
+        job.setJobId(jobId);
+
+        job.setDest(group.getAttrSingleValue(
+                IppDictJobDescAttr.ATTR_JOB_PRINTER_URI));
+        job.setTitle(
+                group.getAttrSingleValue(IppDictJobDescAttr.ATTR_JOB_NAME));
+
+        job.setJobState(Integer.parseInt(
+                group.getAttrSingleValue(IppDictJobDescAttr.ATTR_JOB_STATE),
+                NumberUtil.RADIX_10));
+        job.setJobStateMessage(group.getAttrSingleValue(
+                IppDictJobDescAttr.ATTR_JOB_STATE_MESSAGE));
+        job.setJobStateReasons(group
+                .getAttrValues(IppDictJobDescAttr.ATTR_JOB_STATE_REASONS));
+
+        job.setCreationTime(Integer.valueOf(
+                group.getAttrSingleValue(
+                        IppDictJobDescAttr.ATTR_TIME_AT_CREATION),
+                NumberUtil.RADIX_10));
+
+        final String value = group.getAttrSingleValue(
+                IppDictJobDescAttr.ATTR_TIME_AT_COMPLETED, "");
+
+        if (StringUtils.isNotBlank(value)) {
+            job.setCompletedTime(
+                    Integer.parseInt(value, NumberUtil.RADIX_10));
         }
-        // ---------------
         return job;
     }
 
@@ -2188,6 +2443,69 @@ public final class ProxyPrintServiceImpl extends AbstractProxyPrintService {
         return attrGroups;
     }
 
+    /**
+     * Creates an IPP Get-Jobs request for all jobs of a printer in a job id
+     * range.
+     *
+     * @param uriPrinter
+     *            The printer URI.
+     * @param firstJobId
+     *            The first job id (CUPS "first-job-id" extension).
+     * @param lastJobId
+     *            The last job id: used to limit the number of jobs returned.
+     * @return The request.
+     */
+    private List<IppAttrGroup> reqGetJobs(final String uriPrinter,
+            final Integer firstJobId, final Integer lastJobId) {
+
+        final List<IppAttrGroup> attrGroups = new ArrayList<>();
+
+        /*
+         * Group 1: Operation Attributes
+         */
+        final IppAttrGroup group = createOperationGroup();
+        attrGroups.add(group);
+
+        final AbstractIppDict dict = IppDictOperationAttr.instance();
+
+        group.add(dict.getAttr(IppDictOperationAttr.ATTR_PRINTER_URI),
+                uriPrinter);
+
+        final IppAttrValue whichJobs = new IppAttrValue(
+                IppGetJobsOperation.ATTR_WHICH_JOBS, IppKeyword.instance());
+        whichJobs.addValue(IppGetJobsOperation.WHICH_JOB_ALL);
+        group.addAttribute(whichJobs);
+
+        final IppAttrValue firstJob =
+                new IppAttrValue(IppGetJobsOperation.ATTR_FIRST_JOB_ID,
+                        IppInteger.instance());
+        firstJob.addValue(firstJobId.toString());
+        group.addAttribute(firstJob);
+
+        group.add(dict.getAttr(IppDictOperationAttr.ATTR_LIMIT),
+                String.valueOf(lastJobId.intValue() - firstJobId.intValue()
+                        + 1));
+
+        final IppAttrValue reqAttr =
+                new IppAttrValue(IppDictOperationAttr.ATTR_REQUESTED_ATTRIBUTES,
+                        IppKeyword.instance());
+
+        for (final String value : new String[] {
+                IppDictJobDescAttr.ATTR_JOB_ID,
+                IppDictJobDescAttr.ATTR_JOB_PRINTER_URI,
+                IppDictJobDescAttr.ATTR_JOB_NAME,
+                IppDictJobDescAttr.ATTR_JOB_STATE,
+                IppDictJobDescAttr.ATTR_JOB_STATE_MESSAGE,
+                IppDictJobDescAttr.ATTR_JOB_STATE_REASONS,
+                IppDictJobDescAttr.ATTR_TIME_AT_CREATION,
+                IppDictJobDescAttr.ATTR_TIME_AT_COMPLETED }) {
+            reqAttr.addValue(value);
+        }
+        group.addAttribute(reqAttr);
+
+        return attrGroups;
+    }
+
     /**
      *
      * @param uriPrinter
@@ -2334,6 +2652,7 @@ public final class ProxyPrintServiceImpl extends AbstractProxyPrintService {
                 IppDictPrinterDescAttr.ATTR_PRINTER_LOCATION,
                 IppDictPrinterDescAttr.ATTR_PRINTER_STATE,
                 IppDictPrinterDescAttr.ATTR_PRINTER_STATE_CHANGE_TIME,
+                IppDictPrinterDescAttr.ATTR_PRINTER_CONFIG_CHANGE_TIME,
                 IppDictPrinterDescAttr.ATTR_PRINTER_STATE_REASONS,
                 IppDictPrinterDescAttr.ATTR_COLOR_SUPPORTED,
                 IppDictPrinterDescAttr.ATTR_PRINTER_MORE_INFO_MANUFACTURER,
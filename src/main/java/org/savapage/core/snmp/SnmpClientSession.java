@@ -26,7 +26,10 @@ package org.savapage.core.snmp;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.snmp4j.CommunityTarget;
@@ -61,6 +64,18 @@ public final class SnmpClientSession {
      */
     private Snmp snmp = null;
 
+    /**
+     * {@code true} when {@link #snmp} is shared with other sessions, and not
+     * owned by this session.
+     */
+    private final boolean isSharedSnmp;
+
+    /**
+     * Bindings retrieved by {@link #prefetch(OID[])}. A {@code null} value
+     * means the OID is not found.
+     */
+    private final Map<OID, VariableBinding> prefetched = new HashMap<>();
+
     /**
      * Information about where the data should be fetched and how.
      */
@@ -121,6 +136,35 @@ public final class SnmpClientSession {
     public SnmpClientSession(final String address, final String community,
             final SnmpVersionEnum version, final int retries,
             final int timeout) {
+        this(null, address, community, version, retries, timeout);
+    }
+
+    /**
+     * Constructor for a session that uses a shared {@link Snmp} transport,
+     * so many sessions (hosts) can be queried concurrently. The
+     * {@link #init()} and {@link #exit()} methods do not open or close the
+     * shared transport.
+     *
+     * @param sharedSnmp
+     *            The shared {@link Snmp}, see {@link #createSnmp()}. When
+     *            {@code null}, this session opens its own transport.
+     * @param address
+     *            For example: {@code "udp:10.10.3.38/161"}
+     * @param community
+     *            The community.
+     * @param version
+     *            The {@link SnmpVersionEnum} ({@code null} when undetermined).
+     * @param retries
+     *            Number of retries.
+     * @param timeout
+     *            Time-out in milliseconds.
+     */
+    public SnmpClientSession(final Snmp sharedSnmp, final String address,
+            final String community, final SnmpVersionEnum version,
+            final int retries, final int timeout) {
+
+        this.snmp = sharedSnmp;
+        this.isSharedSnmp = sharedSnmp != null;
 
         final Address targetAddress = GenericAddress.parse(address);
 
@@ -142,13 +186,44 @@ public final class SnmpClientSession {
      */
     public void init() throws IOException {
 
+        this.prefetched.clear();
+
+        if (this.isSharedSnmp) {
+            return;
+        }
+
         if (this.snmp != null) {
             exit();
         }
 
+        this.snmp = createSnmp();
+    }
+
+    /**
+     *
+     * @throws IOException
+     *             When closing {@link Snmp} fails.
+     */
+    public void exit() throws IOException {
+        if (this.snmp != null && !this.isSharedSnmp) {
+            this.snmp.close();
+            this.snmp = null;
+        }
+    }
+
+    /**
+     * Creates an {@link Snmp} on a listening UDP transport. Requests of many
+     * sessions can be multiplexed over this one transport.
+     *
+     * @return The {@link Snmp}. The caller is responsible for closing it.
+     * @throws IOException
+     *             When listening on {@link TransportMapping} fails.
+     */
+    public static Snmp createSnmp() throws IOException {
+
         final DefaultUdpTransportMapping transport =
                 new DefaultUdpTransportMapping();
-        this.snmp = new Snmp(transport);
+        final Snmp snmp = new Snmp(transport);
 
         /*
          * If you forget the listen() method you will not get any answers
@@ -156,18 +231,65 @@ public final class SnmpClientSession {
          * listens for answers.
          */
         transport.listen();
+
+        return snmp;
     }
 
     /**
+     * Retrieves scalar OIDs with one multi-varbind GET request, so subsequent
+     * {@link #getAsString(OID)}, {@link #getAsInt(OID)} etc. for these OIDs
+     * need no round trip.
+     * <p>
+     * An SNMPv1 agent fails the whole request when one OID is not found: the
+     * failing OID is marked as not found, and the request is repeated for the
+     * remaining OIDs. On any other error nothing is prefetched, and OIDs are
+     * retrieved one by one.
+     * </p>
      *
-     * @throws IOException
-     *             When closing {@link Snmp} fails.
+     * @param oids
+     *            The scalar OIDs.
+     * @throws SnmpConnectException
+     *             When SNMP connection fails.
      */
-    public void exit() throws IOException {
-        if (this.snmp != null) {
-            this.snmp.close();
-            this.snmp = null;
+    public void prefetch(final OID[] oids) throws SnmpConnectException {
+
+        final Map<OID, VariableBinding> bindings = new HashMap<>();
+        final List<OID> pending = new ArrayList<>(Arrays.asList(oids));
+
+        while (!pending.isEmpty()) {
+
+            final PDU response =
+                    this.getResponse(pending.toArray(new OID[pending.size()]));
+
+            final int status = response.getErrorStatus();
+
+            if (status == SnmpConstants.SNMP_ERROR_SUCCESS) {
+
+                for (int i = 0; i < pending.size(); i++) {
+
+                    final OID oid = pending.get(i);
+                    VariableBinding binding = null;
+
+                    if (i < response.size()
+                            && oid.equals(response.get(i).getOid())) {
+                        binding = response.get(i);
+                    }
+                    bindings.put(oid, binding);
+                }
+                this.prefetched.putAll(bindings);
+                return;
+            }
+
+            final int index = response.getErrorIndex();
+
+            if (status != SnmpConstants.SNMP_ERROR_NO_SUCH_NAME || index < 1
+                    || index > pending.size()) {
+                return;
+            }
+
+            bindings.put(pending.remove(index - 1), null);
         }
+        this.prefetched.putAll(bindings);
     }
 
     /**
@@ -275,6 +397,11 @@ public final class SnmpClientSession {
      */
     private VariableBinding getResponse(final OID oid)
             throws SnmpConnectException {
+
+        if (this.prefetched.containsKey(oid)) {
+            return this.prefetched.get(oid);
+        }
+
         final PDU response = this.getResponse(new OID[] { oid });
 
         if (response.getErrorStatus() != SnmpConstants.SNMP_ERROR_SUCCESS) {
@@ -336,7 +463,19 @@ public final class SnmpClientSession {
      */
     public List<List<String>> getTableAsStrings(final OID[] oids) {
 
-        final TableUtils tUtils = new TableUtils(snmp, new DefaultPDUFactory());
+        /*
+         * SNMPv1 has no GETBULK: rows are walked with GETNEXT.
+         */
+        final int pduType;
+
+        if (this.target.getVersion() == SnmpConstants.version1) {
+            pduType = PDU.GETNEXT;
+        } else {
+            pduType = PDU.GETBULK;
+        }
+
+        final TableUtils tUtils =
+                new TableUtils(snmp, new DefaultPDUFactory(pduType));
 
         final List<TableEvent> events =
                 tUtils.getTable(this.target, oids, null, null);
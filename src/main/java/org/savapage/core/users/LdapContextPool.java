@@ -0,0 +1,454 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.users;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.naming.InterruptedNamingException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.StartTlsResponse;
+
+import org.savapage.core.config.ConfigManager;
+import org.savapage.core.config.IConfigProp.Key;
+import org.savapage.core.users.LdapLatencyStats.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of LDAP contexts bound with the Admin DN credentials.
+ * <p>
+ * Pooled contexts are handed out most recently used first. A context that was
+ * idle for more than {@link #VALIDATE_IDLE_MSEC} is health checked before it
+ * is handed out, and a context idle for more than
+ * {@link Key#LDAP_POOL_IDLE_TIMEOUT_MSEC} is closed. When the LDAP environment
+ * (URL, credentials, SSL) changes all pooled contexts are discarded.
+ * </p>
+ * <p>
+ * Pooled contexts must only be used for plain searches and lookups: do
+ * <i>not</i> set request controls or change the environment of a pooled
+ * context.
+ * </p>
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class LdapContextPool {
+
+    /** */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(LdapContextPool.class);
+
+    /**
+     * Idle time (milliseconds) after which a pooled context is health checked
+     * before it is handed out.
+     */
+    private static final long VALIDATE_IDLE_MSEC = 5000L;
+
+    /**
+     * Max time (milliseconds) to wait for a free context.
+     */
+    private static final long BORROW_MAX_WAIT_MSEC = 30000L;
+
+    /**
+     * Attribute list that requests no attributes (RFC 4511).
+     */
+    private static final String[] NO_ATTRIBUTES = new String[] { "1.1" };
+
+    /**
+     * Opens a new context.
+     */
+    @FunctionalInterface
+    interface Connector {
+        /**
+         * @return The new context.
+         * @throws IOException
+         *             When StartTLS failed.
+         * @throws NamingException
+         *             When LDAP error.
+         */
+        PooledContext connect() throws IOException, NamingException;
+    }
+
+    /**
+     * A pooled LDAP context with its (optional) StartTLS session.
+     */
+    public static final class PooledContext {
+
+        /** */
+        private final InitialLdapContext context;
+
+        /** */
+        private final StartTlsResponse tls;
+
+        /**
+         * The pool generation this context belongs to.
+         */
+        private long generation = -1;
+
+        /**
+         * Time (milliseconds) the context was returned to the pool.
+         */
+        private long idleSince;
+
+        /**
+         * @param ctx
+         *            The LDAP context.
+         * @param startTls
+         *            The StartTLS response, or {@code null} when StartTLS is
+         *            not used.
+         */
+        PooledContext(final InitialLdapContext ctx,
+                final StartTlsResponse startTls) {
+            this.context = ctx;
+            this.tls = startTls;
+        }
+
+        /**
+         * @return The LDAP context.
+         */
+        public InitialLdapContext getContext() {
+            return this.context;
+        }
+    }
+
+    /**
+     * The LDAP environment of the pooled contexts.
+     */
+    private Map<String, String> environment;
+
+    /**
+     * Incremented when the pool is drained. Contexts of a previous generation
+     * are closed when released.
+     */
+    private long generation;
+
+    /**
+     * Idle contexts, most recently used first.
+     */
+    private final Deque<PooledContext> idle = new ArrayDeque<>();
+
+    /**
+     * Number of open contexts (idle and borrowed) of the current generation.
+     */
+    private int size;
+
+    /** */
+    private static final class SingletonHolder {
+        /** */
+        static final LdapContextPool INSTANCE = new LdapContextPool();
+    }
+
+    /** */
+    private LdapContextPool() {
+    }
+
+    /**
+     * @return The singleton instance.
+     */
+    public static LdapContextPool instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Borrows a context from the pool. The context must be returned with
+     * {@link #release(PooledContext, boolean)}.
+     *
+     * @param env
+     *            The LDAP environment identifying the contexts.
+     * @param connector
+     *            Opens a new context for this environment.
+     * @return The context.
+     * @throws IOException
+     *             When StartTLS failed.
+     * @throws NamingException
+     *             When LDAP error, or
+     *             {@link ServiceUnavailableException} when no context is
+     *             available within the max wait time.
+     */
+    PooledContext borrow(final Map<String, String> env,
+            final Connector connector) throws IOException, NamingException {
+
+        final ConfigManager cm = ConfigManager.instance();
+        final int maxSize = cm.getConfigInt(Key.LDAP_POOL_MAX_SIZE);
+
+        if (maxSize <= 0) {
+            return connect(connector);
+        }
+
+        final long idleTimeout =
+                cm.getConfigLong(Key.LDAP_POOL_IDLE_TIMEOUT_MSEC);
+
+        final List<PooledContext> evicted = new ArrayList<>();
+
+        PooledContext pooled = null;
+        long borrowGeneration = -1;
+        NamingException failure = null;
+
+        synchronized (this) {
+
+            if (!env.equals(this.environment)) {
+                this.drain(evicted);
+                this.environment = env;
+            }
+
+            final long deadline =
+                    System.currentTimeMillis() + BORROW_MAX_WAIT_MSEC;
+
+            while (failure == null) {
+
+                final long now = System.currentTimeMillis();
+
+                this.evictIdle(now - idleTimeout, evicted);
+
+                pooled = this.idle.pollFirst();
+
+                if (pooled != null) {
+                    borrowGeneration = this.generation;
+                    break;
+                }
+                if (this.size < maxSize) {
+                    this.size++;
+                    borrowGeneration = this.generation;
+                    break;
+                }
+                if (now >= deadline) {
+                    failure = new ServiceUnavailableException(String.format(
+                            "No LDAP connection available within %d msec "
+                                    + "(pool size %d).",
+                            BORROW_MAX_WAIT_MSEC, maxSize));
+                } else {
+                    try {
+                        this.wait(deadline - now);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failure = new InterruptedNamingException(
+                                "Interrupted while waiting for "
+                                        + "LDAP connection.");
+                        failure.setRootCause(e);
+                    }
+                }
+            }
+        }
+
+        closeAll(evicted);
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        if (pooled != null) {
+            if (System.currentTimeMillis()
+                    - pooled.idleSince <= VALIDATE_IDLE_MSEC
+                    || isHealthy(pooled)) {
+                return pooled;
+            }
+            // The slot stays reserved for the replacement.
+            close(pooled);
+        }
+
+        try {
+            pooled = connect(connector);
+        } catch (IOException | NamingException | RuntimeException e) {
+            synchronized (this) {
+                if (borrowGeneration == this.generation) {
+                    this.size--;
+                    this.notifyAll();
+                }
+            }
+            throw e;
+        }
+        pooled.generation = borrowGeneration;
+        return pooled;
+    }
+
+    /**
+     * Returns a borrowed context to the pool.
+     *
+     * @param pooled
+     *            The context.
+     * @param broken
+     *            {@code true} when an error occurred while using the context:
+     *            the context is closed.
+     */
+    void release(final PooledContext pooled, final boolean broken) {
+
+        synchronized (this) {
+            if (pooled.generation == this.generation) {
+                if (broken) {
+                    this.size--;
+                } else {
+                    pooled.idleSince = System.currentTimeMillis();
+                    this.idle.addFirst(pooled);
+                }
+                this.notifyAll();
+                if (!broken) {
+                    return;
+                }
+            }
+        }
+        close(pooled);
+    }
+
+    /**
+     * Closes all idle contexts. Borrowed contexts are closed when released.
+     */
+    public void close() {
+
+        final List<PooledContext> evicted = new ArrayList<>();
+
+        synchronized (this) {
+            this.drain(evicted);
+            this.environment = null;
+        }
+        closeAll(evicted);
+
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("LDAP latency:\n{}",
+                    LdapLatencyStats.instance().getSummary());
+        }
+    }
+
+    /**
+     * Moves all idle contexts to the evicted list and starts a new generation.
+     * Must be called while holding the monitor.
+     *
+     * @param evicted
+     *            The list of contexts to close.
+     */
+    private void drain(final List<PooledContext> evicted) {
+        evicted.addAll(this.idle);
+        this.idle.clear();
+        this.size = 0;
+        this.generation++;
+        this.notifyAll();
+    }
+
+    /**
+     * Moves idle contexts that expired to the evicted list. Must be called
+     * while holding the monitor.
+     *
+     * @param idleSinceMin
+     *            Contexts idle since before this time (milliseconds) expire.
+     * @param evicted
+     *            The list of contexts to close.
+     */
+    private void evictIdle(final long idleSinceMin,
+            final List<PooledContext> evicted) {
+
+        // Least recently used contexts are at the end.
+        final Iterator<PooledContext> iter = this.idle.descendingIterator();
+
+        while (iter.hasNext()) {
+            final PooledContext pooled = iter.next();
+            if (pooled.idleSince >= idleSinceMin) {
+                break;
+            }
+            iter.remove();
+            evicted.add(pooled);
+            this.size--;
+        }
+    }
+
+    /**
+     * @param connector
+     *            The connector.
+     * @return The new context.
+     * @throws IOException
+     *             When StartTLS failed.
+     * @throws NamingException
+     *             When LDAP error.
+     */
+    private static PooledContext connect(final Connector connector)
+            throws IOException, NamingException {
+        final long start = System.nanoTime();
+        try {
+            return connector.connect();
+        } finally {
+            LdapLatencyStats.instance().record(Operation.CONNECT, start);
+        }
+    }
+
+    /**
+     * Checks if an idle context still has a working connection by reading the
+     * base entry without attributes.
+     *
+     * @param pooled
+     *            The context.
+     * @return {@code true} when healthy.
+     */
+    private static boolean isHealthy(final PooledContext pooled) {
+        final long start = System.nanoTime();
+        try {
+            pooled.context.getAttributes("", NO_ATTRIBUTES);
+            return true;
+        } catch (NamingException e) {
+            LOGGER.debug("Pooled LDAP connection discarded: {}",
+                    e.getMessage());
+            return false;
+        } finally {
+            LdapLatencyStats.instance().record(Operation.VALIDATE, start);
+        }
+    }
+
+    /**
+     * @param contexts
+     *            The contexts to close.
+     */
+    private static void closeAll(final List<PooledContext> contexts) {
+        for (final PooledContext pooled : contexts) {
+            close(pooled);
+        }
+        contexts.clear();
+    }
+
+    /**
+     * Closes a context and its StartTLS session.
+     *
+     * @param pooled
+     *            The context.
+     */
+    private static void close(final PooledContext pooled) {
+        if (pooled.tls != null) {
+            try {
+                pooled.tls.close();
+            } catch (IOException e) {
+                LOGGER.debug(e.getMessage());
+            }
+        }
+        try {
+            pooled.context.close();
+        } catch (NamingException e) {
+            LOGGER.debug(e.getMessage());
+        }
+    }
+}
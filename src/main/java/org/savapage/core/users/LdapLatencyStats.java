@@ -0,0 +1,206 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.users;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of LDAP operations.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class LdapLatencyStats {
+
+    /**
+     * Measured LDAP operations.
+     */
+    public enum Operation {
+        /** Opening a new LDAP connection, including StartTLS. */
+        CONNECT,
+        /** Health check of an idle pooled connection. */
+        VALIDATE,
+        /** {@link LdapUserSourceMixin#authenticate(String, String)}. */
+        AUTHENTICATE,
+        /** {@link LdapUserSourceMixin#getUser(String)}. */
+        GET_USER,
+        /** {@link LdapUserSourceMixin#getGroup(String)}. */
+        GET_GROUP,
+        /** {@link LdapUserSourceMixin#isUserInGroup(String, String)}. */
+        IS_USER_IN_GROUP
+    }
+
+    /**
+     * Upper bounds (milliseconds, inclusive) of the histogram buckets. The
+     * last bucket holds all higher latencies.
+     */
+    private static final long[] BUCKET_MSEC =
+            { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+
+    /**
+     * Histogram of one operation.
+     */
+    private static final class Histogram {
+
+        /** */
+        private final LongAdder[] buckets =
+                new LongAdder[BUCKET_MSEC.length + 1];
+
+        /** */
+        private final LongAdder totalNanos = new LongAdder();
+
+        /** */
+        Histogram() {
+            for (int i = 0; i < this.buckets.length; i++) {
+                this.buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * @param nanos
+         *            Latency in nanoseconds.
+         */
+        void record(final long nanos) {
+
+            final long msec = TimeUnit.NANOSECONDS.toMillis(nanos);
+
+            int i = 0;
+            while (i < BUCKET_MSEC.length && msec > BUCKET_MSEC[i]) {
+                i++;
+            }
+            this.buckets[i].increment();
+            this.totalNanos.add(nanos);
+        }
+
+        /**
+         * @param counts
+         *            Bucket counts.
+         * @param total
+         *            Total count.
+         * @param fraction
+         *            Percentile fraction, e.g. 0.95.
+         * @return Upper bound of the percentile bucket as text.
+         */
+        private static String percentile(final long[] counts,
+                final long total, final double fraction) {
+
+            final long rank = (long) Math.ceil(total * fraction);
+            long cumulative = 0;
+
+            for (int i = 0; i < BUCKET_MSEC.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank) {
+                    return "<=" + BUCKET_MSEC[i];
+                }
+            }
+            return ">" + BUCKET_MSEC[BUCKET_MSEC.length - 1];
+        }
+
+        /**
+         * @param builder
+         *            The builder to append the summary to.
+         */
+        void appendSummary(final StringBuilder builder) {
+
+            final long[] counts = new long[this.buckets.length];
+            long total = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.buckets[i].sum();
+                total += counts[i];
+            }
+
+            builder.append("count ").append(total);
+
+            if (total > 0) {
+                builder.append(String.format(" | mean %.1f ms",
+                        this.totalNanos.sum() / 1e6 / total));
+                builder.append(" | p50 ")
+                        .append(percentile(counts, total, 0.50));
+                builder.append(" | p95 ")
+                        .append(percentile(counts, total, 0.95));
+                builder.append(" | p99 ")
+                        .append(percentile(counts, total, 0.99))
+                        .append(" ms");
+            }
+        }
+    }
+
+    /** */
+    private final Map<Operation, Histogram> histograms =
+            new EnumMap<>(Operation.class);
+
+    /** */
+    private static final class SingletonHolder {
+        /** */
+        static final LdapLatencyStats INSTANCE = new LdapLatencyStats();
+    }
+
+    /** */
+    private LdapLatencyStats() {
+        for (final Operation op : Operation.values()) {
+            this.histograms.put(op, new Histogram());
+        }
+    }
+
+    /**
+     * @return The singleton instance.
+     */
+    public static LdapLatencyStats instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Records the latency of an operation.
+     *
+     * @param op
+     *            The operation.
+     * @param startNanos
+     *            The {@link System#nanoTime()} at the start of the operation.
+     */
+    public void record(final Operation op, final long startNanos) {
+        this.histograms.get(op).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return A one line per operation summary of the latency histograms.
+     */
+    public String getSummary() {
+
+        final StringBuilder builder = new StringBuilder();
+
+        for (final Operation op : Operation.values()) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            builder.append(op.toString()).append(": ");
+            this.histograms.get(op).appendSummary(builder);
+        }
+        return builder.toString();
+    }
+}
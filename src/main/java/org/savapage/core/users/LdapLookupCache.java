@@ -0,0 +1,308 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.users;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import javax.naming.NamingException;
+
+/**
+ * Time-to-live cache of LDAP user and group membership lookups. Lookups that
+ * found nothing are cached as well, with a separate (shorter) time-to-live.
+ * Lookups that failed with an exception are not cached.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public final class LdapLookupCache {
+
+    /**
+     * Max number of entries per map.
+     */
+    private static final int MAX_ENTRIES = 10000;
+
+    /**
+     * Performs the LDAP lookup on a cache miss.
+     *
+     * @param <T>
+     *            The value type.
+     */
+    @FunctionalInterface
+    interface Loader<T> {
+        /**
+         * @return The value, or {@code null} when not found.
+         * @throws IOException
+         *             When IO error.
+         * @throws NamingException
+         *             When LDAP error.
+         */
+        T load() throws IOException, NamingException;
+    }
+
+    /**
+     * @param <T>
+     *            The value type.
+     */
+    private static final class Entry<T> {
+
+        /** */
+        private final T value;
+
+        /**
+         * Expiry time in milliseconds.
+         */
+        private final long expiry;
+
+        /**
+         * @param val
+         *            The value.
+         * @param expiryTime
+         *            Expiry time in milliseconds.
+         */
+        Entry(final T val, final long expiryTime) {
+            this.value = val;
+            this.expiry = expiryTime;
+        }
+    }
+
+    /**
+     * Users by user name. A {@code null} value means: user not found.
+     */
+    private final Map<String, Entry<CommonUser>> users =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Group membership by user name and group name.
+     */
+    private final Map<String, Entry<Boolean>> memberships =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The LDAP environment the cached values belong to.
+     */
+    private volatile Map<String, String> environment;
+
+    /** */
+    private volatile long ttlMsec;
+
+    /** */
+    private volatile long negativeTtlMsec;
+
+    /** */
+    private final LongAdder hits = new LongAdder();
+
+    /** */
+    private final LongAdder misses = new LongAdder();
+
+    /** */
+    private static final class SingletonHolder {
+        /** */
+        static final LdapLookupCache INSTANCE = new LdapLookupCache();
+    }
+
+    /**
+     * Package private constructor for unit testing.
+     */
+    LdapLookupCache() {
+    }
+
+    /**
+     * @return The singleton instance.
+     */
+    public static LdapLookupCache instance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Sets the LDAP environment and time-to-live values. The cache is cleared
+     * when the environment changed.
+     *
+     * @param env
+     *            The LDAP environment.
+     * @param ttl
+     *            Time-to-live (milliseconds) of found values. Zero disables
+     *            caching.
+     * @param negativeTtl
+     *            Time-to-live (milliseconds) of not found values. Zero
+     *            disables caching of not found values.
+     */
+    void configure(final Map<String, String> env, final long ttl,
+            final long negativeTtl) {
+
+        if (!env.equals(this.environment)) {
+            synchronized (this) {
+                if (!env.equals(this.environment)) {
+                    this.clear();
+                    this.environment = env;
+                }
+            }
+        }
+        this.ttlMsec = ttl;
+        this.negativeTtlMsec = negativeTtl;
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public void clear() {
+        this.users.clear();
+        this.memberships.clear();
+    }
+
+    /**
+     * Gets a user.
+     *
+     * @param uid
+     *            The user name.
+     * @param loader
+     *            The LDAP lookup.
+     * @return A copy of the (cached) user, or {@code null} when not found.
+     * @throws IOException
+     *             When IO error.
+     * @throws NamingException
+     *             When LDAP error.
+     */
+    CommonUser getUser(final String uid, final Loader<CommonUser> loader)
+            throws IOException, NamingException {
+        return copy(this.get(this.users, uid, loader, user -> user != null));
+    }
+
+    /**
+     * Checks if a user is member of a group.
+     *
+     * @param uid
+     *            The user name.
+     * @param group
+     *            The group name.
+     * @param loader
+     *            The LDAP lookup.
+     * @return {@code true} when user is member of the group.
+     * @throws IOException
+     *             When IO error.
+     * @throws NamingException
+     *             When LDAP error.
+     */
+    boolean isUserInGroup(final String uid, final String group,
+            final Loader<Boolean> loader) throws IOException, NamingException {
+        return Boolean.TRUE.equals(this.get(this.memberships,
+                uid + '\n' + group, loader, Boolean.TRUE::equals));
+    }
+
+    /**
+     * @param <T>
+     *            The value type.
+     * @param map
+     *            The cache map.
+     * @param key
+     *            The key.
+     * @param loader
+     *            The LDAP lookup.
+     * @param isFound
+     *            Tells if a value is found (positive) or not found (negative).
+     * @return The value.
+     * @throws IOException
+     *             When IO error.
+     * @throws NamingException
+     *             When LDAP error.
+     */
+    private <T> T get(final Map<String, Entry<T>> map, final String key,
+            final Loader<T> loader, final Predicate<T> isFound)
+            throws IOException, NamingException {
+
+        final long now = System.currentTimeMillis();
+        final Entry<T> entry = map.get(key);
+
+        if (entry != null && entry.expiry > now) {
+            this.hits.increment();
+            return entry.value;
+        }
+
+        this.misses.increment();
+
+        final T value = loader.load();
+
+        final long ttl;
+        if (isFound.test(value)) {
+            ttl = this.ttlMsec;
+        } else {
+            ttl = this.negativeTtlMsec;
+        }
+
+        if (ttl > 0) {
+            if (map.size() >= MAX_ENTRIES) {
+                map.values().removeIf(e -> e.expiry <= now);
+                if (map.size() >= MAX_ENTRIES) {
+                    map.clear();
+                }
+            }
+            map.put(key, new Entry<>(value, now + ttl));
+        } else if (entry != null) {
+            map.remove(key);
+        }
+        return value;
+    }
+
+    /**
+     * @param user
+     *            The user (can be {@code null}).
+     * @return A copy of the user, or {@code null}.
+     */
+    private static CommonUser copy(final CommonUser user) {
+
+        if (user == null) {
+            return null;
+        }
+
+        final CommonUser copy = new CommonUser();
+
+        copy.setUserName(user.getUserName());
+        copy.setExternalUserName(user.getExternalUserName());
+        copy.setFullName(user.getFullName());
+        copy.setEmail(user.getEmail());
+        copy.setIdNumber(user.getIdNumber());
+        copy.setCardNumber(user.getCardNumber());
+        copy.setEnabled(user.isEnabled());
+
+        return copy;
+    }
+
+    /**
+     * @return Number of cache hits.
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return Number of cache misses.
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+}
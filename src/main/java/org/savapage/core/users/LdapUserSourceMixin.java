@@ -27,9 +27,11 @@ package org.savapage.core.users;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -63,6 +65,7 @@ import org.savapage.core.config.IConfigProp.LdapTypeEnum;
 import org.savapage.core.jpa.User;
 import org.savapage.core.net.TrustSelfSignedCertSocketFactory;
 import org.savapage.core.rfid.RfidNumberFormat;
+import org.savapage.core.users.LdapLatencyStats.Operation;
 import org.savapage.core.util.InetUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -181,6 +184,11 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
     private static final String CONTEXT_INITIAL_CONTEXT_FACTORY_CLASS_NAME =
             "com.sun.jndi.ldap.LdapCtxFactory";
 
+    /**
+     * Pool key entry for the StartTLS settings.
+     */
+    private static final String POOL_KEY_START_TLS = "savapage.starttls";
+
     /**
      * The lazy initialized supported controls.
      */
@@ -545,6 +553,8 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
             return null;
         }
 
+        final long start = System.nanoTime();
+
         final String providerUrl = getProviderUrlBaseDn();
 
         /*
@@ -566,16 +576,20 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
         User user = null;
 
         /*
-         * Search with administrator credentials for the user.
+         * Search with (pooled) administrator credentials for the user.
          */
-        LdapContext ctx = this.createLdapContextForAdmin();
+        LdapContextPool.PooledContext pooled = null;
+
+        boolean broken = true;
+
+        LdapContext ctx = null;
 
         NamingEnumeration<SearchResult> results = null;
 
         StartTlsResponse tls = null;
 
         try {
-            tls = this.setInitialLdapStartTLS(ctx);
+            pooled = this.borrowContextForAdmin();
 
             final SearchControls controls = new SearchControls();
 
@@ -583,7 +597,8 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
             // Just one (1) user expected.
             controls.setCountLimit(1);
 
-            results = ctx.search("", ldapFilterExpression, controls);
+            results = pooled.getContext().search("", ldapFilterExpression,
+                    controls);
 
             if (results.hasMore()) {
                 SearchResult searchResult = results.next();
@@ -598,9 +613,10 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
                      * New context with the credentials of the user to
                      * authenticate.
                      */
-                    closeResources(null, tls, ctx);
-                    ctx = null;
-                    tls = null;
+                    closeResources(results, null, null);
+                    results = null;
+                    releaseContext(pooled, false);
+                    pooled = null;
 
                     final Hashtable<String, String> env = new Hashtable<>();
 
@@ -639,6 +655,9 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
                 }
 
             }
+
+            broken = false;
+
         } catch (NameNotFoundException e) {
             /*
              * The base context was not found.
@@ -656,6 +675,10 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
 
         } finally {
             closeResources(results, tls, ctx);
+            if (pooled != null) {
+                releaseContext(pooled, broken);
+            }
+            LdapLatencyStats.instance().record(Operation.AUTHENTICATE, start);
         }
 
         return user;
@@ -788,12 +811,12 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
     }
 
     /**
-     * Creates the LDAP directory context with security credentials for the
-     * Admin DN.
+     * Creates the environment for an LDAP directory context with security
+     * credentials for the Admin DN.
      *
-     * @return The {@link InitialLdapContext}.
+     * @return The environment.
      */
-    protected final InitialLdapContext createLdapContextForAdmin() {
+    private Hashtable<String, String> createLdapEnvironmentForAdmin() {
 
         final Hashtable<String, String> env = new Hashtable<>();
 
@@ -820,6 +843,29 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
 
         this.setInitialLdapSSLContext(cm, env);
 
+        return env;
+    }
+
+    /**
+     * Creates the LDAP directory context with security credentials for the
+     * Admin DN.
+     *
+     * @return The {@link InitialLdapContext}.
+     */
+    protected final InitialLdapContext createLdapContextForAdmin() {
+        return createLdapContext(this.createLdapEnvironmentForAdmin());
+    }
+
+    /**
+     * Creates an LDAP directory context.
+     *
+     * @param env
+     *            The environment.
+     * @return The {@link InitialLdapContext}.
+     */
+    private static InitialLdapContext
+            createLdapContext(final Hashtable<String, String> env) {
+
         final InitialLdapContext ctx;
 
         try {
@@ -835,6 +881,87 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
         return ctx;
     }
 
+    /**
+     * Creates the key that identifies pooled contexts and cached lookups: the
+     * Admin DN environment plus the StartTLS settings.
+     *
+     * @param env
+     *            The Admin DN environment.
+     * @return The key.
+     */
+    private Map<String, String>
+            createPoolKey(final Hashtable<String, String> env) {
+
+        final Map<String, String> key = new HashMap<>(env);
+
+        key.put(POOL_KEY_START_TLS, String.format("%b|%b|%b",
+                this.isLdapStartTLS(), this.isLdapUseTrustSelfSignedSSL(),
+                ConfigManager.instance().isConfigValue(
+                        Key.AUTH_LDAP_SSL_HOSTNAME_VERIFICATION_DISABLE)));
+        return key;
+    }
+
+    /**
+     * Borrows a context bound with the Admin DN credentials from the
+     * {@link LdapContextPool}. The context must be returned with
+     * {@link #releaseContext(LdapContextPool.PooledContext, boolean)}.
+     *
+     * @return The pooled context.
+     * @throws IOException
+     *             If an IO error was encountered while establishing the TLS
+     *             session.
+     * @throws NamingException
+     *             When LDAP error.
+     */
+    private LdapContextPool.PooledContext borrowContextForAdmin()
+            throws IOException, NamingException {
+
+        final Hashtable<String, String> env =
+                this.createLdapEnvironmentForAdmin();
+
+        return LdapContextPool.instance().borrow(this.createPoolKey(env),
+                () -> {
+                    final InitialLdapContext ctx = createLdapContext(env);
+                    try {
+                        return new LdapContextPool.PooledContext(ctx,
+                                this.setInitialLdapStartTLS(ctx));
+                    } catch (IOException | NamingException e) {
+                        closeResources(null, null, ctx);
+                        throw e;
+                    }
+                });
+    }
+
+    /**
+     * Returns a borrowed context to the {@link LdapContextPool}.
+     *
+     * @param pooled
+     *            The pooled context.
+     * @param broken
+     *            {@code true} when an error occurred while using the context.
+     */
+    private static void releaseContext(
+            final LdapContextPool.PooledContext pooled, final boolean broken) {
+        LdapContextPool.instance().release(pooled, broken);
+    }
+
+    /**
+     * @return The {@link LdapLookupCache} configured for the current LDAP
+     *         environment.
+     */
+    private LdapLookupCache getLookupCache() {
+
+        final ConfigManager cm = ConfigManager.instance();
+        final LdapLookupCache cache = LdapLookupCache.instance();
+
+        cache.configure(
+                this.createPoolKey(this.createLdapEnvironmentForAdmin()),
+                cm.getConfigLong(Key.LDAP_CACHE_TTL_MSEC),
+                cm.getConfigLong(Key.LDAP_CACHE_NEGATIVE_TTL_MSEC));
+
+        return cache;
+    }
+
     /**
      * Creates the LDAP filter expression to select one or all groups.
      *
@@ -1003,6 +1130,8 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
     @Override
     public final CommonUserGroup getGroup(final String groupName) {
 
+        final long start = System.nanoTime();
+
         CommonUserGroup commonUserGroup = null;
 
         final String providerUrl = getProviderUrlBaseDn();
@@ -1014,14 +1143,16 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
                     + "] : " + ldapFilterExpression);
         }
 
-        final LdapContext ctx = this.createLdapContextForAdmin();
+        LdapContextPool.PooledContext pooled = null;
 
         NamingEnumeration<SearchResult> results = null;
 
-        StartTlsResponse tls = null;
+        boolean broken = true;
 
         try {
-            tls = this.setInitialLdapStartTLS(ctx);
+            pooled = this.borrowContextForAdmin();
+
+            final LdapContext ctx = pooled.getContext();
 
             final SearchControls controls = new SearchControls();
 
@@ -1039,6 +1170,8 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
                         results.next());
             }
 
+            broken = false;
+
         } catch (IOException | NamingException e) {
 
             LOGGER.error(String.format("isGroupPresent(\"%s\"): %s", groupName,
@@ -1047,7 +1180,11 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
             commonUserGroup = null;
 
         } finally {
-            closeResources(results, tls, ctx);
+            closeResources(results, null, null);
+            if (pooled != null) {
+                releaseContext(pooled, broken);
+            }
+            LdapLatencyStats.instance().record(Operation.GET_GROUP, start);
         }
 
         return commonUserGroup;
@@ -1370,6 +1507,39 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
     @Override
     public final boolean isUserInGroup(final String uid, final String group) {
 
+        final long start = System.nanoTime();
+
+        try {
+            return this.getLookupCache().isUserInGroup(uid, group,
+                    () -> this.isUserInGroupUncached(uid, group));
+
+        } catch (IOException | NamingException e) {
+
+            LOGGER.error(e.getMessage());
+            return false;
+
+        } finally {
+            LdapLatencyStats.instance().record(Operation.IS_USER_IN_GROUP,
+                    start);
+        }
+    }
+
+    /**
+     * Checks at the LDAP server if a user is member of a group.
+     *
+     * @param uid
+     *            The user name.
+     * @param group
+     *            The group name.
+     * @return {@code true} when user is member of the group.
+     * @throws IOException
+     *             When IO error.
+     * @throws NamingException
+     *             When LDAP error.
+     */
+    private boolean isUserInGroupUncached(final String uid,
+            final String group) throws IOException, NamingException {
+
         boolean found = false;
 
         final String providerUrl = getProviderUrlBaseDn();
@@ -1381,15 +1551,15 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
                     + ldapFilterExpression);
         }
 
-        final LdapContext ctx = this.createLdapContextForAdmin();
+        final LdapContextPool.PooledContext pooled =
+                this.borrowContextForAdmin();
+        final LdapContext ctx = pooled.getContext();
 
         NamingEnumeration<SearchResult> results = null;
 
-        StartTlsResponse tls = null;
+        boolean broken = true;
 
         try {
-            tls = this.setInitialLdapStartTLS(ctx);
-
             /*
              * Example:
              *
@@ -1432,14 +1602,11 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
                 found = results.hasMore();
             }
 
-        } catch (IOException | NamingException e) {
-
-            LOGGER.error(e.getMessage());
-
-            found = false;
+            broken = false;
 
         } finally {
-            closeResources(results, tls, ctx);
+            closeResources(results, null, null);
+            releaseContext(pooled, broken);
         }
         return found;
     }
@@ -1447,6 +1614,33 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
     @Override
     public final CommonUser getUser(final String uid) {
 
+        final long start = System.nanoTime();
+
+        try {
+            return this.getLookupCache().getUser(uid,
+                    () -> this.getUserUncached(uid));
+
+        } catch (IOException | NamingException e) {
+            return null;
+        } finally {
+            LdapLatencyStats.instance().record(Operation.GET_USER, start);
+        }
+    }
+
+    /**
+     * Gets a user from the LDAP server.
+     *
+     * @param uid
+     *            The user name.
+     * @return The user, or {@code null} when not found.
+     * @throws IOException
+     *             When IO error.
+     * @throws NamingException
+     *             When LDAP error.
+     */
+    private CommonUser getUserUncached(final String uid)
+            throws IOException, NamingException {
+
         CommonUser cuser = null;
 
         final String providerUrl = getProviderUrlBaseDn();
@@ -1461,14 +1655,15 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
                     + ldapFilterExpression);
         }
 
-        final LdapContext ctx = this.createLdapContextForAdmin();
+        final LdapContextPool.PooledContext pooled =
+                this.borrowContextForAdmin();
+        final LdapContext ctx = pooled.getContext();
 
         NamingEnumeration<SearchResult> results = null;
 
-        StartTlsResponse tls = null;
+        boolean broken = true;
 
         try {
-            tls = this.setInitialLdapStartTLS(ctx);
             /*
              * Example:
              *
@@ -1502,12 +1697,11 @@ public abstract class LdapUserSourceMixin extends AbstractUserSource
                 cuser = createCommonUser(attributes);
             }
 
-        } catch (IOException | NamingException e) {
-
-            cuser = null;
+            broken = false;
 
         } finally {
-            closeResources(results, tls, ctx);
+            closeResources(results, null, null);
+            releaseContext(pooled, broken);
         }
         return cuser;
     }
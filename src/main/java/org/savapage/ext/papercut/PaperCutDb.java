@@ -34,6 +34,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
@@ -42,6 +43,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.mutable.MutableLong;
 import org.apache.commons.lang3.time.DateUtils;
 import org.savapage.core.SpException;
 import org.savapage.core.circuitbreaker.CircuitBreaker;
@@ -158,6 +160,21 @@ public abstract class PaperCutDb {
     /** */
     private static final int SQL_STRINGBUILDER_CAPACITY = 256;
 
+    /**
+     * SELECT of {@code tbl_printer_usage_log} columns mapped to
+     * {@link PaperCutPrinterUsageLog}.
+     */
+    private static final String SQL_SELECT_PRINTER_USAGE_LOG =
+            "SELECT printer_usage_log_id, usage_date, document_name, printed,"
+                    + " cancelled, denied_reason, usage_cost,"
+                    + " charged_to_account_id, assoc_with_account_id"
+                    + " FROM tbl_printer_usage_log";
+
+    /**
+     * JDBC fetch size when streaming print usage log entries.
+     */
+    private static final int USAGE_LOG_FETCH_SIZE = 500;
+
     /**
      * .
      */
@@ -757,22 +774,7 @@ public abstract class PaperCutDb {
                     }
                 };
 
-        final Object result;
-
-        try {
-            if (this.useCircuitBreaker) {
-                result = CIRCUIT_BREAKER
-                        .execute(new PaperCutCircuitBreakerOperation(exec));
-            } else {
-                result = exec.execute();
-            }
-        } catch (PaperCutException e) {
-            throw new PaperCutConnectException(e.getMessage(), e);
-        } catch (InterruptedException | CircuitBreakerException e) {
-            throw new PaperCutConnectException(e.getMessage(), e);
-        }
-
-        return (List<PaperCutPrinterUsageLog>) result;
+        return (List<PaperCutPrinterUsageLog>) this.executeUsageLog(exec);
     }
 
     /**
@@ -794,10 +796,8 @@ public abstract class PaperCutDb {
 
         final StringBuilder sql = new StringBuilder(256);
 
-        sql.append("SELECT document_name, printed, cancelled, denied_reason, "
-                + "usage_cost, charged_to_account_id, assoc_with_account_id"
-                + " FROM tbl_printer_usage_log WHERE job_type = 'PRINT'"
-                + " AND document_name IN(");
+        sql.append(SQL_SELECT_PRINTER_USAGE_LOG)
+                .append(" WHERE job_type = 'PRINT' AND document_name IN(");
 
         final Iterator<String> iterUniqueTitle = uniqueDocNames.iterator();
         int nCounter = 0;
@@ -834,44 +834,282 @@ public abstract class PaperCutDb {
             resultset = statement.executeQuery(sql.toString());
 
             while (resultset.next()) {
+                usageLogList.add(createPrinterUsageLog(resultset));
+            }
 
-                final PaperCutPrinterUsageLog usageLog =
-                        new PaperCutPrinterUsageLog();
+            finished = true;
 
-                usageLog.setDocumentName(resultset.getString("document_name"));
+        } finally {
 
-                usageLog.setPrinted(
-                        resultset.getString("printed").equalsIgnoreCase("Y"));
-                usageLog.setCancelled(
-                        resultset.getString("cancelled").equalsIgnoreCase("Y"));
+            silentClose(resultset, statement);
 
-                usageLog.setDeniedReason(resultset.getString("denied_reason"));
+            if (!finished) {
+                LOGGER.error(sql.toString());
+            }
+        }
 
-                usageLog.setUsageCost(resultset.getDouble("usage_cost"));
+        return usageLogList;
+    }
 
-                usageLog.setAccountIdAssoc(
-                        resultset.getLong("assoc_with_account_id"));
-                usageLog.setAccountIdCharged(
-                        resultset.getLong("charged_to_account_id"));
+    /**
+     * Creates a {@link PaperCutPrinterUsageLog} from the current row of a
+     * {@link #SQL_SELECT_PRINTER_USAGE_LOG} result.
+     *
+     * @param resultset
+     *            The result set.
+     * @return The {@link PaperCutPrinterUsageLog}.
+     * @throws SQLException
+     *             When an SQL error occurs.
+     */
+    private static PaperCutPrinterUsageLog
+            createPrinterUsageLog(final ResultSet resultset)
+                    throws SQLException {
 
-                //
-                usageLogList.add(usageLog);
+        final PaperCutPrinterUsageLog usageLog = new PaperCutPrinterUsageLog();
+
+        usageLog.setUsageLogId(resultset.getLong("printer_usage_log_id"));
+        usageLog.setDocumentName(resultset.getString("document_name"));
+
+        usageLog.setPrinted(
+                resultset.getString("printed").equalsIgnoreCase("Y"));
+        usageLog.setCancelled(
+                resultset.getString("cancelled").equalsIgnoreCase("Y"));
+
+        usageLog.setDeniedReason(resultset.getString("denied_reason"));
+
+        usageLog.setUsageCost(resultset.getDouble("usage_cost"));
+
+        usageLog.setAccountIdAssoc(resultset.getLong("assoc_with_account_id"));
+        usageLog.setAccountIdCharged(
+                resultset.getLong("charged_to_account_id"));
+
+        return usageLog;
+    }
+
+    /**
+     * Gets the {@link PaperCutPrinterUsageLog} of document names, from the
+     * print usage log entries added after a high-water mark.
+     * <p>
+     * Entries are streamed in primary key order, and matched against the
+     * document names. Since the PaperCut usage log only grows, the returned
+     * high-water mark can be used as start for the next call.
+     * </p>
+     *
+     * @param connection
+     *            The database connection.
+     * @param uniqueDocNames
+     *            A set with document names.
+     * @param usageLogId
+     *            The high-water mark: entries with a primary key greater than
+     *            this value are read. On return, the primary key of the last
+     *            entry read that is settled, i.e. that, like all entries
+     *            before it, has a usage date before {@code settledBefore}.
+     * @param settledBefore
+     *            Entries with a usage date before this date are settled.
+     * @param maxRows
+     *            The max number of entries to read.
+     * @return A list with an {@link PaperCutPrinterUsageLog} object for each
+     *         title in the input set that is found.
+     */
+    @SuppressWarnings("unchecked")
+    public List<PaperCutPrinterUsageLog> getPrinterUsageLog(
+            final Connection connection, final Set<String> uniqueDocNames,
+            final MutableLong usageLogId, final Date settledBefore,
+            final int maxRows) {
+
+        final PaperCutDbExecutor exec =
+                new PaperCutDbExecutor(this, connection) {
+
+                    @Override
+                    public Object execute() throws PaperCutException {
+                        try {
+                            return PaperCutDb.getPrinterUsageLogSQL(
+                                    this.getConnection(), uniqueDocNames,
+                                    usageLogId, settledBefore, maxRows);
+                        } catch (SQLException e) {
+                            throw new PaperCutConnectException(e.getMessage(),
+                                    e);
+                        }
+                    }
+                };
+
+        return (List<PaperCutPrinterUsageLog>) this.executeUsageLog(exec);
+    }
+
+    /**
+     * Gets the primary key of the last settled entry in the PaperCut print
+     * usage log.
+     *
+     * @param connection
+     *            The database connection.
+     * @param settledBefore
+     *            Entries with a usage date before this date are settled.
+     * @return The primary key, or zero when no settled entry is present.
+     */
+    public long getPrinterUsageLogMaxId(final Connection connection,
+            final Date settledBefore) {
+
+        final PaperCutDbExecutor exec =
+                new PaperCutDbExecutor(this, connection) {
+
+                    @Override
+                    public Object execute() throws PaperCutException {
+                        try {
+                            return PaperCutDb.getPrinterUsageLogMaxIdSQL(
+                                    this.getConnection(), settledBefore);
+                        } catch (SQLException e) {
+                            throw new PaperCutConnectException(e.getMessage(),
+                                    e);
+                        }
+                    }
+                };
+
+        return ((Long) this.executeUsageLog(exec)).longValue();
+    }
+
+    /**
+     * Executes a print usage log query.
+     *
+     * @param exec
+     *            The executor.
+     * @return The result.
+     */
+    private Object executeUsageLog(final PaperCutDbExecutor exec) {
+        try {
+            if (this.useCircuitBreaker) {
+                return CIRCUIT_BREAKER
+                        .execute(new PaperCutCircuitBreakerOperation(exec));
+            }
+            return exec.execute();
+        } catch (PaperCutException e) {
+            throw new PaperCutConnectException(e.getMessage(), e);
+        } catch (InterruptedException | CircuitBreakerException e) {
+            throw new PaperCutConnectException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the {@link PaperCutPrinterUsageLog} of document names from print
+     * usage log entries after a high-water mark, using SQL query.
+     *
+     * @param connection
+     *            The database connection.
+     * @param uniqueDocNames
+     *            A set with document names.
+     * @param usageLogId
+     *            The high-water mark (in/out).
+     * @param settledBefore
+     *            Entries with a usage date before this date are settled.
+     * @param maxRows
+     *            The max number of entries to read.
+     * @return A list with an {@link PaperCutPrinterUsageLog} object for each
+     *         title in the input set that is found.
+     * @throws SQLException
+     *             When an SQL error occurs.
+     */
+    private static List<PaperCutPrinterUsageLog> getPrinterUsageLogSQL(
+            final Connection connection, final Set<String> uniqueDocNames,
+            final MutableLong usageLogId, final Date settledBefore,
+            final int maxRows) throws SQLException {
+
+        final String sql = SQL_SELECT_PRINTER_USAGE_LOG
+                + " WHERE printer_usage_log_id > ? AND job_type = 'PRINT'"
+                + " ORDER BY printer_usage_log_id";
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("{} [{}]", sql, usageLogId.longValue());
+        }
+
+        final List<PaperCutPrinterUsageLog> usageLogList = new ArrayList<>();
+
+        PreparedStatement stm = null;
+        ResultSet resultset = null;
+
+        boolean finished = false;
+
+        try {
+            stm = connection.prepareStatement(sql);
+            stm.setMaxRows(maxRows);
+            stm.setFetchSize(USAGE_LOG_FETCH_SIZE);
+            stm.setLong(1, usageLogId.longValue());
+
+            resultset = stm.executeQuery();
+
+            /*
+             * The high-water mark only advances over settled entries: entries
+             * after the first unsettled entry are read again next time.
+             */
+            boolean settled = true;
+
+            while (resultset.next()) {
+
+                if (settled) {
+                    final Timestamp usageDate =
+                            resultset.getTimestamp("usage_date");
+                    settled = usageDate != null
+                            && usageDate.before(settledBefore);
+                    if (settled) {
+                        usageLogId.setValue(
+                                resultset.getLong("printer_usage_log_id"));
+                    }
+                }
+
+                if (uniqueDocNames
+                        .contains(resultset.getString("document_name"))) {
+                    usageLogList.add(createPrinterUsageLog(resultset));
+                }
             }
 
             finished = true;
 
         } finally {
 
-            silentClose(resultset, statement);
+            silentClose(resultset, stm);
 
             if (!finished) {
-                LOGGER.error(sql.toString());
+                LOGGER.error(sql);
             }
         }
 
         return usageLogList;
     }
 
+    /**
+     * Gets the primary key of the last settled print usage log entry using
+     * SQL query.
+     *
+     * @param connection
+     *            The database connection.
+     * @param settledBefore
+     *            Entries with a usage date before this date are settled.
+     * @return The primary key, or zero when no settled entry is present.
+     * @throws SQLException
+     *             When an SQL error occurs.
+     */
+    private static Long getPrinterUsageLogMaxIdSQL(
+            final Connection connection, final Date settledBefore)
+            throws SQLException {
+
+        PreparedStatement stm = null;
+
+        try {
+            stm = connection.prepareStatement(
+                    "SELECT MAX(printer_usage_log_id)"
+                            + " FROM tbl_printer_usage_log"
+                            + " WHERE usage_date < ?");
+            stm.setTimestamp(1, new Timestamp(settledBefore.getTime()));
+
+            final ResultSet result = stm.executeQuery();
+            result.next();
+            return Long.valueOf(result.getLong(1));
+
+        } finally {
+            if (stm != null) {
+                stm.close();
+            }
+        }
+    }
+
     /**
      * Creates a CSV file with Delegator Print costs.
      *
@@ -25,12 +25,14 @@
 package org.savapage.ext.papercut;
 
 import java.math.BigDecimal;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.lang3.mutable.MutableLong;
 import org.savapage.core.concurrent.ReadWriteLockEnum;
 import org.savapage.core.config.ConfigManager;
 import org.savapage.core.config.IConfigProp.Key;
@@ -50,6 +52,7 @@ import org.savapage.core.jpa.AccountTrx;
 import org.savapage.core.jpa.DocIn;
 import org.savapage.core.jpa.DocLog;
 import org.savapage.core.jpa.DocOut;
+import org.savapage.core.jpa.Entity;
 import org.savapage.core.jpa.PrintOut;
 import org.savapage.core.services.ProxyPrintService;
 import org.savapage.core.services.ServiceContext;
@@ -87,6 +90,11 @@ public abstract class PaperCutPrintMonitorPattern
     private static final PrintOutDao PRINT_OUT_DAO =
             ServiceContext.getDaoContext().getPrintOutDao();
 
+    /**
+     * Value of an unset PaperCut print log watermark.
+     */
+    private static final long WATERMARK_UNSET = -1L;
+
     /**
      * .
      */
@@ -224,9 +232,23 @@ public abstract class PaperCutPrintMonitorPattern
         /*
          * Find PaperCut jobs.
          */
-        final List<PaperCutPrinterUsageLog> papercutLogList =
-                PAPERCUT_SERVICE.getPrinterUsageLog(papercutDbProxy,
-                        uniquePaperCutDocNames.keySet());
+        final ConfigManager cm = ConfigManager.instance();
+
+        final MutableLong watermark;
+        final List<PaperCutPrinterUsageLog> papercutLogList;
+
+        if (cm.isConfigValue(
+                Key.PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK_ENABLE)) {
+            watermark = new MutableLong(cm.getConfigLong(
+                    Key.PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK,
+                    WATERMARK_UNSET));
+            papercutLogList = this.getPrinterUsageLogAfter(
+                    uniquePaperCutDocNames.keySet(), watermark);
+        } else {
+            watermark = null;
+            papercutLogList = PAPERCUT_SERVICE.getPrinterUsageLog(
+                    papercutDbProxy, uniquePaperCutDocNames.keySet());
+        }
 
         final Set<String> paperCutDocNamesHandled = new HashSet<>();
 
@@ -302,10 +324,102 @@ public abstract class PaperCutPrintMonitorPattern
 
         } // end-for
 
+        /*
+         * All PaperCut jobs up to the watermark are processed.
+         */
+        if (watermark != null) {
+            this.updateWatermark(watermark.longValue());
+        }
+
         this.processPrintJobsNotFound(uniquePaperCutDocNames,
                 paperCutDocNamesHandled);
     }
 
+    /**
+     * Gets the {@link PaperCutPrinterUsageLog} of pending documents from the
+     * PaperCut print log entries after a watermark.
+     * <p>
+     * The watermark only advances over entries older than
+     * {@link Key#PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK_LAG_MINS}: younger
+     * entries are read again next time, since their pending job might not
+     * have been committed yet when the pending jobs were read.
+     * </p>
+     * <p>
+     * When no watermark is set, the last settled entry of the PaperCut print
+     * log is taken as watermark, and pending documents are searched by name
+     * once.
+     * </p>
+     *
+     * @param uniqueDocNames
+     *            The pending document names.
+     * @param watermark
+     *            The watermark (in/out).
+     * @return The PaperCut print log entries of pending documents.
+     */
+    private List<PaperCutPrinterUsageLog> getPrinterUsageLogAfter(
+            final Set<String> uniqueDocNames, final MutableLong watermark) {
+
+        final ConfigManager cm = ConfigManager.instance();
+
+        final Date settledBefore = new Date(System.currentTimeMillis()
+                - cm.getConfigLong(
+                        Key.PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK_LAG_MINS)
+                        * DateUtil.DURATION_MSEC_MINUTE);
+
+        if (watermark.longValue() == WATERMARK_UNSET) {
+            watermark.setValue(PAPERCUT_SERVICE
+                    .getPrinterUsageLogMaxId(papercutDbProxy, settledBefore));
+            return PAPERCUT_SERVICE.getPrinterUsageLog(papercutDbProxy,
+                    uniqueDocNames);
+        }
+
+        return PAPERCUT_SERVICE.getPrinterUsageLog(papercutDbProxy,
+                uniqueDocNames, watermark, settledBefore, cm.getConfigInt(
+                        Key.PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK_MAX_ROWS));
+    }
+
+    /**
+     * Persists the PaperCut print log watermark, when changed.
+     *
+     * @param watermark
+     *            The primary key of the last PaperCut print log entry
+     *            processed.
+     */
+    private void updateWatermark(final long watermark) {
+
+        final ConfigManager cm = ConfigManager.instance();
+
+        if (watermark == cm.getConfigLong(
+                Key.PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK, WATERMARK_UNSET)) {
+            return;
+        }
+
+        /*
+         * Database transaction.
+         */
+        ReadWriteLockEnum.DATABASE_READONLY.setReadLock(true);
+
+        final DaoContext daoContext = ServiceContext.getDaoContext();
+
+        try {
+
+            if (!daoContext.isTransactionActive()) {
+                daoContext.beginTransaction();
+            }
+
+            cm.updateConfigKey(Key.PROXY_PRINT_PAPERCUT_PRINTLOG_WATERMARK,
+                    Long.valueOf(watermark), Entity.ACTOR_SYSTEM);
+
+            daoContext.commit();
+
+        } finally {
+
+            daoContext.rollback();
+
+            ReadWriteLockEnum.DATABASE_READONLY.setReadLock(false);
+        }
+    }
+
     /**
      * Processes pending SavaPage print jobs that cannot be found in PaperCut:
      * status is set to {@link ExternalSupplierStatusEnum#ERROR} when SavaPage
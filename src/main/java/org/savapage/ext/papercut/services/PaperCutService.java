@@ -27,9 +27,11 @@ package org.savapage.ext.papercut.services;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.lang3.mutable.MutableLong;
 import org.savapage.core.config.IConfigProp;
 import org.savapage.core.dao.enums.ExternalSupplierEnum;
 import org.savapage.core.dao.enums.PrintModeEnum;
@@ -261,6 +263,42 @@ public interface PaperCutService extends StatefulService {
     List<PaperCutPrinterUsageLog> getPrinterUsageLog(PaperCutDbProxy papercutDb,
             Set<String> uniqueDocNames);
 
+    /**
+     * Gets the {@link PaperCutPrinterUsageLog} for unique document names from
+     * the print usage log entries added after a high-water mark.
+     *
+     * @param papercutDb
+     *            The {@link PaperCutDbProxy}.
+     * @param uniqueDocNames
+     *            A set with document names.
+     * @param usageLogId
+     *            The high-water mark: entries with a primary key greater than
+     *            this value are read. On return, the primary key of the last
+     *            settled entry read, or unchanged when none was read.
+     * @param settledBefore
+     *            Entries with a usage date before this date are settled.
+     * @param maxRows
+     *            The max number of entries to read.
+     * @return A list with an {@link PaperCutPrinterUsageLog} object for each
+     *         title in the input set that is found.
+     */
+    List<PaperCutPrinterUsageLog> getPrinterUsageLog(PaperCutDbProxy papercutDb,
+            Set<String> uniqueDocNames, MutableLong usageLogId,
+            Date settledBefore, int maxRows);
+
+    /**
+     * Gets the primary key of the last settled entry in the PaperCut print
+     * usage log.
+     *
+     * @param papercutDb
+     *            The {@link PaperCutDbProxy}.
+     * @param settledBefore
+     *            Entries with a usage date before this date are settled.
+     * @return The primary key, or zero when no settled entry is present.
+     */
+    long getPrinterUsageLogMaxId(PaperCutDbProxy papercutDb,
+            Date settledBefore);
+
     /**
      * Creates a CSV file with Delegator Print costs.
      *
@@ -28,10 +28,12 @@ import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Connection;
+import java.util.Date;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.lang3.mutable.MutableLong;
 import org.savapage.core.SpInfo;
 import org.savapage.core.cometd.AdminPublisher;
 import org.savapage.core.cometd.PubLevelEnum;
@@ -402,6 +404,22 @@ public final class PaperCutServiceImpl extends AbstractService
                 uniqueDocNames);
     }
 
+    @Override
+    public List<PaperCutPrinterUsageLog> getPrinterUsageLog(
+            final PaperCutDbProxy papercut, final Set<String> uniqueDocNames,
+            final MutableLong usageLogId, final Date settledBefore,
+            final int maxRows) {
+        return papercut.getPrinterUsageLog(papercut.getConnection(),
+                uniqueDocNames, usageLogId, settledBefore, maxRows);
+    }
+
+    @Override
+    public long getPrinterUsageLogMaxId(final PaperCutDbProxy papercut,
+            final Date settledBefore) {
+        return papercut.getPrinterUsageLogMaxId(papercut.getConnection(),
+                settledBefore);
+    }
+
     @Override
     public void createDelegatorPrintCostCsv(final File file,
             final DelegatedPrintPeriodDto dto) throws IOException {
@@ -0,0 +1,139 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.imaging;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link EcoImageFilterSquare}.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public class EcoImageFilterSquareTest {
+
+    /** */
+    private static final int IMAGE_WIDTH = 700;
+
+    /** */
+    private static final int IMAGE_HEIGHT = 900;
+
+    /**
+     * Creates an image with random black, gray and colored blocks, crossing
+     * all row boundaries.
+     *
+     * @return The image.
+     */
+    private static BufferedImage createImage() {
+
+        final BufferedImage image = new BufferedImage(IMAGE_WIDTH,
+                IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        final Graphics2D g = image.createGraphics();
+        final Random random = new Random(20201017L);
+
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+        final Color[] colors = { Color.BLACK, Color.DARK_GRAY, Color.BLUE,
+                new Color(200, 200, 200) };
+
+        for (int i = 0; i < 2000; i++) {
+            g.setColor(colors[random.nextInt(colors.length)]);
+            g.fillRect(random.nextInt(IMAGE_WIDTH),
+                    random.nextInt(IMAGE_HEIGHT), 1 + random.nextInt(40),
+                    1 + random.nextInt(40));
+        }
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * @param image
+     *            The image to filter.
+     * @param threads
+     *            Number of pipeline threads.
+     * @param poolSize
+     *            Number of threads in the executor of the pipeline.
+     * @return The filtered pixels.
+     */
+    private static int[] filter(final BufferedImage image, final int threads,
+            final int poolSize) {
+
+        final BufferedImage imageOut = new BufferedImage(IMAGE_WIDTH,
+                IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        final ExecutorService executor =
+                Executors.newFixedThreadPool(poolSize);
+
+        final EcoImageFilterSquare filter = new EcoImageFilterSquare(
+                EcoImageFilterSquare.Parms.createDefault(), threads, executor);
+
+        try {
+            filter.filter(image, imageOut);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(filter.getFractionFiltered() > 0);
+
+        return imageOut.getRGB(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT, null, 0,
+                IMAGE_WIDTH);
+    }
+
+    @Test
+    public void testParallelEqualsSequential() {
+
+        final BufferedImage image = createImage();
+        final int[] sequential = filter(image, 1, 1);
+
+        for (final int threads : new int[] { 2, 3, 8 }) {
+            assertArrayEquals(String.format("%d threads", threads),
+                    sequential, filter(image, threads, threads));
+        }
+    }
+
+    /**
+     * Checks that a pipeline with more threads than its executor has, like
+     * with a shared executor that is busy, completes with the same result.
+     */
+    @Test
+    public void testSmallExecutor() {
+
+        final BufferedImage image = createImage();
+
+        assertArrayEquals(filter(image, 1, 1), filter(image, 8, 1));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.ipp.encoding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+import org.savapage.core.ipp.attribute.IppAttrGroup;
+
+/**
+ * Tests for {@link IppEncoder}.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public class IppEncoderTest {
+
+    /**
+     * Writes a single IPP attribute value.
+     *
+     * @param ostr
+     *            The output stream.
+     * @param valueTag
+     *            The value tag.
+     * @param name
+     *            The attribute name (empty for additional value).
+     * @param value
+     *            The value.
+     * @throws IOException
+     *             When write error.
+     */
+    private static void writeValue(final ByteArrayOutputStream ostr,
+            final IppValueTag valueTag, final String name, final String value)
+            throws IOException {
+
+        final byte[] bytesName = name.getBytes(StandardCharsets.US_ASCII);
+        final byte[] bytesValue = value.getBytes(StandardCharsets.US_ASCII);
+
+        IppEncoder.writeInt8(ostr, valueTag.asInt());
+        IppEncoder.writeInt16(ostr, bytesName.length);
+        ostr.write(bytesName);
+        IppEncoder.writeInt16(ostr, bytesValue.length);
+        ostr.write(bytesValue);
+    }
+
+    @Test
+    public void testReadInt() throws IOException {
+
+        assertEquals(-1, IppEncoder.readInt32((byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF));
+        assertEquals(-3, IppEncoder.readInt32((byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFD));
+        assertEquals(0x01020304, IppEncoder.readInt32((byte) 0x01,
+                (byte) 0x02, (byte) 0x03, (byte) 0x04));
+        assertEquals(0xFFFE, IppEncoder.readInt16((byte) 0xFF, (byte) 0xFE));
+
+        final byte[] bytes = { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFD, (byte) 0x80, (byte) 0x01 };
+
+        final ByteArrayInputStream istr = new ByteArrayInputStream(bytes);
+
+        assertEquals(-3, IppEncoder.readInt32(istr));
+        assertEquals(0x8001, IppEncoder.readInt16(istr));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadIntEof() throws IOException {
+        IppEncoder.readInt32(new ByteArrayInputStream(new byte[] { 1, 2 }));
+    }
+
+    @Test
+    public void testReadAttributesFilter() throws IOException {
+
+        final ByteArrayOutputStream ostr = new ByteArrayOutputStream();
+
+        ostr.write(IppDelimiterTag.PRINTER_ATTR.asInt());
+        writeValue(ostr, IppValueTag.NAMEWOLANG, "printer-name", "abc");
+        writeValue(ostr, IppValueTag.NAMEWOLANG, "", "def");
+        ostr.write(IppDelimiterTag.END_OF_ATTR.asInt());
+
+        final List<IppAttrGroup> groups = IppEncoder.readAttributes(
+                new ByteArrayInputStream(ostr.toByteArray()), null,
+                new IppAttrFilter() {
+                    @Override
+                    public boolean accept(final IppDelimiterTag group,
+                            final String keyword) {
+                        return false;
+                    }
+                });
+
+        assertEquals(1, groups.size());
+        assertEquals(IppDelimiterTag.PRINTER_ATTR,
+                groups.get(0).getDelimiterTag());
+        assertTrue(groups.get(0).getAttributes().isEmpty());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.msg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link UserMsgBus}.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public class UserMsgBusTest {
+
+    /** */
+    private static final String USER = "user";
+
+    @Test
+    public void testPublish() {
+
+        final UserMsgBus bus = new UserMsgBus();
+
+        assertNull(bus.getLatest(USER));
+
+        bus.publish(USER, new UserMsgBus.Event(1L,
+                UserMsgIndicator.Msg.ACCOUNT_INFO, null), false);
+        bus.publish(USER, new UserMsgBus.Event(2L,
+                UserMsgIndicator.Msg.PRINT_OUT_COMPLETED, "x"), false);
+
+        final UserMsgBus.Event event = bus.getLatest(USER);
+
+        assertEquals(2L, event.getTime());
+        assertEquals(UserMsgIndicator.Msg.PRINT_OUT_COMPLETED, event.getMsg());
+        assertEquals("x", event.getSenderId());
+
+        final Map<String, UserMsgBus.Event> unpersisted =
+                bus.getUnpersisted();
+        assertEquals(1, unpersisted.size());
+        assertSame(event, unpersisted.get(USER));
+
+        // Older message is ignored.
+        bus.publish(USER, new UserMsgBus.Event(1L,
+                UserMsgIndicator.Msg.ACCOUNT_INFO, null), false);
+        assertSame(event, bus.getLatest(USER));
+        assertSame(event, bus.getUnpersisted().get(USER));
+
+        bus.publish(USER, new UserMsgBus.Event(3L,
+                UserMsgIndicator.Msg.ACCOUNT_INFO, null), true);
+        assertTrue(bus.getUnpersisted().isEmpty());
+    }
+
+    @Test
+    public void testMarkPersisted() {
+
+        final UserMsgBus bus = new UserMsgBus();
+
+        final UserMsgBus.Event written = new UserMsgBus.Event(1L,
+                UserMsgIndicator.Msg.ACCOUNT_INFO, null);
+
+        bus.publish(USER, written, false);
+        bus.publish(USER, new UserMsgBus.Event(2L,
+                UserMsgIndicator.Msg.ACCOUNT_INFO, null), false);
+
+        // Newer message published while writing stays unpersisted.
+        bus.markPersisted(USER, written);
+        assertEquals(2L, bus.getUnpersisted().get(USER).getTime());
+
+        bus.markPersisted(USER, bus.getLatest(USER));
+        assertTrue(bus.getUnpersisted().isEmpty());
+    }
+
+    @Test
+    public void testEvictIdle() throws InterruptedException {
+
+        final UserMsgBus bus = new UserMsgBus();
+
+        bus.publish(USER, new UserMsgBus.Event(1L,
+                UserMsgIndicator.Msg.ACCOUNT_INFO, null), false);
+
+        Thread.sleep(5L);
+
+        // Unpersisted message is not evicted.
+        assertEquals(0, bus.evictIdle(1L));
+        assertEquals(1, bus.size());
+
+        bus.markPersisted(USER, bus.getLatest(USER));
+
+        // Recently accessed channel is not evicted.
+        assertEquals(0, bus.evictIdle(TimeUnit.HOURS.toMillis(1L)));
+
+        assertEquals(1, bus.evictIdle(1L));
+        assertEquals(0, bus.size());
+        assertNull(bus.getLatest(USER));
+    }
+
+    @Test
+    public void testAwaitTimeout() throws InterruptedException {
+
+        final UserMsgBus bus = new UserMsgBus();
+
+        bus.publish(USER, new UserMsgBus.Event(10L,
+                UserMsgIndicator.Msg.ACCOUNT_INFO, null), false);
+
+        assertNull(bus.await(USER, new Date(10L), 10L, TimeUnit.MILLISECONDS));
+        assertEquals(10L, bus.await(USER, new Date(9L), 10L,
+                TimeUnit.MILLISECONDS).getTime());
+    }
+
+    @Test
+    public void testAwaitWakeUp() throws InterruptedException {
+
+        final UserMsgBus bus = new UserMsgBus();
+
+        final int nWaiters = 4;
+
+        final CountDownLatch started = new CountDownLatch(nWaiters);
+        final CountDownLatch done = new CountDownLatch(nWaiters);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        for (int i = 0; i < nWaiters; i++) {
+            new Thread(() -> {
+                started.countDown();
+                try {
+                    final UserMsgBus.Event event = bus.await(USER,
+                            new Date(0L), 10L, TimeUnit.SECONDS);
+                    if (event == null || event.getTime() != 1L) {
+                        error.set(new AssertionError("unexpected event"));
+                    }
+                } catch (InterruptedException e) {
+                    error.set(e);
+                }
+                done.countDown();
+            }).start();
+        }
+
+        assertTrue(started.await(10L, TimeUnit.SECONDS));
+
+        bus.publish(USER, new UserMsgBus.Event(1L,
+                UserMsgIndicator.Msg.PRINT_OUT_COMPLETED, null), false);
+
+        assertTrue(done.await(10L, TimeUnit.SECONDS));
+        assertNull(error.get());
+    }
+}
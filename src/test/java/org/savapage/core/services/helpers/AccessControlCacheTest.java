@@ -0,0 +1,112 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.savapage.core.dao.enums.ACLOidEnum;
+import org.savapage.core.dao.enums.ACLRoleEnum;
+
+/**
+ * Tests for {@link AccessControlCache}.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public class AccessControlCacheTest {
+
+    /** */
+    private static final Long USER_KEY = Long.valueOf(7L);
+
+    @Test
+    public void testHitMiss() {
+
+        final AccessControlCache cache = new AccessControlCache();
+
+        assertTrue(cache.isAuthorized(USER_KEY, true,
+                ACLRoleEnum.PRINT_CREATOR, () -> true));
+        assertTrue(cache.isAuthorized(USER_KEY, true,
+                ACLRoleEnum.PRINT_CREATOR, () -> false));
+
+        assertNull(cache.getPrivileges(USER_KEY, true, ACLOidEnum.U_INBOX,
+                () -> null));
+        assertNull(cache.getPrivileges(USER_KEY, true, ACLOidEnum.U_INBOX,
+                () -> Integer.valueOf(1)));
+
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getHits());
+
+        // Internal and external user are cached separately.
+        assertFalse(cache.isAuthorized(USER_KEY, false,
+                ACLRoleEnum.PRINT_CREATOR, () -> false));
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidate() {
+
+        final AccessControlCache cache = new AccessControlCache();
+
+        assertEquals(Integer.valueOf(0), cache.getPrivileges(USER_KEY, true,
+                ACLOidEnum.U_INBOX, () -> Integer.valueOf(0)));
+
+        cache.onChange();
+
+        assertEquals(Integer.valueOf(3), cache.getPrivileges(USER_KEY, true,
+                ACLOidEnum.U_INBOX, () -> Integer.valueOf(3)));
+
+        cache.onTransactionEnd();
+
+        assertEquals(Integer.valueOf(5), cache.getPrivileges(USER_KEY, true,
+                ACLOidEnum.U_INBOX, () -> Integer.valueOf(5)));
+
+        // No pending change: no invalidation.
+        cache.onTransactionEnd();
+
+        assertEquals(Integer.valueOf(5), cache.getPrivileges(USER_KEY, true,
+                ACLOidEnum.U_INBOX, () -> Integer.valueOf(9)));
+
+        assertEquals(2, cache.getInvalidations());
+    }
+
+    @Test
+    public void testNoCacheOnConcurrentChange() {
+
+        final AccessControlCache cache = new AccessControlCache();
+
+        assertTrue(cache.isAuthorized(USER_KEY, true,
+                ACLRoleEnum.WEB_CASHIER, () -> {
+                    cache.invalidate();
+                    return true;
+                }));
+
+        assertFalse(cache.isAuthorized(USER_KEY, true,
+                ACLRoleEnum.WEB_CASHIER, () -> false));
+    }
+}
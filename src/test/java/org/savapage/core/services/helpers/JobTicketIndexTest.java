@@ -0,0 +1,112 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link JobTicketIndex}.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public class JobTicketIndexTest {
+
+    /** */
+    private static final Long USER_A = Long.valueOf(1L);
+
+    /** */
+    private static final Long USER_B = Long.valueOf(2L);
+
+    /** */
+    private static final Long GROUP = Long.valueOf(10L);
+
+    /** */
+    @Test
+    public void testSelect() {
+
+        final JobTicketIndex index = new JobTicketIndex();
+
+        final UUID t1 = UUID.randomUUID();
+        final UUID t2 = UUID.randomUUID();
+        final UUID t3 = UUID.randomUUID();
+
+        index.put(t1, USER_A, "ABC-1234", new HashSet<>(Arrays.asList(GROUP)),
+                100L);
+        index.put(t2, USER_A, "XYZ/ABD-5678", null, 200L);
+        index.put(t3, USER_B, "abc-9999", null, 300L);
+
+        assertEquals(3, index.select(null, null, null, null, 0).size());
+        assertEquals(2, index.select(USER_A, null, null, null, 0).size());
+        assertEquals(Arrays.asList(t1),
+                index.select(null, null, GROUP, null, 0));
+        assertEquals(Arrays.asList(t1, t2),
+                index.select(null, "", null, Long.valueOf(200L), 0));
+
+        // Case-insensitive n-gram and short substring search.
+        final List<UUID> abc = index.select(null, "aBc-", null, null, 0);
+        assertEquals(2, abc.size());
+        assertTrue(abc.contains(t1) && abc.contains(t3));
+        assertEquals(3, index.select(null, "-", null, null, 0).size());
+        assertEquals(Arrays.asList(t2),
+                index.select(null, "5678", null, null, 0));
+        assertTrue(index.select(null, "abcd", null, null, 0).isEmpty());
+        assertTrue(index.select(USER_B, "1234", null, null, 0).isEmpty());
+
+        assertEquals(1, index.select(null, "ab", null, null, 1).size());
+    }
+
+    /** */
+    @Test
+    public void testPutRemove() {
+
+        final JobTicketIndex index = new JobTicketIndex();
+        final UUID t1 = UUID.randomUUID();
+
+        index.put(t1, USER_A, "ABC-1234", null, 100L);
+        index.put(t1, USER_B, "DEF-1234", new HashSet<>(Arrays.asList(GROUP)),
+                100L);
+
+        assertEquals(1, index.size());
+        assertTrue(index.select(USER_A, null, null, null, 0).isEmpty());
+        assertTrue(index.select(null, "abc", null, null, 0).isEmpty());
+        assertEquals(Arrays.asList(t1),
+                index.select(USER_B, "def", GROUP, null, 0));
+
+        index.remove(t1);
+
+        assertEquals(0, index.size());
+        assertTrue(index.select(null, null, null, null, 0).isEmpty());
+        assertTrue(index.select(null, "def", null, null, 0).isEmpty());
+    }
+}
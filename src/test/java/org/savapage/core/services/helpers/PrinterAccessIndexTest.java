@@ -0,0 +1,145 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.savapage.core.dao.enums.AccessControlScopeEnum;
+import org.savapage.core.dao.helpers.JsonUserGroupAccess;
+
+/**
+ * Tests for {@link PrinterAccessIndex}.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public class PrinterAccessIndexTest {
+
+    /** */
+    private static final Long PRINTER_KEY = Long.valueOf(3L);
+
+    /** */
+    private static final Long USER_KEY = Long.valueOf(7L);
+
+    /**
+     * @param scope
+     *            The scope.
+     * @param groups
+     *            The access groups.
+     * @return The printer access control.
+     */
+    private static JsonUserGroupAccess access(
+            final AccessControlScopeEnum scope, final String... groups) {
+        final JsonUserGroupAccess access = new JsonUserGroupAccess();
+        access.setScope(scope);
+        access.setGroups(new ArrayList<>(Arrays.asList(groups)));
+        return access;
+    }
+
+    /**
+     * Evaluates access on a fresh index.
+     *
+     * @param access
+     *            The printer access control.
+     * @param groups
+     *            The user groups.
+     * @return {@code true} when granted.
+     */
+    private static boolean granted(final JsonUserGroupAccess access,
+            final Collection<String> groups) {
+        return new PrinterAccessIndex().isAccessGranted(PRINTER_KEY,
+                () -> access, USER_KEY, () -> groups);
+    }
+
+    @Test
+    public void testScopes() {
+
+        final List<String> none = Collections.emptyList();
+        final List<String> member = Arrays.asList("x", "staff");
+        final List<String> other = Arrays.asList("x", "y");
+
+        assertTrue(granted(access(AccessControlScopeEnum.DENY), member));
+        assertFalse(granted(access(AccessControlScopeEnum.ALLOW), member));
+
+        assertTrue(granted(access(AccessControlScopeEnum.DENY, "staff"),
+                none));
+        assertFalse(granted(access(AccessControlScopeEnum.ALLOW, "staff"),
+                none));
+
+        assertFalse(granted(access(AccessControlScopeEnum.DENY, "staff"),
+                member));
+        assertTrue(granted(access(AccessControlScopeEnum.ALLOW, "staff"),
+                member));
+
+        assertTrue(granted(access(AccessControlScopeEnum.DENY, "staff"),
+                other));
+        assertFalse(granted(access(AccessControlScopeEnum.ALLOW, "staff"),
+                other));
+    }
+
+    @Test
+    public void testInvalidate() {
+
+        final PrinterAccessIndex index = new PrinterAccessIndex();
+        final int[] loads = new int[1];
+
+        final JsonUserGroupAccess allowStaff =
+                access(AccessControlScopeEnum.ALLOW, "staff");
+
+        assertFalse(index.isAccessGranted(PRINTER_KEY, () -> allowStaff,
+                USER_KEY, () -> {
+                    loads[0]++;
+                    return Arrays.asList("guest");
+                }));
+
+        // Cached: loaders are not called.
+        assertFalse(index.isAccessGranted(PRINTER_KEY, () -> null, USER_KEY,
+                () -> null));
+
+        index.onUserChange(USER_KEY);
+        assertTrue(index.isAccessGranted(PRINTER_KEY, () -> null, USER_KEY,
+                () -> {
+                    loads[0]++;
+                    return Arrays.asList("staff");
+                }));
+
+        index.onPrinterChange(PRINTER_KEY);
+        assertTrue(index.isAccessGranted(PRINTER_KEY,
+                () -> access(AccessControlScopeEnum.DENY, "guest"), USER_KEY,
+                () -> null));
+
+        index.onTransactionEnd();
+        assertEquals(2, loads[0]);
+    }
+}
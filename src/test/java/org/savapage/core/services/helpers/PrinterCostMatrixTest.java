@@ -0,0 +1,113 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.savapage.core.dao.PrinterDao.CostMediaAttr;
+import org.savapage.core.jpa.PrinterAttr;
+
+/**
+ * Tests for {@link PrinterCostMatrix}.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public class PrinterCostMatrixTest {
+
+    /**
+     * @param media
+     *            The IPP media name.
+     * @param value
+     *            The cost as JSON.
+     * @return The printer attribute.
+     */
+    private static PrinterAttr attr(final String media, final String value) {
+        final PrinterAttr attr = new PrinterAttr();
+        attr.setName(new CostMediaAttr(media).getKey());
+        attr.setValue(value);
+        return attr;
+    }
+
+    /**
+     * @param base
+     *            The base cost.
+     * @return The cost as JSON.
+     */
+    private static String cost(final int base) {
+        final String side = "{\"grayscale\":\"%d\",\"color\":\"%d\"}";
+        return String.format("{\"oneSided\":" + side + ",\"twoSided\":"
+                + side + "}", base, base + 1, base + 2, base + 3);
+    }
+
+    @Test
+    public void testLookup() {
+
+        final List<PrinterAttr> attrs = new ArrayList<>();
+        attrs.add(attr(null, cost(10)));
+        attrs.add(attr("ISO_A4_210x297mm", cost(20)));
+        attrs.add(attr("iso_a3_297x420mm", "{invalid"));
+
+        final PrinterCostMatrix matrix = PrinterCostMatrix.create(attrs);
+
+        assertEquals(new BigDecimal("20"),
+                matrix.getCost("iso_a4_210x297mm", false, true));
+        assertEquals(new BigDecimal("23"),
+                matrix.getCost("iso_a4_210x297mm", true, false));
+        assertEquals(new BigDecimal("11"),
+                matrix.getCost("iso_a3_297x420mm", false, false));
+        assertEquals(new BigDecimal("12"), matrix.getCost(null, true, true));
+
+        assertNull(PrinterCostMatrix.create(null).getCost("iso_a4_210x297mm",
+                false, true));
+    }
+
+    @Test
+    public void testFallbackPerCost() {
+
+        final List<PrinterAttr> attrs = new ArrayList<>();
+        attrs.add(attr(null, cost(10)));
+        attrs.add(attr("iso_a4_210x297mm", "{\"oneSided\":"
+                + "{\"grayscale\":\"x\",\"color\":\"21\"}}"));
+        attrs.add(attr("iso_a3_297x420mm", null));
+
+        final PrinterCostMatrix matrix = PrinterCostMatrix.create(attrs);
+
+        assertEquals(new BigDecimal("10"),
+                matrix.getCost("iso_a4_210x297mm", false, true));
+        assertEquals(new BigDecimal("21"),
+                matrix.getCost("iso_a4_210x297mm", false, false));
+        assertEquals(new BigDecimal("13"),
+                matrix.getCost("iso_a4_210x297mm", true, false));
+        assertEquals(new BigDecimal("12"),
+                matrix.getCost("iso_a3_297x420mm", true, true));
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.savapage.core.dao.enums.ACLOidEnum;
+import org.savapage.core.dao.enums.ACLRoleEnum;
+import org.savapage.core.dao.enums.UserAttrEnum;
+import org.savapage.core.dao.enums.UserGroupAttrEnum;
+import org.savapage.core.dto.UserIdDto;
+import org.savapage.core.jpa.UserAttr;
+import org.savapage.core.jpa.UserGroup;
+import org.savapage.core.jpa.UserGroupAttr;
+import org.savapage.core.services.helpers.AccessControlCache;
+
+/**
+ * Tests the cached decisions of {@link AccessControlServiceImpl} against its
+ * uncached path.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public class AccessControlServiceImplTest {
+
+    /** */
+    private static final int USERS = 4;
+
+    /** */
+    private static final ACLRoleEnum[] ROLES = ACLRoleEnum.values();
+
+    /**
+     * The OIDs of role "User" and "Admin".
+     */
+    private static final List<ACLOidEnum> OIDS = new ArrayList<>();
+
+    static {
+        for (final ACLOidEnum oid : ACLOidEnum.values()) {
+            if (oid.isUserRole() || oid.isAdminRole()) {
+                OIDS.add(oid);
+            }
+        }
+    }
+
+    /**
+     * In-memory ACL data: attribute values by owner and attribute name, as
+     * map of enum name and value.
+     */
+    private static final class MemAclSource
+            implements AccessControlServiceImpl.AclSource {
+
+        /** */
+        private final Map<String, Map<String, Object>> attrs =
+                new HashMap<>();
+
+        /** */
+        private final Map<Long, List<UserGroup>> memberships =
+                new HashMap<>();
+
+        /** */
+        private final UserGroup internalGroup = createGroup(101L, "internal");
+
+        /** */
+        private final UserGroup externalGroup = createGroup(102L, "external");
+
+        /** */
+        private final UserGroup allGroup = createGroup(103L, "all");
+
+        /**
+         * Groups with explicit members.
+         */
+        private final UserGroup[] groups = new UserGroup[] {
+                createGroup(111L, "c"), createGroup(112L, "a"),
+                createGroup(113L, "b") };
+
+        /**
+         * @param id
+         *            Primary database key.
+         * @param name
+         *            Group name.
+         * @return The group.
+         */
+        private static UserGroup createGroup(final long id,
+                final String name) {
+            final UserGroup group = new UserGroup();
+            group.setId(Long.valueOf(id));
+            group.setGroupName(name);
+            return group;
+        }
+
+        /**
+         * @param group
+         *            The group.
+         * @return The owner key of the group attributes.
+         */
+        private static String owner(final UserGroup group) {
+            return "g" + group.getId();
+        }
+
+        /**
+         * @param userDbKey
+         *            Primary database key of the user.
+         * @return The owner key of the user attributes.
+         */
+        private static String owner(final Long userDbKey) {
+            return "u" + userDbKey;
+        }
+
+        /**
+         * Sets or removes an entry of an attribute value.
+         *
+         * @param owner
+         *            The owner key.
+         * @param attrName
+         *            The attribute name.
+         * @param key
+         *            The entry key.
+         * @param value
+         *            The entry value, or {@code null} to remove the entry.
+         */
+        void put(final String owner, final String attrName,
+                final Enum<?> key, final Object value) {
+
+            final Map<String, Object> map = this.attrs
+                    .computeIfAbsent(owner + "|" + attrName,
+                            k -> new TreeMap<>());
+            if (value == null) {
+                map.remove(key.name());
+            } else {
+                map.put(key.name(), value);
+            }
+        }
+
+        /**
+         * @param owner
+         *            The owner key.
+         * @param attrName
+         *            The attribute name.
+         * @return The JSON attribute value, or {@code null} when absent.
+         */
+        private String getJson(final String owner, final String attrName) {
+
+            final Map<String, Object> map =
+                    this.attrs.get(owner + "|" + attrName);
+
+            if (map == null || map.isEmpty()) {
+                return null;
+            }
+
+            final StringBuilder json = new StringBuilder();
+            for (final Map.Entry<String, Object> entry : map.entrySet()) {
+                if (json.length() == 0) {
+                    json.append('{');
+                } else {
+                    json.append(',');
+                }
+                json.append('"').append(entry.getKey()).append("\":")
+                        .append(entry.getValue());
+            }
+            return json.append('}').toString();
+        }
+
+        /**
+         * Toggles the explicit membership of a group.
+         *
+         * @param userDbKey
+         *            Primary database key of the user.
+         * @param group
+         *            The group.
+         */
+        void toggleMember(final Long userDbKey, final UserGroup group) {
+
+            final List<UserGroup> list = this.memberships
+                    .computeIfAbsent(userDbKey, k -> new ArrayList<>());
+
+            if (!list.remove(group)) {
+                list.add(group);
+                list.sort(Comparator.comparing(UserGroup::getGroupName));
+            }
+        }
+
+        /**
+         * Applies a random ACL change.
+         *
+         * @param random
+         *            The random generator.
+         */
+        void randomChange(final Random random) {
+
+            final Long userDbKey = Long.valueOf(random.nextInt(USERS));
+            final UserGroup group;
+
+            switch (random.nextInt(6)) {
+            case 0:
+                this.toggleMember(userDbKey,
+                        this.groups[random.nextInt(this.groups.length)]);
+                return;
+            case 1:
+                group = null;
+                break;
+            case 2:
+                group = this.internalGroup;
+                break;
+            case 3:
+                group = this.externalGroup;
+                break;
+            case 4:
+                group = this.allGroup;
+                break;
+            default:
+                group = this.groups[random.nextInt(this.groups.length)];
+                break;
+            }
+
+            final String owner;
+            if (group == null) {
+                owner = owner(userDbKey);
+            } else {
+                owner = owner(group);
+            }
+
+            if (random.nextBoolean()) {
+                final ACLRoleEnum role = ROLES[random.nextInt(ROLES.length)];
+                final int value = random.nextInt(3);
+                final String attrName;
+                if (group == null) {
+                    attrName = UserAttrEnum.ACL_ROLES.getName();
+                } else {
+                    attrName = UserGroupAttrEnum.ACL_ROLES.getName();
+                }
+                this.put(owner, attrName, role,
+                        value == 0 ? null : Boolean.valueOf(value == 1));
+            } else {
+                final ACLOidEnum oid = OIDS.get(random.nextInt(OIDS.size()));
+                final int value = random.nextInt(5);
+                final String attrName;
+                if (group == null) {
+                    attrName = UserAttrEnum.valueOf(oid).getName();
+                } else {
+                    attrName = UserGroupAttrEnum.valueOf(oid).getName();
+                }
+                this.put(owner, attrName, oid,
+                        value == 0 ? null : Integer.valueOf(value - 1));
+            }
+        }
+
+        @Override
+        public UserAttr findUserAttr(final Long userDbKey,
+                final UserAttrEnum attrEnum) {
+
+            final String json = this.getJson(owner(userDbKey),
+                    attrEnum.getName());
+            if (json == null) {
+                return null;
+            }
+            final UserAttr attr = new UserAttr();
+            attr.setName(attrEnum.getName());
+            attr.setValue(json);
+            return attr;
+        }
+
+        @Override
+        public UserGroupAttr findGroupAttr(final UserGroup group,
+                final UserGroupAttrEnum attrEnum) {
+
+            final String json = this.getJson(owner(group),
+                    attrEnum.getName());
+            if (json == null) {
+                return null;
+            }
+            final UserGroupAttr attr = new UserGroupAttr();
+            attr.setName(attrEnum.getName());
+            attr.setValue(json);
+            return attr;
+        }
+
+        @Override
+        public List<UserGroup> getGroupMemberships(final Long userDbKey) {
+            return this.memberships.getOrDefault(userDbKey,
+                    Collections.emptyList());
+        }
+
+        @Override
+        public UserGroup getUserSourceGroup(final boolean internalUser) {
+            if (internalUser) {
+                return this.internalGroup;
+            }
+            return this.externalGroup;
+        }
+
+        @Override
+        public UserGroup getAllUserGroup() {
+            return this.allGroup;
+        }
+
+        @Override
+        public boolean deleteInvalid(final UserAttr attr) {
+            return false;
+        }
+
+        @Override
+        public boolean deleteInvalid(final UserGroupAttr attr) {
+            return false;
+        }
+    }
+
+    /**
+     * @param userDbKey
+     *            Primary database key of the user.
+     * @param internal
+     *            {@code true} when internal user.
+     * @return The user.
+     */
+    private static UserIdDto createUser(final long userDbKey,
+            final boolean internal) {
+        final UserIdDto dto = new UserIdDto();
+        dto.setDbKey(Long.valueOf(userDbKey));
+        dto.setUserId("user" + userDbKey);
+        dto.setInternalUser(internal);
+        return dto;
+    }
+
+    /**
+     * Checks that cached decisions are consistent with the uncached path, for
+     * a random sequence of lookups and notified ACL changes.
+     */
+    @Test
+    public void testConsistency() {
+
+        final MemAclSource source = new MemAclSource();
+        final AccessControlServiceImpl service =
+                new AccessControlServiceImpl(source);
+
+        final AccessControlCache cache = AccessControlCache.instance();
+        final Random random = new Random(1L);
+
+        cache.invalidate();
+        final long hits = cache.getHits();
+
+        for (int i = 0; i < 10000; i++) {
+
+            if (random.nextInt(20) == 0) {
+                source.randomChange(random);
+                cache.onChange();
+                cache.onTransactionEnd();
+                continue;
+            }
+
+            final UserIdDto dto =
+                    createUser(random.nextInt(USERS), random.nextBoolean());
+            final ACLRoleEnum role = ROLES[random.nextInt(ROLES.length)];
+            final ACLOidEnum oid = OIDS.get(random.nextInt(OIDS.size()));
+
+            assertEquals(service.isAuthorizedUncached(dto, role),
+                    service.isAuthorized(dto, role));
+            assertEquals(service.getPrivilegesUncached(dto, oid),
+                    service.getPrivileges(dto, oid));
+        }
+        assertTrue(cache.getHits() > hits);
+    }
+
+    /**
+     * Checks that a cached decision is stale until the ACL change is notified.
+     */
+    @Test
+    public void testInvalidation() {
+
+        final MemAclSource source = new MemAclSource();
+        final AccessControlServiceImpl service =
+                new AccessControlServiceImpl(source);
+
+        final AccessControlCache cache = AccessControlCache.instance();
+
+        cache.invalidate();
+
+        final UserIdDto dto = createUser(1L, true);
+        final ACLRoleEnum role = ACLRoleEnum.WEB_CASHIER;
+        final ACLOidEnum oid = ACLOidEnum.U_INBOX;
+
+        assertFalse(service.isAuthorized(dto, role));
+        assertNull(service.getPrivileges(dto, oid));
+
+        final String allUsers = MemAclSource.owner(source.allGroup);
+
+        source.put(allUsers, UserGroupAttrEnum.ACL_ROLES.getName(), role,
+                Boolean.TRUE);
+        source.put(allUsers, UserGroupAttrEnum.valueOf(oid).getName(), oid,
+                Integer.valueOf(3));
+
+        // Not notified: cached decisions are stale.
+        assertTrue(service.isAuthorizedUncached(dto, role));
+        assertFalse(service.isAuthorized(dto, role));
+        assertNull(service.getPrivileges(dto, oid));
+
+        cache.onChange();
+
+        assertTrue(service.isAuthorized(dto, role));
+        assertEquals(Integer.valueOf(3), service.getPrivileges(dto, oid));
+
+        cache.onTransactionEnd();
+
+        // Explicit group membership overrules All Users.
+        final UserGroup group = source.groups[0];
+
+        source.put(MemAclSource.owner(group),
+                UserGroupAttrEnum.ACL_ROLES.getName(), role, Boolean.FALSE);
+        source.toggleMember(dto.getDbKey(), group);
+
+        assertTrue(service.isAuthorized(dto, role));
+
+        cache.onChange();
+        cache.onTransactionEnd();
+
+        assertFalse(service.isAuthorized(dto, role));
+        assertEquals(Integer.valueOf(3), service.getPrivileges(dto, oid));
+    }
+}
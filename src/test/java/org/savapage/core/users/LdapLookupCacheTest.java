@@ -0,0 +1,129 @@
+/*
+ * This file is part of the SavaPage project <https://www.savapage.org>.
+ * Copyright (c) 2020 Datraverse B.V.
+ * Author: Rijk Ravestein.
+ *
+ * SPDX-FileCopyrightText: © 2020 Datraverse B.V. <info@datraverse.com>
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * For more information, please contact Datraverse B.V. at this
+ * address: info@datraverse.com
+ */
+package org.savapage.core.users;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LdapLookupCache}.
+ *
+ * @author Rijk Ravestein
+ *
+ */
+public class LdapLookupCacheTest {
+
+    /** */
+    private static final Map<String, String> ENV =
+            Collections.singletonMap("url", "ldap://a");
+
+    /** */
+    private static final long TTL = 60000L;
+
+    @Test
+    public void testPositiveAndNegative()
+            throws IOException, NamingException {
+
+        final LdapLookupCache cache = new LdapLookupCache();
+        cache.configure(ENV, TTL, TTL);
+
+        final CommonUser user = new CommonUser();
+        user.setUserName("john");
+
+        final CommonUser cached = cache.getUser("john", () -> user);
+        assertEquals("john", cached.getUserName());
+        assertNotSame(user, cached);
+
+        // Hit: a modified copy does not affect the cache.
+        cached.setUserName("changed");
+        assertEquals("john", cache.getUser("john", () -> null).getUserName());
+
+        // Negative caching.
+        assertNull(cache.getUser("nobody", () -> null));
+        assertNull(cache.getUser("nobody", () -> user));
+
+        assertFalse(cache.isUserInGroup("john", "staff", () -> false));
+        assertFalse(cache.isUserInGroup("john", "staff", () -> true));
+        assertTrue(cache.isUserInGroup("john", "admin", () -> true));
+
+        assertEquals(4, cache.getMisses());
+        assertEquals(3, cache.getHits());
+    }
+
+    @Test
+    public void testNoNegativeCaching() throws IOException, NamingException {
+
+        final LdapLookupCache cache = new LdapLookupCache();
+        cache.configure(ENV, TTL, 0L);
+
+        assertFalse(cache.isUserInGroup("john", "staff", () -> false));
+        assertTrue(cache.isUserInGroup("john", "staff", () -> true));
+        assertTrue(cache.isUserInGroup("john", "staff", () -> false));
+    }
+
+    @Test
+    public void testErrorNotCached() throws IOException, NamingException {
+
+        final LdapLookupCache cache = new LdapLookupCache();
+        cache.configure(ENV, TTL, TTL);
+
+        try {
+            cache.isUserInGroup("john", "staff", () -> {
+                throw new CommunicationException();
+            });
+            fail();
+        } catch (CommunicationException e) {
+            // expected
+        }
+        assertTrue(cache.isUserInGroup("john", "staff", () -> true));
+    }
+
+    @Test
+    public void testEnvironmentChange() throws IOException, NamingException {
+
+        final LdapLookupCache cache = new LdapLookupCache();
+        cache.configure(ENV, TTL, TTL);
+
+        assertTrue(cache.isUserInGroup("john", "staff", () -> true));
+
+        cache.configure(Collections.singletonMap("url", "ldap://b"), TTL,
+                TTL);
+
+        assertFalse(cache.isUserInGroup("john", "staff", () -> false));
+    }
+}